@@ -0,0 +1,365 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.map.Map1L;
+import components.program.Program;
+import components.set.Set;
+import components.set.Set1L;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Compiler from a parsed BL {@code Program} to a flat array of instructions
+ * for a simple machine, so that running a program is a loop over an
+ * {@code int[]} instead of a walk over a {@code Statement} tree.
+ *
+ * <p>
+ * The instruction set is the one of the BugsWorld virtual machine: the five
+ * primitive instructions and {@code HALT} take no operand; {@code JUMP} and
+ * the conditional jumps {@code JUMP_IF_NOT_<condition>} take the address of
+ * their target as an operand in the next array element. IF, IF_ELSE and WHILE
+ * compile to conditional and unconditional jumps, calls to user-defined
+ * instructions are inlined, and the code ends with {@code HALT}.
+ * </p>
+ *
+ * <p>
+ * Each user-defined instruction is compiled once, with addresses relative to
+ * its start, and copied with its jump targets relocated at each call. Since
+ * calls are inlined, a recursive instruction cannot be compiled; it is
+ * reported as an error, as is a call to an undefined instruction.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLCompiler {
+
+    /**
+     * Opcodes of the primitive instructions and of {@code HALT}.
+     */
+    public static final int MOVE = 0, TURNLEFT = 1, TURNRIGHT = 2,
+            INFECT = 3, SKIP = 4, HALT = 5;
+
+    /**
+     * Opcode of the unconditional jump.
+     */
+    public static final int JUMP = 6;
+
+    /**
+     * Opcode of the first conditional jump, {@code JUMP_IF_NOT_NEXT_IS_EMPTY};
+     * the opcode for the condition of kind {@code k} is
+     * {@code JUMP_IF_NOT + k - TokenKind.NEXT_IS_EMPTY}, through
+     * {@code JUMP_IF_NOT_TRUE}.
+     */
+    public static final int JUMP_IF_NOT = 7;
+
+    /**
+     * Number of opcodes.
+     */
+    public static final int OPCODE_COUNT = JUMP_IF_NOT + TokenKind.TRUE
+            - TokenKind.NEXT_IS_EMPTY + 1;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Names of the primitive instructions, indexed by opcode.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+        "turnright", "infect", "skip" };
+
+    /**
+     * A growable array of code.
+     */
+    private static final class Code {
+
+        /**
+         * The code.
+         */
+        private int[] code = new int[16];
+
+        /**
+         * Length of {@code code} in use.
+         */
+        private int length = 0;
+
+        /**
+         * Appends {@code x}.
+         *
+         * @param x
+         *            the value appended
+         */
+        private void add(int x) {
+            if (this.length == this.code.length) {
+                this.grow(1);
+            }
+            this.code[this.length] = x;
+            this.length++;
+        }
+
+        /**
+         * Makes room for {@code n} more values.
+         *
+         * @param n
+         *            the number of values
+         */
+        private void grow(int n) {
+            long needed = (long) this.length + n;
+            Reporter.assertElseFatalError(needed <= Integer.MAX_VALUE / 2,
+                    "Error: Program too large to compile");
+            this.code = Arrays.copyOf(this.code,
+                    (int) Math.max(2L * this.code.length, needed));
+        }
+
+        /**
+         * Appends {@code other}, adding the address where it starts to its
+         * jump targets.
+         *
+         * @param other
+         *            code with addresses relative to its start
+         */
+        private void append(Code other) {
+            if (this.length + other.length > this.code.length) {
+                this.grow(other.length);
+            }
+            int base = this.length;
+            System.arraycopy(other.code, 0, this.code, base, other.length);
+            int pc = base;
+            int end = base + other.length;
+            while (pc < end) {
+                if (this.code[pc] >= JUMP) {
+                    this.code[pc + 1] += base;
+                    pc += 2;
+                } else {
+                    pc++;
+                }
+            }
+            this.length = end;
+        }
+
+    }
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private BLCompiler() {
+    }
+
+    /**
+     * Returns the opcode of the primitive instruction {@code name}, or -1 if
+     * {@code name} is not a primitive instruction.
+     *
+     * @param name
+     *            the instruction name
+     * @return the opcode of {@code name}, or -1
+     */
+    private static int primitive(String name) {
+        for (int op = 0; op < PRIMITIVES.length; op++) {
+            if (PRIMITIVES[op].equals(name)) {
+                return op;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the code of the user-defined instruction {@code name}, compiling
+     * it if it has not been compiled yet.
+     *
+     * @param name
+     *            the instruction name
+     * @param context
+     *            the instructions of the program
+     * @param compiled
+     *            the instructions compiled so far
+     * @param active
+     *            the instructions being compiled
+     * @return the code of {@code name}, with addresses relative to its start
+     * @updates compiled, active
+     * @ensures <pre>
+     * if [name is defined in context and is not recursive] then
+     *  instruction = [code of name]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    private static Code instruction(String name,
+            Map<String, Statement> context, Map<String, Code> compiled,
+            Set<String> active) {
+        if (compiled.hasKey(name)) {
+            return compiled.value(name);
+        }
+        // the messages are built only on failure
+        if (!context.hasKey(name)) {
+            Reporter.fatalErrorToConsole(
+                    "Error: Undefined instruction: " + name);
+        }
+        if (active.contains(name)) {
+            Reporter.fatalErrorToConsole(
+                    "Error: Recursive instruction: " + name);
+        }
+        active.add(name);
+        Code code = new Code();
+        compile(context.value(name), code, context, compiled, active);
+        active.remove(name);
+        compiled.add(name, code);
+        return code;
+    }
+
+    /**
+     * Appends the code of {@code s} to {@code code}.
+     *
+     * @param s
+     *            the statement
+     * @param code
+     *            the code
+     * @param context
+     *            the instructions of the program
+     * @param compiled
+     *            the instructions compiled so far
+     * @param active
+     *            the instructions being compiled
+     * @updates code, compiled, active
+     * @restores s
+     */
+    private static void compile(Statement s, Code code,
+            Map<String, Statement> context, Map<String, Code> compiled,
+            Set<String> active) {
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    compile(child, code, context, compiled, active);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                code.add(jumpIfNot(c));
+                int patch = code.length;
+                code.add(0);
+                compile(block, code, context, compiled, active);
+                code.code[patch] = code.length;
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                code.add(jumpIfNot(c));
+                int toElse = code.length;
+                code.add(0);
+                compile(thenBlock, code, context, compiled, active);
+                code.add(JUMP);
+                int toEnd = code.length;
+                code.add(0);
+                code.code[toElse] = code.length;
+                compile(elseBlock, code, context, compiled, active);
+                code.code[toEnd] = code.length;
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                int top = code.length;
+                code.add(jumpIfNot(c));
+                int toEnd = code.length;
+                code.add(0);
+                compile(block, code, context, compiled, active);
+                code.add(JUMP);
+                code.add(top);
+                code.code[toEnd] = code.length;
+                s.assembleWhile(c, block);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                int op = primitive(name);
+                if (op >= 0) {
+                    code.add(op);
+                } else {
+                    code.append(instruction(name, context, compiled, active));
+                }
+                s.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the opcode of the conditional jump taken when {@code c} is
+     * false.
+     *
+     * @param c
+     *            the condition
+     * @return the opcode {@code JUMP_IF_NOT_c}
+     */
+    public static int jumpIfNot(Statement.Condition c) {
+        return JUMP_IF_NOT + TokenKind.kindOf(c) - TokenKind.NEXT_IS_EMPTY;
+    }
+
+    /**
+     * Reports the number of array elements taken by an instruction with
+     * opcode {@code op}: 2 for the jumps, 1 for the others.
+     *
+     * @param op
+     *            the opcode
+     * @return the length of the instruction
+     * @requires 0 <= op < OPCODE_COUNT
+     */
+    public static int length(int op) {
+        assert 0 <= op && op < OPCODE_COUNT : ""
+                + "Violation of: 0 <= op < OPCODE_COUNT";
+        if (op >= JUMP) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * Compiles {@code p}.
+     *
+     * @param p
+     *            the program
+     * @return the code of {@code p}
+     * @restores p
+     * @ensures <pre>
+     * if [every instruction called in p is primitive or defined in p, and
+     *     none is recursive] then
+     *  compile = [code of the body of p, with calls inlined, followed by HALT]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public static int[] compile(Program p) {
+        assert p != null : "Violation of: p is not null";
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+
+        Code code = new Code();
+        compile(body, code, context, new Map1L<String, Code>(),
+                new Set1L<String>());
+        code.add(HALT);
+
+        p.swapContext(context);
+        p.swapBody(body);
+        return Arrays.copyOf(code.code, code.length);
+    }
+
+}
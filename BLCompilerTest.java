@@ -0,0 +1,123 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code BLCompiler}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLCompilerTest {
+
+    /**
+     * Returns the program parsed from {@code text}.
+     *
+     * @param text
+     *            the source text
+     * @return the program
+     */
+    private static Program parse(String text) {
+        return TestTokens.parse(text);
+    }
+
+    /**
+     * Opcode of the conditional jump on {@code c}.
+     *
+     * @param c
+     *            the condition
+     * @return the opcode
+     */
+    private static int jin(Statement.Condition c) {
+        return BLCompiler.jumpIfNot(c);
+    }
+
+    /**
+     * Test of primitive instructions.
+     */
+    @Test
+    public void testPrimitives() {
+        Program p = parse("PROGRAM P IS BEGIN move turnleft turnright "
+                + "infect skip END P");
+        int[] expected = { BLCompiler.MOVE, BLCompiler.TURNLEFT,
+            BLCompiler.TURNRIGHT, BLCompiler.INFECT, BLCompiler.SKIP,
+            BLCompiler.HALT };
+        assertArrayEquals(expected, BLCompiler.compile(p));
+    }
+
+    /**
+     * Test of IF, IF_ELSE and WHILE.
+     */
+    @Test
+    public void testControl() {
+        Program p = parse("PROGRAM P IS BEGIN "
+                + "IF next-is-wall THEN turnleft END IF "
+                + "IF random THEN move ELSE skip END IF "
+                + "WHILE true DO infect END WHILE END P");
+        int[] expected = {
+            /* 0 */ jin(Statement.Condition.NEXT_IS_WALL), 3,
+            /* 2 */ BLCompiler.TURNLEFT,
+            /* 3 */ jin(Statement.Condition.RANDOM), 8,
+            /* 5 */ BLCompiler.MOVE, BLCompiler.JUMP, 9,
+            /* 8 */ BLCompiler.SKIP,
+            /* 9 */ jin(Statement.Condition.TRUE), 14,
+            /* 11 */ BLCompiler.INFECT, BLCompiler.JUMP, 9,
+            /* 14 */ BLCompiler.HALT };
+        assertArrayEquals(expected, BLCompiler.compile(p));
+    }
+
+    /**
+     * Test of inlined calls: jump targets are relocated at each call.
+     */
+    @Test
+    public void testInlining() {
+        Program p = parse("PROGRAM P IS "
+                + "INSTRUCTION a IS WHILE next-is-empty DO move END WHILE "
+                + "END a INSTRUCTION b IS turnleft a END b "
+                + "BEGIN a b END P");
+        int empty = jin(Statement.Condition.NEXT_IS_EMPTY);
+        int[] expected = {
+            /* 0 */ empty, 5, BLCompiler.MOVE, BLCompiler.JUMP, 0,
+            /* 5 */ BLCompiler.TURNLEFT,
+            /* 6 */ empty, 11, BLCompiler.MOVE, BLCompiler.JUMP, 6,
+            /* 11 */ BLCompiler.HALT };
+        assertArrayEquals(expected, BLCompiler.compile(p));
+    }
+
+    /**
+     * Test that compile restores the program.
+     */
+    @Test
+    public void testRestores() {
+        Program p = parse("PROGRAM P IS INSTRUCTION a IS "
+                + "IF random THEN move ELSE a2 END IF END a "
+                + "INSTRUCTION a2 IS skip END a2 BEGIN a END P");
+        Program pRef = parse("PROGRAM P IS INSTRUCTION a IS "
+                + "IF random THEN move ELSE a2 END IF END a "
+                + "INSTRUCTION a2 IS skip END a2 BEGIN a END P");
+        BLCompiler.compile(p);
+        assertEquals(pRef, p);
+    }
+
+    /**
+     * Test of a recursive instruction.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testRecursion() {
+        BLCompiler.compile(parse("PROGRAM P IS INSTRUCTION a IS b END a "
+                + "INSTRUCTION b IS a END b BEGIN b END P"));
+    }
+
+    /**
+     * Test of a call to an undefined instruction.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testUndefined() {
+        BLCompiler.compile(parse("PROGRAM P IS BEGIN jump END P"));
+    }
+
+}
@@ -0,0 +1,521 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Streaming formatter of parsed BL programs and statements, writing their
+ * text straight into a {@code Writer} without building a string per line.
+ *
+ * <p>
+ * Text is copied into a buffer of characters owned by the formatter, and the
+ * buffer is handed to the {@code Writer} only when it fills up and on
+ * {@code flush}; keywords, conditions and names are copied in with
+ * {@code String.getChars}, and indentation is copied from a run of spaces
+ * built once, so formatting a statement allocates nothing. A formatter can
+ * be reused for any number of programs, and is not safe for use by several
+ * threads at once.
+ * </p>
+ *
+ * <p>
+ * There are two layouts. The pretty layout is that of {@code prettyPrint}:
+ * one statement or keyword line per line, instructions indented by
+ * {@code INDENT} spaces, their bodies and the main body by one more level,
+ * and a blank line after the program header and after each instruction. The
+ * compact layout is the canonical form of a program: all its tokens on one
+ * line, separated by single spaces, and followed by a line separator, so
+ * that programs that differ only in layout have the same compact form.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLFormatter {
+
+    /**
+     * Number of spaces per level of indentation in the pretty layout.
+     */
+    public static final int INDENT = 4;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of characters buffered before they are written out.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The output.
+     */
+    private final Writer out;
+
+    /**
+     * Whether the layout is compact.
+     */
+    private final boolean compact;
+
+    /**
+     * The buffered characters.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Number of characters in {@code buffer}.
+     */
+    private int length = 0;
+
+    /**
+     * A run of spaces, at least as long as the deepest indentation so far.
+     */
+    private char[] spaces = new char[16 * INDENT];
+
+    /**
+     * Whether a token has been written to the current compact line.
+     */
+    private boolean separate = false;
+
+    /**
+     * Writes the buffered characters to {@code out}.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void drain() throws IOException {
+        this.out.write(this.buffer, 0, this.length);
+        this.length = 0;
+    }
+
+    /**
+     * Appends {@code c}.
+     *
+     * @param c
+     *            the character
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void put(char c) throws IOException {
+        if (this.length == BUFFER_SIZE) {
+            this.drain();
+        }
+        this.buffer[this.length] = c;
+        this.length++;
+    }
+
+    /**
+     * Appends {@code s}.
+     *
+     * @param s
+     *            the text
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void put(String s) throws IOException {
+        int n = s.length();
+        if (n > BUFFER_SIZE - this.length) {
+            this.drain();
+            if (n > BUFFER_SIZE) {
+                this.out.write(s);
+                return;
+            }
+        }
+        s.getChars(0, n, this.buffer, this.length);
+        this.length += n;
+    }
+
+    /**
+     * Starts a line indented by {@code offset} spaces; in the compact layout,
+     * separates what follows from the previous token instead.
+     *
+     * @param offset
+     *            the number of spaces
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void begin(int offset) throws IOException {
+        if (this.compact) {
+            if (this.separate) {
+                this.put(' ');
+            }
+            this.separate = true;
+        } else {
+            if (offset > this.spaces.length) {
+                this.spaces = new char[2 * offset];
+                Arrays.fill(this.spaces, ' ');
+            }
+            int rest = offset;
+            while (rest > 0) {
+                if (this.length == BUFFER_SIZE) {
+                    this.drain();
+                }
+                int n = Math.min(rest, BUFFER_SIZE - this.length);
+                System.arraycopy(this.spaces, 0, this.buffer, this.length, n);
+                this.length += n;
+                rest -= n;
+            }
+        }
+    }
+
+    /**
+     * Ends a line of the pretty layout.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void end() throws IOException {
+        if (!this.compact) {
+            this.put('\n');
+        }
+    }
+
+    /**
+     * Writes a line holding {@code text} alone, indented by {@code offset}
+     * spaces.
+     *
+     * @param offset
+     *            the number of spaces
+     * @param text
+     *            the text
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void line(int offset, String text) throws IOException {
+        this.begin(offset);
+        this.put(text);
+        this.end();
+    }
+
+    /**
+     * Writes a line holding {@code keyword}, a space and {@code name},
+     * indented by {@code offset} spaces.
+     *
+     * @param offset
+     *            the number of spaces
+     * @param keyword
+     *            the keyword
+     * @param name
+     *            the name
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void line(int offset, String keyword, String name)
+            throws IOException {
+        this.begin(offset);
+        this.put(keyword);
+        this.put(' ');
+        this.put(name);
+        this.end();
+    }
+
+    /**
+     * Writes a line holding {@code keyword}, a space, {@code name} and
+     * {@code " IS"}, indented by {@code offset} spaces.
+     *
+     * @param offset
+     *            the number of spaces
+     * @param keyword
+     *            the keyword
+     * @param name
+     *            the name
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void header(int offset, String keyword, String name)
+            throws IOException {
+        this.begin(offset);
+        this.put(keyword);
+        this.put(' ');
+        this.put(name);
+        this.put(" IS");
+        this.end();
+    }
+
+    /**
+     * Writes the first line of a compound statement: {@code IF c THEN} or
+     * {@code WHILE c DO}.
+     *
+     * @param offset
+     *            the number of spaces
+     * @param kind
+     *            the node kind, as in {@code FlatProgram}
+     * @param condition
+     *            the condition kind
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void head(int offset, int kind, int condition)
+            throws IOException {
+        this.begin(offset);
+        if (kind == FlatProgram.WHILE) {
+            this.put("WHILE ");
+            this.put(TokenKind.spelling(condition));
+            this.put(" DO");
+        } else {
+            this.put("IF ");
+            this.put(TokenKind.spelling(condition));
+            this.put(" THEN");
+        }
+        this.end();
+    }
+
+    /**
+     * Writes a blank line in the pretty layout.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void blank() throws IOException {
+        if (!this.compact) {
+            this.put('\n');
+        }
+    }
+
+    /**
+     * Ends the text of a program or statement: the line of a compact layout,
+     * if anything is on it.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void finish() throws IOException {
+        if (this.separate) {
+            this.put('\n');
+            this.separate = false;
+        }
+    }
+
+    /**
+     * Writes {@code s}, indented by {@code offset} spaces.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the number of spaces
+     * @throws IOException
+     *             if an I/O error occurs
+     * @restores s
+     */
+    private void statement(Statement s, int offset) throws IOException {
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    this.statement(child, offset);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                this.head(offset, FlatProgram.IF, TokenKind.kindOf(c));
+                this.statement(block, offset + INDENT);
+                this.line(offset, "END IF");
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                this.head(offset, FlatProgram.IF, TokenKind.kindOf(c));
+                this.statement(thenBlock, offset + INDENT);
+                this.line(offset, "ELSE");
+                this.statement(elseBlock, offset + INDENT);
+                this.line(offset, "END IF");
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                this.head(offset, FlatProgram.WHILE, TokenKind.kindOf(c));
+                this.statement(block, offset + INDENT);
+                this.line(offset, "END WHILE");
+                s.assembleWhile(c, block);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                this.line(offset, name);
+                s.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes node {@code n} of {@code flat}, indented by {@code offset}
+     * spaces.
+     *
+     * @param flat
+     *            the program
+     * @param n
+     *            the node number
+     * @param offset
+     *            the number of spaces
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void statement(FlatProgram flat, int n, int offset)
+            throws IOException {
+        int kind = flat.kind(n);
+        switch (kind) {
+            case FlatProgram.BLOCK: {
+                for (int i = 0; i < flat.childCount(n); i++) {
+                    this.statement(flat, flat.child(n, i), offset);
+                }
+                break;
+            }
+            case FlatProgram.CALL: {
+                this.line(offset, flat.callName(n));
+                break;
+            }
+            default: {
+                this.head(offset, kind, flat.condition(n));
+                this.statement(flat, flat.child(n, 0), offset + INDENT);
+                if (kind == FlatProgram.IF_ELSE) {
+                    this.line(offset, "ELSE");
+                    this.statement(flat, flat.child(n, 1), offset + INDENT);
+                }
+                if (kind == FlatProgram.WHILE) {
+                    this.line(offset, "END WHILE");
+                } else {
+                    this.line(offset, "END IF");
+                }
+                break;
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *            the output
+     * @param compact
+     *            whether to use the compact layout instead of the pretty one
+     */
+    public BLFormatter(Writer out, boolean compact) {
+        assert out != null : "Violation of: out is not null";
+        this.out = out;
+        this.compact = compact;
+        Arrays.fill(this.spaces, ' ');
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Writes {@code p}. The text may stay buffered until {@code flush}.
+     *
+     * @param p
+     *            the program
+     * @throws IOException
+     *             if an I/O error occurs
+     * @restores p
+     * @ensures out = #out * [text of p]
+     */
+    public void format(Program p) throws IOException {
+        assert p != null : "Violation of: p is not null";
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+        String name = p.name();
+
+        this.header(0, "PROGRAM", name);
+        this.blank();
+        Map<String, Statement> temp = context.newInstance();
+        while (context.size() > 0) {
+            Map.Pair<String, Statement> instruction = context.removeAny();
+            this.header(INDENT, "INSTRUCTION", instruction.key());
+            this.statement(instruction.value(), 2 * INDENT);
+            this.line(INDENT, "END", instruction.key());
+            this.blank();
+            temp.add(instruction.key(), instruction.value());
+        }
+        context.transferFrom(temp);
+        this.line(0, "BEGIN");
+        this.statement(body, INDENT);
+        this.line(0, "END", name);
+        this.finish();
+
+        p.swapContext(context);
+        p.swapBody(body);
+    }
+
+    /**
+     * Writes {@code s}, indented by {@code offset} spaces in the pretty
+     * layout. The text may stay buffered until {@code flush}.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the number of spaces
+     * @throws IOException
+     *             if an I/O error occurs
+     * @restores s
+     * @requires 0 <= offset
+     * @ensures out = #out * [text of s]
+     */
+    public void format(Statement s, int offset) throws IOException {
+        assert s != null : "Violation of: s is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        this.statement(s, offset);
+        this.finish();
+    }
+
+    /**
+     * Writes {@code flat}, with its instructions in order. The text may stay
+     * buffered until {@code flush}.
+     *
+     * @param flat
+     *            the program
+     * @throws IOException
+     *             if an I/O error occurs
+     * @ensures out = #out * [text of flat]
+     */
+    public void format(FlatProgram flat) throws IOException {
+        assert flat != null : "Violation of: flat is not null";
+        this.header(0, "PROGRAM", flat.name());
+        this.blank();
+        for (int i = 0; i < flat.instructionCount(); i++) {
+            String name = flat.instructionName(i);
+            this.header(INDENT, "INSTRUCTION", name);
+            this.statement(flat, flat.instructionBody(i), 2 * INDENT);
+            this.line(INDENT, "END", name);
+            this.blank();
+        }
+        this.line(0, "BEGIN");
+        this.statement(flat, flat.body(), INDENT);
+        this.line(0, "END", flat.name());
+        this.finish();
+    }
+
+    /**
+     * Writes out the buffered text and flushes {@code out}.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        this.drain();
+        this.out.flush();
+    }
+
+}
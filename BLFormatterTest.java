@@ -0,0 +1,158 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code BLFormatter}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLFormatterTest {
+
+    /**
+     * A small program, in the compact layout.
+     */
+    private static final String COMPACT = "PROGRAM P IS "
+            + "INSTRUCTION a IS IF random THEN move ELSE skip END IF END a "
+            + "BEGIN WHILE true DO a IF next-is-wall THEN turnleft END IF "
+            + "END WHILE END P\n";
+
+    /**
+     * The same program, in the pretty layout.
+     */
+    private static final String PRETTY = "PROGRAM P IS\n" + "\n"
+            + "    INSTRUCTION a IS\n" + "        IF random THEN\n"
+            + "            move\n" + "        ELSE\n" + "            skip\n"
+            + "        END IF\n" + "    END a\n" + "\n" + "BEGIN\n"
+            + "    WHILE true DO\n" + "        a\n"
+            + "        IF next-is-wall THEN\n" + "            turnleft\n"
+            + "        END IF\n" + "    END WHILE\n" + "END P\n";
+
+    /**
+     * Returns the text of {@code p} in the given layout.
+     *
+     * @param p
+     *            the program
+     * @param compact
+     *            whether to use the compact layout
+     * @return the text of {@code p}
+     * @throws IOException
+     *             if formatting fails
+     */
+    private static String format(Program p, boolean compact)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        BLFormatter formatter = new BLFormatter(out, compact);
+        formatter.format(p);
+        formatter.flush();
+        return out.toString();
+    }
+
+    /**
+     * Test of both layouts of a small program, from a {@code Program} and
+     * from a {@code FlatProgram}.
+     *
+     * @throws IOException
+     *             if formatting fails
+     */
+    @Test
+    public void testLayouts() throws IOException {
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(PRETTY));
+        Program copy = p.newInstance();
+        copy.parse(TestTokens.tokens(PRETTY));
+        assertEquals(PRETTY, format(p, false));
+        assertEquals(COMPACT, format(p, true));
+        assertEquals(copy, p);
+
+        FlatProgram flat = Program1Parse1
+                .parseFlat(TestTokens.stream(COMPACT));
+        StringWriter out = new StringWriter();
+        BLFormatter formatter = new BLFormatter(out, false);
+        formatter.format(flat);
+        formatter.flush();
+        assertEquals(PRETTY, out.toString());
+    }
+
+    /**
+     * Test of a statement, at an offset, and of reusing a formatter.
+     *
+     * @throws IOException
+     *             if formatting fails
+     */
+    @Test
+    public void testStatement() throws IOException {
+        Statement s = new Statement1Parse1();
+        s.parseBlock(TestTokens.tokens("move IF random THEN infect END IF"));
+        StringWriter out = new StringWriter();
+        BLFormatter formatter = new BLFormatter(out, false);
+        formatter.format(s, 2);
+        formatter.format(s, 0);
+        formatter.flush();
+        assertEquals("  move\n  IF random THEN\n      infect\n  END IF\n"
+                + "move\nIF random THEN\n    infect\nEND IF\n",
+                out.toString());
+
+        out = new StringWriter();
+        formatter = new BLFormatter(out, true);
+        formatter.format(s, 2);
+        formatter.format(s, 0);
+        formatter.flush();
+        assertEquals("move IF random THEN infect END IF\n"
+                + "move IF random THEN infect END IF\n", out.toString());
+    }
+
+    /**
+     * Test that both layouts of the fixtures parse back to the same
+     * program, with output larger than the formatter's buffer.
+     *
+     * @throws IOException
+     *             if formatting fails
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (String file : new String[] { "test/program1a.bl",
+            "test/program1b.bl" }) {
+            Program p = new Program1Parse1();
+            SimpleReader in = new SimpleReader1L(file);
+            p.parse(in);
+            in.close();
+            for (boolean compact : new boolean[] { false, true }) {
+                Program q = p.newInstance();
+                q.parse(TestTokens.tokens(format(p, compact)));
+                assertEquals(p, q);
+            }
+        }
+
+        final int n = 2000;
+        final int depth = 40;
+        StringBuilder text = new StringBuilder("PROGRAM P IS BEGIN");
+        for (int i = 0; i < depth; i++) {
+            text.append(" WHILE next-is-not-empty DO");
+        }
+        for (int i = 0; i < n; i++) {
+            text.append(" turnright");
+        }
+        for (int i = 0; i < depth; i++) {
+            text.append(" END WHILE");
+        }
+        text.append(" END P");
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(text.toString()));
+        String pretty = format(p, false);
+        Program q = p.newInstance();
+        q.parse(TestTokens.tokens(pretty));
+        assertEquals(p, q);
+        assertEquals(text + "\n", format(p, true));
+    }
+
+}
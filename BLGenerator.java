@@ -0,0 +1,593 @@
+import java.util.Random;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Seeded generator of synthetic BL programs and statement blocks, valid or
+ * deliberately invalid, for scale and stress testing.
+ *
+ * <p>
+ * Programs are written to a {@code SimpleWriter} statement by statement as
+ * they are generated, so their size is not limited by memory: the only state
+ * kept is a stack of the IF/WHILE statements still open. The same seed and
+ * settings always produce the same text.
+ * </p>
+ *
+ * <p>
+ * A body of {@code statements} statements is generated by repeatedly choosing,
+ * with the configured weights, to emit a call, open an IF or WHILE (while
+ * fewer than {@code depth} are open), or close the innermost open statement
+ * (an IF may get an ELSE first); whatever is still open at the end is closed.
+ * Calls name a primitive instruction or, with equal probability, an
+ * instruction defined earlier, so generated programs are never recursive.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLGenerator {
+
+    /**
+     * Ways a generated program can be made invalid.
+     */
+    public enum Mutation {
+        /**
+         * The program is valid.
+         */
+        NONE,
+        /**
+         * An instruction, or the program, ends with the wrong name.
+         */
+        MISMATCHED_NAME,
+        /**
+         * An instruction is named after a primitive instruction.
+         */
+        PRIMITIVE_NAME,
+        /**
+         * Two instructions have the same name.
+         */
+        DUPLICATE_NAME,
+        /**
+         * An IF or WHILE has an invalid condition.
+         */
+        BAD_CONDITION,
+        /**
+         * An IF or WHILE is missing its THEN or DO.
+         */
+        MISSING_THEN,
+        /**
+         * An IF or WHILE is missing its closing END IF or END WHILE.
+         */
+        MISSING_END,
+        /**
+         * A token follows the end of the program.
+         */
+        TRAILING_TOKEN
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The primitive instructions.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+        "turnright", "infect", "skip" };
+
+    /**
+     * All the conditions, the default condition mix.
+     */
+    private static final String[] CONDITIONS = { "next-is-empty",
+        "next-is-not-empty", "next-is-wall", "next-is-not-wall",
+        "next-is-friend", "next-is-not-friend", "next-is-enemy",
+        "next-is-not-enemy", "random", "true" };
+
+    /**
+     * Maximum indentation level written; deeper statements are not indented
+     * further, so deeply nested programs stay linear in size.
+     */
+    private static final int MAX_INDENT = 16;
+
+    /**
+     * Open statement kinds on the stack.
+     */
+    private static final int OPEN_IF = 0, OPEN_ELSE = 1, OPEN_WHILE = 2;
+
+    /**
+     * Flag on an open statement kind: its END line is left out.
+     */
+    private static final int UNCLOSED = 4;
+
+    /**
+     * Indices of the choices in {@code weights}.
+     */
+    private static final int CALL = 0, IF = 1, WHILE = 2, CLOSE = 3;
+
+    /**
+     * The source of randomness.
+     */
+    private final Random random;
+
+    /**
+     * Number of instructions in a program.
+     */
+    private int instructions;
+
+    /**
+     * Number of statements in each body.
+     */
+    private int statements;
+
+    /**
+     * Maximum IF/WHILE nesting depth.
+     */
+    private int depth;
+
+    /**
+     * Relative weights of emitting a call, an IF, a WHILE and closing the
+     * innermost open statement.
+     */
+    private final int[] weights;
+
+    /**
+     * The conditions drawn from.
+     */
+    private String[] conditions;
+
+    /**
+     * The mutation applied to generated programs.
+     */
+    private Mutation mutation;
+
+    /**
+     * Index of the body the mutation is applied in (the main body is
+     * {@code instructions}); a statement-level mutation is applied to the
+     * first IF or WHILE in or after that body.
+     */
+    private int target;
+
+    /**
+     * Whether the mutation has been applied to the current program.
+     */
+    private boolean applied;
+
+    /**
+     * Writes the indentation for level {@code level} to {@code out}.
+     *
+     * @param out
+     *            the output stream
+     * @param level
+     *            the indentation level
+     * @updates out.content
+     */
+    private static void indent(SimpleWriter out, int level) {
+        for (int i = Math.min(level, MAX_INDENT); i > 0; i--) {
+            out.print("    ");
+        }
+    }
+
+    /**
+     * Returns a random name to call in a body that may call the first
+     * {@code defined} instructions.
+     *
+     * @param defined
+     *            the number of instructions that may be called
+     * @return the name of a primitive or of one of those instructions
+     */
+    private String callee(int defined) {
+        if (defined > 0 && this.random.nextBoolean()) {
+            return "i" + this.random.nextInt(defined);
+        }
+        return PRIMITIVES[this.random.nextInt(PRIMITIVES.length)];
+    }
+
+    /**
+     * Chooses what to emit next in a body with {@code open} statements open.
+     *
+     * @param open
+     *            the number of open statements
+     * @return CALL, IF, WHILE or CLOSE
+     */
+    private int choose(int open) {
+        int[] w = { this.weights[CALL], this.weights[IF],
+            this.weights[WHILE], this.weights[CLOSE] };
+        if (open >= this.depth) {
+            w[IF] = 0;
+            w[WHILE] = 0;
+        }
+        if (open == 0) {
+            w[CLOSE] = 0;
+        }
+        int total = w[CALL] + w[IF] + w[WHILE] + w[CLOSE];
+        if (total == 0) {
+            return CALL;
+        }
+        int r = this.random.nextInt(total);
+        int choice = CALL;
+        while (r >= w[choice]) {
+            r -= w[choice];
+            choice++;
+        }
+        return choice;
+    }
+
+    /**
+     * Writes a block of {@code this.statements} statements to {@code out}.
+     *
+     * @param out
+     *            the output stream
+     * @param level
+     *            the indentation level of the block
+     * @param defined
+     *            the number of instructions the block may call
+     * @param mutate
+     *            whether a statement-level mutation may be applied here
+     * @updates out.content
+     */
+    private void block(SimpleWriter out, int level, int defined,
+            boolean mutate) {
+        int[] open = new int[Math.max(0, Math.min(this.depth,
+                this.statements))];
+        int top = 0;
+        int emitted = 0;
+        while (emitted < this.statements || top > 0) {
+            int choice = CLOSE;
+            if (emitted < this.statements) {
+                choice = this.choose(top);
+            }
+            if (choice == CALL) {
+                indent(out, level + top);
+                out.println(this.callee(defined));
+                emitted++;
+            } else if (choice == IF || choice == WHILE) {
+                String condition = this.conditions[this.random
+                        .nextInt(this.conditions.length)];
+                boolean missingThen = false;
+                int kind = OPEN_WHILE;
+                if (choice == IF) {
+                    kind = OPEN_IF;
+                }
+                if (mutate && !this.applied) {
+                    this.applied = true;
+                    if (this.mutation == Mutation.BAD_CONDITION) {
+                        condition = "next-is-lava";
+                    } else if (this.mutation == Mutation.MISSING_THEN) {
+                        missingThen = true;
+                    } else {
+                        kind |= UNCLOSED;
+                    }
+                }
+                indent(out, level + top);
+                if (choice == IF) {
+                    out.print("IF " + condition);
+                    if (!missingThen) {
+                        out.print(" THEN");
+                    }
+                } else {
+                    out.print("WHILE " + condition);
+                    if (!missingThen) {
+                        out.print(" DO");
+                    }
+                }
+                out.println();
+                open[top] = kind;
+                top++;
+                emitted++;
+            } else {
+                int kind = open[top - 1];
+                if ((kind & ~UNCLOSED) == OPEN_IF && emitted < this.statements
+                        && this.random.nextBoolean()) {
+                    indent(out, level + top - 1);
+                    out.println("ELSE");
+                    open[top - 1] = OPEN_ELSE | (kind & UNCLOSED);
+                } else {
+                    top--;
+                    if ((kind & UNCLOSED) == 0) {
+                        indent(out, level + top);
+                        if (kind == OPEN_WHILE) {
+                            out.println("END WHILE");
+                        } else {
+                            out.println("END IF");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of instruction {@code i}, mutated if it is the target.
+     *
+     * @param i
+     *            the instruction number
+     * @return the name of instruction {@code i}
+     */
+    private String instructionName(int i) {
+        String name = "i" + i;
+        if (i == this.target) {
+            if (this.mutation == Mutation.PRIMITIVE_NAME) {
+                name = "move";
+                this.applied = true;
+            } else if (this.mutation == Mutation.DUPLICATE_NAME) {
+                name = "i0";
+                this.applied = true;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Returns the name that ends body {@code i}, mutated if it is the target.
+     *
+     * @param i
+     *            the body number
+     * @param name
+     *            the name of the body
+     * @return the closing name of body {@code i}
+     */
+    private String endName(int i, String name) {
+        if (i == this.target && this.mutation == Mutation.MISMATCHED_NAME) {
+            this.applied = true;
+            return name + "x";
+        }
+        return name;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; the defaults are 10 instructions of 20 statements each,
+     * nesting depth 4, weights 6:2:2:3 and all conditions, with no mutation.
+     *
+     * @param seed
+     *            the seed
+     */
+    public BLGenerator(long seed) {
+        final int defaultInstructions = 10;
+        final int defaultStatements = 20;
+        final int defaultDepth = 4;
+        this.random = new Random(seed);
+        this.instructions = defaultInstructions;
+        this.statements = defaultStatements;
+        this.depth = defaultDepth;
+        this.weights = new int[] { 6, 2, 2, 3 };
+        this.conditions = CONDITIONS.clone();
+        this.mutation = Mutation.NONE;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Sets the number of instructions in a generated program.
+     *
+     * @param instructions
+     *            the number of instructions
+     * @requires instructions >= 0
+     */
+    public void setInstructions(int instructions) {
+        assert instructions >= 0 : "Violation of: instructions >= 0";
+        this.instructions = instructions;
+    }
+
+    /**
+     * Sets the number of statements (calls, IFs and WHILEs, at any depth) in
+     * each instruction body, the main body, and a generated block.
+     *
+     * @param statements
+     *            the number of statements
+     * @requires statements >= 0
+     */
+    public void setStatements(int statements) {
+        assert statements >= 0 : "Violation of: statements >= 0";
+        this.statements = statements;
+    }
+
+    /**
+     * Sets the maximum IF/WHILE nesting depth.
+     *
+     * @param depth
+     *            the maximum depth
+     * @requires depth >= 0
+     */
+    public void setDepth(int depth) {
+        assert depth >= 0 : "Violation of: depth >= 0";
+        this.depth = depth;
+    }
+
+    /**
+     * Sets the relative weights of the choices made at each step.
+     *
+     * @param call
+     *            weight of emitting a call
+     * @param ifs
+     *            weight of opening an IF
+     * @param whiles
+     *            weight of opening a WHILE
+     * @param close
+     *            weight of closing the innermost open statement
+     * @requires [all weights are >= 0]
+     */
+    public void setWeights(int call, int ifs, int whiles, int close) {
+        assert call >= 0 && ifs >= 0 && whiles >= 0
+                && close >= 0 : "Violation of: all weights are >= 0";
+        this.weights[CALL] = call;
+        this.weights[IF] = ifs;
+        this.weights[WHILE] = whiles;
+        this.weights[CLOSE] = close;
+    }
+
+    /**
+     * Sets the conditions drawn from; a condition listed more than once is
+     * drawn proportionally more often.
+     *
+     * @param conditions
+     *            the conditions
+     * @requires conditions.length > 0
+     */
+    public void setConditions(String... conditions) {
+        assert conditions.length > 0 : "Violation of: conditions.length > 0";
+        this.conditions = conditions.clone();
+    }
+
+    /**
+     * Sets the mutation applied to generated programs. If a program offers
+     * no place for it (say, {@code DUPLICATE_NAME} with one instruction), a
+     * trailing token is added instead, so the program is still invalid.
+     *
+     * @param mutation
+     *            the mutation
+     */
+    public void setMutation(Mutation mutation) {
+        assert mutation != null : "Violation of: mutation is not null";
+        this.mutation = mutation;
+    }
+
+    /**
+     * Writes a generated program to {@code out}.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     */
+    public void generateProgram(SimpleWriter out) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        this.applied = false;
+        this.target = this.random.nextInt(this.instructions + 1);
+        if (this.mutation == Mutation.PRIMITIVE_NAME) {
+            this.target = this.target % Math.max(1, this.instructions);
+        } else if (this.mutation == Mutation.DUPLICATE_NAME) {
+            this.target = 1 + this.target % Math.max(1, this.instructions - 1);
+        }
+        boolean statementMutation = this.mutation == Mutation.BAD_CONDITION
+                || this.mutation == Mutation.MISSING_THEN
+                || this.mutation == Mutation.MISSING_END;
+
+        out.println("PROGRAM Generated IS");
+        out.println();
+        for (int i = 0; i < this.instructions; i++) {
+            String name = this.instructionName(i);
+            out.println("  INSTRUCTION " + name + " IS");
+            this.block(out, 1, i, statementMutation && i >= this.target);
+            out.println("  END " + this.endName(i, name));
+            out.println();
+        }
+        out.println("BEGIN");
+        this.block(out, 1, this.instructions, statementMutation);
+        out.println("END " + this.endName(this.instructions, "Generated"));
+        if (this.mutation != Mutation.NONE && !this.applied) {
+            out.println("END");
+        }
+    }
+
+    /**
+     * Writes a generated statement block to {@code out}. Mutations apply to
+     * programs only.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     */
+    public void generateBlock(SimpleWriter out) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        this.block(out, 0, 0, false);
+    }
+
+    /*
+     * Main method ------------------------------------------------------------
+     */
+
+    /**
+     * Main method. Usage: {@code BLGenerator [options] [-o file]}, writing
+     * one program (or block, with {@code -block}) to {@code file} or the
+     * console; or {@code BLGenerator [options] -n count -d dir}, writing
+     * {@code count} programs to {@code dir/gen-0.bl} and so on. The options
+     * are {@code -seed n}, {@code -instructions n}, {@code -statements n},
+     * {@code -depth n}, {@code -weights call,if,while,close},
+     * {@code -conditions c1,c2,...} and {@code -mutation NAME}.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        long seed = 0;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("-seed")) {
+                seed = Long.parseLong(args[i + 1]);
+            }
+        }
+        BLGenerator generator = new BLGenerator(seed);
+        String file = null;
+        String dir = null;
+        int count = 1;
+        boolean blockOnly = false;
+        int i = 0;
+        while (i < args.length) {
+            String option = args[i];
+            String value = "";
+            if (!option.equals("-block") && i + 1 < args.length) {
+                i++;
+                value = args[i];
+            }
+            if (option.equals("-o")) {
+                file = value;
+            } else if (option.equals("-d")) {
+                dir = value;
+            } else if (option.equals("-n")) {
+                count = Integer.parseInt(value);
+            } else if (option.equals("-block")) {
+                blockOnly = true;
+            } else if (option.equals("-instructions")) {
+                generator.setInstructions(Integer.parseInt(value));
+            } else if (option.equals("-statements")) {
+                generator.setStatements(Integer.parseInt(value));
+            } else if (option.equals("-depth")) {
+                generator.setDepth(Integer.parseInt(value));
+            } else if (option.equals("-weights")) {
+                String[] w = value.split(",");
+                final int nWeights = 4;
+                if (w.length != nWeights) {
+                    throw new IllegalArgumentException(
+                            "-weights needs call,if,while,close");
+                }
+                generator.setWeights(Integer.parseInt(w[0]),
+                        Integer.parseInt(w[1]), Integer.parseInt(w[2]),
+                        Integer.parseInt(w[3]));
+            } else if (option.equals("-conditions")) {
+                generator.setConditions(value.split(","));
+            } else if (option.equals("-mutation")) {
+                generator.setMutation(Mutation.valueOf(value));
+            } else if (!option.equals("-seed")) {
+                throw new IllegalArgumentException("Unknown option: " + option);
+            }
+            i++;
+        }
+
+        for (int k = 0; k < count; k++) {
+            SimpleWriter out;
+            if (dir != null) {
+                out = new SimpleWriter1L(dir + "/gen-" + k + ".bl");
+            } else if (file != null) {
+                out = new SimpleWriter1L(file);
+            } else {
+                out = new SimpleWriter1L();
+            }
+            if (blockOnly) {
+                generator.generateBlock(out);
+            } else {
+                generator.generateProgram(out);
+            }
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * JUnit test fixture for {@code BLGenerator}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLGeneratorTest {
+
+    /**
+     * Number of seeds each test is run with.
+     */
+    private static final int SEEDS = 20;
+
+    /**
+     * Writes a program generated by {@code generator} to a new temporary
+     * file.
+     *
+     * @param generator
+     *            the generator
+     * @return the file
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    private static File generate(BLGenerator generator) throws IOException {
+        File file = File.createTempFile("generated", ".bl");
+        file.deleteOnExit();
+        SimpleWriter out = new SimpleWriter1L(file.getPath());
+        generator.generateProgram(out);
+        out.close();
+        return file;
+    }
+
+    /**
+     * Parses the program in {@code file} in diagnostics mode.
+     *
+     * @param file
+     *            the file
+     * @return the errors found
+     */
+    private static Diagnostics parse(File file) {
+        Program p = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L(file.getPath());
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> p.parse(in));
+        in.close();
+        return diagnostics;
+    }
+
+    /**
+     * Test that generated programs without mutations are valid.
+     *
+     * @throws IOException
+     *             if a file cannot be created
+     */
+    @Test
+    public void testValid() throws IOException {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            BLGenerator generator = new BLGenerator(seed);
+            generator.setDepth(seed % 6);
+            assertEquals(0, parse(generate(generator)).size());
+        }
+    }
+
+    /**
+     * Test that each mutation makes generated programs invalid.
+     *
+     * @throws IOException
+     *             if a file cannot be created
+     */
+    @Test
+    public void testMutations() throws IOException {
+        for (BLGenerator.Mutation m : BLGenerator.Mutation.values()) {
+            if (m != BLGenerator.Mutation.NONE) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    BLGenerator generator = new BLGenerator(seed);
+                    generator.setInstructions(seed % 3);
+                    generator.setMutation(m);
+                    assertTrue(m + " " + seed,
+                            parse(generate(generator)).size() > 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the same seed and settings generate the same program.
+     *
+     * @throws IOException
+     *             if a file cannot be created or read
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        BLGenerator g1 = new BLGenerator(42);
+        BLGenerator g2 = new BLGenerator(42);
+        g1.setConditions("random", "true", "true");
+        g2.setConditions("random", "true", "true");
+        assertEquals(Files.readAllLines(generate(g1).toPath()),
+                Files.readAllLines(generate(g2).toPath()));
+    }
+
+}
@@ -0,0 +1,283 @@
+import java.util.Arrays;
+
+/**
+ * LL(1) parse table of BL for {@code Program1Parse3}, generated by
+ * {@code TableGenerator} from {@code bl.grammar}; do not edit.
+ *
+ * <p>
+ * Terminals are token kinds, nonterminals follow them from
+ * {@code TokenKind.COUNT} on, and actions follow the nonterminals.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BLParseTable {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private BLParseTable() {
+    }
+
+    /**
+     * The number of nonterminals.
+     */
+    public static final int NONTERMINAL_COUNT = 8;
+
+    /**
+     * Nonterminal {@code program}.
+     */
+    public static final int NT_PROGRAM = TokenKind.COUNT + 0;
+
+    /**
+     * Nonterminal {@code instructions}.
+     */
+    public static final int NT_INSTRUCTIONS = TokenKind.COUNT + 1;
+
+    /**
+     * Nonterminal {@code instruction}.
+     */
+    public static final int NT_INSTRUCTION = TokenKind.COUNT + 2;
+
+    /**
+     * Nonterminal {@code block}.
+     */
+    public static final int NT_BLOCK = TokenKind.COUNT + 3;
+
+    /**
+     * Nonterminal {@code statements}.
+     */
+    public static final int NT_STATEMENTS = TokenKind.COUNT + 4;
+
+    /**
+     * Nonterminal {@code statement}.
+     */
+    public static final int NT_STATEMENT = TokenKind.COUNT + 5;
+
+    /**
+     * Nonterminal {@code else}.
+     */
+    public static final int NT_ELSE = TokenKind.COUNT + 6;
+
+    /**
+     * Nonterminal {@code condition}.
+     */
+    public static final int NT_CONDITION = TokenKind.COUNT + 7;
+
+    /**
+     * The first action.
+     */
+    public static final int ACTION_BASE = TokenKind.COUNT + NONTERMINAL_COUNT;
+
+    /**
+     * The number of actions.
+     */
+    public static final int ACTION_COUNT = 8;
+
+    /**
+     * Action {@code #program}.
+     */
+    public static final int ACT_PROGRAM = ACTION_BASE + 0;
+
+    /**
+     * Action {@code #instruction}.
+     */
+    public static final int ACT_INSTRUCTION = ACTION_BASE + 1;
+
+    /**
+     * Action {@code #block}.
+     */
+    public static final int ACT_BLOCK = ACTION_BASE + 2;
+
+    /**
+     * Action {@code #add}.
+     */
+    public static final int ACT_ADD = ACTION_BASE + 3;
+
+    /**
+     * Action {@code #while}.
+     */
+    public static final int ACT_WHILE = ACTION_BASE + 4;
+
+    /**
+     * Action {@code #call}.
+     */
+    public static final int ACT_CALL = ACTION_BASE + 5;
+
+    /**
+     * Action {@code #ifelse}.
+     */
+    public static final int ACT_IFELSE = ACTION_BASE + 6;
+
+    /**
+     * Action {@code #if}.
+     */
+    public static final int ACT_IF = ACTION_BASE + 7;
+
+    /**
+     * The start symbol.
+     */
+    public static final int START = NT_PROGRAM;
+
+    /**
+     * Names of the nonterminals, indexed by
+     * {@code nonterminal - TokenKind.COUNT}.
+     */
+    static final String[] NONTERMINAL_NAMES = {
+        "program", "instructions", "instruction", "block", "statements",
+        "statement", "else", "condition"
+    };
+
+    /**
+     * Right-hand sides of the productions, reversed.
+     */
+    static final int[][] PRODUCTIONS = {
+        // 0: program : PROGRAM IDENTIFIER IS instructions BEGIN block END
+        //     IDENTIFIER #program END_OF_INPUT
+        {
+            TokenKind.END_OF_INPUT, ACT_PROGRAM, TokenKind.IDENTIFIER,
+            TokenKind.END, NT_BLOCK, TokenKind.BEGIN, NT_INSTRUCTIONS,
+            TokenKind.IS, TokenKind.IDENTIFIER, TokenKind.PROGRAM
+        },
+        // 1: instructions : instruction instructions
+        {
+            NT_INSTRUCTIONS, NT_INSTRUCTION
+        },
+        // 2: instructions :
+        {},
+        // 3: instruction : INSTRUCTION IDENTIFIER IS block END IDENTIFIER
+        //     #instruction
+        {
+            ACT_INSTRUCTION, TokenKind.IDENTIFIER, TokenKind.END, NT_BLOCK,
+            TokenKind.IS, TokenKind.IDENTIFIER, TokenKind.INSTRUCTION
+        },
+        // 4: block : #block statements
+        {
+            NT_STATEMENTS, ACT_BLOCK
+        },
+        // 5: statements : statement #add statements
+        {
+            NT_STATEMENTS, ACT_ADD, NT_STATEMENT
+        },
+        // 6: statements :
+        {},
+        // 7: statement : IF condition THEN block else
+        {
+            NT_ELSE, NT_BLOCK, TokenKind.THEN, NT_CONDITION, TokenKind.IF
+        },
+        // 8: statement : WHILE condition DO block END WHILE #while
+        {
+            ACT_WHILE, TokenKind.WHILE, TokenKind.END, NT_BLOCK, TokenKind.DO,
+            NT_CONDITION, TokenKind.WHILE
+        },
+        // 9: statement : IDENTIFIER #call
+        {
+            ACT_CALL, TokenKind.IDENTIFIER
+        },
+        // 10: else : ELSE block END IF #ifelse
+        {
+            ACT_IFELSE, TokenKind.IF, TokenKind.END, NT_BLOCK, TokenKind.ELSE
+        },
+        // 11: else : END IF #if
+        {
+            ACT_IF, TokenKind.IF, TokenKind.END
+        },
+        // 12: condition : NEXT_IS_EMPTY
+        {
+            TokenKind.NEXT_IS_EMPTY
+        },
+        // 13: condition : NEXT_IS_NOT_EMPTY
+        {
+            TokenKind.NEXT_IS_NOT_EMPTY
+        },
+        // 14: condition : NEXT_IS_WALL
+        {
+            TokenKind.NEXT_IS_WALL
+        },
+        // 15: condition : NEXT_IS_NOT_WALL
+        {
+            TokenKind.NEXT_IS_NOT_WALL
+        },
+        // 16: condition : NEXT_IS_FRIEND
+        {
+            TokenKind.NEXT_IS_FRIEND
+        },
+        // 17: condition : NEXT_IS_NOT_FRIEND
+        {
+            TokenKind.NEXT_IS_NOT_FRIEND
+        },
+        // 18: condition : NEXT_IS_ENEMY
+        {
+            TokenKind.NEXT_IS_ENEMY
+        },
+        // 19: condition : NEXT_IS_NOT_ENEMY
+        {
+            TokenKind.NEXT_IS_NOT_ENEMY
+        },
+        // 20: condition : RANDOM
+        {
+            TokenKind.RANDOM
+        },
+        // 21: condition : TRUE
+        {
+            TokenKind.TRUE
+        }
+    };
+
+    /**
+     * The production to expand each nonterminal by for each token kind,
+     * at {@code (nonterminal - TokenKind.COUNT) * TokenKind.COUNT + kind},
+     * or -1 for a syntax error.
+     */
+    static final int[] TABLE = new int[NONTERMINAL_COUNT * TokenKind.COUNT];
+
+    static {
+        Arrays.fill(TABLE, -1);
+        entry(NT_PROGRAM, TokenKind.PROGRAM, 0);
+        entry(NT_INSTRUCTIONS, TokenKind.BEGIN, 2);
+        entry(NT_INSTRUCTIONS, TokenKind.INSTRUCTION, 1);
+        entry(NT_INSTRUCTION, TokenKind.INSTRUCTION, 3);
+        entry(NT_BLOCK, TokenKind.IDENTIFIER, 4);
+        entry(NT_BLOCK, TokenKind.END, 4);
+        entry(NT_BLOCK, TokenKind.IF, 4);
+        entry(NT_BLOCK, TokenKind.WHILE, 4);
+        entry(NT_BLOCK, TokenKind.ELSE, 4);
+        entry(NT_STATEMENTS, TokenKind.IDENTIFIER, 5);
+        entry(NT_STATEMENTS, TokenKind.END, 6);
+        entry(NT_STATEMENTS, TokenKind.IF, 5);
+        entry(NT_STATEMENTS, TokenKind.WHILE, 5);
+        entry(NT_STATEMENTS, TokenKind.ELSE, 6);
+        entry(NT_STATEMENT, TokenKind.IDENTIFIER, 9);
+        entry(NT_STATEMENT, TokenKind.IF, 7);
+        entry(NT_STATEMENT, TokenKind.WHILE, 8);
+        entry(NT_ELSE, TokenKind.END, 11);
+        entry(NT_ELSE, TokenKind.ELSE, 10);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_EMPTY, 12);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_NOT_EMPTY, 13);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_WALL, 14);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_NOT_WALL, 15);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_FRIEND, 16);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_NOT_FRIEND, 17);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_ENEMY, 18);
+        entry(NT_CONDITION, TokenKind.NEXT_IS_NOT_ENEMY, 19);
+        entry(NT_CONDITION, TokenKind.RANDOM, 20);
+        entry(NT_CONDITION, TokenKind.TRUE, 21);
+    }
+
+    /**
+     * Sets the entry of the table for {@code nonterminal} and {@code kind}.
+     *
+     * @param nonterminal
+     *            the nonterminal
+     * @param kind
+     *            the token kind
+     * @param production
+     *            the production
+     */
+    private static void entry(int nonterminal, int kind, int production) {
+        TABLE[(nonterminal - TokenKind.COUNT) * TokenKind.COUNT
+                + kind] = production;
+    }
+
+}
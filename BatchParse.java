@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Batch driver that parses many BL program files concurrently with
+ * {@code Program1Parse1} and reports a pass/fail line per file plus aggregate
+ * throughput.
+ *
+ * <p>
+ * Usage: {@code BatchParse [-j threads] [-i] [-s] path...}, where each path
+ * is a {@code .bl} file, a directory (searched recursively for {@code .bl}
+ * files), or {@code @list} naming a file that lists one path per line.
+ * {@code -j} sets the number of worker threads (default: the number of
+ * processors), {@code -i} selects {@code ParseMode.ITERATIVE}, and
+ * {@code -s} runs {@code SemanticAnalyzer} on each program that parses, so
+ * that a program with an undefined call or a recursive instruction also
+ * fails, and unused instructions are reported. Files are parsed in
+ * diagnostics mode, so a file with syntax errors is reported as a failure
+ * together with all of its errors, and the other files are unaffected; the
+ * exit status is nonzero iff some file failed. With
+ * {@code -Dbl.metrics=true}, the totals of {@code ParseMetrics} are printed
+ * at the end. Each worker thread keeps a {@code StatementArena} across the
+ * files it parses.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BatchParse {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private BatchParse() {
+    }
+
+    /**
+     * The arena of each worker thread, kept across the files it parses.
+     */
+    private static final ThreadLocal<StatementArena> ARENAS = ThreadLocal
+            .withInitial(StatementArena::new);
+
+    /**
+     * Outcome of parsing one file.
+     */
+    private static final class Result {
+
+        /**
+         * The file parsed.
+         */
+        private final Path file;
+
+        /**
+         * The size of the file in bytes.
+         */
+        private final long bytes;
+
+        /**
+         * The time taken, in nanoseconds.
+         */
+        private final long nanos;
+
+        /**
+         * The error message if the file could not be parsed at all, or
+         * {@code null}.
+         */
+        private final String error;
+
+        /**
+         * The syntax errors found.
+         */
+        private final Diagnostics diagnostics;
+
+        /**
+         * The semantic findings, or {@code null} if the program was not
+         * analyzed.
+         */
+        private final SemanticAnalyzer semantics;
+
+        /**
+         * Constructor.
+         *
+         * @param file
+         *            the file parsed
+         * @param bytes
+         *            the size of the file in bytes
+         * @param nanos
+         *            the time taken, in nanoseconds
+         * @param error
+         *            the error message, or {@code null}
+         * @param diagnostics
+         *            the syntax errors found
+         * @param semantics
+         *            the semantic findings, or {@code null}
+         */
+        private Result(Path file, long bytes, long nanos, String error,
+                Diagnostics diagnostics, SemanticAnalyzer semantics) {
+            this.file = file;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.error = error;
+            this.diagnostics = diagnostics;
+            this.semantics = semantics;
+        }
+
+        /**
+         * Reports whether the file parsed without errors.
+         *
+         * @return true iff no error was found
+         */
+        private boolean passed() {
+            return this.error == null && this.diagnostics.size() == 0
+                    && (this.semantics == null
+                            || !this.semantics.hasErrors());
+        }
+
+    }
+
+    /**
+     * Parses the BL program in {@code file}.
+     *
+     * @param file
+     *            the file to parse
+     * @param mode
+     *            the implementation used to parse statement blocks
+     * @param analyze
+     *            whether to analyze the program if it parses
+     * @return the outcome
+     */
+    private static Result parseFile(Path file, ParseMode mode,
+            boolean analyze) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        String error = null;
+        Diagnostics diagnostics = new Diagnostics();
+        SemanticAnalyzer semantics = null;
+        try {
+            bytes = Files.size(file);
+            TokenStream tokens = new MappedTokenStream(file.toString());
+            Program1Parse1 p = new Program1Parse1(mode);
+            ARENAS.get().use(() -> diagnostics.collect(() -> p.parse(tokens)));
+            if (analyze && diagnostics.size() == 0) {
+                semantics = new SemanticAnalyzer();
+                semantics.analyze(p);
+            }
+        } catch (IOException | RuntimeException e) {
+            error = String.valueOf(e.getMessage());
+        } catch (StackOverflowError e) {
+            error = "Error: Nesting too deep (try -i)";
+        }
+        return new Result(file, bytes, System.nanoTime() - start, error,
+                diagnostics, semantics);
+    }
+
+    /**
+     * Adds the BL files named by {@code arg} to {@code files}.
+     *
+     * @param arg
+     *            a file, directory, or {@code @list}
+     * @param files
+     *            the files to parse
+     * @throws IOException
+     *             if a directory or list cannot be read
+     * @updates files
+     */
+    private static void addFiles(String arg, List<Path> files)
+            throws IOException {
+        if (arg.startsWith("@")) {
+            Path list = Paths.get(arg.substring(1));
+            for (String line : Files.readAllLines(list)) {
+                if (!line.trim().isEmpty()) {
+                    addFiles(line.trim(), files);
+                }
+            }
+        } else {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                List<Path> found = new ArrayList<>();
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(p -> p.toString().endsWith(".bl")
+                            && Files.isRegularFile(p)).forEach(found::add);
+                }
+                Collections.sort(found);
+                files.addAll(found);
+            } else {
+                files.add(path);
+            }
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a directory or list cannot be read
+     * @throws InterruptedException
+     *             if interrupted while waiting for the workers
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ParseMode mode = ParseMode.RECURSIVE;
+        boolean analyze = false;
+        List<Path> files = new ArrayList<>();
+        int i = 0;
+        while (i < args.length) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[i + 1]);
+                i++;
+            } else if (args[i].equals("-i")) {
+                mode = ParseMode.ITERATIVE;
+            } else if (args[i].equals("-s")) {
+                analyze = true;
+            } else {
+                addFiles(args[i], files);
+            }
+            i++;
+        }
+
+        SimpleWriter out = new SimpleWriter1L();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<Result>> pending = new ArrayList<>(files.size());
+        final ParseMode blockMode = mode;
+        final boolean check = analyze;
+        for (Path file : files) {
+            pending.add(pool.submit(() -> parseFile(file, blockMode, check)));
+        }
+
+        int failed = 0;
+        long bytes = 0;
+        final double nanosPerMilli = 1e6;
+        for (Future<Result> future : pending) {
+            Result r;
+            try {
+                r = future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            bytes += r.bytes;
+            String millis = String.format("%.2f ms", r.nanos / nanosPerMilli);
+            if (r.passed()) {
+                out.println("PASS " + r.file + " (" + millis + ")");
+                if (r.semantics != null) {
+                    r.semantics.print(out);
+                }
+            } else if (r.error != null) {
+                failed++;
+                out.println("FAIL " + r.file + " (" + millis + "): " + r.error);
+            } else if (r.diagnostics.size() == 0) {
+                failed++;
+                out.println("FAIL " + r.file + " (" + millis + "): "
+                        + "semantic error(s)");
+                r.semantics.print(out);
+            } else {
+                failed++;
+                out.println("FAIL " + r.file + " (" + millis + "): "
+                        + r.diagnostics.size() + " error(s)");
+                r.diagnostics.print(out);
+            }
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        final double bytesPerMegabyte = 1024.0 * 1024.0;
+        out.println(String.format(
+                "%d files: %d passed, %d failed in %.3f s "
+                        + "(%.1f files/s, %.2f MB/s, %d threads)",
+                files.size(), files.size() - failed, failed, seconds,
+                files.size() / seconds, bytes / bytesPerMegabyte / seconds,
+                threads));
+        if (ParseMetrics.ENABLED) {
+            out.print(ParseMetrics.dump());
+        }
+        out.close();
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,382 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Virtual machine that runs many bugs, each executing a BL program compiled
+ * by {@code BLCompiler}, in a {@code World}.
+ *
+ * <p>
+ * Time advances in ticks, and in each tick every bug executes exactly one
+ * primitive instruction. A tick has two phases. First, each bug runs its code
+ * from where it left off, evaluating jumps and testing conditions against
+ * the world, until it reaches a primitive instruction; the bugs are split
+ * into ranges that are run on worker threads, and the world is only read.
+ * Second, the primitive instructions are carried out by the world, one bug
+ * at a time in bug order, so the outcome does not depend on the number of
+ * threads; a bug infected by another then runs the code of the infector's
+ * species, from the beginning. A bug whose code reaches {@code HALT} starts
+ * over from the beginning, and a bug that executes {@code MAX_STEPS}
+ * instructions in one tick without reaching a primitive one skips its turn,
+ * resuming where it stopped in the next tick.
+ * </p>
+ *
+ * <p>
+ * The state of each bug is kept in arrays indexed by bug number: its
+ * species, its code, its program counter, and the primitive instruction it
+ * chose in the current tick. The code of each species is kept in an array
+ * indexed by species.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BugVM {
+
+    /**
+     * Most instructions a bug executes in one tick before skipping its turn.
+     */
+    public static final int MAX_STEPS = 1000;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Fewest bugs run by one worker thread in a tick.
+     */
+    private static final int MIN_RANGE = 256;
+
+    /**
+     * The world.
+     */
+    private final World world;
+
+    /**
+     * The worker threads, or {@code null} if bugs are run on the calling
+     * thread.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * Code of each species, or {@code null} for a species with no bugs added.
+     */
+    private int[][] speciesCodes;
+
+    /**
+     * Species of each bug.
+     */
+    private int[] species;
+
+    /**
+     * Code of each bug.
+     */
+    private int[][] codes;
+
+    /**
+     * Program counter of each bug.
+     */
+    private int[] pcs;
+
+    /**
+     * Primitive instruction chosen by each bug in the current tick.
+     */
+    private int[] actions;
+
+    /**
+     * Number of bugs.
+     */
+    private int bugCount;
+
+    /**
+     * Number of ticks run.
+     */
+    private long ticks;
+
+    /**
+     * Runs bugs {@code from} (inclusive) to {@code to} (exclusive) up to
+     * their next primitive instruction.
+     *
+     * @param from
+     *            the first bug
+     * @param to
+     *            one past the last bug
+     * @updates this.pcs, this.actions
+     */
+    private void step(int from, int to) {
+        for (int bug = from; bug < to; bug++) {
+            int[] code = this.codes[bug];
+            int pc = this.pcs[bug];
+            int action = BLCompiler.SKIP;
+            int steps = 0;
+            boolean chosen = false;
+            while (!chosen && steps < MAX_STEPS) {
+                int op = code[pc];
+                steps++;
+                if (op < BLCompiler.HALT) {
+                    action = op;
+                    pc++;
+                    chosen = true;
+                } else if (op == BLCompiler.HALT) {
+                    pc = 0;
+                } else if (op == BLCompiler.JUMP) {
+                    pc = code[pc + 1];
+                } else {
+                    int condition = op - BLCompiler.JUMP_IF_NOT
+                            + TokenKind.NEXT_IS_EMPTY;
+                    if (condition == TokenKind.TRUE
+                            || this.world.test(bug, condition)) {
+                        pc += 2;
+                    } else {
+                        pc = code[pc + 1];
+                    }
+                }
+            }
+            this.pcs[bug] = pc;
+            this.actions[bug] = action;
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor that runs bugs on the calling thread.
+     *
+     * @param world
+     *            the world
+     * @aliases reference world
+     */
+    public BugVM(World world) {
+        this(world, 1);
+    }
+
+    /**
+     * Constructor that runs bugs on {@code threads} worker threads; call
+     * {@code close} to stop them.
+     *
+     * @param world
+     *            the world
+     * @param threads
+     *            the number of worker threads
+     * @aliases reference world
+     * @requires threads > 0
+     */
+    public BugVM(World world, int threads) {
+        assert world != null : "Violation of: world is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+        this.world = world;
+        this.threads = threads;
+        if (threads > 1) {
+            this.pool = Executors.newFixedThreadPool(threads);
+        } else {
+            this.pool = null;
+        }
+        this.speciesCodes = new int[0][];
+        this.species = new int[0];
+        this.codes = new int[0][];
+        this.pcs = new int[0];
+        this.actions = new int[0];
+        this.bugCount = 0;
+        this.ticks = 0;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Adds a bug of species {@code kind} running {@code code}, and returns its
+     * number. The first bug added of a species sets the code of the species,
+     * which bugs infected by the species run.
+     *
+     * @param kind
+     *            the species, as in the world
+     * @param code
+     *            the code, as compiled by {@code BLCompiler}
+     * @return the bug number
+     * @aliases reference code
+     * @requires <pre>
+     * kind >= 0  and  [code was produced by BLCompiler.compile]  and
+     *  [code is the code of kind, if a bug of kind was added before]
+     * </pre>
+     * @ensures addBug = #bugCount()
+     */
+    public int addBug(int kind, int[] code) {
+        assert kind >= 0 : "Violation of: kind >= 0";
+        assert code != null : "Violation of: code is not null";
+        if (kind >= this.speciesCodes.length) {
+            this.speciesCodes = Arrays.copyOf(this.speciesCodes, kind + 1);
+        }
+        if (this.speciesCodes[kind] == null) {
+            this.speciesCodes[kind] = code;
+        }
+        if (this.bugCount == this.pcs.length) {
+            int capacity = 2 * this.bugCount + 1;
+            this.species = Arrays.copyOf(this.species, capacity);
+            this.codes = Arrays.copyOf(this.codes, capacity);
+            this.pcs = Arrays.copyOf(this.pcs, capacity);
+            this.actions = Arrays.copyOf(this.actions, capacity);
+        }
+        this.species[this.bugCount] = kind;
+        this.codes[this.bugCount] = code;
+        this.pcs[this.bugCount] = 0;
+        this.bugCount++;
+        return this.bugCount - 1;
+    }
+
+    /**
+     * Replaces the code run by {@code bug}, which starts it from the
+     * beginning (as when a bug is infected).
+     *
+     * @param bug
+     *            the bug number
+     * @param code
+     *            the new code
+     * @aliases reference code
+     * @requires 0 <= bug < bugCount()
+     */
+    public void setCode(int bug, int[] code) {
+        assert 0 <= bug && bug < this.bugCount : ""
+                + "Violation of: 0 <= bug < bugCount()";
+        assert code != null : "Violation of: code is not null";
+        this.codes[bug] = code;
+        this.pcs[bug] = 0;
+    }
+
+    /**
+     * Reports the code of species {@code kind}.
+     *
+     * @param kind
+     *            the species
+     * @return the code of {@code kind}, or {@code null} if no bug of
+     *         {@code kind} was added
+     * @aliases reference codeOf
+     */
+    public int[] codeOf(int kind) {
+        if (kind < 0 || kind >= this.speciesCodes.length) {
+            return null;
+        }
+        return this.speciesCodes[kind];
+    }
+
+    /**
+     * Reports the species of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the species of {@code bug}
+     * @requires 0 <= bug < bugCount()
+     */
+    public int species(int bug) {
+        assert 0 <= bug && bug < this.bugCount : ""
+                + "Violation of: 0 <= bug < bugCount()";
+        return this.species[bug];
+    }
+
+    /**
+     * Reports the number of bugs.
+     *
+     * @return the number of bugs
+     */
+    public int bugCount() {
+        return this.bugCount;
+    }
+
+    /**
+     * Reports the program counter of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the program counter of {@code bug}
+     * @requires 0 <= bug < bugCount()
+     */
+    public int pc(int bug) {
+        assert 0 <= bug && bug < this.bugCount : ""
+                + "Violation of: 0 <= bug < bugCount()";
+        return this.pcs[bug];
+    }
+
+    /**
+     * Reports the number of ticks run.
+     *
+     * @return the number of ticks
+     */
+    public long ticks() {
+        return this.ticks;
+    }
+
+    /**
+     * Runs one tick: every bug executes one primitive instruction.
+     */
+    public void tick() {
+        int n = this.bugCount;
+        int ranges = Math.min(this.threads, (n + MIN_RANGE - 1) / MIN_RANGE);
+        if (this.pool == null || ranges <= 1) {
+            this.step(0, n);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>(ranges);
+            for (int r = 0; r < ranges; r++) {
+                final int from = (int) ((long) n * r / ranges);
+                final int to = (int) ((long) n * (r + 1) / ranges);
+                tasks.add(() -> {
+                    this.step(from, to);
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> f : this.pool.invokeAll(tasks)) {
+                    f.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        for (int bug = 0; bug < n; bug++) {
+            int victim = this.world.act(bug, this.actions[bug]);
+            if (victim >= 0) {
+                this.species[victim] = this.species[bug];
+                this.setCode(victim, this.codeOf(this.species[bug]));
+            }
+        }
+        this.ticks++;
+    }
+
+    /**
+     * Runs {@code count} ticks.
+     *
+     * @param count
+     *            the number of ticks
+     * @requires count >= 0
+     */
+    public void run(int count) {
+        assert count >= 0 : "Violation of: count >= 0";
+        for (int i = 0; i < count; i++) {
+            this.tick();
+        }
+    }
+
+    /**
+     * Stops the worker threads. The VM must not be used afterwards.
+     */
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code BugVM}, running in an {@code InMemoryWorld}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class BugVMTest {
+
+    /**
+     * Returns the code of the program parsed from {@code text}.
+     *
+     * @param text
+     *            the source text
+     * @return the code
+     */
+    private static int[] compile(String text) {
+        return BLCompiler.compile(TestTokens.parse(text));
+    }
+
+    /**
+     * Test of a bug that walks to the wall and turns.
+     */
+    @Test
+    public void testWalk() {
+        InMemoryWorld world = new InMemoryWorld(5, 5, 0);
+        BugVM vm = new BugVM(world);
+        world.addBug(0, 0, InMemoryWorld.EAST, 0);
+        vm.addBug(0, compile("PROGRAM Walk IS BEGIN IF next-is-empty THEN move "
+                + "ELSE turnright END IF END Walk"));
+        vm.run(4);
+        assertEquals(4, world.x(0));
+        assertEquals(0, world.y(0));
+        vm.tick();
+        assertEquals(InMemoryWorld.SOUTH, world.direction(0));
+        vm.tick();
+        assertEquals(1, world.y(0));
+        assertEquals(6, vm.ticks());
+    }
+
+    /**
+     * Test of a bug whose code never reaches a primitive instruction: it
+     * skips its turn.
+     */
+    @Test
+    public void testNoPrimitive() {
+        InMemoryWorld world = new InMemoryWorld(3, 3, 0);
+        BugVM vm = new BugVM(world);
+        world.addBug(1, 1, InMemoryWorld.NORTH, 0);
+        vm.addBug(0, compile("PROGRAM Idle IS BEGIN WHILE next-is-empty DO "
+                + "IF next-is-wall THEN move END IF END WHILE END Idle"));
+        vm.run(3);
+        assertEquals(1, world.x(0));
+        assertEquals(1, world.y(0));
+        assertEquals(InMemoryWorld.NORTH, world.direction(0));
+    }
+
+    /**
+     * Test of infection: the victim joins the infector's species and from
+     * then on runs its program, from the beginning.
+     */
+    @Test
+    public void testInfect() {
+        InMemoryWorld world = new InMemoryWorld(2, 1, 0);
+        BugVM vm = new BugVM(world);
+        world.addBug(0, 0, InMemoryWorld.EAST, 0);
+        world.addBug(1, 0, InMemoryWorld.WEST, 1);
+        int[] a = compile("PROGRAM A IS BEGIN IF next-is-enemy THEN infect "
+                + "ELSE turnleft END IF END A");
+        vm.addBug(0, a);
+        vm.addBug(1, compile("PROGRAM B IS BEGIN skip skip END B"));
+        vm.tick();
+        assertEquals(0, world.species(1));
+        assertEquals(0, vm.species(1));
+        assertEquals(0, vm.pc(1));
+        assertEquals(InMemoryWorld.WEST, world.direction(1));
+        /*
+         * B would skip; running A, the victim sees a friend and turns
+         */
+        vm.tick();
+        assertEquals(InMemoryWorld.SOUTH, world.direction(1));
+        assertEquals(InMemoryWorld.NORTH, world.direction(0));
+        assertEquals(a, vm.codeOf(vm.species(1)));
+    }
+
+    /**
+     * Test that infecting a friend does nothing.
+     */
+    @Test
+    public void testInfectFriend() {
+        InMemoryWorld world = new InMemoryWorld(2, 1, 0);
+        BugVM vm = new BugVM(world);
+        world.addBug(0, 0, InMemoryWorld.EAST, 0);
+        world.addBug(1, 0, InMemoryWorld.WEST, 0);
+        int[] a = compile("PROGRAM A IS BEGIN infect END A");
+        vm.addBug(0, a);
+        vm.addBug(0, a);
+        vm.tick();
+        assertEquals(-1, world.act(0, BLCompiler.INFECT));
+        assertEquals(0, world.species(1));
+        assertEquals(1, vm.pc(1));
+    }
+
+    /**
+     * Test that running on several threads gives the same world as running
+     * on one.
+     */
+    @Test
+    public void testThreads() {
+        final int size = 64;
+        final int bugs = 2000;
+        final int ticks = 50;
+        int[] code = compile("PROGRAM Wander IS "
+                + "INSTRUCTION turn IS IF random THEN turnleft ELSE "
+                + "turnright END IF END turn "
+                + "BEGIN IF next-is-enemy THEN infect ELSE "
+                + "IF next-is-empty THEN IF random THEN move ELSE turn "
+                + "END IF ELSE turn END IF END IF END Wander");
+        InMemoryWorld[] worlds = new InMemoryWorld[2];
+        int[] threads = { 1, 4 };
+        for (int w = 0; w < worlds.length; w++) {
+            worlds[w] = new InMemoryWorld(size, size, 42);
+            BugVM vm = new BugVM(worlds[w], threads[w]);
+            for (int b = 0; b < bugs; b++) {
+                worlds[w].addBug(b % size, b / size, b % 4, b % 3);
+                vm.addBug(b % 3, code);
+            }
+            vm.run(ticks);
+            vm.close();
+        }
+        for (int b = 0; b < bugs; b++) {
+            assertEquals(worlds[0].x(b), worlds[1].x(b));
+            assertEquals(worlds[0].y(b), worlds[1].y(b));
+            assertEquals(worlds[0].direction(b), worlds[1].direction(b));
+            assertEquals(worlds[0].species(b), worlds[1].species(b));
+        }
+    }
+
+}
@@ -0,0 +1,469 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import components.simplewriter.SimpleWriter;
+import components.utilities.Reporter;
+
+/**
+ * Collector for BL syntax errors, used to parse in a non-fatal diagnostics
+ * mode.
+ *
+ * <p>
+ * By default every syntax error found by the parsers is fatal: it is reported
+ * through {@code Reporter.assertElseFatalError}, which terminates the client.
+ * While a parse runs inside {@link #collect(Runnable)}, each error is instead
+ * recorded here, together with the token position and the source location at
+ * which it was found, and the parser performs panic-mode recovery: it skips
+ * input up to the next synchronization point ({@code END},
+ * {@code INSTRUCTION}, {@code BEGIN} or the end of input) and carries on, so
+ * one pass reports every error in the input. The value produced by a parse
+ * that recorded errors is only a best effort.
+ * </p>
+ *
+ * <p>
+ * Checking a condition that holds costs the same in both modes; the collector
+ * is consulted, and the location of the error looked up, only once an error
+ * has been found. Errors are reported with the line and column at which they
+ * were found when the tokens come from source text, and with their token
+ * position otherwise.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Diagnostics {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The collector errors on the current thread are recorded in, or
+     * {@code null} if errors are fatal.
+     */
+    private static final ThreadLocal<Diagnostics> CURRENT = new ThreadLocal<>();
+
+    /**
+     * A recorded error.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        /**
+         * Token position of the error.
+         */
+        private final int position;
+
+        /**
+         * Source location of the error.
+         */
+        private final long location;
+
+        /**
+         * The error message.
+         */
+        private final String message;
+
+        /**
+         * Constructor.
+         *
+         * @param position
+         *            token position of the error
+         * @param location
+         *            source location of the error
+         * @param message
+         *            the error message
+         */
+        private Entry(int position, long location, String message) {
+            this.position = position;
+            this.location = location;
+            this.message = message;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Integer.compare(this.position, other.position);
+        }
+
+    }
+
+    /**
+     * The errors recorded so far.
+     */
+    private final List<Entry> entries;
+
+    /**
+     * Records an error, unless it is at the same position as the previous
+     * one (which happens when recovery stops at the token that caused it).
+     *
+     * @param position
+     *            token position of the error
+     * @param location
+     *            source location of the error
+     * @param message
+     *            the error message
+     * @updates this
+     */
+    private synchronized void add(int position, long location,
+            String message) {
+        int n = this.entries.size();
+        if (n == 0 || this.entries.get(n - 1).position != position) {
+            this.entries.add(new Entry(position, location, message));
+        }
+    }
+
+    /**
+     * Returns the prefix locating an error in a report: its source location
+     * if known, and its token position otherwise.
+     *
+     * @param position
+     *            token position of the error
+     * @param location
+     *            source location of the error
+     * @return the prefix
+     */
+    private static String where(int position, long location) {
+        if (location == SourceLocation.UNKNOWN) {
+            return "token " + position + ": ";
+        }
+        return SourceLocation.toString(location) + ": ";
+    }
+
+    /**
+     * Reports whether {@code kind} is a synchronization point for recovery.
+     *
+     * @param kind
+     *            the token kind
+     * @return true iff {@code kind} is END, INSTRUCTION, BEGIN or
+     *         END_OF_INPUT
+     */
+    private static boolean isSync(int kind) {
+        return kind == TokenKind.END || kind == TokenKind.INSTRUCTION
+                || kind == TokenKind.BEGIN || kind == TokenKind.END_OF_INPUT;
+    }
+
+    /**
+     * The only {@code Recovery}; it carries no state, so it is shared.
+     */
+    private static final Recovery RECOVERY = new Recovery();
+
+    /**
+     * Reports {@code message} as a syntax error at token position
+     * {@code position} and source location {@code location}.
+     *
+     * @param message
+     *            the error message
+     * @param position
+     *            the token position of the error
+     * @param location
+     *            the source location of the error
+     * @ensures <pre>
+     * if [in diagnostics mode] then
+     *  [record the error and throw Recovery]
+     * else
+     *  [report message, with its location, to the console and terminate
+     *   client]
+     * </pre>
+     */
+    private static void fail(String message, int position, long location) {
+        Diagnostics diagnostics = CURRENT.get();
+        if (diagnostics == null) {
+            Reporter.assertElseFatalError(false,
+                    where(position, location) + message);
+        } else {
+            diagnostics.add(position, location, message);
+            throw RECOVERY;
+        }
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Thrown by {@code check} in diagnostics mode to unwind the parser to the
+     * nearest recovery point; the error has already been recorded.
+     */
+    static final class Recovery extends RuntimeException {
+
+        /**
+         * Serialization id.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor.
+         */
+        private Recovery() {
+            super("syntax error recorded", null, false, false);
+        }
+
+    }
+
+    /**
+     * Checks {@code condition}, reporting {@code message} as a syntax error at
+     * the front of {@code tokens} if it does not hold.
+     *
+     * @param condition
+     *            the condition to check
+     * @param message
+     *            the error message
+     * @param tokens
+     *            the input tokens
+     * @ensures <pre>
+     * if not condition then
+     *  if [in diagnostics mode] then
+     *   [record the error and throw Recovery]
+     *  else
+     *   [report message to the console and terminate client]
+     * </pre>
+     */
+    static void check(boolean condition, String message, TokenStream tokens) {
+        if (!condition) {
+            fail(message, tokens.position(), tokens.location());
+        }
+    }
+
+    /**
+     * Checks {@code condition}, reporting {@code message} as a syntax error at
+     * token position {@code position} and source location {@code location}
+     * if it does not hold.
+     *
+     * @param condition
+     *            the condition to check
+     * @param message
+     *            the error message
+     * @param position
+     *            the token position of the error
+     * @param location
+     *            the source location of the error
+     * @ensures <pre>
+     * if not condition then
+     *  if [in diagnostics mode] then
+     *   [record the error and throw Recovery]
+     *  else
+     *   [report message to the console and terminate client]
+     * </pre>
+     */
+    static void check(boolean condition, String message, int position,
+            long location) {
+        if (!condition) {
+            fail(message, position, location);
+        }
+    }
+
+    /**
+     * Recovers from an error in a statement that started with a token of
+     * kind {@code start}: skips tokens, along with any complete IF/WHILE
+     * statements among them, up to the next synchronization point, and, if
+     * the statement was an IF or WHILE, then also its closing
+     * {@code END IF} or {@code END WHILE}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param start
+     *            the kind of the first token of the statement
+     * @updates tokens
+     */
+    static void recoverStatement(TokenStream tokens, int start) {
+        int depth = 0;
+        int kind = tokens.frontKind();
+        while (!isSync(kind) || (kind == TokenKind.END && depth > 0)) {
+            if (kind == TokenKind.IF || kind == TokenKind.WHILE) {
+                depth++;
+            } else if (kind == TokenKind.END) {
+                depth--;
+                tokens.advance();
+            }
+            tokens.advance();
+            kind = tokens.frontKind();
+        }
+        if ((start == TokenKind.IF || start == TokenKind.WHILE)
+                && kind == TokenKind.END) {
+            tokens.advance();
+            if (tokens.frontKind() == start) {
+                tokens.advance();
+            }
+        }
+    }
+
+    /**
+     * Recovers from an error in a program header or instruction definition:
+     * skips tokens up to the next {@code INSTRUCTION}, {@code BEGIN} or the
+     * end of input.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     */
+    static void recoverDefinition(TokenStream tokens) {
+        int kind = tokens.frontKind();
+        while (kind != TokenKind.INSTRUCTION && kind != TokenKind.BEGIN
+                && kind != TokenKind.END_OF_INPUT) {
+            tokens.advance();
+            kind = tokens.frontKind();
+        }
+    }
+
+    /**
+     * Reports the first error in {@code this}, in order of position, as a
+     * syntax error found on the current thread, if there is one; used to
+     * report, on one thread, an error found on another.
+     *
+     * @ensures <pre>
+     * if |this| > 0 then
+     *  if [in diagnostics mode] then
+     *   [record the first error of this and throw Recovery]
+     *  else
+     *   [report the first error of this to the console and terminate client]
+     * </pre>
+     */
+    synchronized void reportFirst() {
+        if (!this.entries.isEmpty()) {
+            Entry first = Collections.min(this.entries);
+            fail(first.message, first.position, first.location);
+        }
+    }
+
+    /**
+     * Reports whether the current thread is parsing in diagnostics mode.
+     *
+     * @return true iff errors are being collected
+     */
+    static boolean isCollecting() {
+        return CURRENT.get() != null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Diagnostics() {
+        this.entries = new ArrayList<>();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Runs {@code parse} in diagnostics mode, recording in {@code this} the
+     * syntax errors found by any parser it calls on the current thread.
+     *
+     * @param parse
+     *            the parse to run
+     * @updates this
+     * @ensures this = #this * [the errors found by parse]
+     */
+    public void collect(Runnable parse) {
+        assert parse != null : "Violation of: parse is not null";
+        Diagnostics previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            parse.run();
+        } catch (Recovery e) {
+            /*
+             * The error that unwound the whole parse is already recorded
+             */
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Reports the number of errors recorded.
+     *
+     * @return the number of errors
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Reports the token position of error {@code i}: the number of tokens
+     * that preceded the token at which it was found.
+     *
+     * @param i
+     *            the error index
+     * @return the token position of error {@code i}
+     * @requires 0 <= i < size()
+     */
+    public synchronized int position(int i) {
+        assert 0 <= i && i < this.entries.size() : ""
+                + "Violation of: 0 <= i < size()";
+        return this.entries.get(i).position;
+    }
+
+    /**
+     * Reports the source location of error {@code i}, packed as by
+     * {@code SourceLocation}.
+     *
+     * @param i
+     *            the error index
+     * @return the source location of error {@code i}, or
+     *         {@code SourceLocation.UNKNOWN} if the tokens did not come from
+     *         source text
+     * @requires 0 <= i < size()
+     */
+    public synchronized long location(int i) {
+        assert 0 <= i && i < this.entries.size() : ""
+                + "Violation of: 0 <= i < size()";
+        return this.entries.get(i).location;
+    }
+
+    /**
+     * Reports the message of error {@code i}.
+     *
+     * @param i
+     *            the error index
+     * @return the message of error {@code i}
+     * @requires 0 <= i < size()
+     */
+    public synchronized String message(int i) {
+        assert 0 <= i && i < this.entries.size() : ""
+                + "Violation of: 0 <= i < size()";
+        return this.entries.get(i).message;
+    }
+
+    /**
+     * Prints the recorded errors to {@code out}, one per line, in order of
+     * position, each preceded by its line and column, or by its token
+     * position if its location is not known.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     */
+    public synchronized void print(SimpleWriter out) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        List<Entry> sorted = new ArrayList<>(this.entries);
+        Collections.sort(sorted);
+        for (Entry e : sorted) {
+            out.println(where(e.position, e.location) + e.message);
+        }
+    }
+
+    /**
+     * Returns the recorded errors as text, one per line, as by
+     * {@code print}.
+     *
+     * @return the recorded errors
+     */
+    @Override
+    public synchronized String toString() {
+        List<Entry> sorted = new ArrayList<>(this.entries);
+        Collections.sort(sorted);
+        StringBuilder text = new StringBuilder();
+        for (Entry e : sorted) {
+            text.append(where(e.position, e.location)).append(e.message)
+                    .append('\n');
+        }
+        return text.toString();
+    }
+
+}
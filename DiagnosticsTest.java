@@ -0,0 +1,219 @@
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.queue.Queue;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for parsing in diagnostics mode.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class DiagnosticsTest {
+
+    /**
+     * Parses {@code text} as a program in diagnostics mode.
+     *
+     * @param p
+     *            the parsed program
+     * @param text
+     *            the source text
+     * @return the errors found
+     */
+    private static Diagnostics parse(Program p, String text) {
+        Queue<String> tokens = TestTokens.tokens(text);
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> p.parse(tokens));
+        return diagnostics;
+    }
+
+    /**
+     * Test of a valid program: no errors are recorded.
+     */
+    @Test
+    public void testValidProgram() {
+        /*
+         * The call
+         */
+        Diagnostics diagnostics = parse(new Program1Parse1(),
+                "PROGRAM P IS INSTRUCTION a IS move END a "
+                        + "BEGIN a END P");
+        /*
+         * Evaluation
+         */
+        assertEquals(0, diagnostics.size());
+    }
+
+    /**
+     * Test of a program with errors in two instructions and the main body:
+     * all three are reported, and the instructions are kept without their
+     * bad statements.
+     */
+    @Test
+    public void testErrorsInSeveralInstructions() {
+        /*
+         * Setup
+         */
+        Program p = new Program1Parse1();
+        /*
+         * The call
+         */
+        Diagnostics diagnostics = parse(p,
+                "PROGRAM P IS "
+                        + "INSTRUCTION a IS IF bogus THEN move END IF END a "
+                        + "INSTRUCTION b IS turnleft END b "
+                        + "INSTRUCTION c IS WHILE true move END WHILE END c "
+                        + "BEGIN b END Q");
+        /*
+         * Evaluation
+         */
+        assertEquals(3, diagnostics.size());
+        assertEquals(7, diagnostics.position(0));
+        assertEquals(
+                "Error: Invalid token. Expected: condition token",
+                diagnostics.message(0));
+        assertEquals("Error: Invalid token. Expected: \"DO\" token",
+                diagnostics.message(1));
+        assertEquals("Error: Names do not match", diagnostics.message(2));
+        assertEquals("P", p.name());
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        assertEquals(3, context.size());
+        assertEquals(0, context.value("a").lengthOfBlock());
+    }
+
+    /**
+     * Test of a block with a bad statement between two good ones: the bad
+     * statement is dropped and parsing continues after it.
+     */
+    @Test
+    public void testRecoveryInBlock() {
+        /*
+         * Setup
+         */
+        Statement s = new Statement1Parse1();
+        Queue<String> tokens = TestTokens.tokens(
+                "move IF next-is-wall turnleft END IF turnright");
+        Diagnostics diagnostics = new Diagnostics();
+        /*
+         * The call
+         */
+        diagnostics.collect(() -> s.parseBlock(tokens));
+        /*
+         * Evaluation
+         */
+        assertEquals(1, diagnostics.size());
+        assertEquals(3, diagnostics.position(0));
+        assertEquals(2, s.lengthOfBlock());
+        assertEquals(1, tokens.length());
+    }
+
+    /**
+     * Test of the iterative parser: recovery matches the recursive one.
+     */
+    @Test
+    public void testRecoveryInBlockIterative() {
+        /*
+         * Setup
+         */
+        Statement sRef = new Statement1Parse1();
+        Statement sTest = new Statement1Parse2();
+        String text = "move WHILE true DO IF random move END IF "
+                + "WHILE x DO skip END WHILE turnleft END WHILE "
+                + "IF next-is-empty THEN infect END WHILE turnright";
+        Queue<String> tokensRef = TestTokens.tokens(text);
+        Queue<String> tokensTest = TestTokens.tokens(text);
+        Diagnostics expected = new Diagnostics();
+        Diagnostics actual = new Diagnostics();
+        /*
+         * The call
+         */
+        expected.collect(() -> sRef.parseBlock(tokensRef));
+        actual.collect(() -> sTest.parseBlock(tokensTest));
+        /*
+         * Evaluation
+         */
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.position(i), actual.position(i));
+            assertEquals(expected.message(i), actual.message(i));
+        }
+        assertEquals(sRef, sTest);
+        assertEquals(tokensRef, tokensTest);
+    }
+
+    /**
+     * Test that errors in source text are located by line and column, and
+     * printed with them.
+     */
+    @Test
+    public void testLocations() {
+        /*
+         * Setup
+         */
+        String text = "PROGRAM P IS\n\n  INSTRUCTION a IS\n"
+                + "    IF bogus THEN move END IF\n  END a\n"
+                + "BEGIN\n  WHILE true move\n  END WHILE\nEND P\n";
+        MappedLexer lexer = new MappedLexer(ByteBuffer
+                .wrap(text.getBytes(StandardCharsets.US_ASCII)));
+        Program1Parse1 p = new Program1Parse1();
+        Diagnostics diagnostics = new Diagnostics();
+        /*
+         * The call
+         */
+        diagnostics.collect(() -> p.parse(new MappedTokenStream(lexer)));
+        /*
+         * Evaluation
+         */
+        assertEquals(2, diagnostics.size());
+        long first = diagnostics.location(0);
+        assertEquals(4, SourceLocation.line(first));
+        assertEquals(8, SourceLocation.column(first));
+        assertEquals(text.indexOf("bogus"), SourceLocation.offset(first));
+        long second = diagnostics.location(1);
+        assertEquals(7, SourceLocation.line(second));
+        assertEquals(14, SourceLocation.column(second));
+        assertEquals(SourceLocation.UNKNOWN,
+                parse(p, "PROGRAM P IS BEGIN move END Q").location(0));
+    }
+
+    /**
+     * Test of programs that end right after the {@code END} of an
+     * instruction or of the main body: the missing name is reported, and
+     * {@code Tokenizer.END_OF_INPUT} is left for recovery to stop at.
+     */
+    @Test
+    public void testTruncatedAfterEnd() {
+        String[] texts = { "PROGRAM p IS INSTRUCTION a IS move END",
+            "PROGRAM p IS BEGIN move END" };
+        String[] messages = { "Error: Expected name to match",
+            "Error: Names do not match" };
+        for (int i = 0; i < texts.length; i++) {
+            String text = texts[i];
+            /*
+             * Setup
+             */
+            Queue<String> tokens = TestTokens.tokens(text);
+            Program p = new Program1Parse1();
+            Diagnostics diagnostics = new Diagnostics();
+            /*
+             * The call
+             */
+            diagnostics.collect(() -> p.parse(tokens));
+            /*
+             * Evaluation
+             */
+            assertEquals(text, 1, diagnostics.size());
+            assertEquals(text, messages[i], diagnostics.message(0));
+            assertEquals(text, 1, tokens.length());
+        }
+    }
+
+}
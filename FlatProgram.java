@@ -0,0 +1,848 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Compact, array-backed representation of a parsed BL program.
+ *
+ * <p>
+ * Every statement of the program is a node, numbered from 0, and each node
+ * field is held in its own {@code int} array: the kind, the condition (as a
+ * {@code TokenKind}), and the range of the node's children in one shared
+ * array of child node numbers. The children of a BLOCK are its statements;
+ * an IF or a WHILE has its body block as its only child, and an IF_ELSE has
+ * its THEN and ELSE blocks. Names are interned in a {@code SymbolTable}: a
+ * CALL node holds the id of the instruction name in place of a child range,
+ * and the instruction it calls is found by indexing an array by that id. A
+ * program of {@code n} statements thus takes a few {@code int}s per
+ * statement, in about a dozen arrays, instead of {@code n} {@code Statement}
+ * objects each with its own child sequence. A parsed program also keeps the
+ * source location of each node, packed by {@code SourceLocation} into one
+ * {@code long} per node.
+ * </p>
+ *
+ * <p>
+ * A {@code FlatProgram} is produced by {@code Program1Parse1.parseFlat}, and
+ * can be turned into a {@code Statement} or {@code Program} for clients of
+ * those interfaces with {@code toStatement} and {@code toProgram}. Nodes are
+ * appended while parsing; a finished {@code FlatProgram} is not modified.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class FlatProgram {
+
+    /**
+     * Node kinds.
+     */
+    public static final int BLOCK = 0, IF = 1, IF_ELSE = 2, WHILE = 3,
+            CALL = 4;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The {@code Statement.Kind} of each node kind, indexed by node kind.
+     */
+    private static final Statement.Kind[] KINDS = { Statement.Kind.BLOCK,
+        Statement.Kind.IF, Statement.Kind.IF_ELSE, Statement.Kind.WHILE,
+        Statement.Kind.CALL };
+
+    /**
+     * Kind of each node.
+     */
+    private int[] kinds;
+
+    /**
+     * Condition kind of each IF, IF_ELSE and WHILE node; 0 for the others.
+     */
+    private int[] conditions;
+
+    /**
+     * Index in {@code children} of the first child of each node; for a CALL
+     * node, the id of its name in {@code symbols}.
+     */
+    private int[] firsts;
+
+    /**
+     * Number of children of each node.
+     */
+    private int[] counts;
+
+    /**
+     * Source location of each node, or {@code null} if no node has one.
+     */
+    private long[] locations;
+
+    /**
+     * Number of nodes.
+     */
+    private int nodeCount;
+
+    /**
+     * Child node numbers, in runs of consecutive children.
+     */
+    private int[] children;
+
+    /**
+     * Length of {@code children} in use.
+     */
+    private int childrenLength;
+
+    /**
+     * Children of the blocks being parsed, innermost block last.
+     */
+    private int[] pending;
+
+    /**
+     * Length of {@code pending} in use.
+     */
+    private int pendingLength;
+
+    /**
+     * The distinct names.
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * Instruction number of the instruction named by each name id, or -1;
+     * ids past its length name no instruction.
+     */
+    private int[] definitions;
+
+    /**
+     * The program name.
+     */
+    private String programName;
+
+    /**
+     * Id of the name of each instruction.
+     */
+    private int[] instructionNames;
+
+    /**
+     * Node number of the body of each instruction.
+     */
+    private int[] instructionBodies;
+
+    /**
+     * Number of instructions.
+     */
+    private int instructionCount;
+
+    /**
+     * Node number of the main body.
+     */
+    private int body;
+
+    /**
+     * Appends a node.
+     *
+     * @param kind
+     *            the node kind
+     * @param condition
+     *            the condition kind, or 0
+     * @param first
+     *            the index of the first child, or of the name of a CALL
+     * @param count
+     *            the number of children
+     * @param location
+     *            the source location of the node
+     * @return the node number
+     * @updates this
+     */
+    private int node(int kind, int condition, int first, int count,
+            long location) {
+        if (this.nodeCount == this.kinds.length) {
+            int capacity = 2 * this.nodeCount;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.conditions = Arrays.copyOf(this.conditions, capacity);
+            this.firsts = Arrays.copyOf(this.firsts, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.locations = Arrays.copyOf(this.locations, capacity);
+        }
+        int n = this.nodeCount;
+        this.kinds[n] = kind;
+        this.conditions[n] = condition;
+        this.firsts[n] = first;
+        this.counts[n] = count;
+        this.locations[n] = location;
+        this.nodeCount++;
+        return n;
+    }
+
+    /**
+     * Appends {@code a} and {@code b} to {@code children}, or only {@code a}
+     * if {@code b} is negative.
+     *
+     * @param a
+     *            the first child
+     * @param b
+     *            the second child, or -1
+     * @return the index of {@code a} in {@code children}
+     * @updates this
+     */
+    private int addChildren(int a, int b) {
+        if (this.childrenLength + 2 > this.children.length) {
+            this.children = Arrays.copyOf(this.children,
+                    2 * this.children.length);
+        }
+        int first = this.childrenLength;
+        this.children[this.childrenLength] = a;
+        this.childrenLength++;
+        if (b >= 0) {
+            this.children[this.childrenLength] = b;
+            this.childrenLength++;
+        }
+        return first;
+    }
+
+    /**
+     * Records that the name with id {@code id} names instruction {@code i}.
+     *
+     * @param id
+     *            the name id
+     * @param i
+     *            the instruction number
+     * @updates this
+     */
+    private void define(int id, int i) {
+        if (id >= this.definitions.length) {
+            int length = this.definitions.length;
+            this.definitions = Arrays.copyOf(this.definitions,
+                    Math.max(2 * length, this.symbols.size()));
+            Arrays.fill(this.definitions, length, this.definitions.length,
+                    -1);
+        }
+        this.definitions[id] = i;
+    }
+
+    /**
+     * Parses an IF or IF_ELSE statement from {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the node number of the statement
+     * @updates this, tokens
+     * @requires <pre>
+     * [<"IF"> is a prefix of tokens]  and
+     *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * </pre>
+     * @ensures <pre>
+     * if [an if string is a proper prefix of #tokens] then
+     *  [parseIf is a node for the if string at start of #tokens]  and
+     *  #tokens = [if string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private int parseIf(TokenStream tokens) {
+        long location = tokens.location();
+        int condition = Statement1Parse1.parseIfHead(tokens);
+        int thenBlock = this.parseBlock(tokens);
+        int elseBlock = -1;
+        if (tokens.frontKind() == TokenKind.ELSE) {
+            //parse else block
+            tokens.advance();
+            elseBlock = this.parseBlock(tokens);
+        }
+        Statement1Parse1.parseIfTail(tokens);
+        if (elseBlock < 0) {
+            return this.node(IF, condition, this.addChildren(thenBlock, -1),
+                    1, location);
+        }
+        return this.node(IF_ELSE, condition,
+                this.addChildren(thenBlock, elseBlock), 2, location);
+    }
+
+    /**
+     * Parses a WHILE statement from {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the node number of the statement
+     * @updates this, tokens
+     * @requires <pre>
+     * [<"WHILE"> is a prefix of tokens]  and
+     *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * </pre>
+     * @ensures <pre>
+     * if [a while string is a proper prefix of #tokens] then
+     *  [parseWhile is a node for the while string at start of #tokens]  and
+     *  #tokens = [while string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private int parseWhile(TokenStream tokens) {
+        long location = tokens.location();
+        int condition = Statement1Parse1.parseWhileHead(tokens);
+        int whileBlock = this.parseBlock(tokens);
+        Statement1Parse1.parseWhileTail(tokens);
+        return this.node(WHILE, condition, this.addChildren(whileBlock, -1),
+                1, location);
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the node number of the statement
+     * @updates this, tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  [parse is a node for the statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private int parse(TokenStream tokens) {
+        switch (tokens.frontKind()) {
+            case TokenKind.IF:
+                return this.parseIf(tokens);
+            case TokenKind.WHILE:
+                return this.parseWhile(tokens);
+            case TokenKind.IDENTIFIER:
+                long location = tokens.location();
+                return this.node(CALL, 0,
+                        this.symbols.intern(tokens.dequeue()), 0, location);
+            default:
+                Diagnostics.check(false,
+                        "Error: Invalid token. Expected: statement", tokens);
+                return -1;
+        }
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into a new BLOCK node. In diagnostics mode a statement with an error is
+     * left out of the block, as by {@code Statement1Parse1}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the node number of the block
+     * @updates this, tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  [parseBlock is a BLOCK node for b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    int parseBlock(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        int base = this.pendingLength;
+        long location = tokens.location();
+        int kind = tokens.frontKind();
+        while (Statement1Parse1.isStatementStart(kind)) {
+            int nodes = this.nodeCount;
+            int length = this.childrenLength;
+            int pendingBefore = this.pendingLength;
+            try {
+                int child = this.parse(tokens);
+                if (this.pendingLength == this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending,
+                            2 * this.pendingLength);
+                }
+                this.pending[this.pendingLength] = child;
+                this.pendingLength++;
+            } catch (Diagnostics.Recovery e) {
+                /*
+                 * Diagnostics mode: drop the statement and resynchronize
+                 */
+                this.nodeCount = nodes;
+                this.childrenLength = length;
+                this.pendingLength = pendingBefore;
+                Diagnostics.recoverStatement(tokens, kind);
+            }
+            kind = tokens.frontKind();
+        }
+
+        int count = this.pendingLength - base;
+        if (this.childrenLength + count > this.children.length) {
+            this.children = Arrays.copyOf(this.children,
+                    Math.max(2 * this.children.length,
+                            this.childrenLength + count));
+        }
+        int first = this.childrenLength;
+        System.arraycopy(this.pending, base, this.children, first, count);
+        this.childrenLength += count;
+        this.pendingLength = base;
+        return this.node(BLOCK, 0, first, count, location);
+    }
+
+    /**
+     * Sets the program name.
+     *
+     * @param name
+     *            the program name
+     * @updates this
+     */
+    void setName(String name) {
+        assert name != null : "Violation of: name is not null";
+        this.programName = name;
+    }
+
+    /**
+     * Adds an instruction.
+     *
+     * @param name
+     *            the instruction name
+     * @param block
+     *            the node number of the instruction body
+     * @updates this
+     * @requires [name is not the name of an instruction already added]  and
+     *           kind(block) = BLOCK
+     */
+    void addInstruction(String name, int block) {
+        assert name != null : "Violation of: name is not null";
+        assert this.kind(block) == BLOCK : "Violation of: kind(block) = BLOCK";
+        if (this.instructionCount == this.instructionNames.length) {
+            int capacity = 2 * this.instructionCount + 1;
+            this.instructionNames = Arrays.copyOf(this.instructionNames,
+                    capacity);
+            this.instructionBodies = Arrays.copyOf(this.instructionBodies,
+                    capacity);
+        }
+        int id = this.symbols.intern(name);
+        this.instructionNames[this.instructionCount] = id;
+        this.instructionBodies[this.instructionCount] = block;
+        this.define(id, this.instructionCount);
+        this.instructionCount++;
+    }
+
+    /**
+     * Sets the main body.
+     *
+     * @param block
+     *            the node number of the main body
+     * @updates this
+     * @requires kind(block) = BLOCK
+     */
+    void setBody(int block) {
+        assert this.kind(block) == BLOCK : "Violation of: kind(block) = BLOCK";
+        this.body = block;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: the program named "Unnamed" with no
+     * instructions and an empty main body.
+     */
+    public FlatProgram() {
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.conditions = new int[INITIAL_CAPACITY];
+        this.firsts = new int[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        this.locations = new long[INITIAL_CAPACITY];
+        this.nodeCount = 0;
+        this.children = new int[INITIAL_CAPACITY];
+        this.childrenLength = 0;
+        this.pending = new int[INITIAL_CAPACITY];
+        this.pendingLength = 0;
+        this.symbols = new SymbolTable();
+        this.definitions = new int[0];
+        this.programName = "Unnamed";
+        this.instructionNames = new int[0];
+        this.instructionBodies = new int[0];
+        this.instructionCount = 0;
+        this.body = this.node(BLOCK, 0, 0, 0, SourceLocation.UNKNOWN);
+    }
+
+    /**
+     * Constructor from the node arrays of a finished program.
+     *
+     * @param name
+     *            the program name
+     * @param kinds
+     *            the kind of each node
+     * @param conditions
+     *            the condition kind of each node, or 0
+     * @param firsts
+     *            the index of the first child (or the name) of each node
+     * @param counts
+     *            the number of children of each node
+     * @param children
+     *            the child node numbers
+     * @param names
+     *            the distinct names
+     * @param instructions
+     *            the index in {@code names} of the name of each instruction
+     * @param bodies
+     *            the node number of the body of each instruction
+     * @param body
+     *            the node number of the main body
+     * @aliases references kinds, conditions, firsts, counts, children, names,
+     *          instructions, bodies
+     * @requires [the arrays describe a well-formed program]
+     */
+    FlatProgram(String name, int[] kinds, int[] conditions, int[] firsts,
+            int[] counts, int[] children, String[] names, int[] instructions,
+            int[] bodies, int body) {
+        this.kinds = kinds;
+        this.conditions = conditions;
+        this.firsts = firsts;
+        this.counts = counts;
+        this.locations = null;
+        this.nodeCount = kinds.length;
+        this.children = children;
+        this.childrenLength = children.length;
+        this.pending = new int[0];
+        this.pendingLength = 0;
+        this.symbols = new SymbolTable(names);
+        this.definitions = new int[0];
+        this.programName = name;
+        this.instructionNames = instructions;
+        this.instructionBodies = bodies;
+        this.instructionCount = instructions.length;
+        this.body = body;
+        for (int i = 0; i < instructions.length; i++) {
+            this.define(instructions[i], i);
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Reports the program name.
+     *
+     * @return the program name
+     */
+    public String name() {
+        return this.programName;
+    }
+
+    /**
+     * Reports the number of instructions.
+     *
+     * @return the number of instructions
+     */
+    public int instructionCount() {
+        return this.instructionCount;
+    }
+
+    /**
+     * Reports the name of instruction {@code i}.
+     *
+     * @param i
+     *            the instruction number
+     * @return the name of instruction {@code i}
+     * @requires 0 <= i < instructionCount()
+     */
+    public String instructionName(int i) {
+        assert 0 <= i && i < this.instructionCount : ""
+                + "Violation of: 0 <= i < instructionCount()";
+        return this.symbols.name(this.instructionNames[i]);
+    }
+
+    /**
+     * Reports the node number of the body of instruction {@code i}.
+     *
+     * @param i
+     *            the instruction number
+     * @return the node number of the body of instruction {@code i}
+     * @requires 0 <= i < instructionCount()
+     */
+    public int instructionBody(int i) {
+        assert 0 <= i && i < this.instructionCount : ""
+                + "Violation of: 0 <= i < instructionCount()";
+        return this.instructionBodies[i];
+    }
+
+    /**
+     * Reports the node number of the main body.
+     *
+     * @return the node number of the main body
+     */
+    public int body() {
+        return this.body;
+    }
+
+    /**
+     * Reports the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Reports the kind of node {@code n}: {@code BLOCK}, {@code IF},
+     * {@code IF_ELSE}, {@code WHILE} or {@code CALL}.
+     *
+     * @param n
+     *            the node number
+     * @return the kind of node {@code n}
+     * @requires 0 <= n < nodeCount()
+     */
+    public int kind(int n) {
+        assert 0 <= n && n < this.nodeCount : ""
+                + "Violation of: 0 <= n < nodeCount()";
+        return this.kinds[n];
+    }
+
+    /**
+     * Reports the condition kind (a {@code TokenKind}) of node {@code n}.
+     *
+     * @param n
+     *            the node number
+     * @return the condition kind of node {@code n}
+     * @requires kind(n) is IF, IF_ELSE or WHILE
+     */
+    public int condition(int n) {
+        assert this.kind(n) != BLOCK && this.kind(n) != CALL : ""
+                + "Violation of: kind(n) is IF, IF_ELSE or WHILE";
+        return this.conditions[n];
+    }
+
+    /**
+     * Reports the source location of node {@code n}: that of its first
+     * token, packed as by {@code SourceLocation}.
+     *
+     * @param n
+     *            the node number
+     * @return the location of node {@code n}, or
+     *         {@code SourceLocation.UNKNOWN} if it is not known
+     * @requires 0 <= n < nodeCount()
+     */
+    public long location(int n) {
+        assert 0 <= n && n < this.nodeCount : ""
+                + "Violation of: 0 <= n < nodeCount()";
+        if (this.locations == null) {
+            return SourceLocation.UNKNOWN;
+        }
+        return this.locations[n];
+    }
+
+    /**
+     * Reports the number of children of node {@code n}.
+     *
+     * @param n
+     *            the node number
+     * @return the number of children of node {@code n}
+     * @requires 0 <= n < nodeCount()
+     */
+    public int childCount(int n) {
+        assert 0 <= n && n < this.nodeCount : ""
+                + "Violation of: 0 <= n < nodeCount()";
+        return this.counts[n];
+    }
+
+    /**
+     * Reports the node number of child {@code i} of node {@code n}.
+     *
+     * @param n
+     *            the node number
+     * @param i
+     *            the child number
+     * @return the node number of child {@code i} of node {@code n}
+     * @requires 0 <= i < childCount(n)
+     */
+    public int child(int n, int i) {
+        assert 0 <= i && i < this.childCount(n) : ""
+                + "Violation of: 0 <= i < childCount(n)";
+        return this.children[this.firsts[n] + i];
+    }
+
+    /**
+     * Reports the index in the name table of the name called by node
+     * {@code n}.
+     *
+     * @param n
+     *            the node number
+     * @return the index of the name called by node {@code n}
+     * @requires kind(n) = CALL
+     */
+    public int callIndex(int n) {
+        assert this.kind(n) == CALL : "Violation of: kind(n) = CALL";
+        return this.firsts[n];
+    }
+
+    /**
+     * Reports the name called by node {@code n}.
+     *
+     * @param n
+     *            the node number
+     * @return the name called by node {@code n}
+     * @requires kind(n) = CALL
+     */
+    public String callName(int n) {
+        return this.symbols.name(this.callIndex(n));
+    }
+
+    /**
+     * Reports the number of the instruction named by the name with id
+     * {@code id}, or -1 if no instruction has that name.
+     *
+     * @param id
+     *            the name id
+     * @return the instruction number, or -1
+     * @requires 0 <= id < nameCount()
+     * @ensures <pre>
+     * instructionOf = -1  or
+     *  instructionName(instructionOf) = nameAt(id)
+     * </pre>
+     */
+    public int instructionOf(int id) {
+        assert 0 <= id && id < this.symbols.size() : ""
+                + "Violation of: 0 <= id < nameCount()";
+        if (id >= this.definitions.length) {
+            return -1;
+        }
+        return this.definitions[id];
+    }
+
+    /**
+     * Reports the number of distinct names in the name table.
+     *
+     * @return the number of distinct names
+     */
+    public int nameCount() {
+        return this.symbols.size();
+    }
+
+    /**
+     * Reports name {@code i} of the name table.
+     *
+     * @param i
+     *            the index of the name
+     * @return name {@code i}
+     * @requires 0 <= i < nameCount()
+     */
+    public String nameAt(int i) {
+        assert 0 <= i && i < this.symbols.size() : ""
+                + "Violation of: 0 <= i < nameCount()";
+        return this.symbols.name(i);
+    }
+
+    /**
+     * Reports an estimate of the memory taken by this, in bytes.
+     *
+     * @return the estimated size of this in bytes
+     */
+    public long footprint() {
+        final long intBytes = 4, intsPerNode = 4, arrayHeader = 16;
+        final long stringHeader = 56;
+        long bytes = intsPerNode * intBytes * this.nodeCount
+                + intBytes * this.childrenLength
+                + 2 * intBytes * this.instructionCount
+                + (intsPerNode + 2) * arrayHeader;
+        if (this.locations != null) {
+            bytes += 2 * intBytes * this.nodeCount + arrayHeader;
+        }
+        for (int i = 0; i < this.symbols.size(); i++) {
+            bytes += stringHeader + this.symbols.name(i).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds the {@code Statement} for node {@code n} in {@code s}.
+     *
+     * @param n
+     *            the node number
+     * @param s
+     *            the statement
+     * @replaces s
+     * @requires 0 <= n < nodeCount()
+     * @ensures s = [Statement corresponding to node n]
+     */
+    public void toStatement(int n, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert 0 <= n && n < this.nodeCount : ""
+                + "Violation of: 0 <= n < nodeCount()";
+        switch (this.kinds[n]) {
+            case BLOCK:
+                s.clear();
+                Statement child = s.newInstance();
+                for (int i = 0; i < this.counts[n]; i++) {
+                    this.toStatement(this.children[this.firsts[n] + i], child);
+                    s.addToBlock(i, child);
+                }
+                break;
+            case CALL:
+                s.assembleCall(this.symbols.name(this.firsts[n]));
+                break;
+            default:
+                Statement.Condition c = TokenKind
+                        .condition(this.conditions[n]);
+                Statement block = s.newInstance();
+                this.toStatement(this.children[this.firsts[n]], block);
+                if (this.kinds[n] == WHILE) {
+                    s.assembleWhile(c, block);
+                } else if (this.kinds[n] == IF) {
+                    s.assembleIf(c, block);
+                } else {
+                    Statement elseBlock = s.newInstance();
+                    this.toStatement(this.children[this.firsts[n] + 1],
+                            elseBlock);
+                    s.assembleIfElse(c, block, elseBlock);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Builds the {@code Program} for this in {@code p}.
+     *
+     * @param p
+     *            the program
+     * @replaces p
+     * @ensures p = [Program corresponding to this]
+     */
+    public void toProgram(Program p) {
+        assert p != null : "Violation of: p is not null";
+        Map<String, Statement> context = p.newContext();
+        for (int i = 0; i < this.instructionCount; i++) {
+            Statement block = p.newBody();
+            this.toStatement(this.instructionBodies[i], block);
+            context.add(this.instructionName(i), block);
+        }
+        Statement block = p.newBody();
+        this.toStatement(this.body, block);
+        p.replaceName(this.programName);
+        p.replaceContext(context);
+        p.replaceBody(block);
+    }
+
+    /**
+     * Reports the {@code Statement.Kind} of a node kind.
+     *
+     * @param kind
+     *            the node kind
+     * @return the {@code Statement.Kind} of {@code kind}
+     * @requires BLOCK <= kind <= CALL
+     */
+    public static Statement.Kind statementKind(int kind) {
+        assert BLOCK <= kind && kind <= CALL : ""
+                + "Violation of: BLOCK <= kind <= CALL";
+        return KINDS[kind];
+    }
+
+}
@@ -0,0 +1,202 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * JUnit test fixture for {@code FlatProgram} and
+ * {@code Program1Parse1.parseFlat}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class FlatProgramTest {
+
+    /**
+     * Checks that parsing the program in {@code fileName} into a
+     * {@code FlatProgram} gives the same program as {@code Program1Parse1}.
+     *
+     * @param fileName
+     *            the name of the file
+     */
+    private static void checkFile(String fileName) {
+        Program pRef = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L(fileName);
+        pRef.parse(in);
+        in.close();
+        in = new SimpleReader1L(fileName);
+        FlatProgram flat = Program1Parse1
+                .parseFlat(new ReaderTokenStream(in));
+        in.close();
+        Program pTest = new Program1();
+        flat.toProgram(pTest);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test of parseFlat on program1a.bl.
+     */
+    @Test
+    public void testProgram1a() {
+        checkFile("test/program1a.bl");
+    }
+
+    /**
+     * Test of parseFlat on program1b.bl.
+     */
+    @Test
+    public void testProgram1b() {
+        checkFile("test/program1b.bl");
+    }
+
+    /**
+     * Test of the node structure of a small program.
+     */
+    @Test
+    public void testNodes() {
+        /*
+         * The call
+         */
+        FlatProgram flat = Program1Parse1.parseFlat(TestTokens
+                .stream("PROGRAM P IS INSTRUCTION a IS move move END a "
+                        + "BEGIN IF random THEN a ELSE WHILE true DO a "
+                        + "END WHILE END IF END P"));
+        /*
+         * Evaluation
+         */
+        assertEquals("P", flat.name());
+        assertEquals(1, flat.instructionCount());
+        assertEquals("a", flat.instructionName(0));
+        int a = flat.instructionBody(0);
+        assertEquals(FlatProgram.BLOCK, flat.kind(a));
+        assertEquals(2, flat.childCount(a));
+        assertEquals(flat.callIndex(flat.child(a, 0)),
+                flat.callIndex(flat.child(a, 1)));
+        int ifElse = flat.child(flat.body(), 0);
+        assertEquals(FlatProgram.IF_ELSE, flat.kind(ifElse));
+        assertEquals(TokenKind.RANDOM, flat.condition(ifElse));
+        assertEquals(2, flat.childCount(ifElse));
+        int loop = flat.child(flat.child(ifElse, 1), 0);
+        assertEquals(FlatProgram.WHILE, flat.kind(loop));
+        assertEquals("a", flat.callName(flat.child(flat.child(loop, 0), 0)));
+        assertEquals(2, flat.nameCount());
+    }
+
+    /**
+     * Test of toStatement on a single block.
+     */
+    @Test
+    public void testToStatement() {
+        /*
+         * Setup
+         */
+        String text = "PROGRAM P IS BEGIN turnleft IF next-is-wall THEN "
+                + "skip END IF END P";
+        Program pRef = new Program1Parse1();
+        pRef.parse(TestTokens.tokens(text));
+        Statement sRef = pRef.newBody();
+        pRef.swapBody(sRef);
+        FlatProgram flat = Program1Parse1
+                .parseFlat(TestTokens.stream(text));
+        Statement sTest = new Statement1();
+        /*
+         * The call
+         */
+        flat.toStatement(flat.body(), sTest);
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test of parseFlat in diagnostics mode: the errors and the program match
+     * those of parse.
+     */
+    @Test
+    public void testDiagnostics() {
+        /*
+         * Setup
+         */
+        String text = "PROGRAM P IS "
+                + "INSTRUCTION a IS IF bogus THEN move END IF END a "
+                + "INSTRUCTION b IS move WHILE true move END WHILE skip END b "
+                + "INSTRUCTION move IS skip END move "
+                + "BEGIN b END Q";
+        Program pRef = new Program1Parse1();
+        Queue<String> tokens = TestTokens.tokens(text);
+        Diagnostics expected = new Diagnostics();
+        Diagnostics actual = new Diagnostics();
+        FlatProgram[] flat = new FlatProgram[1];
+        /*
+         * The call
+         */
+        expected.collect(() -> pRef.parse(tokens));
+        actual.collect(() -> flat[0] = Program1Parse1
+                .parseFlat(TestTokens.stream(text)));
+        /*
+         * Evaluation
+         */
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.position(i), actual.position(i));
+            assertEquals(expected.message(i), actual.message(i));
+        }
+        Program pTest = new Program1();
+        flat[0].toProgram(pTest);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test of the source locations of the nodes: a file read line by line
+     * and the same file lexed from its bytes give every parsed node the same
+     * line and column.
+     */
+    @Test
+    public void testLocations() {
+        /*
+         * Setup
+         */
+        String file = "test/program1a.bl";
+        SimpleReader in = new SimpleReader1L(file);
+        /*
+         * The call
+         */
+        FlatProgram read = Program1Parse1
+                .parseFlat(new ReaderTokenStream(in));
+        in.close();
+        FlatProgram mapped = Program1Parse1
+                .parseFlat(new MappedTokenStream(file));
+        /*
+         * Evaluation
+         */
+        assertEquals(read.nodeCount(), mapped.nodeCount());
+        for (int n = 0; n < read.nodeCount(); n++) {
+            long expected = read.location(n);
+            long actual = mapped.location(n);
+            if (expected == SourceLocation.UNKNOWN) {
+                assertEquals(expected, actual);
+            } else {
+                assertEquals(SourceLocation.line(expected),
+                        SourceLocation.line(actual));
+                assertEquals(SourceLocation.column(expected),
+                        SourceLocation.column(actual));
+            }
+        }
+        long body = read.location(read.body());
+        assertEquals(28, SourceLocation.line(body));
+        assertEquals(3, SourceLocation.column(body));
+        assertEquals(SourceLocation.UNKNOWN, Program1Parse1
+                .parseFlat(TestTokens.stream("PROGRAM P IS "
+                        + "BEGIN move END P"))
+                .location(0));
+    }
+
+}
@@ -0,0 +1,315 @@
+import java.util.Arrays;
+
+/**
+ * A {@code World} held in memory: a rectangular grid surrounded by walls, in
+ * which each cell is empty or holds one bug, and each bug faces one of the
+ * four directions and belongs to a species.
+ *
+ * <p>
+ * A bug moves into the cell ahead of it only if that cell is empty, and
+ * infecting a bug of another species ahead of it turns that bug into one of
+ * its own species; infecting a friend does nothing. The {@code random}
+ * condition is drawn from a generator per bug, seeded from the world's seed
+ * and the bug number, so runs are reproducible.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class InMemoryWorld implements World {
+
+    /**
+     * Directions.
+     */
+    public static final int NORTH = 0, EAST = 1, SOUTH = 2, WEST = 3;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Column and row offsets of the cell ahead, indexed by direction; rows
+     * grow to the south.
+     */
+    private static final int[] DX = { 0, 1, 0, -1 }, DY = { -1, 0, 1, 0 };
+
+    /**
+     * Number of directions.
+     */
+    private static final int DIRECTIONS = 4;
+
+    /**
+     * Width and height of the grid.
+     */
+    private final int width, height;
+
+    /**
+     * Bug number plus one in each cell, row by row, or 0 for an empty cell.
+     */
+    private final int[] cells;
+
+    /**
+     * The seed of the random conditions.
+     */
+    private final long seed;
+
+    /**
+     * Column, row, direction and species of each bug.
+     */
+    private int[] xs, ys, directions, species;
+
+    /**
+     * State of the random generator of each bug.
+     */
+    private long[] randoms;
+
+    /**
+     * Number of bugs.
+     */
+    private int bugCount;
+
+    /**
+     * Returns the index of the cell ahead of {@code bug}, or -1 if there is a
+     * wall ahead.
+     *
+     * @param bug
+     *            the bug number
+     * @return the index of the cell ahead, or -1
+     */
+    private int ahead(int bug) {
+        int x = this.xs[bug] + DX[this.directions[bug]];
+        int y = this.ys[bug] + DY[this.directions[bug]];
+        if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+            return -1;
+        }
+        return y * this.width + x;
+    }
+
+    /**
+     * Returns the next random bit of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the next random bit
+     * @updates this.randoms[bug]
+     */
+    private boolean nextRandom(int bug) {
+        // xorshift64
+        final int a = 13, b = 7, c = 17;
+        long r = this.randoms[bug];
+        r ^= r << a;
+        r ^= r >>> b;
+        r ^= r << c;
+        this.randoms[bug] = r;
+        return r < 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor: an empty grid.
+     *
+     * @param width
+     *            the number of columns
+     * @param height
+     *            the number of rows
+     * @param seed
+     *            the seed of the random conditions
+     * @requires width > 0 and height > 0
+     */
+    public InMemoryWorld(int width, int height, long seed) {
+        assert width > 0 && height > 0 : ""
+                + "Violation of: width > 0 and height > 0";
+        this.width = width;
+        this.height = height;
+        this.cells = new int[width * height];
+        this.seed = seed;
+        this.xs = new int[0];
+        this.ys = new int[0];
+        this.directions = new int[0];
+        this.species = new int[0];
+        this.randoms = new long[0];
+        this.bugCount = 0;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Adds a bug, and returns its number.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @param direction
+     *            the direction the bug faces
+     * @param kind
+     *            the species
+     * @return the bug number
+     * @requires <pre>
+     * 0 <= x < width  and  0 <= y < height  and  [cell (x, y) is empty]  and
+     *  NORTH <= direction <= WEST
+     * </pre>
+     */
+    public int addBug(int x, int y, int direction, int kind) {
+        assert 0 <= x && x < this.width && 0 <= y && y < this.height : ""
+                + "Violation of: (x, y) is in the grid";
+        assert this.cells[y * this.width + x] == 0 : ""
+                + "Violation of: cell (x, y) is empty";
+        assert NORTH <= direction && direction <= WEST : ""
+                + "Violation of: NORTH <= direction <= WEST";
+        if (this.bugCount == this.xs.length) {
+            int capacity = 2 * this.bugCount + 1;
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.ys = Arrays.copyOf(this.ys, capacity);
+            this.directions = Arrays.copyOf(this.directions, capacity);
+            this.species = Arrays.copyOf(this.species, capacity);
+            this.randoms = Arrays.copyOf(this.randoms, capacity);
+        }
+        int bug = this.bugCount;
+        this.xs[bug] = x;
+        this.ys[bug] = y;
+        this.directions[bug] = direction;
+        this.species[bug] = kind;
+        // splitmix64 of the seed and bug number: never 0
+        final long golden = 0x9E3779B97F4A7C15L;
+        final long m1 = 0xBF58476D1CE4E5B9L, m2 = 0x94D049BB133111EBL;
+        final int s1 = 30, s2 = 27, s3 = 31;
+        long z = this.seed + (bug + 1) * golden;
+        z = (z ^ (z >>> s1)) * m1;
+        z = (z ^ (z >>> s2)) * m2;
+        z ^= z >>> s3;
+        this.randoms[bug] = z | 1;
+        this.cells[y * this.width + x] = bug + 1;
+        this.bugCount++;
+        return bug;
+    }
+
+    /**
+     * Reports the column of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the column of {@code bug}
+     */
+    public int x(int bug) {
+        return this.xs[bug];
+    }
+
+    /**
+     * Reports the row of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the row of {@code bug}
+     */
+    public int y(int bug) {
+        return this.ys[bug];
+    }
+
+    /**
+     * Reports the direction {@code bug} faces.
+     *
+     * @param bug
+     *            the bug number
+     * @return the direction of {@code bug}
+     */
+    public int direction(int bug) {
+        return this.directions[bug];
+    }
+
+    /**
+     * Reports the species of {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @return the species of {@code bug}
+     */
+    public int species(int bug) {
+        return this.species[bug];
+    }
+
+    @Override
+    public boolean test(int bug, int condition) {
+        int cell = this.ahead(bug);
+        int other = -1;
+        if (cell >= 0) {
+            other = this.cells[cell] - 1;
+        }
+        boolean result;
+        switch (condition) {
+            case TokenKind.NEXT_IS_EMPTY:
+                result = cell >= 0 && other < 0;
+                break;
+            case TokenKind.NEXT_IS_NOT_EMPTY:
+                result = !(cell >= 0 && other < 0);
+                break;
+            case TokenKind.NEXT_IS_WALL:
+                result = cell < 0;
+                break;
+            case TokenKind.NEXT_IS_NOT_WALL:
+                result = cell >= 0;
+                break;
+            case TokenKind.NEXT_IS_FRIEND:
+                result = other >= 0 && this.species[other] == this.species[bug];
+                break;
+            case TokenKind.NEXT_IS_NOT_FRIEND:
+                result = !(other >= 0
+                        && this.species[other] == this.species[bug]);
+                break;
+            case TokenKind.NEXT_IS_ENEMY:
+                result = other >= 0 && this.species[other] != this.species[bug];
+                break;
+            case TokenKind.NEXT_IS_NOT_ENEMY:
+                result = !(other >= 0
+                        && this.species[other] != this.species[bug]);
+                break;
+            case TokenKind.RANDOM:
+                result = this.nextRandom(bug);
+                break;
+            default:
+                result = true;
+                break;
+        }
+        return result;
+    }
+
+    @Override
+    public int act(int bug, int action) {
+        int cell = this.ahead(bug);
+        int infected = -1;
+        switch (action) {
+            case BLCompiler.MOVE:
+                if (cell >= 0 && this.cells[cell] == 0) {
+                    this.cells[this.ys[bug] * this.width + this.xs[bug]] = 0;
+                    this.cells[cell] = bug + 1;
+                    this.xs[bug] = cell % this.width;
+                    this.ys[bug] = cell / this.width;
+                }
+                break;
+            case BLCompiler.TURNLEFT:
+                this.directions[bug] = (this.directions[bug] + DIRECTIONS - 1)
+                        % DIRECTIONS;
+                break;
+            case BLCompiler.TURNRIGHT:
+                this.directions[bug] = (this.directions[bug] + 1) % DIRECTIONS;
+                break;
+            case BLCompiler.INFECT:
+                if (cell >= 0 && this.cells[cell] != 0 && this.species[this
+                        .cells[cell] - 1] != this.species[bug]) {
+                    infected = this.cells[cell] - 1;
+                    this.species[infected] = this.species[bug];
+                }
+                break;
+            default:
+                // SKIP
+                break;
+        }
+        return infected;
+    }
+
+}
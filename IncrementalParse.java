@@ -0,0 +1,428 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.set.Set;
+import components.set.Set1L;
+import components.statement.Statement;
+
+/**
+ * Incremental parser for a BL program that is being edited.
+ *
+ * <p>
+ * After a full parse of the source text, the byte range of each instruction
+ * definition and of the main body is remembered. When an edit falls strictly
+ * inside one of those ranges, only that definition is lexed and parsed again:
+ * its entry in the program's context (or the program's body) is replaced, and
+ * every other instruction body is left as it was, with no copying. An edit
+ * that only changes the whitespace between definitions just shifts the ranges.
+ * Any other edit, or one whose definition no longer parses on its own (say,
+ * because it now ends the instruction early), falls back to a full parse, so
+ * the result and the errors reported are always those of a full parse.
+ * </p>
+ *
+ * <p>
+ * The source is treated as ASCII, like in {@code MappedLexer}.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class IncrementalParse {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The program parsed into.
+     */
+    private final Program program;
+
+    /**
+     * The implementation used to parse statement blocks.
+     */
+    private final ParseMode mode;
+
+    /**
+     * The source text.
+     */
+    private byte[] text;
+
+    /**
+     * Offset of the end of the program header.
+     */
+    private int headerEnd;
+
+    /**
+     * Offset of the INSTRUCTION token of each instruction definition.
+     */
+    private int[] starts;
+
+    /**
+     * Offset one past the closing name of each instruction definition.
+     */
+    private int[] ends;
+
+    /**
+     * Name of each instruction.
+     */
+    private String[] instructionNames;
+
+    /**
+     * Number of instructions; 0 (and {@code mainStart} -1) if the last full
+     * parse found an error, which disables incremental parsing.
+     */
+    private int count;
+
+    /**
+     * Offset of the BEGIN token of the main body, or -1.
+     */
+    private int mainStart;
+
+    /**
+     * The names of the instructions in the program's context.
+     */
+    private Set<String> names;
+
+    /**
+     * Whether the last parse was incremental.
+     */
+    private boolean incremental;
+
+    /**
+     * Returns a lexer for the bytes of {@code this.text} from {@code from}
+     * (inclusive) to {@code to} (exclusive).
+     *
+     * @param from
+     *            the offset of the first byte
+     * @param to
+     *            the offset one past the last byte
+     * @return the lexer
+     */
+    private MappedLexer lex(int from, int to) {
+        return new MappedLexer(ByteBuffer.wrap(this.text, from, to - from));
+    }
+
+    /**
+     * Records the byte ranges of the definitions lexed by {@code lexer}.
+     *
+     * @param lexer
+     *            the lexer for all of {@code this.text}
+     * @updates this
+     */
+    private void segment(MappedLexer lexer) {
+        final int headerLength = 3;
+        this.count = 0;
+        this.mainStart = -1;
+        this.names = new Set1L<String>();
+        this.headerEnd = lexer.offset(headerLength - 1)
+                + lexer.tokenLength(headerLength - 1);
+        int next = headerLength;
+        while (lexer.kind(next) == TokenKind.INSTRUCTION) {
+            int end = Program1Parse2.instructionEnd(lexer, next);
+            if (this.count == this.starts.length) {
+                int capacity = 2 * this.count + 1;
+                this.starts = Arrays.copyOf(this.starts, capacity);
+                this.ends = Arrays.copyOf(this.ends, capacity);
+                this.instructionNames = Arrays.copyOf(this.instructionNames,
+                        capacity);
+            }
+            this.starts[this.count] = lexer.offset(next);
+            this.ends[this.count] = lexer.offset(end - 1)
+                    + lexer.tokenLength(end - 1);
+            this.instructionNames[this.count] = lexer.text(next + 1);
+            this.names.add(this.instructionNames[this.count]);
+            this.count++;
+            next = end;
+        }
+        this.mainStart = lexer.offset(next);
+    }
+
+    /**
+     * Parses all of {@code this.text} into {@code this.program}.
+     *
+     * @updates this
+     * @ensures <pre>
+     * if [this.text is a valid program] then
+     *  this.program = [Program corresponding to this.text]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    private void parseAll() {
+        this.incremental = false;
+        MappedLexer lexer = this.lex(0, this.text.length);
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> Program1Parse1.parseProgram(
+                new MappedTokenStream(lexer), this.program, this.mode));
+        if (diagnostics.size() == 0) {
+            this.segment(lexer);
+        } else {
+            /*
+             * Parse again to report the errors as the client expects
+             */
+            this.count = 0;
+            this.mainStart = -1;
+            Program1Parse1.parseProgram(new MappedTokenStream(lexer),
+                    this.program, this.mode);
+        }
+    }
+
+    /**
+     * Re-parses instruction {@code k}, whose closing offset has moved by
+     * {@code delta}.
+     *
+     * @param k
+     *            the instruction number
+     * @param delta
+     *            the change in length of the instruction's text
+     * @return true iff the instruction still parses on its own
+     * @updates this
+     */
+    private boolean reparseInstruction(int k, int delta) {
+        int end = this.ends[k] + delta;
+        MappedLexer lexer = this.lex(this.starts[k], end);
+        if (lexer.kind(0) != TokenKind.INSTRUCTION) {
+            return false;
+        }
+        Statement body = this.program.newBody();
+        String[] name = new String[1];
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> {
+            TokenStream tokens = new MappedTokenStream(lexer);
+            name[0] = Program1Parse1.parseInstruction(tokens, body, this.mode);
+            Diagnostics.check(tokens.frontKind() == TokenKind.END_OF_INPUT,
+                    "Error: Invalid instruction. Expected: \"END\" token",
+                    tokens);
+        });
+        if (diagnostics.size() > 0) {
+            return false;
+        }
+
+        Map<String, Statement> context = this.program.newContext();
+        this.program.swapContext(context);
+        context.remove(this.instructionNames[k]);
+        this.names.remove(this.instructionNames[k]);
+        diagnostics.collect(() -> Program1Parse1.addInstruction(name[0], body,
+                this.names, context, 0, lexer.location(0)));
+        this.program.swapContext(context);
+        if (diagnostics.size() > 0) {
+            return false;
+        }
+
+        this.instructionNames[k] = name[0];
+        this.ends[k] = end;
+        for (int i = k + 1; i < this.count; i++) {
+            this.starts[i] += delta;
+            this.ends[i] += delta;
+        }
+        this.mainStart += delta;
+        return true;
+    }
+
+    /**
+     * Re-parses the main body.
+     *
+     * @return true iff the main body still parses on its own
+     * @updates this
+     */
+    private boolean reparseMain() {
+        MappedLexer lexer = this.lex(this.mainStart, this.text.length);
+        if (lexer.kind(0) != TokenKind.BEGIN) {
+            return false;
+        }
+        Statement body = this.program.newBody();
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> Program1Parse1.parseMainBody(
+                new MappedTokenStream(lexer), this.program.name(), body,
+                this.mode));
+        if (diagnostics.size() > 0) {
+            return false;
+        }
+        this.program.swapBody(body);
+        return true;
+    }
+
+    /**
+     * Reports whether bytes {@code from} (inclusive) to {@code to} (exclusive)
+     * of {@code bytes} are all whitespace.
+     *
+     * @param bytes
+     *            the bytes
+     * @param from
+     *            the offset of the first byte
+     * @param to
+     *            the offset one past the last byte
+     * @return true iff the bytes are all whitespace
+     */
+    private static boolean isWhitespace(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (!(b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f'
+                    || b == 0x0B)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; statement blocks are parsed with
+     * {@code ParseMode.RECURSIVE}.
+     *
+     * @param program
+     *            the program parsed into
+     * @aliases reference program
+     */
+    public IncrementalParse(Program program) {
+        this(program, ParseMode.RECURSIVE);
+    }
+
+    /**
+     * Constructor that selects how statement blocks are parsed.
+     *
+     * @param program
+     *            the program parsed into
+     * @param mode
+     *            the implementation used to parse statement blocks
+     * @aliases reference program
+     */
+    public IncrementalParse(Program program, ParseMode mode) {
+        assert program != null : "Violation of: program is not null";
+        assert mode != null : "Violation of: mode is not null";
+        this.program = program;
+        this.mode = mode;
+        this.text = new byte[0];
+        this.starts = new int[0];
+        this.ends = new int[0];
+        this.instructionNames = new String[0];
+        this.count = 0;
+        this.mainStart = -1;
+        this.names = new Set1L<String>();
+        this.incremental = false;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Parses {@code source} in full into the program.
+     *
+     * @param source
+     *            the BL source text
+     * @ensures <pre>
+     * if [source is a valid program] then
+     *  program = [Program corresponding to source]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void parse(String source) {
+        assert source != null : "Violation of: source is not null";
+        this.text = source.getBytes(StandardCharsets.ISO_8859_1);
+        this.parseAll();
+    }
+
+    /**
+     * Replaces the {@code length} characters of the source text starting at
+     * {@code offset} with {@code replacement}, and updates the program,
+     * re-parsing as little as possible.
+     *
+     * @param offset
+     *            the offset of the edit
+     * @param length
+     *            the number of characters replaced
+     * @param replacement
+     *            the replacement text
+     * @requires 0 <= offset <= offset + length <= |text()|
+     * @ensures <pre>
+     * text() = #text()[0, offset) * replacement *
+     *          #text()[offset + length, |#text()|)  and
+     * if [text() is a valid program] then
+     *  program = [Program corresponding to text()]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void edit(int offset, int length, String replacement) {
+        assert replacement != null : "Violation of: replacement is not null";
+        assert 0 <= offset && 0 <= length
+                && offset + length <= this.text.length : ""
+                        + "Violation of: 0 <= offset <= offset + length"
+                        + " <= |text()|";
+        byte[] insert = replacement.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] old = this.text;
+        int delta = insert.length - length;
+        this.text = new byte[old.length + delta];
+        System.arraycopy(old, 0, this.text, 0, offset);
+        System.arraycopy(insert, 0, this.text, offset, insert.length);
+        System.arraycopy(old, offset + length, this.text,
+                offset + insert.length, old.length - offset - length);
+
+        int editEnd = offset + length;
+        this.incremental = false;
+        if (this.mainStart >= 0) {
+            /*
+             * Find the definition the edit is in, or the gap before it
+             */
+            int k = 0;
+            while (k < this.count && this.ends[k] <= offset) {
+                k++;
+            }
+            int gapStart = this.headerEnd;
+            if (k > 0) {
+                gapStart = this.ends[k - 1];
+            }
+            int gapEnd = this.mainStart;
+            if (k < this.count) {
+                gapEnd = this.starts[k];
+            }
+            if (offset > gapEnd && k < this.count && editEnd < this.ends[k]) {
+                this.incremental = this.reparseInstruction(k, delta);
+            } else if (offset > this.mainStart && k == this.count) {
+                this.incremental = this.reparseMain();
+            } else if (gapStart <= offset && editEnd <= gapEnd
+                    && gapEnd - gapStart + delta > 0
+                    && isWhitespace(old, offset, editEnd)
+                    && isWhitespace(insert, 0, insert.length)) {
+                for (int i = k; i < this.count; i++) {
+                    this.starts[i] += delta;
+                    this.ends[i] += delta;
+                }
+                this.mainStart += delta;
+                this.incremental = true;
+            }
+        }
+        if (!this.incremental) {
+            this.parseAll();
+        }
+    }
+
+    /**
+     * Returns the current source text.
+     *
+     * @return the source text
+     */
+    public String text() {
+        return new String(this.text, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Reports whether the last {@code edit} was handled without a full
+     * parse.
+     *
+     * @return true iff the last edit was incremental
+     */
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+}
@@ -0,0 +1,157 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code IncrementalParse}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class IncrementalParseTest {
+
+    /**
+     * Source text of the program the edits are made to.
+     */
+    private static final String SOURCE = "PROGRAM Test IS\n\n"
+            + "  INSTRUCTION one IS\n    move\n  END one\n\n"
+            + "  INSTRUCTION two IS\n    IF next-is-wall THEN\n"
+            + "      turnleft\n    END IF\n  END two\n\n"
+            + "BEGIN\n  one\n  two\nEND Test\n";
+
+    /**
+     * Returns the program parsed in full from {@code text}.
+     *
+     * @param text
+     *            the source text
+     * @return the program
+     */
+    private static Program parseAll(String text) {
+        return TestTokens.parse(text);
+    }
+
+    /**
+     * Parses {@code SOURCE}, makes an edit, and checks the result against a
+     * full parse of the edited text.
+     *
+     * @param anchor
+     *            text whose first occurrence in {@code SOURCE} starts the edit
+     * @param length
+     *            the number of characters replaced
+     * @param replacement
+     *            the replacement text
+     * @return whether the edit was incremental
+     */
+    private static boolean edit(String anchor, int length,
+            String replacement) {
+        Program p = new Program1Parse1();
+        IncrementalParse parse = new IncrementalParse(p);
+        parse.parse(SOURCE);
+        int offset = SOURCE.indexOf(anchor);
+        parse.edit(offset, length, replacement);
+        String expected = SOURCE.substring(0, offset) + replacement
+                + SOURCE.substring(offset + length);
+        assertEquals(expected, parse.text());
+        assertEquals(parseAll(expected), p);
+        return parse.isIncremental();
+    }
+
+    /**
+     * Test of an edit inside an instruction body.
+     */
+    @Test
+    public void testEditInstructionBody() {
+        assertTrue(edit("move", "move".length(), "turnright\n    move"));
+    }
+
+    /**
+     * Test of an edit that renames an instruction at both ends.
+     */
+    @Test
+    public void testRenameInstruction() {
+        assertTrue(edit("one IS", "one IS\n    move\n  END o".length(),
+                "nine IS\n    move\n  END ni"));
+    }
+
+    /**
+     * Test of an edit inside the main body.
+     */
+    @Test
+    public void testEditMainBody() {
+        assertTrue(edit("  two\nEND", "  two".length(), "  WHILE true DO\n"
+                + "    two\n  END WHILE"));
+    }
+
+    /**
+     * Test of an edit to the whitespace between instructions.
+     */
+    @Test
+    public void testEditWhitespace() {
+        assertTrue(edit("\n\n  INSTRUCTION two", 1, "\n\n\n"));
+    }
+
+    /**
+     * Test of an edit that spans two instructions: parsed in full.
+     */
+    @Test
+    public void testEditAcrossInstructions() {
+        assertFalse(edit("END one", "END one\n\n  INSTRUCTION two".length(),
+                "END one\n\n  INSTRUCTION three IS\n    skip\n"
+                        + "  END three\n\n  INSTRUCTION two"));
+    }
+
+    /**
+     * Test of an edit that ends an instruction early: parsed in full.
+     */
+    @Test
+    public void testEditSplitsInstruction() {
+        assertFalse(edit("one IS", "one IS".length(), "zero IS\n    move\n"
+                + "  END zero\n\n  INSTRUCTION one IS"));
+    }
+
+    /**
+     * Test of several edits in a row, each checked against a full parse.
+     */
+    @Test
+    public void testSeveralEdits() {
+        Program p = new Program1Parse1();
+        IncrementalParse parse = new IncrementalParse(p,
+                ParseMode.ITERATIVE);
+        parse.parse(SOURCE);
+        String[][] edits = { { "move", "skip" }, { "turnleft", "infect" },
+            { "\n  one\n", "\n  two\n" }, { "skip", "move" } };
+        for (String[] e : edits) {
+            int offset = parse.text().indexOf(e[0]);
+            parse.edit(offset, e[0].length(), e[1]);
+            assertTrue(parse.isIncremental());
+            assertEquals(parseAll(parse.text()), p);
+        }
+    }
+
+    /**
+     * Test of an edit that makes the program invalid: the error is reported
+     * as by a full parse, and incremental parsing resumes once it is fixed.
+     */
+    @Test
+    public void testEditWithError() {
+        Program p = new Program1Parse1();
+        IncrementalParse parse = new IncrementalParse(p);
+        parse.parse(SOURCE);
+        int offset = SOURCE.indexOf("END two");
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> parse.edit(offset, "END two".length(),
+                "END three"));
+        assertEquals(1, diagnostics.size());
+        assertFalse(parse.isIncremental());
+
+        parse.edit(offset, "END three".length(), "END two");
+        assertEquals(parseAll(SOURCE), p);
+        parse.edit(SOURCE.indexOf("move"), "move".length(), "skip");
+        assertTrue(parse.isIncremental());
+    }
+
+}
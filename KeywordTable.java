@@ -0,0 +1,157 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Perfect-hash table from the spellings of the BL keywords and conditions to
+ * their {@code TokenKind}s.
+ *
+ * <p>
+ * The hash of a token is computed from its length and two of its characters,
+ * and is collision-free over the 20 keyword and condition spellings, so a
+ * lookup is one hash, one table probe and one character-by-character
+ * comparison against a single candidate. Lookups work directly on a
+ * {@code CharSequence} or on bytes in a {@code ByteBuffer}, and never
+ * allocate.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class KeywordTable {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private KeywordTable() {
+    }
+
+    /**
+     * Value returned by the lookup methods for a token that is neither a
+     * keyword nor a condition.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * Number of slots in the table; must be a power of 2.
+     */
+    private static final int SIZE = 32;
+
+    /**
+     * Shortest and longest keyword or condition spelling.
+     */
+    private static final int MIN_LENGTH = 2, MAX_LENGTH = 18;
+
+    /**
+     * Token kind stored in each slot, or {@code NOT_FOUND} if the slot is
+     * empty.
+     */
+    private static final int[] KINDS = new int[SIZE];
+
+    /**
+     * Spelling stored in each slot, or {@code null} if the slot is empty.
+     */
+    private static final String[] SPELLINGS = new String[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            KINDS[i] = NOT_FOUND;
+        }
+        for (int kind = TokenKind.PROGRAM; kind <= TokenKind.TRUE; kind++) {
+            String spelling = TokenKind.spelling(kind);
+            int h = hash(spelling.length(), spelling.charAt(1),
+                    spelling.charAt(spelling.length() - 2));
+            assert KINDS[h] == NOT_FOUND : "Violation of: hash is perfect";
+            KINDS[h] = kind;
+            SPELLINGS[h] = spelling;
+        }
+    }
+
+    /**
+     * Hashes a token of length {@code length} from its second and
+     * second-to-last characters.
+     *
+     * @param length
+     *            the length of the token
+     * @param second
+     *            the second character of the token
+     * @param penultimate
+     *            the second-to-last character of the token
+     * @return the slot for the token
+     * @ensures 0 <= hash < SIZE
+     */
+    private static int hash(int length, int second, int penultimate) {
+        return ((second << 2) + (penultimate << 1) + length) & (SIZE - 1);
+    }
+
+    /**
+     * Looks up the keyword or condition spelled by {@code token}.
+     *
+     * @param token
+     *            the token to look up
+     * @return the kind of {@code token} if it is a keyword or condition,
+     *         otherwise {@code NOT_FOUND}
+     * @ensures <pre>
+     * if [token is the spelling of keyword or condition kind k] then
+     *  lookup = k
+     * else
+     *  lookup = NOT_FOUND
+     * </pre>
+     */
+    public static int lookup(CharSequence token) {
+        assert token != null : "Violation of: token is not null";
+        int length = token.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return NOT_FOUND;
+        }
+        int h = hash(length, token.charAt(1), token.charAt(length - 2));
+        String spelling = SPELLINGS[h];
+        if (spelling == null || spelling.length() != length) {
+            return NOT_FOUND;
+        }
+        for (int i = 0; i < length; i++) {
+            if (spelling.charAt(i) != token.charAt(i)) {
+                return NOT_FOUND;
+            }
+        }
+        return KINDS[h];
+    }
+
+    /**
+     * Looks up the keyword or condition spelled by the {@code length} ASCII
+     * bytes starting at {@code offset} in {@code source}.
+     *
+     * @param source
+     *            the source bytes
+     * @param offset
+     *            the offset of the token
+     * @param length
+     *            the length of the token
+     * @return the kind of the token if it is a keyword or condition, otherwise
+     *         {@code NOT_FOUND}
+     * @requires 0 <= offset and offset + length <= source.limit
+     * @ensures <pre>
+     * if [the token is the spelling of keyword or condition kind k] then
+     *  lookup = k
+     * else
+     *  lookup = NOT_FOUND
+     * </pre>
+     */
+    public static int lookup(ByteBuffer source, int offset, int length) {
+        assert source != null : "Violation of: source is not null";
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return NOT_FOUND;
+        }
+        int h = hash(length, source.get(offset + 1),
+                source.get(offset + length - 2));
+        String spelling = SPELLINGS[h];
+        if (spelling == null || spelling.length() != length) {
+            return NOT_FOUND;
+        }
+        for (int i = 0; i < length; i++) {
+            if (spelling.charAt(i) != source.get(offset + i)) {
+                return NOT_FOUND;
+            }
+        }
+        return KINDS[h];
+    }
+
+}
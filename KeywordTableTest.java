@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code KeywordTable}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class KeywordTableTest {
+
+    /**
+     * Looks up {@code token} in the bytes of a buffer, between other bytes,
+     * so that its offset is not 0.
+     *
+     * @param token
+     *            the token
+     * @return the result of the byte lookup
+     */
+    private static int lookupBytes(String token) {
+        String text = "x " + token + " x";
+        ByteBuffer source = ByteBuffer
+                .wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+        return KeywordTable.lookup(source, 2, token.length());
+    }
+
+    /**
+     * Checks that {@code token} is neither a keyword nor a condition, by
+     * both lookups, and is lexed as an identifier.
+     *
+     * @param token
+     *            the token
+     */
+    private static void checkIdentifier(String token) {
+        assertEquals(token, KeywordTable.NOT_FOUND,
+                KeywordTable.lookup(token));
+        assertEquals(token, KeywordTable.NOT_FOUND, lookupBytes(token));
+        assertEquals(token, TokenKind.IDENTIFIER, TokenKind.of(token));
+        MappedLexer lexer = new MappedLexer(
+                ByteBuffer.wrap(token.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(token, TokenKind.IDENTIFIER, lexer.kind(0));
+    }
+
+    /**
+     * Test that every keyword and condition is found, by both lookups.
+     */
+    @Test
+    public void testEverySpelling() {
+        for (int kind = TokenKind.PROGRAM; kind <= TokenKind.TRUE; kind++) {
+            String spelling = TokenKind.spelling(kind);
+            assertEquals(spelling, kind, KeywordTable.lookup(spelling));
+            assertEquals(spelling, kind, lookupBytes(spelling));
+            assertEquals(spelling, kind, KeywordTable.lookup(
+                    new StringBuilder(spelling)));
+        }
+    }
+
+    /**
+     * Test of near misses: spellings with one character changed, other than
+     * the second and second-to-last characters the hash is computed from,
+     * land in the slot of the spelling but are identifiers.
+     */
+    @Test
+    public void testNearMisses() {
+        for (int kind = TokenKind.PROGRAM; kind <= TokenKind.TRUE; kind++) {
+            String spelling = TokenKind.spelling(kind);
+            int length = spelling.length();
+            for (int i = 0; i < length; i++) {
+                if (i != 1 && i != length - 2) {
+                    char c = 'q';
+                    if (Character.toLowerCase(spelling.charAt(i)) == c) {
+                        c = 'z';
+                    }
+                    char[] chars = spelling.toCharArray();
+                    chars[i] = c;
+                    checkIdentifier(new String(chars));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of other near misses: keywords in the wrong case, conditions
+     * missing or with an extra character, and tokens too short or too long
+     * to be in the table.
+     */
+    @Test
+    public void testOtherMisses() {
+        String[] misses = { "is", "If", "do", "Program", "WHILEX", "WHIL",
+            "rando", "randoms", "next-is-emptyy", "next-is-not-emp", "a",
+            "next-is-not-friends", "instruction-is-long" };
+        for (String token : misses) {
+            checkIdentifier(token);
+        }
+        assertEquals(KeywordTable.NOT_FOUND, KeywordTable.lookup(""));
+    }
+
+}
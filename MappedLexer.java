@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import components.utilities.Reporter;
+import components.utilities.Tokenizer;
+
+/**
+ * Lexer that scans BL source bytes directly, typically from a memory-mapped
+ * file, into a compact token table: one {@code TokenKind} code plus the
+ * location and length of the token's text in the source buffer per token.
+ *
+ * <p>
+ * No {@code String} is created while lexing; keywords and conditions are
+ * recognized from the bytes and never need one at all, and the text of any
+ * other token is decoded only when {@code text} is called. The source is
+ * treated as ASCII, so non-ASCII bytes can only appear in {@code ERROR}
+ * tokens. The last token is always {@code TokenKind.END_OF_INPUT}, with length
+ * 0 at the end of the source.
+ * </p>
+ *
+ * <p>
+ * Token locations are packed by {@code SourceLocation} into one {@code long}
+ * per token, which holds the offset as well, so tracking lines and columns
+ * costs one comparison per whitespace byte and no extra array. Columns count
+ * bytes. A lexer made without locations leaves the line and column of every
+ * token 0, and only the offsets are known.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class MappedLexer {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the token table, which doubles as tokens are
+     * appended, so a large source full of comments or long identifiers does
+     * not reserve a slot for every few bytes up front.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The source being lexed.
+     */
+    private final ByteBuffer source;
+
+    /**
+     * Kind of each token.
+     */
+    private int[] kinds;
+
+    /**
+     * Location of each token, with its offset in {@code source}.
+     */
+    private long[] locations;
+
+    /**
+     * Length of each token.
+     */
+    private int[] lengths;
+
+    /**
+     * Number of tokens.
+     */
+    private int count;
+
+    /**
+     * Reports whether {@code b} is a whitespace byte.
+     *
+     * @param b
+     *            the byte to check
+     * @return true iff {@code b} is ASCII whitespace
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f'
+                || b == 0x0B;
+    }
+
+    /**
+     * Reports whether {@code b} is an ASCII letter.
+     *
+     * @param b
+     *            the byte to check
+     * @return true iff {@code b} is an ASCII letter
+     */
+    private static boolean isLetter(byte b) {
+        return ('a' <= b && b <= 'z') || ('A' <= b && b <= 'Z');
+    }
+
+    /**
+     * Classifies the token of length {@code length} starting at
+     * {@code offset} in {@code source}.
+     *
+     * @param source
+     *            the source bytes
+     * @param offset
+     *            the offset of the token
+     * @param length
+     *            the length of the token
+     * @return the kind of the token
+     * @requires length > 0
+     * @ensures classify = [the kind of the token]
+     */
+    private static int classify(ByteBuffer source, int offset, int length) {
+        int kind = KeywordTable.lookup(source, offset, length);
+        if (kind != KeywordTable.NOT_FOUND) {
+            return kind;
+        }
+        if (!isLetter(source.get(offset))) {
+            return TokenKind.ERROR;
+        }
+        for (int i = 1; i < length; i++) {
+            byte b = source.get(offset + i);
+            if (!(isLetter(b) || ('0' <= b && b <= '9') || b == '-')) {
+                return TokenKind.ERROR;
+            }
+        }
+        return TokenKind.IDENTIFIER;
+    }
+
+    /**
+     * Appends a token to the token table.
+     *
+     * @param kind
+     *            the kind of the token
+     * @param location
+     *            the location of the token
+     * @param length
+     *            the length of the token
+     * @updates this.kinds, this.locations, this.lengths, this.count
+     */
+    private void append(int kind, long location, int length) {
+        if (this.count == this.kinds.length) {
+            int capacity = 2 * this.count;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.locations = Arrays.copyOf(this.locations, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+        }
+        this.kinds[this.count] = kind;
+        this.locations[this.count] = location;
+        this.lengths[this.count] = length;
+        this.count++;
+    }
+
+    /**
+     * Scans all of {@code source} into the token table.
+     *
+     * @param locate
+     *            whether to track the lines and columns of the tokens
+     * @updates this.kinds, this.locations, this.lengths, this.count
+     */
+    private void scan(boolean locate) {
+        int limit = this.source.limit();
+        int pos = this.source.position();
+        int line = 1;
+        int lineStart = pos;
+        while (pos < limit) {
+            byte b = this.source.get(pos);
+            if (isWhitespace(b)) {
+                pos++;
+                if (locate && b == '\n') {
+                    line++;
+                    lineStart = pos;
+                }
+            } else {
+                int start = pos;
+                while (pos < limit && !isWhitespace(this.source.get(pos))) {
+                    pos++;
+                }
+                long location = start;
+                if (locate) {
+                    location = SourceLocation.pack(line, start - lineStart + 1,
+                            start);
+                }
+                this.append(classify(this.source, start, pos - start),
+                        location, pos - start);
+            }
+        }
+        long location = limit;
+        if (locate) {
+            location = SourceLocation.pack(line, limit - lineStart + 1, limit);
+        }
+        this.append(TokenKind.END_OF_INPUT, location, 0);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor that lexes the bytes of {@code source} between its position
+     * and its limit.
+     *
+     * @param source
+     *            the BL source
+     * @aliases reference source
+     */
+    public MappedLexer(ByteBuffer source) {
+        this(source, true);
+    }
+
+    /**
+     * Constructor that lexes the bytes of {@code source} between its position
+     * and its limit, tracking the lines and columns of the tokens only if
+     * {@code locate}.
+     *
+     * @param source
+     *            the BL source
+     * @param locate
+     *            whether to track the lines and columns of the tokens
+     * @aliases reference source
+     */
+    public MappedLexer(ByteBuffer source, boolean locate) {
+        assert source != null : "Violation of: source is not null";
+        this.source = source;
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.locations = new long[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.count = 0;
+        long start = 0;
+        if (ParseMetrics.ENABLED) {
+            start = System.nanoTime();
+        }
+        this.scan(locate);
+        if (ParseMetrics.ENABLED) {
+            ParseMetrics.time(ParseMetrics.TOKENIZE, System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Memory-maps the file named {@code fileName} and lexes it.
+     *
+     * @param fileName
+     *            the name of the BL source file
+     * @return the lexer for the file
+     * @ensures <pre>
+     * if [fileName names a readable file] then
+     *  map = [lexer for the contents of the file]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public static MappedLexer map(String fileName) {
+        assert fileName != null : "Violation of: fileName is not null";
+        MappedByteBuffer buffer = null;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole(
+                    "Error: Cannot read " + fileName + ": " + e.getMessage());
+        }
+        return new MappedLexer(buffer);
+    }
+
+    /**
+     * Reports the number of tokens, including the final
+     * {@code TokenKind.END_OF_INPUT}.
+     *
+     * @return the number of tokens
+     */
+    public int length() {
+        return this.count;
+    }
+
+    /**
+     * Reports the kind of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the kind of token {@code i}
+     * @requires 0 <= i < length()
+     */
+    public int kind(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < length()";
+        return this.kinds[i];
+    }
+
+    /**
+     * Reports the offset in the source of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the offset of token {@code i}
+     * @requires 0 <= i < length()
+     */
+    public int offset(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < length()";
+        return SourceLocation.offset(this.locations[i]);
+    }
+
+    /**
+     * Reports the location in the source of token {@code i}, packed as by
+     * {@code SourceLocation}.
+     *
+     * @param i
+     *            the token index
+     * @return the location of token {@code i}
+     * @requires 0 <= i < length()
+     */
+    public long location(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < length()";
+        return this.locations[i];
+    }
+
+    /**
+     * Reports the length in bytes of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the length of token {@code i}
+     * @requires 0 <= i < length()
+     */
+    public int tokenLength(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < length()";
+        return this.lengths[i];
+    }
+
+    /**
+     * Returns the text of token {@code i}; the text of the final token is
+     * {@code Tokenizer.END_OF_INPUT}.
+     *
+     * @param i
+     *            the token index
+     * @return the text of token {@code i}
+     * @requires 0 <= i < length()
+     */
+    public String text(int i) {
+        assert 0 <= i && i < this.count : "Violation of: 0 <= i < length()";
+        int kind = this.kinds[i];
+        if (kind == TokenKind.END_OF_INPUT) {
+            return Tokenizer.END_OF_INPUT;
+        }
+        if (kind != TokenKind.IDENTIFIER && kind != TokenKind.ERROR) {
+            return TokenKind.spelling(kind);
+        }
+        int offset = SourceLocation.offset(this.locations[i]);
+        byte[] bytes = new byte[this.lengths[i]];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = this.source.get(offset + j);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+}
@@ -0,0 +1,180 @@
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code MappedLexer}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class MappedLexerTest {
+
+    /**
+     * Returns the lexer of {@code text}, with locations.
+     *
+     * @param text
+     *            the source text
+     * @return the lexer of {@code text}
+     */
+    private static MappedLexer lex(String text) {
+        return new MappedLexer(
+                ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Checks token {@code i} of {@code lexer}.
+     *
+     * @param lexer
+     *            the lexer
+     * @param i
+     *            the token index
+     * @param kind
+     *            the expected kind
+     * @param length
+     *            the expected length
+     * @param line
+     *            the expected line
+     * @param column
+     *            the expected column
+     * @param offset
+     *            the expected offset
+     */
+    private static void checkToken(MappedLexer lexer, int i, int kind,
+            int length, int line, int column, int offset) {
+        assertEquals(kind, lexer.kind(i));
+        assertEquals(length, lexer.tokenLength(i));
+        assertEquals(SourceLocation.pack(line, column, offset),
+                lexer.location(i));
+        assertEquals(offset, lexer.offset(i));
+    }
+
+    /**
+     * Test of an empty source: {@code END_OF_INPUT} alone, at the first
+     * column of the first line.
+     */
+    @Test
+    public void testEmpty() {
+        MappedLexer lexer = lex("");
+        assertEquals(1, lexer.length());
+        checkToken(lexer, 0, TokenKind.END_OF_INPUT, 0, 1, 1, 0);
+        assertEquals(Tokenizer.END_OF_INPUT, lexer.text(0));
+    }
+
+    /**
+     * Test of a source of whitespace only, with every whitespace byte.
+     */
+    @Test
+    public void testWhitespaceOnly() {
+        MappedLexer lexer = lex(" \t\f\u000B\r\n  ");
+        assertEquals(1, lexer.length());
+        checkToken(lexer, 0, TokenKind.END_OF_INPUT, 0, 2, 3, 8);
+    }
+
+    /**
+     * Test of tokens at the start and end of the source and of lines, with
+     * their lines and columns across LF and CRLF line ends.
+     */
+    @Test
+    public void testLineEdges() {
+        MappedLexer lexer = lex("IF\r\n\n  x-1\tWHILE\nEND");
+        assertEquals(5, lexer.length());
+        checkToken(lexer, 0, TokenKind.IF, 2, 1, 1, 0);
+        checkToken(lexer, 1, TokenKind.IDENTIFIER, 3, 3, 3, 7);
+        checkToken(lexer, 2, TokenKind.WHILE, 5, 3, 7, 11);
+        checkToken(lexer, 3, TokenKind.END, 3, 4, 1, 17);
+        checkToken(lexer, 4, TokenKind.END_OF_INPUT, 0, 4, 4, 20);
+        assertEquals("x-1", lexer.text(1));
+        assertEquals("WHILE", lexer.text(2));
+    }
+
+    /**
+     * Test of identifier edges: digits and dashes after the first letter
+     * make identifiers, anything else an error, and a near keyword is an
+     * identifier.
+     */
+    @Test
+    public void testIdentifierEdges() {
+        MappedLexer lexer = lex("a a- a9 IFX If 9a -a a_b next-is-wally");
+        int[] kinds = { TokenKind.IDENTIFIER, TokenKind.IDENTIFIER,
+            TokenKind.IDENTIFIER, TokenKind.IDENTIFIER, TokenKind.IDENTIFIER,
+            TokenKind.ERROR, TokenKind.ERROR, TokenKind.ERROR,
+            TokenKind.IDENTIFIER, TokenKind.END_OF_INPUT };
+        assertEquals(kinds.length, lexer.length());
+        for (int i = 0; i < kinds.length; i++) {
+            assertEquals(kinds[i], lexer.kind(i));
+        }
+        assertEquals("9a", lexer.text(5));
+        assertEquals("next-is-wally", lexer.text(8));
+    }
+
+    /**
+     * Test that comment markers are not comments: BL has none, so they are
+     * lexed as error tokens, and the words after them as tokens.
+     */
+    @Test
+    public void testCommentEdges() {
+        MappedLexer lexer = lex("move //turn\n# skip\n/* x */");
+        int[] kinds = { TokenKind.IDENTIFIER, TokenKind.ERROR,
+            TokenKind.ERROR, TokenKind.IDENTIFIER, TokenKind.ERROR,
+            TokenKind.IDENTIFIER, TokenKind.ERROR, TokenKind.END_OF_INPUT };
+        assertEquals(kinds.length, lexer.length());
+        for (int i = 0; i < kinds.length; i++) {
+            assertEquals(kinds[i], lexer.kind(i));
+        }
+        checkToken(lexer, 1, TokenKind.ERROR, 6, 1, 6, 5);
+        assertEquals("//turn", lexer.text(1));
+        checkToken(lexer, 3, TokenKind.IDENTIFIER, 4, 2, 3, 14);
+    }
+
+    /**
+     * Test of a buffer whose position is not 0: offsets count from the start
+     * of the buffer, and columns from its position.
+     */
+    @Test
+    public void testPosition() {
+        ByteBuffer source = ByteBuffer
+                .wrap("xx move".getBytes(StandardCharsets.ISO_8859_1));
+        source.position(3);
+        MappedLexer lexer = new MappedLexer(source);
+        assertEquals(2, lexer.length());
+        checkToken(lexer, 0, TokenKind.IDENTIFIER, 4, 1, 1, 3);
+        assertEquals("move", lexer.text(0));
+    }
+
+    /**
+     * Test of a lexer without locations: lines and columns are 0, and only
+     * offsets are kept.
+     */
+    @Test
+    public void testNoLocations() {
+        MappedLexer lexer = new MappedLexer(ByteBuffer
+                .wrap("a\n b".getBytes(StandardCharsets.ISO_8859_1)), false);
+        checkToken(lexer, 1, TokenKind.IDENTIFIER, 1, 0, 0, 3);
+        checkToken(lexer, 2, TokenKind.END_OF_INPUT, 0, 0, 0, 4);
+    }
+
+    /**
+     * Test of a source with more tokens than the initial token table holds.
+     */
+    @Test
+    public void testGrowth() {
+        final int count = 1000;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("move\n");
+        }
+        MappedLexer lexer = lex(text.toString());
+        assertEquals(count + 1, lexer.length());
+        checkToken(lexer, count - 1, TokenKind.IDENTIFIER, 4, count, 1,
+                5 * (count - 1));
+        checkToken(lexer, count, TokenKind.END_OF_INPUT, 0, count + 1, 1,
+                5 * count);
+    }
+
+}
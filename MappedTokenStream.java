@@ -0,0 +1,118 @@
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenStream} over the token table of a {@code MappedLexer}, or over
+ * a contiguous slice of it.
+ *
+ * <p>
+ * {@code frontKind} and {@code advance} are array accesses; a {@code String}
+ * is built only when {@code front} or {@code dequeue} is called.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class MappedTokenStream implements TokenStream {
+
+    /**
+     * The lexer whose tokens are streamed.
+     */
+    private final MappedLexer lexer;
+
+    /**
+     * Index of the front token.
+     */
+    private int next;
+
+    /**
+     * Index one past the last token of the slice; the stream reports
+     * {@code Tokenizer.END_OF_INPUT} once {@code next} reaches it.
+     */
+    private final int end;
+
+    /**
+     * Constructor from {@code MappedLexer}.
+     *
+     * @param lexer
+     *            the lexed source
+     * @aliases reference lexer
+     */
+    public MappedTokenStream(MappedLexer lexer) {
+        this(lexer, 0, lexer.length() - 1);
+    }
+
+    /**
+     * Constructor for the slice of the tokens of {@code lexer} with indices
+     * {@code from} (inclusive) to {@code to} (exclusive), followed by
+     * {@code Tokenizer.END_OF_INPUT}.
+     *
+     * @param lexer
+     *            the lexed source
+     * @param from
+     *            the index of the first token of the slice
+     * @param to
+     *            the index one past the last token of the slice
+     * @aliases reference lexer
+     * @requires 0 <= from <= to < lexer.length()
+     */
+    public MappedTokenStream(MappedLexer lexer, int from, int to) {
+        assert lexer != null : "Violation of: lexer is not null";
+        assert 0 <= from && from <= to
+                && to < lexer.length() : "Violation of: "
+                        + "0 <= from <= to < lexer.length()";
+        this.lexer = lexer;
+        this.next = from;
+        this.end = to;
+    }
+
+    /**
+     * Constructor that memory-maps and lexes the file named {@code fileName}.
+     *
+     * @param fileName
+     *            the name of the BL source file
+     */
+    public MappedTokenStream(String fileName) {
+        this(MappedLexer.map(fileName));
+    }
+
+    @Override
+    public String front() {
+        if (this.next == this.end) {
+            return Tokenizer.END_OF_INPUT;
+        }
+        return this.lexer.text(this.next);
+    }
+
+    @Override
+    public int frontKind() {
+        if (this.next == this.end) {
+            return TokenKind.END_OF_INPUT;
+        }
+        return this.lexer.kind(this.next);
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.front();
+        this.advance();
+        return token;
+    }
+
+    @Override
+    public void advance() {
+        if (this.next < this.end) {
+            this.next++;
+        }
+    }
+
+    @Override
+    public int position() {
+        return this.next;
+    }
+
+    @Override
+    public long location() {
+        return this.lexer.location(this.next);
+    }
+
+}
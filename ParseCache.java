@@ -0,0 +1,556 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import components.program.Program;
+
+/**
+ * Cache of parsed BL programs, keyed by the SHA-256 hash of their source, so
+ * that a program seen before is neither tokenized nor parsed again.
+ *
+ * <p>
+ * Programs are kept as {@code FlatProgram}s in memory, in least recently used
+ * order, and the least recently used ones are evicted once their estimated
+ * total size exceeds a limit. With a directory, the cache also has a disk
+ * tier: every program parsed is written there in the format of
+ * {@code ProgramCodec}, in a file named by its hash, and a program missing
+ * from memory is read back from there before it is parsed. Only valid
+ * programs are cached; an invalid one is parsed again every time, so its
+ * errors are reported every time.
+ * </p>
+ *
+ * <p>
+ * The disk tier is bounded the same way, by the total size of its files:
+ * once it exceeds its limit, the least recently used files are deleted,
+ * starting from those found in the directory when the cache was made, oldest
+ * first. Unless a limit is given, the disk tier is unbounded. A file that
+ * cannot be written or deleted is counted in {@code diskErrors}, and the
+ * program is then kept in memory only.
+ * </p>
+ *
+ * <p>
+ * A cache can be shared by several threads. Two threads that miss on the same
+ * program at the same time may both parse it.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseCache {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Suffix of the names of disk tier files.
+     */
+    private static final String SUFFIX = ".blpf";
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Programs in memory, least recently used first.
+     */
+    private final LinkedHashMap<String, FlatProgram> entries;
+
+    /**
+     * Most bytes the programs in memory may take.
+     */
+    private final long maxBytes;
+
+    /**
+     * Directory of the disk tier, or {@code null}.
+     */
+    private final Path directory;
+
+    /**
+     * Sizes of the files in the disk tier, least recently used first.
+     */
+    private final LinkedHashMap<String, Long> files;
+
+    /**
+     * Most bytes the files in the disk tier may take.
+     */
+    private final long maxDiskBytes;
+
+    /**
+     * Bytes taken by the files in the disk tier.
+     */
+    private long diskBytes;
+
+    /**
+     * Estimated bytes taken by the programs in memory.
+     */
+    private long bytes;
+
+    /**
+     * Lookups found in memory, found on disk, and parsed.
+     */
+    private long hits, diskHits, misses;
+
+    /**
+     * Programs evicted from memory, and files deleted from the disk tier.
+     */
+    private long evictions, diskEvictions;
+
+    /**
+     * Files of the disk tier that could not be written or deleted.
+     */
+    private long diskErrors;
+
+    /**
+     * Returns the SHA-256 hash of {@code source}, in hexadecimal.
+     *
+     * @param source
+     *            the source
+     * @return the hash of {@code source}
+     */
+    private static String hash(byte[] source) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(source);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final int nibble = 4, mask = 0xF;
+        char[] hex = new char[2 * digest.length];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >>> nibble) & mask];
+            hex[2 * i + 1] = HEX[digest[i] & mask];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Parses {@code source}, returning {@code null} if it is not a valid
+     * program.
+     *
+     * @param source
+     *            the source
+     * @return the parsed program, or {@code null}
+     */
+    private static FlatProgram parse(byte[] source) {
+        FlatProgram[] result = new FlatProgram[1];
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> result[0] = Program1Parse1.parseFlat(
+                new MappedTokenStream(
+                        new MappedLexer(ByteBuffer.wrap(source)))));
+        if (diagnostics.size() > 0) {
+            return null;
+        }
+        return result[0];
+    }
+
+    /**
+     * Reads the program with hash {@code key} from the disk tier.
+     *
+     * @param key
+     *            the hash
+     * @return the program, or {@code null} if it is not on disk
+     */
+    private FlatProgram readDisk(String key) {
+        Path file = this.directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(
+                Files.newInputStream(file))) {
+            FlatProgram flat = ProgramCodec.readFlat(in);
+            synchronized (this) {
+                this.files.get(key);
+            }
+            return flat;
+        } catch (IOException | RuntimeException e) {
+            /*
+             * A damaged file is a miss; it is replaced after parsing
+             */
+            return null;
+        }
+    }
+
+    /**
+     * Writes the program with hash {@code key} to the disk tier, through a
+     * temporary file so that readers never see a partial file, then deletes
+     * the least recently used files as needed. If the file cannot be written,
+     * the error is counted and the program is left in memory only.
+     *
+     * @param key
+     *            the hash
+     * @param flat
+     *            the program
+     */
+    private void writeDisk(String key, FlatProgram flat) {
+        Path temp = null;
+        long size;
+        try {
+            temp = Files.createTempFile(this.directory, key, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(temp))) {
+                ProgramCodec.write(flat, out);
+            }
+            size = Files.size(temp);
+            Files.move(temp, this.directory.resolve(key + SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            synchronized (this) {
+                this.diskErrors++;
+            }
+            if (temp != null) {
+                this.delete(temp);
+            }
+            return;
+        }
+        List<String> victims = new ArrayList<>();
+        synchronized (this) {
+            Long old = this.files.put(key, size);
+            if (old != null) {
+                this.diskBytes -= old;
+            }
+            this.diskBytes += size;
+            Iterator<Map.Entry<String, Long>> it = this.files.entrySet()
+                    .iterator();
+            while (this.diskBytes > this.maxDiskBytes && it.hasNext()) {
+                Map.Entry<String, Long> victim = it.next();
+                this.diskBytes -= victim.getValue();
+                victims.add(victim.getKey());
+                it.remove();
+                this.diskEvictions++;
+            }
+        }
+        for (String victim : victims) {
+            this.delete(this.directory.resolve(victim + SUFFIX));
+        }
+    }
+
+    /**
+     * Deletes {@code file} from the disk tier, counting an error if it cannot
+     * be deleted.
+     *
+     * @param file
+     *            the file
+     */
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            synchronized (this) {
+                this.diskErrors++;
+            }
+        }
+    }
+
+    /**
+     * Adds the files already in the disk tier to {@code this.files}, oldest
+     * first.
+     *
+     * @throws IOException
+     *             if the directory cannot be listed
+     * @updates this.files, this.diskBytes
+     */
+    private void scanDisk() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files
+                .newDirectoryStream(this.directory, "*" + SUFFIX)) {
+            for (Path file : dir) {
+                found.add(file);
+            }
+        }
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        for (Path file : found) {
+            modified.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        found.sort(Comparator.comparing(modified::get));
+        for (Path file : found) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            this.files.put(name.substring(0, name.length() - SUFFIX.length()),
+                    size);
+            this.diskBytes += size;
+        }
+    }
+
+    /**
+     * Adds {@code flat} to memory, evicting the least recently used programs
+     * as needed.
+     *
+     * @param key
+     *            the hash
+     * @param flat
+     *            the program
+     * @updates this
+     */
+    private synchronized void put(String key, FlatProgram flat) {
+        FlatProgram old = this.entries.put(key, flat);
+        if (old != null) {
+            this.bytes -= old.footprint();
+        }
+        this.bytes += flat.footprint();
+        Iterator<FlatProgram> it = this.entries.values().iterator();
+        while (this.bytes > this.maxBytes && it.hasNext()) {
+            this.bytes -= it.next().footprint();
+            it.remove();
+            this.evictions++;
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor for a cache in memory only.
+     *
+     * @param maxBytes
+     *            the most bytes the programs in memory may take
+     * @requires maxBytes >= 0
+     */
+    public ParseCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * Constructor for a cache with an unbounded disk tier in
+     * {@code directory}, which is created if it does not exist.
+     *
+     * @param maxBytes
+     *            the most bytes the programs in memory may take
+     * @param directory
+     *            the directory of the disk tier, or {@code null} for none
+     * @requires maxBytes >= 0
+     */
+    public ParseCache(long maxBytes, Path directory) {
+        this(maxBytes, directory, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for a cache with a disk tier in {@code directory}, which is
+     * created if it does not exist, holding at most {@code maxDiskBytes} of
+     * files. Files already in the directory count against the limit.
+     *
+     * @param maxBytes
+     *            the most bytes the programs in memory may take
+     * @param directory
+     *            the directory of the disk tier, or {@code null} for none
+     * @param maxDiskBytes
+     *            the most bytes the files in the disk tier may take
+     * @requires maxBytes >= 0  and  maxDiskBytes >= 0
+     */
+    public ParseCache(long maxBytes, Path directory, long maxDiskBytes) {
+        assert maxBytes >= 0 : "Violation of: maxBytes >= 0";
+        assert maxDiskBytes >= 0 : "Violation of: maxDiskBytes >= 0";
+        final int initialCapacity = 16;
+        final float loadFactor = 0.75f;
+        this.entries = new LinkedHashMap<>(initialCapacity, loadFactor, true);
+        this.files = new LinkedHashMap<>(initialCapacity, loadFactor, true);
+        this.maxBytes = maxBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        this.bytes = 0;
+        this.diskBytes = 0;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                this.scanDisk();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        this.hits = 0;
+        this.diskHits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+        this.diskEvictions = 0;
+        this.diskErrors = 0;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the program parsed from {@code source}, from the cache if it is
+     * there.
+     *
+     * @param source
+     *            the BL source
+     * @return the parsed program
+     * @ensures <pre>
+     * if [source is a valid program] then
+     *  get = [FlatProgram corresponding to source]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public FlatProgram get(byte[] source) {
+        assert source != null : "Violation of: source is not null";
+        String key = hash(source);
+        synchronized (this) {
+            FlatProgram flat = this.entries.get(key);
+            if (flat != null) {
+                this.hits++;
+                return flat;
+            }
+        }
+
+        FlatProgram flat = null;
+        if (this.directory != null) {
+            flat = this.readDisk(key);
+        }
+        if (flat != null) {
+            synchronized (this) {
+                this.diskHits++;
+            }
+        } else {
+            synchronized (this) {
+                this.misses++;
+            }
+            flat = parse(source);
+            if (flat == null) {
+                /*
+                 * Parse again to report the errors as the client expects
+                 */
+                return Program1Parse1.parseFlat(new MappedTokenStream(
+                        new MappedLexer(ByteBuffer.wrap(source))));
+            }
+            if (this.directory != null) {
+                this.writeDisk(key, flat);
+            }
+        }
+        this.put(key, flat);
+        return flat;
+    }
+
+    /**
+     * Parses the program in the file named {@code fileName} into {@code p},
+     * from the cache if it is there.
+     *
+     * @param fileName
+     *            the name of the BL source file
+     * @param p
+     *            the parsed program
+     * @replaces p
+     * @ensures <pre>
+     * if [the file holds a valid program] then
+     *  p = [Program corresponding to the contents of the file]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void parse(String fileName, Program p) {
+        assert fileName != null : "Violation of: fileName is not null";
+        assert p != null : "Violation of: p is not null";
+        byte[] source;
+        try {
+            source = Files.readAllBytes(Paths.get(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.get(source).toProgram(p);
+    }
+
+    /**
+     * Reports the estimated bytes taken by the programs in memory.
+     *
+     * @return the bytes in memory
+     */
+    public synchronized long bytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Reports the number of programs in memory.
+     *
+     * @return the number of programs in memory
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Reports the number of lookups found in memory.
+     *
+     * @return the number of memory hits
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Reports the number of lookups found in the disk tier.
+     *
+     * @return the number of disk hits
+     */
+    public synchronized long diskHits() {
+        return this.diskHits;
+    }
+
+    /**
+     * Reports the number of lookups that had to parse.
+     *
+     * @return the number of misses
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Reports the number of programs evicted from memory.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Reports the bytes taken by the files in the disk tier.
+     *
+     * @return the bytes on disk
+     */
+    public synchronized long diskBytes() {
+        return this.diskBytes;
+    }
+
+    /**
+     * Reports the number of files deleted from the disk tier to stay within
+     * its limit.
+     *
+     * @return the number of disk evictions
+     */
+    public synchronized long diskEvictions() {
+        return this.diskEvictions;
+    }
+
+    /**
+     * Reports the number of disk tier files that could not be written or
+     * deleted.
+     *
+     * @return the number of disk errors
+     */
+    public synchronized long diskErrors() {
+        return this.diskErrors;
+    }
+
+}
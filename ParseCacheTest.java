@@ -0,0 +1,176 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code ParseCache}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseCacheTest {
+
+    /**
+     * A valid program.
+     */
+    private static final String SOURCE = "PROGRAM P IS INSTRUCTION a IS "
+            + "IF random THEN move ELSE turnleft END IF END a "
+            + "BEGIN WHILE true DO a END WHILE END P";
+
+    /**
+     * Returns the bytes of {@code text}.
+     *
+     * @param text
+     *            the text
+     * @return the bytes of {@code text}
+     */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Test that a program seen before is a hit, and matches a full parse.
+     */
+    @Test
+    public void testHit() {
+        ParseCache cache = new ParseCache(1 << 20);
+        FlatProgram first = cache.get(bytes(SOURCE));
+        FlatProgram second = cache.get(bytes(SOURCE));
+        assertSame(first, second);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test of parse on a fixture against Program1Parse1.
+     */
+    @Test
+    public void testParseFile() {
+        ParseCache cache = new ParseCache(1 << 20);
+        Program pTest = new Program1();
+        cache.parse("test/program1a.bl", pTest);
+        cache.parse("test/program1a.bl", pTest);
+        Program pRef = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L("test/program1a.bl");
+        pRef.parse(in);
+        in.close();
+        assertEquals(pRef, pTest);
+        assertEquals(1, cache.hits());
+    }
+
+    /**
+     * Test that the least recently used programs are evicted.
+     */
+    @Test
+    public void testEviction() {
+        FlatProgram flat = new ParseCache(1 << 20).get(bytes(SOURCE));
+        ParseCache cache = new ParseCache(2 * flat.footprint() + 100);
+        cache.get(bytes(SOURCE));
+        cache.get(bytes(SOURCE.replace("move", "skip")));
+        cache.get(bytes(SOURCE));
+        cache.get(bytes(SOURCE.replace("move", "infect")));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        cache.get(bytes(SOURCE));
+        assertEquals(2, cache.hits());
+    }
+
+    /**
+     * Test of the disk tier: a second cache reads the program from disk, and
+     * a damaged file is a miss.
+     *
+     * @throws IOException
+     *             if the directory cannot be created
+     */
+    @Test
+    public void testDisk() throws IOException {
+        Path dir = Files.createTempDirectory("parsecache");
+        new ParseCache(1 << 20, dir).get(bytes(SOURCE));
+
+        ParseCache cache = new ParseCache(1 << 20, dir);
+        Program pTest = new Program1();
+        cache.get(bytes(SOURCE)).toProgram(pTest);
+        assertEquals(1, cache.diskHits());
+        assertEquals(0, cache.misses());
+        Program pRef = new Program1();
+        new ParseCache(0).get(bytes(SOURCE)).toProgram(pRef);
+        assertEquals(pRef, pTest);
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.write(file, new byte[] { 1, 2, 3 });
+            }
+        }
+        cache = new ParseCache(1 << 20, dir);
+        cache.get(bytes(SOURCE));
+        assertEquals(1, cache.misses());
+    }
+
+    /**
+     * Test that the disk tier deletes its least recently used file once it
+     * exceeds its limit.
+     *
+     * @throws IOException
+     *             if the directory cannot be created or listed
+     */
+    @Test
+    public void testDiskLimit() throws IOException {
+        Path dir = Files.createTempDirectory("parsecache");
+        ParseCache cache = new ParseCache(1 << 20, dir);
+        cache.get(bytes(SOURCE));
+        long size = cache.diskBytes();
+
+        cache = new ParseCache(1 << 20, dir, size);
+        assertEquals(size, cache.diskBytes());
+        cache.get(bytes(SOURCE.replace("move", "skip")));
+        assertEquals(1, cache.diskEvictions());
+        assertEquals(size, cache.diskBytes());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    /**
+     * Test that a program that cannot be written to disk is counted and kept
+     * in memory.
+     *
+     * @throws IOException
+     *             if the directory cannot be created or deleted
+     */
+    @Test
+    public void testDiskError() throws IOException {
+        Path dir = Files.createTempDirectory("parsecache");
+        ParseCache cache = new ParseCache(1 << 20, dir);
+        Files.delete(dir);
+        FlatProgram flat = cache.get(bytes(SOURCE));
+        assertEquals(1, cache.diskErrors());
+        assertEquals(1, cache.size());
+        assertSame(flat, cache.get(bytes(SOURCE)));
+    }
+
+    /**
+     * Test that an invalid program reports its errors and is not cached.
+     */
+    @Test
+    public void testInvalid() {
+        ParseCache cache = new ParseCache(1 << 20);
+        Diagnostics diagnostics = new Diagnostics();
+        diagnostics.collect(() -> cache.get(bytes("PROGRAM P IS BEGIN END Q")));
+        assertEquals(1, diagnostics.size());
+        assertEquals(0, cache.size());
+    }
+
+}
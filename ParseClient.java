@@ -0,0 +1,285 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Client of a {@code ParseServer}, over one connection, and a load test that
+ * drives a server on the loopback interface with several such clients.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseClient implements Closeable {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The connection.
+     */
+    private final Socket socket;
+
+    /**
+     * Input from the server.
+     */
+    private final InputStream in;
+
+    /**
+     * Output to the server.
+     */
+    private final OutputStream out;
+
+    /**
+     * Status of the last reply.
+     */
+    private String status = null;
+
+    /**
+     * Reads a header line from the server, without its line terminator.
+     *
+     * @return the line
+     * @throws IOException
+     *             if an I/O error occurs, or the connection is closed
+     */
+    private String readHeader() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = this.in.read();
+        while (b != '\n') {
+            if (b == -1) {
+                throw new EOFException("connection closed by server");
+            }
+            line.write(b);
+            b = this.in.read();
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; connects to the server on {@code port} of the loopback
+     * interface.
+     *
+     * @param port
+     *            the port of the server
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    public ParseClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new BufferedInputStream(this.socket.getInputStream());
+        this.out = new BufferedOutputStream(this.socket.getOutputStream());
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Sends a request and waits for its reply.
+     *
+     * @param command
+     *            {@code ParseServer.PROGRAM} or {@code ParseServer.STATEMENT}
+     * @param source
+     *            the BL source
+     * @param compact
+     *            whether to ask for the compact layout
+     * @return the text of the reply
+     * @throws IOException
+     *             if an I/O error occurs
+     * @ensures <pre>
+     * request = [text of the reply]  and
+     * status() = [status of the reply]
+     * </pre>
+     */
+    public String request(String command, byte[] source, boolean compact)
+            throws IOException {
+        assert command != null : "Violation of: command is not null";
+        assert source != null : "Violation of: source is not null";
+        String header = command + " " + source.length;
+        if (compact) {
+            header += " " + ParseServer.COMPACT;
+        }
+        this.out.write((header + "\n").getBytes(StandardCharsets.US_ASCII));
+        this.out.write(source);
+        this.out.flush();
+        String[] reply = this.readHeader().split(" ");
+        this.status = reply[0];
+        byte[] text = this.in.readNBytes(Integer.parseInt(reply[1]));
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reports the status of the last reply: {@code ParseServer.OK},
+     * {@code ParseServer.ERROR} or {@code ParseServer.BUSY}.
+     *
+     * @return the status of the last reply
+     * @requires [a request has been answered]
+     */
+    public String status() {
+        assert this.status != null : ""
+                + "Violation of: a request has been answered";
+        return this.status;
+    }
+
+    /**
+     * Ends the connection.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.out.write((ParseServer.QUIT + "\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            this.out.flush();
+        } finally {
+            this.socket.close();
+        }
+    }
+
+    /**
+     * Main method: a load test.
+     *
+     * <p>
+     * Usage: {@code ParseClient [-p port] [-c clients] [-n requests] file},
+     * which sends {@code file} as a program {@code requests} times in total
+     * from {@code clients} concurrent connections, each waiting for a reply
+     * before sending its next request, and reports the throughput, the
+     * latencies, and how many requests were refused as {@code BUSY} and
+     * retried. The defaults are {@code ParseServer.DEFAULT_PORT}, 8 clients
+     * and 10000 requests.
+     * </p>
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws InterruptedException
+     *             if interrupted while waiting for the clients
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int port = ParseServer.DEFAULT_PORT;
+        final int defaultClients = 8;
+        int clients = defaultClients;
+        final int defaultRequests = 10000;
+        int requests = defaultRequests;
+        String file = null;
+        int i = 0;
+        while (i < args.length) {
+            if (args[i].startsWith("-") && i + 1 < args.length) {
+                int value = Integer.parseInt(args[i + 1]);
+                if (args[i].equals("-p")) {
+                    port = value;
+                } else if (args[i].equals("-c")) {
+                    clients = value;
+                } else if (args[i].equals("-n")) {
+                    requests = value;
+                }
+                i++;
+            } else {
+                file = args[i];
+            }
+            i++;
+        }
+        if (file == null) {
+            System.err.println("Usage: ParseClient [-p port] [-c clients] "
+                    + "[-n requests] file");
+            System.exit(2);
+        }
+        byte[] source = Files.readAllBytes(Paths.get(file));
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> pending = new ArrayList<>(clients);
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            final int share = requests / clients
+                    + (c < requests % clients ? 1 : 0);
+            final int serverPort = port;
+            pending.add(pool.submit(() -> {
+                /*
+                 * Latencies of the requests, then the number of retries and
+                 * of errors
+                 */
+                long[] result = new long[share + 2];
+                try (ParseClient client = new ParseClient(serverPort)) {
+                    for (int r = 0; r < share; r++) {
+                        long sent = System.nanoTime();
+                        client.request(ParseServer.PROGRAM, source, false);
+                        while (client.status().equals(ParseServer.BUSY)) {
+                            result[share]++;
+                            Thread.yield();
+                            client.request(ParseServer.PROGRAM, source,
+                                    false);
+                        }
+                        if (client.status().equals(ParseServer.ERROR)) {
+                            result[share + 1]++;
+                        }
+                        result[r] = System.nanoTime() - sent;
+                    }
+                }
+                return result;
+            }));
+        }
+
+        long[] latencies = new long[requests];
+        int count = 0;
+        long retries = 0;
+        long errors = 0;
+        for (Future<long[]> future : pending) {
+            long[] result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            int share = result.length - 2;
+            System.arraycopy(result, 0, latencies, count, share);
+            count += share;
+            retries += result[share];
+            errors += result[share + 1];
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        Arrays.sort(latencies);
+        final double nanosPerMilli = 1e6;
+        final int p50 = 50, p99 = 99, percent = 100;
+        System.out.println(String.format(
+                "%d requests from %d clients in %.3f s (%.1f requests/s)",
+                requests, clients, seconds, requests / seconds));
+        if (requests > 0) {
+            System.out.println(String.format(
+                    "latency p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    latencies[requests * p50 / percent] / nanosPerMilli,
+                    latencies[requests * p99 / percent] / nanosPerMilli,
+                    latencies[requests - 1] / nanosPerMilli));
+        }
+        System.out.println(String.format("%d busy retries, %d errors",
+                retries, errors));
+    }
+
+}
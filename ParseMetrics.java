@@ -0,0 +1,494 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Optional instrumentation of the parsers: counters, and timers per phase of
+ * parsing a program, summed over all the parses of the JVM.
+ *
+ * <p>
+ * Metrics are enabled by starting the JVM with {@code -Dbl.metrics=true}.
+ * {@code ENABLED} is a static final field, which the JIT compiler treats as
+ * a constant, so when it is false every instrumented branch is dropped and
+ * the parsers run exactly as without instrumentation. When it is true,
+ * {@code Program1Parse1.parseProgram} wraps its tokens in a {@code Probe},
+ * which counts the tokens, the statement nodes (blocks included) and the
+ * IF/WHILE nesting depth from the kinds of the tokens as they are consumed,
+ * and times the phases of the parse: the header, the instructions, the main
+ * body, and assembling the program with {@code replaceBody} and
+ * {@code replaceContext}. Lexing is a phase of its own only where it happens
+ * ahead of parsing, in {@code MappedLexer}; a lazy {@code TokenStream}
+ * tokenizes as the parse goes, and its time is part of the other phases. The
+ * bytes allocated are measured on the parsing thread, so work done by
+ * {@code Program1Parse2} on its pool is counted in time but not in bytes.
+ * </p>
+ *
+ * <p>
+ * The totals can be read through the {@code ParseMetricsMXBean} registered
+ * as {@code BLParser:type=ParseMetrics}, or as text from {@code dump}: one
+ * metric per line, as a name and a value separated by a space.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseMetrics {
+
+    /**
+     * Whether metrics are collected.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("bl.metrics");
+
+    /**
+     * Phases of parsing a program.
+     */
+    public static final int TOKENIZE = 0, HEADER = 1, INSTRUCTIONS = 2,
+            BODY = 3, ASSEMBLE = 4;
+
+    /**
+     * The number of phases.
+     */
+    public static final int PHASE_COUNT = 5;
+
+    /**
+     * Counters.
+     */
+    public static final int PARSES = 0, TOKENS = 1, NODES = 2, MAX_DEPTH = 3,
+            ALLOCATED_BYTES = 4;
+
+    /**
+     * The number of counters.
+     */
+    public static final int COUNTER_COUNT = 5;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Names of the phases in the dump, indexed by phase.
+     */
+    private static final String[] PHASE_NAMES = { "tokenize", "header",
+        "instructions", "body", "assemble" };
+
+    /**
+     * Names of the counters in the dump, indexed by counter.
+     */
+    private static final String[] COUNTER_NAMES = { "parses", "tokens",
+        "nodes", "max_depth", "allocated_bytes" };
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Nanoseconds spent in each phase.
+     */
+    private static final AtomicLongArray NANOS = new AtomicLongArray(
+            PHASE_COUNT);
+
+    /**
+     * Value of each counter.
+     */
+    private static final AtomicLongArray COUNTERS = new AtomicLongArray(
+            COUNTER_COUNT);
+
+    /**
+     * The thread bean, if it measures allocated bytes, or {@code null}.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS;
+
+    static {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = null;
+        if (ENABLED && threads instanceof com.sun.management.ThreadMXBean) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+            if (!allocations.isThreadAllocatedMemorySupported()) {
+                allocations = null;
+            } else {
+                allocations.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        THREADS = allocations;
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        new Bean(),
+                        new ObjectName("BLParser:type=ParseMetrics"));
+            } catch (JMException e) {
+                /*
+                 * The metrics are still collected and can be dumped
+                 */
+            }
+        }
+    }
+
+    /**
+     * The management bean.
+     */
+    private static final class Bean implements ParseMetricsMXBean {
+
+        @Override
+        public long getParses() {
+            return counter(PARSES);
+        }
+
+        @Override
+        public long getTokens() {
+            return counter(TOKENS);
+        }
+
+        @Override
+        public long getNodes() {
+            return counter(NODES);
+        }
+
+        @Override
+        public long getMaxDepth() {
+            return counter(MAX_DEPTH);
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            return counter(ALLOCATED_BYTES);
+        }
+
+        @Override
+        public long getTokenizeNanos() {
+            return nanos(TOKENIZE);
+        }
+
+        @Override
+        public long getHeaderNanos() {
+            return nanos(HEADER);
+        }
+
+        @Override
+        public long getInstructionsNanos() {
+            return nanos(INSTRUCTIONS);
+        }
+
+        @Override
+        public long getBodyNanos() {
+            return nanos(BODY);
+        }
+
+        @Override
+        public long getAssembleNanos() {
+            return nanos(ASSEMBLE);
+        }
+
+        @Override
+        public double getTokensPerSecond() {
+            return tokensPerSecond();
+        }
+
+        @Override
+        public String getDump() {
+            return dump();
+        }
+
+        @Override
+        public void reset() {
+            ParseMetrics.reset();
+        }
+
+    }
+
+    /**
+     * Reports the bytes allocated so far by the current thread.
+     *
+     * @return the bytes allocated, or 0 if not measured
+     */
+    private static long allocated() {
+        if (THREADS == null) {
+            return 0;
+        }
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private ParseMetrics() {
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Adds {@code nanos} to the time spent in {@code phase}.
+     *
+     * @param phase
+     *            the phase
+     * @param nanos
+     *            the time spent, in nanoseconds
+     * @requires 0 <= phase < PHASE_COUNT
+     */
+    static void time(int phase, long nanos) {
+        NANOS.addAndGet(phase, nanos);
+    }
+
+    /**
+     * {@code TokenStream} that counts the tokens, nodes and nesting depth of
+     * a program as its tokens are consumed, and times the phases of its
+     * parse.
+     */
+    static final class Probe implements TokenStream {
+
+        /**
+         * The tokens being parsed.
+         */
+        private final TokenStream tokens;
+
+        /**
+         * Time at which the current phase started.
+         */
+        private long lap;
+
+        /**
+         * Bytes allocated by the thread when the parse started.
+         */
+        private final long allocatedStart;
+
+        /**
+         * Number of tokens consumed.
+         */
+        private long count = 0;
+
+        /**
+         * Number of statement nodes and of blocks seen.
+         */
+        private long statements = 0, blocks = 0;
+
+        /**
+         * Current and greatest IF/WHILE nesting depth.
+         */
+        private int depth = 0, maxDepth = 0;
+
+        /**
+         * Kind of the last token consumed.
+         */
+        private int previous = TokenKind.END_OF_INPUT;
+
+        /**
+         * Constructor; the parse starts now.
+         *
+         * @param tokens
+         *            the tokens to parse
+         * @aliases reference tokens
+         */
+        Probe(TokenStream tokens) {
+            assert tokens != null : "Violation of: tokens is not null";
+            this.tokens = tokens;
+            this.allocatedStart = allocated();
+            this.lap = System.nanoTime();
+        }
+
+        /**
+         * Counts the front token, which is being consumed.
+         */
+        private void consume() {
+            int kind = this.tokens.frontKind();
+            switch (kind) {
+                case TokenKind.IF:
+                case TokenKind.WHILE:
+                    if (this.previous == TokenKind.END) {
+                        this.depth--;
+                    } else {
+                        this.statements++;
+                        this.blocks++;
+                        this.depth++;
+                        this.maxDepth = Math.max(this.maxDepth, this.depth);
+                    }
+                    break;
+                case TokenKind.ELSE:
+                case TokenKind.INSTRUCTION:
+                case TokenKind.BEGIN:
+                    this.blocks++;
+                    break;
+                case TokenKind.IDENTIFIER:
+                    if (this.previous != TokenKind.PROGRAM
+                            && this.previous != TokenKind.INSTRUCTION
+                            && this.previous != TokenKind.END) {
+                        this.statements++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (kind != TokenKind.END_OF_INPUT) {
+                this.count++;
+            }
+            this.previous = kind;
+        }
+
+        /**
+         * Ends {@code phase}, which started when the previous phase ended.
+         *
+         * @param phase
+         *            the phase
+         * @requires 0 <= phase < PHASE_COUNT
+         */
+        void lap(int phase) {
+            long now = System.nanoTime();
+            time(phase, now - this.lap);
+            this.lap = now;
+        }
+
+        /**
+         * Adds the counts of {@code other}, which read another part of the
+         * same program, to the counts of {@code this}.
+         *
+         * @param other
+         *            the probe of the other part, or {@code null} if it read
+         *            nothing
+         * @updates this
+         */
+        void add(Probe other) {
+            if (other != null) {
+                this.count += other.count;
+                this.statements += other.statements;
+                this.blocks += other.blocks;
+                this.maxDepth = Math.max(this.maxDepth, other.maxDepth);
+            }
+        }
+
+        /**
+         * Ends the parse, adding its counts to the totals.
+         */
+        void finish() {
+            COUNTERS.incrementAndGet(PARSES);
+            COUNTERS.addAndGet(TOKENS, this.count);
+            COUNTERS.addAndGet(NODES, this.statements + this.blocks);
+            COUNTERS.accumulateAndGet(MAX_DEPTH, this.maxDepth, Math::max);
+            COUNTERS.addAndGet(ALLOCATED_BYTES,
+                    allocated() - this.allocatedStart);
+        }
+
+        @Override
+        public String front() {
+            return this.tokens.front();
+        }
+
+        @Override
+        public int frontKind() {
+            return this.tokens.frontKind();
+        }
+
+        @Override
+        public String dequeue() {
+            this.consume();
+            return this.tokens.dequeue();
+        }
+
+        @Override
+        public void advance() {
+            this.consume();
+            this.tokens.advance();
+        }
+
+        @Override
+        public int position() {
+            return this.tokens.position();
+        }
+
+        @Override
+        public long location() {
+            return this.tokens.location();
+        }
+
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Reports the value of counter {@code c}.
+     *
+     * @param c
+     *            the counter
+     * @return the value of counter {@code c}
+     * @requires 0 <= c < COUNTER_COUNT
+     */
+    public static long counter(int c) {
+        assert 0 <= c && c < COUNTER_COUNT : ""
+                + "Violation of: 0 <= c < COUNTER_COUNT";
+        return COUNTERS.get(c);
+    }
+
+    /**
+     * Reports the time spent in {@code phase}, in nanoseconds.
+     *
+     * @param phase
+     *            the phase
+     * @return the time spent in {@code phase}
+     * @requires 0 <= phase < PHASE_COUNT
+     */
+    public static long nanos(int phase) {
+        assert 0 <= phase && phase < PHASE_COUNT : ""
+                + "Violation of: 0 <= phase < PHASE_COUNT";
+        return NANOS.get(phase);
+    }
+
+    /**
+     * Reports the number of tokens parsed per second spent in the phases of
+     * parsing after tokenizing.
+     *
+     * @return the parse throughput in tokens per second, or 0 if nothing has
+     *         been parsed
+     */
+    public static double tokensPerSecond() {
+        long nanos = 0;
+        for (int phase = HEADER; phase < PHASE_COUNT; phase++) {
+            nanos += NANOS.get(phase);
+        }
+        if (nanos == 0) {
+            return 0;
+        }
+        return COUNTERS.get(TOKENS) * NANOS_PER_SECOND / nanos;
+    }
+
+    /**
+     * Returns the metrics as text: one line per counter, per phase (as
+     * {@code nanos_} and the phase name) and for the throughput
+     * ({@code tokens_per_second}), each a name and a value separated by a
+     * space.
+     *
+     * @return the metrics
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append("enabled ").append(ENABLED).append('\n');
+        for (int c = 0; c < COUNTER_COUNT; c++) {
+            text.append(COUNTER_NAMES[c]).append(' ').append(COUNTERS.get(c))
+                    .append('\n');
+        }
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            text.append("nanos_").append(PHASE_NAMES[phase]).append(' ')
+                    .append(NANOS.get(phase)).append('\n');
+        }
+        text.append("tokens_per_second ")
+                .append(Math.round(tokensPerSecond())).append('\n');
+        return text.toString();
+    }
+
+    /**
+     * Resets all the metrics to 0.
+     */
+    public static void reset() {
+        for (int c = 0; c < COUNTER_COUNT; c++) {
+            COUNTERS.set(c, 0);
+        }
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            NANOS.set(phase, 0);
+        }
+    }
+
+}
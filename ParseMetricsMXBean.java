@@ -0,0 +1,102 @@
+/**
+ * Management interface of {@code ParseMetrics}, registered with the platform
+ * MBean server as {@code BLParser:type=ParseMetrics} when metrics are
+ * enabled.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public interface ParseMetricsMXBean {
+
+    /**
+     * Reports the number of programs parsed.
+     *
+     * @return the number of parses
+     */
+    long getParses();
+
+    /**
+     * Reports the number of tokens consumed by the parses.
+     *
+     * @return the number of tokens
+     */
+    long getTokens();
+
+    /**
+     * Reports the number of statement nodes built, blocks included.
+     *
+     * @return the number of nodes
+     */
+    long getNodes();
+
+    /**
+     * Reports the deepest IF/WHILE nesting parsed.
+     *
+     * @return the maximum nesting depth
+     */
+    long getMaxDepth();
+
+    /**
+     * Reports the number of bytes allocated by the parsing threads while
+     * parsing, or 0 if the JVM does not measure it.
+     *
+     * @return the number of bytes allocated
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Reports the time spent lexing ahead of parsing, in nanoseconds.
+     *
+     * @return the time spent tokenizing
+     */
+    long getTokenizeNanos();
+
+    /**
+     * Reports the time spent parsing program headers, in nanoseconds.
+     *
+     * @return the time spent on headers
+     */
+    long getHeaderNanos();
+
+    /**
+     * Reports the time spent parsing instructions, in nanoseconds.
+     *
+     * @return the time spent on instructions
+     */
+    long getInstructionsNanos();
+
+    /**
+     * Reports the time spent parsing main bodies, in nanoseconds.
+     *
+     * @return the time spent on main bodies
+     */
+    long getBodyNanos();
+
+    /**
+     * Reports the time spent assembling programs from their parts, in
+     * nanoseconds.
+     *
+     * @return the time spent assembling
+     */
+    long getAssembleNanos();
+
+    /**
+     * Reports the number of tokens parsed per second of parsing.
+     *
+     * @return the parse throughput in tokens per second
+     */
+    double getTokensPerSecond();
+
+    /**
+     * Returns all the metrics as text, as by {@code ParseMetrics.dump}.
+     *
+     * @return the metrics
+     */
+    String getDump();
+
+    /**
+     * Resets all the metrics to 0.
+     */
+    void reset();
+
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code ParseMetrics}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseMetricsTest {
+
+    /**
+     * Parses {@code text} as a program through a {@code Probe}: the one
+     * {@code Program1Parse1} adds when metrics are enabled, or else one of
+     * its own.
+     *
+     * @param text
+     *            the source text
+     */
+    private static void parse(String text) {
+        TokenStream tokens = TestTokens.stream(text);
+        if (ParseMetrics.ENABLED) {
+            Program1Parse1.parseProgram(tokens, new Program1Parse1(),
+                    ParseMode.RECURSIVE);
+        } else {
+            ParseMetrics.Probe probe = new ParseMetrics.Probe(tokens);
+            Program1Parse1.parseProgram(probe, new Program1Parse1(),
+                    ParseMode.RECURSIVE);
+            probe.finish();
+        }
+    }
+
+    /**
+     * Test of the counts of one program: every token is counted, and so is
+     * every statement and block, including the ELSE block and the bodies of
+     * the instructions and of the program.
+     */
+    @Test
+    public void testCounts() {
+        /*
+         * Setup
+         */
+        ParseMetrics.reset();
+        String text = "PROGRAM P IS INSTRUCTION a IS move turnleft END a "
+                + "BEGIN WHILE true DO IF next-is-wall THEN a "
+                + "ELSE IF random THEN skip END IF END IF END WHILE END P";
+        /*
+         * The call
+         */
+        parse(text);
+        /*
+         * Evaluation
+         */
+        final int tokens = text.split(" ").length;
+        final int statements = 7;
+        final int blocks = 6;
+        final int depth = 3;
+        assertEquals(1, ParseMetrics.counter(ParseMetrics.PARSES));
+        assertEquals(tokens, ParseMetrics.counter(ParseMetrics.TOKENS));
+        assertEquals(statements + blocks,
+                ParseMetrics.counter(ParseMetrics.NODES));
+        assertEquals(depth, ParseMetrics.counter(ParseMetrics.MAX_DEPTH));
+        assertTrue(ParseMetrics.tokensPerSecond() >= 0);
+    }
+
+    /**
+     * Test of totals over several parses: counts add up, and the maximum
+     * depth is the deepest of them.
+     */
+    @Test
+    public void testTotals() {
+        /*
+         * Setup
+         */
+        ParseMetrics.reset();
+        /*
+         * The call
+         */
+        parse("PROGRAM P IS BEGIN WHILE true DO WHILE true DO move "
+                + "END WHILE END WHILE END P");
+        parse("PROGRAM Q IS BEGIN move END Q");
+        /*
+         * Evaluation
+         */
+        assertEquals(2, ParseMetrics.counter(ParseMetrics.PARSES));
+        assertEquals(24, ParseMetrics.counter(ParseMetrics.TOKENS));
+        assertEquals(2, ParseMetrics.counter(ParseMetrics.MAX_DEPTH));
+    }
+
+    /**
+     * Test of {@code dump} and {@code reset}.
+     */
+    @Test
+    public void testDumpAndReset() {
+        /*
+         * Setup
+         */
+        ParseMetrics.reset();
+        parse("PROGRAM P IS BEGIN move END P");
+        /*
+         * The call
+         */
+        String dump = ParseMetrics.dump();
+        ParseMetrics.reset();
+        /*
+         * Evaluation
+         */
+        String[] lines = dump.split("\n");
+        assertEquals(1 + ParseMetrics.COUNTER_COUNT
+                + ParseMetrics.PHASE_COUNT + 1, lines.length);
+        assertEquals("enabled " + ParseMetrics.ENABLED, lines[0]);
+        assertEquals("parses 1", lines[1]);
+        assertEquals("tokens 7", lines[2]);
+        assertTrue(lines[lines.length - 1].startsWith("tokens_per_second "));
+        assertEquals(0, ParseMetrics.counter(ParseMetrics.PARSES));
+        for (int phase = 0; phase < ParseMetrics.PHASE_COUNT; phase++) {
+            assertEquals(0, ParseMetrics.nanos(phase));
+        }
+    }
+
+}
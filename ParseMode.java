@@ -0,0 +1,55 @@
+import components.statement.Statement;
+
+/**
+ * Selects the implementation used to parse BL statement blocks.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public enum ParseMode {
+
+    /**
+     * Recursive descent, as in {@code Statement1Parse1}; uses one Java stack
+     * frame per level of IF/WHILE nesting.
+     */
+    RECURSIVE {
+        @Override
+        public void parseBlock(TokenStream tokens, Statement s) {
+            Statement1Parse1.parseBlock(tokens, s);
+        }
+    },
+
+    /**
+     * Explicit work stack, as in {@code Statement1Parse2}; parses any depth
+     * of IF/WHILE nesting without a {@code StackOverflowError}.
+     */
+    ITERATIVE {
+        @Override
+        public void parseBlock(TokenStream tokens, Statement s) {
+            Statement1Parse2.parseBlock(tokens, s);
+        }
+    };
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code s}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed block
+     * @replaces s
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  s = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public abstract void parseBlock(TokenStream tokens, Statement s);
+
+}
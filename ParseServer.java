@@ -0,0 +1,513 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import components.statement.Statement;
+
+/**
+ * Resident BL parse service: a server on a loopback socket that parses BL
+ * programs and statements sent by its clients with {@code Program1Parse1}
+ * and returns them pretty-printed by {@code BLFormatter}, or returns their
+ * syntax errors, so that a client pays for starting and warming up a JVM
+ * once rather than per file.
+ *
+ * <p>
+ * The protocol is framed by lengths, so any number of requests can be sent
+ * on one connection. A request is a header line of ASCII words separated by
+ * spaces, {@code command length [compact]}, followed by {@code length} bytes
+ * of BL source. The command is {@code PROGRAM} or {@code STATEMENT} (a block
+ * of statements, parsed up to the end of the source), and {@code compact}
+ * selects the compact layout of {@code BLFormatter}. A reply is a header
+ * line {@code status length} followed by {@code length} bytes of text: the
+ * formatted source if the status is {@code OK}, and the errors, one per line
+ * with their line and column, if it is {@code ERROR}. The line {@code QUIT}
+ * ends the connection.
+ * </p>
+ *
+ * <p>
+ * Each connection is served by a thread of its own, which reads requests and
+ * hands them to a fixed pool of parser threads through a bounded queue. A
+ * request takes one of as many slots as there are parser threads and queue
+ * entries before its source is read, and gives it back once it is answered,
+ * so at most that many sources are held in memory at once. When no slot is
+ * free the reply is {@code BUSY}, with no text, sent before the source is
+ * read; the source is then skipped without being stored, and the connection
+ * carries on. A burst of clients thus gets a prompt refusal it can retry
+ * instead of unbounded queueing delay; likewise a connection beyond the
+ * limit is answered {@code BUSY} and closed. Sources are parsed from their
+ * bytes with {@code MappedLexer}, in diagnostics mode, so no error in a
+ * request ever terminates the server.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseServer implements Closeable {
+
+    /**
+     * The default port.
+     */
+    public static final int DEFAULT_PORT = 7878;
+
+    /**
+     * Request commands.
+     */
+    public static final String PROGRAM = "PROGRAM", STATEMENT = "STATEMENT",
+            QUIT = "QUIT";
+
+    /**
+     * Option of a request selecting the compact layout.
+     */
+    public static final String COMPACT = "compact";
+
+    /**
+     * Reply statuses.
+     */
+    public static final String OK = "OK", ERROR = "ERROR", BUSY = "BUSY";
+
+    /**
+     * The largest source accepted, in bytes.
+     */
+    public static final int MAX_SOURCE = 1 << 20;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The longest header line accepted, in bytes.
+     */
+    private static final int MAX_HEADER = 128;
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocket socket;
+
+    /**
+     * The parser threads, with their bounded queue of requests.
+     */
+    private final ThreadPoolExecutor parsers;
+
+    /**
+     * The connection threads.
+     */
+    private final ExecutorService connections;
+
+    /**
+     * Permits for the connections that may be open at once.
+     */
+    private final Semaphore slots;
+
+    /**
+     * Permits for the requests that may be read, queued or parsed at once.
+     */
+    private final Semaphore requests;
+
+    /**
+     * The open connections.
+     */
+    private final Set<Socket> open;
+
+    /**
+     * The implementation used to parse statement blocks.
+     */
+    private final ParseMode mode;
+
+    /**
+     * The thread accepting connections.
+     */
+    private final Thread acceptor;
+
+    /**
+     * A reply: a status and its text.
+     */
+    private static final class Reply {
+
+        /**
+         * The status.
+         */
+        private final String status;
+
+        /**
+         * The text.
+         */
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param status
+         *            the status
+         * @param text
+         *            the text
+         */
+        private Reply(String status, String text) {
+            this.status = status;
+            this.text = text;
+        }
+
+    }
+
+    /**
+     * Reads a header line from {@code in}, without its line terminator.
+     *
+     * @param in
+     *            the input
+     * @return the line, or {@code null} at the end of the input
+     * @throws IOException
+     *             if an I/O error occurs, or the line is too long
+     */
+    private static String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = in.read();
+        while (b != '\n' && b != -1) {
+            if (line.size() == MAX_HEADER) {
+                throw new IOException("header too long");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+            b = in.read();
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes a reply to {@code out} and flushes it.
+     *
+     * @param out
+     *            the output
+     * @param reply
+     *            the reply
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private static void writeReply(OutputStream out, Reply reply)
+            throws IOException {
+        byte[] text = reply.text.getBytes(StandardCharsets.UTF_8);
+        out.write((reply.status + " " + text.length + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(text);
+        out.flush();
+    }
+
+    /**
+     * Parses {@code source} as a program or a block of statements and
+     * formats it.
+     *
+     * @param command
+     *            {@code PROGRAM} or {@code STATEMENT}
+     * @param source
+     *            the BL source
+     * @param compact
+     *            whether to use the compact layout
+     * @return an {@code OK} reply with the formatted source, or an
+     *         {@code ERROR} reply with the errors found
+     * @throws IOException
+     *             if formatting fails
+     */
+    private Reply parse(String command, byte[] source, boolean compact)
+            throws IOException {
+        TokenStream tokens = new MappedTokenStream(
+                new MappedLexer(ByteBuffer.wrap(source), true));
+        Diagnostics diagnostics = new Diagnostics();
+        StringWriter text = new StringWriter();
+        BLFormatter formatter = new BLFormatter(text, compact);
+        try {
+            if (command.equals(PROGRAM)) {
+                Program1Parse1 p = new Program1Parse1(this.mode);
+                diagnostics.collect(() -> p.parse(tokens));
+                if (diagnostics.size() == 0) {
+                    formatter.format(p);
+                }
+            } else {
+                Statement s = new Statement1Parse1();
+                diagnostics.collect(() -> {
+                    this.mode.parseBlock(tokens, s);
+                    Diagnostics.check(
+                            tokens.frontKind() == TokenKind.END_OF_INPUT,
+                            "Error: Invalid token. Expected: statement",
+                            tokens);
+                });
+                if (diagnostics.size() == 0) {
+                    formatter.format(s, 0);
+                }
+            }
+        } catch (StackOverflowError e) {
+            return new Reply(ERROR, "Error: Nesting too deep\n");
+        }
+        if (diagnostics.size() > 0) {
+            return new Reply(ERROR, diagnostics.toString());
+        }
+        formatter.flush();
+        return new Reply(OK, text.toString());
+    }
+
+    /**
+     * Serves the requests on connection {@code client} until it is closed or
+     * sends {@code QUIT}, then releases its slot.
+     *
+     * @param client
+     *            the connection
+     */
+    private void serve(Socket client) {
+        try (Socket connection = client;
+                InputStream in = new BufferedInputStream(
+                        connection.getInputStream());
+                OutputStream out = new BufferedOutputStream(
+                        connection.getOutputStream())) {
+            String header = readHeader(in);
+            while (header != null && !header.equals(QUIT)) {
+                String[] words = header.split(" ");
+                int length = -1;
+                if ((words.length == 2 || (words.length == 3
+                        && words[2].equals(COMPACT)))
+                        && (words[0].equals(PROGRAM)
+                                || words[0].equals(STATEMENT))) {
+                    try {
+                        length = Integer.parseInt(words[1]);
+                    } catch (NumberFormatException e) {
+                        length = -1;
+                    }
+                }
+                if (length < 0 || length > MAX_SOURCE) {
+                    writeReply(out, new Reply(ERROR,
+                            "Error: Bad request: " + header + "\n"));
+                    break;
+                }
+                if (!this.requests.tryAcquire()) {
+                    writeReply(out, new Reply(BUSY, ""));
+                    in.skipNBytes(length);
+                } else {
+                    Reply reply;
+                    try {
+                        byte[] source = in.readNBytes(length);
+                        if (source.length < length) {
+                            break;
+                        }
+                        String command = words[0];
+                        boolean compact = words.length == 3;
+                        Future<Reply> parsed = this.parsers
+                                .submit(() -> this.parse(command, source,
+                                        compact));
+                        reply = parsed.get();
+                    } catch (RejectedExecutionException e) {
+                        reply = new Reply(BUSY, "");
+                    } catch (ExecutionException e) {
+                        reply = new Reply(ERROR,
+                                "Error: " + e.getCause() + "\n");
+                    } finally {
+                        this.requests.release();
+                    }
+                    writeReply(out, reply);
+                }
+                header = readHeader(in);
+            }
+        } catch (IOException e) {
+            /*
+             * The client went away, or broke the protocol; only its
+             * connection is affected
+             */
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.open.remove(client);
+            this.slots.release();
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void accept() {
+        while (!this.socket.isClosed()) {
+            try {
+                Socket client = this.socket.accept();
+                if (this.slots.tryAcquire()) {
+                    this.open.add(client);
+                    try {
+                        this.connections.execute(() -> this.serve(client));
+                    } catch (RejectedExecutionException e) {
+                        this.open.remove(client);
+                        this.slots.release();
+                        client.close();
+                    }
+                } else {
+                    try (Socket refused = client) {
+                        writeReply(refused.getOutputStream(),
+                                new Reply(BUSY, ""));
+                    }
+                }
+            } catch (SocketException e) {
+                /*
+                 * The socket was closed by close()
+                 */
+            } catch (IOException e) {
+                /*
+                 * A failed connection does not stop the server
+                 */
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; starts a server listening on {@code port} of the loopback
+     * interface.
+     *
+     * @param port
+     *            the port, or 0 for any free port
+     * @param threads
+     *            the number of parser threads
+     * @param queue
+     *            the number of requests that may wait for a parser thread
+     * @param maxConnections
+     *            the number of connections that may be open at once
+     * @param mode
+     *            the implementation used to parse statement blocks
+     * @throws IOException
+     *             if the port cannot be bound
+     * @requires <pre>
+     * 0 <= port  and  0 < threads  and  0 < queue  and
+     * 0 < maxConnections
+     * </pre>
+     */
+    public ParseServer(int port, int threads, int queue, int maxConnections,
+            ParseMode mode) throws IOException {
+        assert 0 <= port : "Violation of: 0 <= port";
+        assert 0 < threads : "Violation of: 0 < threads";
+        assert 0 < queue : "Violation of: 0 < queue";
+        assert 0 < maxConnections : "Violation of: 0 < maxConnections";
+        assert mode != null : "Violation of: mode is not null";
+        this.mode = mode;
+        this.socket = new ServerSocket(port, maxConnections,
+                InetAddress.getLoopbackAddress());
+        this.parsers = new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue));
+        this.connections = Executors.newCachedThreadPool();
+        this.slots = new Semaphore(maxConnections);
+        this.requests = new Semaphore(threads + queue);
+        this.open = ConcurrentHashMap.newKeySet();
+        this.acceptor = new Thread(this::accept, "ParseServer-acceptor");
+        this.acceptor.start();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Reports the port the server listens on.
+     *
+     * @return the port
+     */
+    public int port() {
+        return this.socket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones, and stops the
+     * threads. A request being parsed is not answered.
+     *
+     * @throws IOException
+     *             if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+        try {
+            this.acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Socket client : this.open) {
+            client.close();
+        }
+        this.connections.shutdown();
+        this.parsers.shutdown();
+    }
+
+    /**
+     * Main method.
+     *
+     * <p>
+     * Usage: {@code ParseServer [-p port] [-j threads] [-q queue]
+     * [-c connections] [-i]}, where {@code -i} selects
+     * {@code ParseMode.ITERATIVE}. The defaults are {@code DEFAULT_PORT}, a
+     * parser thread per processor, a queue of 64 requests per parser
+     * thread, and 256 connections.
+     * </p>
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final int queuePerThread = 64;
+        int queue = -1;
+        final int defaultConnections = 256;
+        int maxConnections = defaultConnections;
+        ParseMode mode = ParseMode.RECURSIVE;
+        int i = 0;
+        while (i < args.length) {
+            if (args[i].equals("-i")) {
+                mode = ParseMode.ITERATIVE;
+            } else if (i + 1 < args.length) {
+                int value = Integer.parseInt(args[i + 1]);
+                if (args[i].equals("-p")) {
+                    port = value;
+                } else if (args[i].equals("-j")) {
+                    threads = value;
+                } else if (args[i].equals("-q")) {
+                    queue = value;
+                } else if (args[i].equals("-c")) {
+                    maxConnections = value;
+                }
+                i++;
+            }
+            i++;
+        }
+        if (queue < 0) {
+            queue = queuePerThread * threads;
+        }
+        ParseServer server = new ParseServer(port, threads, queue,
+                maxConnections, mode);
+        System.out.println("ParseServer listening on "
+                + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.port() + " (" + threads + " parser threads, queue "
+                + queue + ")");
+    }
+
+}
@@ -0,0 +1,230 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code ParseServer} and {@code ParseClient}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ParseServerTest {
+
+    /**
+     * A program with an instruction and nested statements.
+     */
+    private static final String PROGRAM = "PROGRAM P IS\n"
+            + "INSTRUCTION a IS move turnleft END a\n"
+            + "BEGIN WHILE true DO IF next-is-wall THEN a ELSE move END IF\n"
+            + "END WHILE END P\n";
+
+    /**
+     * Returns {@code text} as bytes.
+     *
+     * @param text
+     *            the text
+     * @return the bytes of {@code text}
+     */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns {@code text} pretty-printed, as formatted in this JVM.
+     *
+     * @param text
+     *            a BL program
+     * @return the formatted program
+     * @throws IOException
+     *             if formatting fails
+     */
+    private static String format(String text) throws IOException {
+        Program p = TestTokens.parse(text);
+        StringWriter out = new StringWriter();
+        BLFormatter formatter = new BLFormatter(out, false);
+        formatter.format(p);
+        formatter.flush();
+        return out.toString();
+    }
+
+    /**
+     * Starts a server on a free port.
+     *
+     * @param maxConnections
+     *            the number of connections that may be open at once
+     * @return the server
+     * @throws IOException
+     *             if the server cannot be started
+     */
+    private static ParseServer start(int maxConnections) throws IOException {
+        return new ParseServer(0, 2, 2, maxConnections, ParseMode.RECURSIVE);
+    }
+
+    /**
+     * Test of programs: the reply is the program formatted as in this JVM,
+     * and several requests can be sent on one connection.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    @Test
+    public void testProgram() throws IOException {
+        try (ParseServer server = start(4);
+                ParseClient client = new ParseClient(server.port())) {
+            String expected = format(PROGRAM);
+            for (int i = 0; i < 3; i++) {
+                String text = client.request(ParseServer.PROGRAM,
+                        bytes(PROGRAM), false);
+                assertEquals(ParseServer.OK, client.status());
+                assertEquals(expected, text);
+            }
+            String again = client.request(ParseServer.PROGRAM,
+                    bytes(expected), false);
+            assertEquals(expected, again);
+        }
+    }
+
+    /**
+     * Test of a block of statements in the compact layout.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    @Test
+    public void testStatementCompact() throws IOException {
+        try (ParseServer server = start(4);
+                ParseClient client = new ParseClient(server.port())) {
+            String text = client.request(ParseServer.STATEMENT,
+                    bytes("move\n  IF random THEN skip END IF\n"), true);
+            assertEquals(ParseServer.OK, client.status());
+            assertEquals("move IF random THEN skip END IF\n", text);
+        }
+    }
+
+    /**
+     * Test of sources with syntax errors: they are reported with their line
+     * and column, and the server carries on.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    @Test
+    public void testErrors() throws IOException {
+        try (ParseServer server = start(4);
+                ParseClient client = new ParseClient(server.port())) {
+            String text = client.request(ParseServer.PROGRAM,
+                    bytes("PROGRAM P IS\nBEGIN\n  IF bogus THEN move END IF\n"
+                            + "END Q\n"),
+                    false);
+            assertEquals(ParseServer.ERROR, client.status());
+            String[] lines = text.split("\n");
+            assertEquals(2, lines.length);
+            assertEquals("line 3, column 6: "
+                    + "Error: Invalid token. Expected: condition token",
+                    lines[0]);
+            client.request(ParseServer.STATEMENT, bytes("move END"), false);
+            assertEquals(ParseServer.ERROR, client.status());
+            client.request(ParseServer.STATEMENT, bytes("move"), false);
+            assertEquals(ParseServer.OK, client.status());
+        }
+    }
+
+    /**
+     * Test of a malformed request: it is refused, and the connection is
+     * closed.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    @Test
+    public void testBadRequest() throws IOException {
+        try (ParseServer server = start(4);
+                ParseClient client = new ParseClient(server.port())) {
+            String text = client.request("FORMAT", bytes("move"), false);
+            assertEquals(ParseServer.ERROR, client.status());
+            assertTrue(text.startsWith("Error: Bad request"));
+        }
+    }
+
+    /**
+     * Test of a request beyond the slots of the parsers and their queue: it
+     * is answered {@code BUSY} while the slots are held by requests whose
+     * sources are still being sent, and served once they are released.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     * @throws InterruptedException
+     *             if the test is interrupted
+     */
+    @Test
+    public void testRequestLimit() throws IOException, InterruptedException {
+        final int attempts = 100;
+        final long pause = 10;
+        try (ParseServer server = start(8);
+                ParseClient client = new ParseClient(server.port())) {
+            Socket[] holders = new Socket[4];
+            for (int i = 0; i < holders.length; i++) {
+                holders[i] = new Socket(InetAddress.getLoopbackAddress(),
+                        server.port());
+                holders[i].getOutputStream().write(
+                        bytes(ParseServer.PROGRAM + " 1000\nPROGRAM"));
+            }
+            int i = 0;
+            do {
+                Thread.sleep(pause);
+                client.request(ParseServer.STATEMENT, bytes("move"), false);
+                i++;
+            } while (!client.status().equals(ParseServer.BUSY)
+                    && i < attempts);
+            assertEquals(ParseServer.BUSY, client.status());
+
+            for (Socket holder : holders) {
+                holder.close();
+            }
+            i = 0;
+            do {
+                Thread.sleep(pause);
+                client.request(ParseServer.STATEMENT, bytes("move"), false);
+                i++;
+            } while (!client.status().equals(ParseServer.OK)
+                    && i < attempts);
+            assertEquals(ParseServer.OK, client.status());
+        }
+    }
+
+    /**
+     * Test of a connection beyond the limit: it is answered {@code BUSY} and
+     * closed, while the open connection is still served.
+     *
+     * @throws IOException
+     *             if the server cannot be reached
+     */
+    @Test
+    public void testConnectionLimit() throws IOException {
+        try (ParseServer server = start(1);
+                ParseClient client = new ParseClient(server.port())) {
+            client.request(ParseServer.STATEMENT, bytes("move"), false);
+            assertEquals(ParseServer.OK, client.status());
+            try (Socket refused = new Socket(
+                    InetAddress.getLoopbackAddress(), server.port())) {
+                InputStream in = refused.getInputStream();
+                String reply = new String(in.readAllBytes(),
+                        StandardCharsets.US_ASCII);
+                assertEquals(ParseServer.BUSY + " 0\n", reply);
+            }
+            client.request(ParseServer.STATEMENT, bytes("move"), false);
+            assertEquals(ParseServer.OK, client.status());
+        }
+    }
+
+}
@@ -3,14 +3,12 @@ import components.program.Program;
 import components.program.Program1;
 import components.queue.Queue;
 import components.set.Set;
-import components.set.Set2;
+import components.set.Set1L;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
 import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 import components.statement.Statement;
-import components.utilities.Reporter;
-import components.utilities.Tokenizer;
 
 /**
  * Layered implementation of secondary method {@code parse} for {@code Program}.
@@ -24,6 +22,156 @@ public final class Program1Parse1 extends Program1 {
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * Names of the primitive instructions, which cannot be redefined.
+     */
+    private static final Set<String> PRIMITIVES = new Set1L<String>();
+
+    static {
+        PRIMITIVES.add("move");
+        PRIMITIVES.add("turnleft");
+        PRIMITIVES.add("turnright");
+        PRIMITIVES.add("infect");
+        PRIMITIVES.add("skip");
+    }
+
+    /**
+     * The implementation used to parse statement blocks.
+     */
+    private final ParseMode mode;
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Reports whether {@code name} is the name of a primitive instruction.
+     *
+     * @param name
+     *            the name
+     * @return true iff {@code name} is a primitive instruction
+     */
+    static boolean isPrimitive(String name) {
+        return PRIMITIVES.contains(name);
+    }
+
+    /**
+     * Parses the header of a BL program ({@code PROGRAM name IS}) from
+     * {@code tokens}, returning the program name.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the program name
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"PROGRAM", name, "IS"> is a prefix of #tokens for some identifier
+     *     name] then
+     *  parseHeader = name  and
+     *  #tokens = <"PROGRAM", name, "IS"> * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static String parseHeader(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        //check/dequeue program
+        boolean isProgram = tokens.frontKind() == TokenKind.PROGRAM;
+        Diagnostics.check(isProgram,
+                "Error: Invalid instruction. Expected: " + "\"PROGRAM\" token",
+                tokens);
+        tokens.advance();
+
+        //check/dequeue name
+        boolean isName = tokens.frontKind() == TokenKind.IDENTIFIER;
+        Diagnostics.check(isName, "Error: Expected identifier", tokens);
+        String name = tokens.dequeue();
+
+        //check/dequeue is
+        boolean is = tokens.frontKind() == TokenKind.IS;
+        Diagnostics.check(is,
+                "Error: Invalid instruction. Expected: " + "\"IS\" token",
+                tokens);
+        tokens.advance();
+
+        return name;
+    }
+
+    /**
+     * Parses the head of a BL instruction ({@code INSTRUCTION name IS}) from
+     * {@code tokens}, returning the instruction name.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the instruction name
+     * @updates tokens
+     * @requires <pre>
+     * [<"INSTRUCTION"> is a prefix of tokens]  and
+     *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * </pre>
+     * @ensures <pre>
+     * if [<"INSTRUCTION", name, "IS"> is a prefix of #tokens] then
+     *  parseInstructionHead = name  and
+     *  #tokens = <"INSTRUCTION", name, "IS"> * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static String parseInstructionHead(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.frontKind() == TokenKind.INSTRUCTION : ""
+                + "Violation of: <\"INSTRUCTION\"> is proper prefix of tokens";
+
+        // dequeue instruction (assert already checks)
+        tokens.advance();
+        String name = SymbolTable.canonical(tokens.dequeue());
+
+        //check/dequeue is
+        boolean is = tokens.frontKind() == TokenKind.IS;
+        Diagnostics.check(is,
+                "Error: Invalid instruction. Expected: " + "\"IS\" token",
+                tokens);
+        tokens.advance();
+
+        return name;
+    }
+
+    /**
+     * Parses the tail of the BL instruction named {@code name}
+     * ({@code END name}) from {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param name
+     *            the instruction name
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"END", name> is a prefix of #tokens] then
+     *  #tokens = <"END", name> * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseInstructionTail(TokenStream tokens, String name) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert name != null : "Violation of: name is not null";
+
+        //check/dequeue end
+        boolean end = tokens.frontKind() == TokenKind.END;
+        Diagnostics.check(end,
+                "Error: Invalid instruction. Expected: " + "\"END\" token",
+                tokens);
+        tokens.advance();
+
+        //check/dequeue end name
+        String temp = tokens.dequeue();
+        boolean sameName = temp.equals(name);
+        Diagnostics.check(sameName,
+                "Error: Expected name to match", tokens);
+    }
+
     /**
      * Parses a single BL instruction from {@code tokens} returning the
      * instruction name as the value of the function and the body of the
@@ -33,6 +181,8 @@ public final class Program1Parse1 extends Program1 {
      *            the input tokens
      * @param body
      *            the instruction body
+     * @param mode
+     *            the implementation used to parse the body
      * @return the instruction name
      * @replaces body
      * @updates tokens
@@ -53,38 +203,335 @@ public final class Program1Parse1 extends Program1 {
      *  [report an appropriate error message to the console and terminate client]
      * </pre>
      */
-    private static String parseInstruction(Queue<String> tokens,
-            Statement body) {
+    static String parseInstruction(TokenStream tokens,
+            Statement body, ParseMode mode) {
         assert tokens != null : "Violation of: tokens is not null";
         assert body != null : "Violation of: body is not null";
-        assert tokens.length() > 0 && tokens.front().equals("INSTRUCTION") : ""
+        assert tokens.frontKind() == TokenKind.INSTRUCTION : ""
                 + "Violation of: <\"INSTRUCTION\"> is proper prefix of tokens";
 
-        // dequeue instruction (assert already checks)
-        tokens.dequeue();
-        String name = tokens.dequeue();
+        String name = parseInstructionHead(tokens);
+        mode.parseBlock(tokens, body);
+        parseInstructionTail(tokens, name);
+        return name;
+    }
 
-        //check/dequeue is
-        String temp = tokens.dequeue();
-        boolean is = temp.equals("IS");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid instruction. Expected: " + "\"IS\" token");
+    /**
+     * Checks that {@code instructionName} is a legal name for a new
+     * instruction and adds it to {@code names}. Both checks are hash lookups
+     * when {@code names} is a {@code Set1L}, so checking the definitions of a
+     * program takes time linear in their number.
+     *
+     * @param instructionName
+     *            the name of the instruction
+     * @param names
+     *            the names of the instructions defined so far
+     * @param position
+     *            the token position of the instruction name, for diagnostics
+     * @param location
+     *            the source location of the instruction, for diagnostics
+     * @updates names
+     * @ensures <pre>
+     * if [instructionName is not the name of a primitive instruction]  and
+     *    instructionName is not in #names then
+     *  names = #names union {instructionName}
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void checkInstructionName(String instructionName,
+            Set<String> names, int position, long location) {
+        assert instructionName != null : "Violation of: name is not null";
+        assert names != null : "Violation of: names is not null";
+
+        boolean validInstruction = !isPrimitive(instructionName);
+
+        Diagnostics.check(validInstruction, "Error: Invalid Instruction",
+                position, location);
+
+        if (names.contains(instructionName)) {
+            Diagnostics.check(false, "Error: ", position, location);
+        } else {
+            names.add(instructionName);
+        }
+    }
+
+    /**
+     * Checks that {@code instructionName} is a legal name for a new
+     * instruction and adds the instruction to {@code context}.
+     *
+     * @param instructionName
+     *            the name of the instruction
+     * @param bodyBlock
+     *            the body of the instruction
+     * @param names
+     *            the names of the instructions defined so far
+     * @param context
+     *            the instructions defined so far
+     * @param position
+     *            the token position of the instruction name, for diagnostics
+     * @param location
+     *            the source location of the instruction, for diagnostics
+     * @updates names, context
+     * @ensures <pre>
+     * if [instructionName is not the name of a primitive instruction]  and
+     *    instructionName is not in #names then
+     *  names = #names union {instructionName}  and
+     *  context = #context union {(instructionName, bodyBlock)}
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void addInstruction(String instructionName, Statement bodyBlock,
+            Set<String> names, Map<String, Statement> context,
+            int position, long location) {
+        assert instructionName != null : "Violation of: name is not null";
+        assert bodyBlock != null : "Violation of: bodyBlock is not null";
+        assert names != null : "Violation of: names is not null";
+        assert context != null : "Violation of: context is not null";
+
+        checkInstructionName(instructionName, names, position, location);
+        context.add(instructionName, bodyBlock);
+    }
 
-        body.parseBlock(tokens);
+    /**
+     * Parses the {@code BEGIN} that starts the main body of a BL program from
+     * {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"BEGIN"> is a prefix of #tokens] then
+     *  #tokens = <"BEGIN"> * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseMainHead(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+
+        //check/dequeue begin
+        boolean isBegin = tokens.frontKind() == TokenKind.BEGIN;
+        Diagnostics.check(isBegin,
+                "Error: Invalid program. Expected: " + "\"BEGIN\" token",
+                tokens);
+        tokens.advance();
+    }
+
+    /**
+     * Parses the {@code END name} that ends a BL program from {@code tokens},
+     * and checks that it is followed by the end of the input.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param name
+     *            the program name, or {@code null} if the header could not
+     *            be parsed (in diagnostics mode)
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if <"END", name, Tokenizer.END_OF_INPUT> = #tokens then
+     *  tokens = <Tokenizer.END_OF_INPUT>
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseMainTail(TokenStream tokens, String name) {
+        assert tokens != null : "Violation of: tokens is not null";
 
         //check/dequeue end
-        temp = tokens.dequeue();
-        boolean end = temp.equals("END");
-        Reporter.assertElseFatalError(end,
-                "Error: Invalid instruction. Expected: " + "\"END\" token");
+        boolean isEnd = tokens.frontKind() == TokenKind.END;
+        Diagnostics.check(isEnd, "Error: Expected END", tokens);
+        tokens.advance();
 
-        //check/dequeue end name
-        temp = tokens.dequeue();
-        boolean sameName = temp.equals(name);
-        Reporter.assertElseFatalError(sameName,
-                "Error: Expected name to match");
+        String endName = tokens.dequeue();
+        boolean sameName = name == null || name.equals(endName);
+        Diagnostics.check(sameName, "Error: Names do not match", tokens);
 
-        return name;
+        //check that tokens is at end
+        boolean isOver = tokens.frontKind() == TokenKind.END_OF_INPUT;
+        Diagnostics.check(isOver, "Error: Invalid ending syntax", tokens);
+    }
+
+    /**
+     * Parses the main body of a BL program ({@code BEGIN block END name})
+     * from {@code tokens} into {@code body}, and checks that it is followed by
+     * the end of the input.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param name
+     *            the program name, or {@code null} if the header could not
+     *            be parsed (in diagnostics mode)
+     * @param body
+     *            the program body
+     * @param mode
+     *            the implementation used to parse the body
+     * @replaces body
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"BEGIN"> * b * <"END", name, Tokenizer.END_OF_INPUT> = #tokens for
+     *     some block string b] then
+     *  body = [BLOCK Statement corresponding to b]  and
+     *  tokens = <Tokenizer.END_OF_INPUT>
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseMainBody(TokenStream tokens, String name, Statement body,
+            ParseMode mode) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert body != null : "Violation of: body is not null";
+        assert mode != null : "Violation of: mode is not null";
+
+        parseMainHead(tokens);
+        mode.parseBlock(tokens, body);
+        parseMainTail(tokens, name);
+    }
+
+    /**
+     * Parses the instruction definitions at the front of {@code tokens},
+     * adding them to {@code context}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param body
+     *            a statement of the dynamic type of the instruction bodies
+     * @param names
+     *            the names of the instructions defined so far
+     * @param context
+     *            the instructions defined so far
+     * @param mode
+     *            the implementation used to parse the bodies
+     * @updates tokens, names, context
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a maximally long sequence of valid instruction strings with new
+     *     names is a prefix of #tokens] then
+     *  context = #context union [the instructions of that sequence]  and
+     *  #tokens = [that sequence] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseInstructions(TokenStream tokens, Statement body,
+            Set<String> names, Map<String, Statement> context,
+            ParseMode mode) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert body != null : "Violation of: body is not null";
+        assert names != null : "Violation of: names is not null";
+        assert context != null : "Violation of: context is not null";
+        assert mode != null : "Violation of: mode is not null";
+
+        while (tokens.frontKind() == TokenKind.INSTRUCTION) {
+            int position = tokens.position() + 1;
+            long location = tokens.location();
+            try {
+                Statement bodyBlock = body.newInstance();
+                String instructionName = parseInstruction(tokens, bodyBlock,
+                        mode);
+                addInstruction(instructionName, bodyBlock, names, context,
+                        position, location);
+            } catch (Diagnostics.Recovery e) {
+                /*
+                 * Diagnostics mode: drop the instruction and resynchronize
+                 */
+                Diagnostics.recoverDefinition(tokens);
+            }
+        }
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code p}.
+     *
+     * <p>
+     * In diagnostics mode a header or instruction with an error is skipped up
+     * to the next {@code INSTRUCTION} or {@code BEGIN}, and {@code p} is
+     * assembled from whatever parsed.
+     * </p>
+     *
+     * <p>
+     * Identifiers are interned in the {@code SymbolTable} of the current
+     * thread, or in a new one for this program if there is none, so equal
+     * names in {@code p} are the same {@code String}. The parse is measured by
+     * {@code ParseMetrics} when metrics are enabled.
+     * </p>
+     *
+     * @param tokens
+     *            the input tokens
+     * @param p
+     *            the parsed program
+     * @param mode
+     *            the implementation used to parse statement blocks
+     * @replaces p
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a program string is a proper prefix of #tokens] then
+     *  p = [Program corresponding to program string at start of #tokens]  and
+     *  #tokens = [program string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseProgram(TokenStream tokens, Program p, ParseMode mode) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert p != null : "Violation of: p is not null";
+        assert mode != null : "Violation of: mode is not null";
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parseProgram(tokens, p, mode));
+            return;
+        }
+        TokenStream in = tokens;
+        ParseMetrics.Probe probe = null;
+        if (ParseMetrics.ENABLED) {
+            probe = new ParseMetrics.Probe(tokens);
+            in = probe;
+        }
+        Set<String> names = new Set1L<String>();
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+
+        String name = null;
+        try {
+            name = parseHeader(in);
+        } catch (Diagnostics.Recovery e) {
+            Diagnostics.recoverDefinition(in);
+        }
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.HEADER);
+        }
+
+        //parsing instructions
+        parseInstructions(in, body, names, context, mode);
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.INSTRUCTIONS);
+        }
+
+        try {
+            parseMainBody(in, name, body, mode);
+        } catch (Diagnostics.Recovery e) {
+            /*
+             * Nothing follows the main body to resynchronize on
+             */
+        }
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.BODY);
+        }
+
+        //reassemble
+        p.replaceBody(body);
+        p.replaceContext(context);
+        if (name != null) {
+            p.replaceName(name);
+        }
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.ASSEMBLE);
+            probe.finish();
+        }
     }
 
     /*
@@ -92,10 +539,26 @@ public final class Program1Parse1 extends Program1 {
      */
 
     /**
-     * No-argument constructor.
+     * No-argument constructor; statement blocks are parsed with
+     * {@code ParseMode.RECURSIVE}.
      */
     public Program1Parse1() {
+        this(ParseMode.RECURSIVE);
+    }
+
+    /**
+     * Constructor that selects how statement blocks are parsed. Use
+     * {@code ParseMode.ITERATIVE} for machine-generated programs whose
+     * IF/WHILE nesting is too deep for the recursive parser. Note that
+     * {@code newInstance} always uses the no-argument constructor.
+     *
+     * @param mode
+     *            the implementation used to parse statement blocks
+     */
+    public Program1Parse1(ParseMode mode) {
         super();
+        assert mode != null : "Violation of: mode is not null";
+        this.mode = mode;
     }
 
     /*
@@ -106,8 +569,7 @@ public final class Program1Parse1 extends Program1 {
     public void parse(SimpleReader in) {
         assert in != null : "Violation of: in is not null";
         assert in.isOpen() : "Violation of: in.is_open";
-        Queue<String> tokens = Tokenizer.tokens(in);
-        this.parse(tokens);
+        this.parse(new ReaderTokenStream(in));
     }
 
     @Override
@@ -115,74 +577,91 @@ public final class Program1Parse1 extends Program1 {
         assert tokens != null : "Violation of: tokens is not null";
         assert tokens.length() > 0 : ""
                 + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
-        Set<String> names = new Set2<String>();
-        Map<String, Statement> context = this.newContext();
-        Statement body = this.newBody();
-
-        //check/dequeue program
-        String temp = tokens.dequeue();
-        boolean isProgram = temp.equals("PROGRAM");
-        Reporter.assertElseFatalError(isProgram,
-                "Error: Invalid instruction. Expected: " + "\"PROGRAM\" token");
-
-        //check/dequeue name
-        String name = tokens.dequeue();
-        boolean isName = Tokenizer.isIdentifier(name);
-        Reporter.assertElseFatalError(isName, "Error: Expected identifier");
+        this.parse(new QueueTokenStream(tokens));
+    }
 
-        //check/dequeue is
-        temp = tokens.dequeue();
-        boolean is = temp.equals("IS");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid instruction. Expected: " + "\"IS\" token");
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}, pulling tokens
+     * from the stream only as they are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a program string is a proper prefix of #tokens] then
+     *  this = [Program corresponding to program string at start of #tokens]  and
+     *  #tokens = [program string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void parse(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parseProgram(tokens, this, this.mode);
+    }
 
-        boolean isInstruction = tokens.front().equals("INSTRUCTION");
+    /**
+     * Parses a BL program from {@code tokens} straight into the compact
+     * representation of a {@code FlatProgram}, without building any
+     * {@code Statement}. The language accepted and the errors reported are the
+     * same as for {@code parse}, including in diagnostics mode; statement
+     * nesting is handled by recursion, as with {@code ParseMode.RECURSIVE}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the parsed program
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a program string is a proper prefix of #tokens] then
+     *  parseFlat = [FlatProgram corresponding to program string at start of
+     *               #tokens]  and
+     *  #tokens = [program string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public static FlatProgram parseFlat(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        FlatProgram flat = new FlatProgram();
+        Set<String> names = new Set1L<String>();
+
+        String name = null;
+        try {
+            name = parseHeader(tokens);
+            flat.setName(name);
+        } catch (Diagnostics.Recovery e) {
+            Diagnostics.recoverDefinition(tokens);
+        }
 
         //parsing instructions
-        while (isInstruction) {
-            Statement bodyBlock = body.newInstance();
-            String instructionName = parseInstruction(tokens, bodyBlock);
-            boolean validInstruction = (!(instructionName.equals("move")
-                    || instructionName.equals("turnright")
-                    || instructionName.equals("turnleft")
-                    || instructionName.equals("skip")
-                    || instructionName.equals("infect")));
-
-            Reporter.assertElseFatalError(validInstruction,
-                    "Error: Invalid Instruction");
-
-            if (names.contains(instructionName)) {
-                Reporter.assertElseFatalError(false, "Error: ");
-            } else {
-                names.add(instructionName);
+        while (tokens.frontKind() == TokenKind.INSTRUCTION) {
+            int position = tokens.position() + 1;
+            long location = tokens.location();
+            try {
+                String instructionName = parseInstructionHead(tokens);
+                int block = flat.parseBlock(tokens);
+                parseInstructionTail(tokens, instructionName);
+                checkInstructionName(instructionName, names, position,
+                        location);
+                flat.addInstruction(instructionName, block);
+            } catch (Diagnostics.Recovery e) {
+                Diagnostics.recoverDefinition(tokens);
             }
-            context.add(instructionName, bodyBlock);
-            isInstruction = tokens.front().equals("INSTRUCTION");
-
         }
 
-        //parsing body
-
-        tokens.dequeue();
-        body.parseBlock(tokens);
-
-        //check/dequeue end
-        String end = tokens.dequeue();
-        boolean isEnd = end.equals("END");
-        Reporter.assertElseFatalError(isEnd, "Error: Expected END");
-
-        String endName = tokens.dequeue();
-        boolean sameName = name.equals(endName);
-        Reporter.assertElseFatalError(sameName, "Error: Names do not match");
-
-        //reassemble
-        this.replaceBody(body);
-        this.replaceContext(context);
-        this.replaceName(name);
-
-        //check that tokens is at end
-        boolean isOver = tokens.front().equals(Tokenizer.END_OF_INPUT);
-        Reporter.assertElseFatalError(isOver, "Error: Invalid ending syntax");
+        try {
+            parseMainHead(tokens);
+            flat.setBody(flat.parseBlock(tokens));
+            parseMainTail(tokens, name);
+        } catch (Diagnostics.Recovery e) {
+            /*
+             * Nothing follows the main body to resynchronize on
+             */
+        }
+        return flat;
     }
 
     /*
@@ -209,9 +688,8 @@ public final class Program1Parse1 extends Program1 {
         out.println("*** Parsing input file ***");
         Program p = new Program1Parse1();
         SimpleReader file = new SimpleReader1L(fileName);
-        Queue<String> tokens = Tokenizer.tokens(file);
+        p.parse(file);
         file.close();
-        p.parse(tokens);
         /*
          * Pretty print the program
          */
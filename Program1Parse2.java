@@ -0,0 +1,500 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import components.map.Map;
+import components.program.Program1;
+import components.queue.Queue;
+import components.set.Set;
+import components.set.Set1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * Layered implementation of secondary method {@code parse} for {@code Program}
+ * that parses the bodies of the program's instructions in parallel.
+ *
+ * <p>
+ * The whole input is first lexed into a {@code MappedLexer} token table. A
+ * fast pre-scan over the token kinds then locates the boundaries of each
+ * {@code INSTRUCTION ... END name} definition, and each definition is parsed
+ * from its own slice of the table as a task on a {@code ForkJoinPool} while
+ * the calling thread parses the main body. The results are merged into the
+ * context in source order with the same checks as {@code Program1Parse1}, so
+ * a valid program parses to the same value, and the first error in source
+ * order is the one reported.
+ * </p>
+ *
+ * <p>
+ * In diagnostics mode (see {@code Diagnostics}) the program is parsed
+ * sequentially instead, so that errors are recovered from exactly as by
+ * {@code Program1Parse1}.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Program1Parse2 extends Program1 {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Programs with fewer instructions than this are not worth forking tasks
+     * for; their instructions are parsed on the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 8;
+
+    /**
+     * The implementation used to parse statement blocks.
+     */
+    private final ParseMode mode;
+
+    /**
+     * The pool the instruction bodies are parsed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Task that parses one instruction definition from a slice of a token
+     * table.
+     */
+    private static final class InstructionTask extends RecursiveTask<String> {
+
+        /**
+         * Serialization id (tasks are never serialized).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The lexed source.
+         */
+        private final transient MappedLexer lexer;
+
+        /**
+         * Index of the INSTRUCTION token.
+         */
+        private final int from;
+
+        /**
+         * Index one past the instruction's closing name.
+         */
+        private final int to;
+
+        /**
+         * The parsed instruction body.
+         */
+        private final transient Statement body;
+
+        /**
+         * The implementation used to parse the body.
+         */
+        private final ParseMode mode;
+
+        /**
+         * The syntax errors found while parsing, recorded instead of being
+         * reported, so that only the first in source order is reported, on
+         * the merging thread.
+         */
+        private final transient Diagnostics errors;
+
+        /**
+         * The table the identifiers are interned in.
+         */
+        private final transient SymbolTable table;
+
+        /**
+         * The probe counting the tokens, if metrics are enabled.
+         */
+        private transient ParseMetrics.Probe probe;
+
+        /**
+         * Constructor.
+         *
+         * @param lexer
+         *            the lexed source
+         * @param from
+         *            index of the INSTRUCTION token
+         * @param to
+         *            index one past the instruction's closing name
+         * @param body
+         *            the parsed instruction body
+         * @param mode
+         *            the implementation used to parse the body
+         * @param table
+         *            the table the identifiers are interned in
+         */
+        private InstructionTask(MappedLexer lexer, int from, int to,
+                Statement body, ParseMode mode, SymbolTable table) {
+            this.lexer = lexer;
+            this.from = from;
+            this.to = to;
+            this.body = body;
+            this.mode = mode;
+            this.errors = new Diagnostics();
+            this.table = table;
+            this.probe = null;
+        }
+
+        @Override
+        protected String compute() {
+            String[] name = new String[1];
+            this.table.use(() -> this.errors.collect(() -> {
+                TokenStream tokens = new MappedTokenStream(this.lexer,
+                        this.from, this.to);
+                if (ParseMetrics.ENABLED) {
+                    this.probe = new ParseMetrics.Probe(tokens);
+                    tokens = this.probe;
+                }
+                name[0] = Program1Parse1.parseInstruction(tokens, this.body,
+                        this.mode);
+                boolean isOver = tokens.frontKind() == TokenKind.END_OF_INPUT;
+                Diagnostics.check(isOver,
+                        "Error: Invalid instruction. Expected: "
+                                + "\"END\" token",
+                        tokens);
+            }));
+            return name[0];
+        }
+
+    }
+
+    /**
+     * Initial capacity of the buffer the input is read into.
+     */
+    private static final int INITIAL_TEXT = 4096;
+
+    /**
+     * Appends {@code text} and then {@code separator} to {@code buffer} as
+     * ISO-8859-1 bytes, growing it if needed; characters outside ISO-8859-1
+     * become {@code '?'}.
+     *
+     * @param buffer
+     *            the buffer, written up to its position
+     * @param text
+     *            the text
+     * @param separator
+     *            the character after the text
+     * @return the buffer appended to: {@code buffer}, or a larger copy of it
+     */
+    private static ByteBuffer append(ByteBuffer buffer, String text,
+            char separator) {
+        ByteBuffer result = buffer;
+        int needed = text.length() + 1;
+        if (result.remaining() < needed) {
+            result = ByteBuffer.allocate(Math.max(2 * result.capacity(),
+                    result.position() + needed));
+            buffer.flip();
+            result.put(buffer);
+        }
+        final int latin1 = 256;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= latin1) {
+                c = '?';
+            }
+            result.put((byte) c);
+        }
+        result.put((byte) separator);
+        return result;
+    }
+
+    /**
+     * Lexes the rest of {@code in}, read into a single buffer.
+     *
+     * @param in
+     *            the input
+     * @return the lexer for the rest of {@code in}
+     * @updates in
+     */
+    private static MappedLexer lex(SimpleReader in) {
+        ByteBuffer text = ByteBuffer.allocate(INITIAL_TEXT);
+        while (!in.atEOS()) {
+            text = append(text, in.nextLine(), '\n');
+        }
+        text.flip();
+        return new MappedLexer(text);
+    }
+
+    /**
+     * Lexes {@code tokens}, leaving only {@code Tokenizer.END_OF_INPUT} in it.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the lexer for {@code tokens}
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures tokens = <Tokenizer.END_OF_INPUT>
+     */
+    private static MappedLexer lex(Queue<String> tokens) {
+        ByteBuffer text = ByteBuffer.allocate(INITIAL_TEXT);
+        while (!tokens.front().equals(Tokenizer.END_OF_INPUT)) {
+            text = append(text, tokens.dequeue(), ' ');
+        }
+        text.flip();
+        return new MappedLexer(text);
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Finds the index one past the end of the instruction definition starting
+     * at index {@code from} of {@code lexer}, by matching each END with the
+     * IF or WHILE it closes.
+     *
+     * @param lexer
+     *            the lexed source
+     * @param from
+     *            index of an INSTRUCTION token
+     * @return index one past the instruction's closing name, or -1 if the
+     *         instruction is not well-bracketed
+     * @requires lexer.kind(from) = TokenKind.INSTRUCTION
+     */
+    static int instructionEnd(MappedLexer lexer, int from) {
+        int depth = 0;
+        int i = from + 1;
+        int last = lexer.length() - 1;
+        while (i < last) {
+            int kind = lexer.kind(i);
+            if (kind == TokenKind.IF || kind == TokenKind.WHILE) {
+                depth++;
+            } else if (kind == TokenKind.END) {
+                if (depth == 0) {
+                    return Math.min(i + 2, last);
+                }
+                depth--;
+                /*
+                 * Skip the IF or WHILE that follows END
+                 */
+                i++;
+            } else if (kind == TokenKind.INSTRUCTION
+                    || kind == TokenKind.BEGIN) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor; statement blocks are parsed with
+     * {@code ParseMode.RECURSIVE} on the common {@code ForkJoinPool}.
+     */
+    public Program1Parse2() {
+        this(ParseMode.RECURSIVE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor that selects how statement blocks are parsed and the pool
+     * they are parsed on. Note that {@code newInstance} always uses the
+     * no-argument constructor.
+     *
+     * @param mode
+     *            the implementation used to parse statement blocks
+     * @param pool
+     *            the pool instruction bodies are parsed on
+     */
+    public Program1Parse2(ParseMode mode, ForkJoinPool pool) {
+        super();
+        assert mode != null : "Violation of: mode is not null";
+        assert pool != null : "Violation of: pool is not null";
+        this.mode = mode;
+        this.pool = pool;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    @Override
+    public void parse(SimpleReader in) {
+        assert in != null : "Violation of: in is not null";
+        assert in.isOpen() : "Violation of: in.is_open";
+        this.parse(lex(in));
+    }
+
+    @Override
+    public void parse(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        this.parse(lex(tokens));
+    }
+
+    /**
+     * Parses the BL program lexed by {@code lexer} into {@code this}.
+     *
+     * @param lexer
+     *            the lexed source
+     * @replaces this
+     * @ensures <pre>
+     * if [the tokens of lexer are a program string followed by
+     *     Tokenizer.END_OF_INPUT] then
+     *  this = [Program corresponding to the program string]
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void parse(MappedLexer lexer) {
+        assert lexer != null : "Violation of: lexer is not null";
+        if (Diagnostics.isCollecting()) {
+            Program1Parse1.parseProgram(new MappedTokenStream(lexer), this,
+                    this.mode);
+            return;
+        }
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> this.parse(lexer));
+            return;
+        }
+        SymbolTable table = SymbolTable.current();
+        Set<String> names = new Set1L<String>();
+        Map<String, Statement> context = this.newContext();
+        Statement body = this.newBody();
+
+        final int headerLength = 3;
+        int last = lexer.length() - 1;
+        TokenStream header = new MappedTokenStream(lexer, 0, last);
+        ParseMetrics.Probe probe = null;
+        if (ParseMetrics.ENABLED) {
+            probe = new ParseMetrics.Probe(header);
+            header = probe;
+        }
+        String name = Program1Parse1.parseHeader(header);
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.HEADER);
+        }
+
+        /*
+         * Pre-scan for instruction boundaries; fall back to parsing the rest
+         * sequentially (which reports the error) if they are malformed
+         */
+        int count = 0;
+        int[] bounds = new int[PARALLEL_THRESHOLD + 1];
+        bounds[0] = headerLength;
+        int next = headerLength;
+        while (next >= 0 && lexer.kind(next) == TokenKind.INSTRUCTION) {
+            next = instructionEnd(lexer, next);
+            if (next >= 0) {
+                count++;
+                if (count == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, 2 * count);
+                }
+                bounds[count] = next;
+            }
+        }
+        if (next < 0) {
+            count = 0;
+        }
+
+        /*
+         * Parse the instructions on the pool and the main body here; if the
+         * pre-scan failed, the instructions are parsed here too
+         */
+        InstructionTask[] tasks = new InstructionTask[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new InstructionTask(lexer, bounds[i], bounds[i + 1],
+                    body.newInstance(), this.mode, table);
+            if (count >= PARALLEL_THRESHOLD) {
+                this.pool.execute(tasks[i]);
+            }
+        }
+        TokenStream rest = new MappedTokenStream(lexer, bounds[count], last);
+        ParseMetrics.Probe restProbe = null;
+        if (ParseMetrics.ENABLED) {
+            restProbe = new ParseMetrics.Probe(rest);
+            rest = restProbe;
+        }
+        TokenStream tokens = rest;
+        Diagnostics bodyErrors = new Diagnostics();
+        bodyErrors.collect(() -> {
+            Program1Parse1.parseInstructions(tokens, body, names, context,
+                    this.mode);
+            Program1Parse1.parseMainBody(tokens, name, body, this.mode);
+        });
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.BODY);
+            probe.add(restProbe);
+        }
+
+        /*
+         * Merge in source order, so that the error reported is the first,
+         * as if parsed sequentially; the errors of each part were recorded
+         * rather than reported by the thread that found them
+         */
+        for (int i = 0; i < count; i++) {
+            String instructionName;
+            if (count >= PARALLEL_THRESHOLD) {
+                instructionName = tasks[i].join();
+            } else {
+                instructionName = tasks[i].invoke();
+            }
+            if (ParseMetrics.ENABLED) {
+                probe.add(tasks[i].probe);
+            }
+            tasks[i].errors.reportFirst();
+            Program1Parse1.addInstruction(instructionName, tasks[i].body,
+                    names, context, bounds[i] + 1,
+                    lexer.location(bounds[i]));
+        }
+        bodyErrors.reportFirst();
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.INSTRUCTIONS);
+        }
+
+        //reassemble
+        this.replaceBody(body);
+        this.replaceContext(context);
+        this.replaceName(name);
+        if (ParseMetrics.ENABLED) {
+            probe.lap(ParseMetrics.ASSEMBLE);
+            probe.finish();
+        }
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        /*
+         * Get input file name
+         */
+        out.print("Enter valid BL program file name: ");
+        String fileName = in.nextLine();
+        /*
+         * Parse input file
+         */
+        out.println("*** Parsing input file ***");
+        Program1Parse2 p = new Program1Parse2();
+        p.parse(MappedLexer.map(fileName));
+        /*
+         * Pretty print the program
+         */
+        out.println("*** Pretty print of parsed program ***");
+        p.prettyPrint(out);
+
+        in.close();
+        out.close();
+    }
+
+}
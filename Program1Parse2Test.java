@@ -0,0 +1,166 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.utilities.Tokenizer;
+
+/**
+ * Customized JUnit test fixture for {@code Program1Parse2}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Program1Parse2Test extends ProgramTest {
+
+    /**
+     * Number of instructions in the generated wide program; enough for the
+     * instructions to be parsed in parallel.
+     */
+    private static final int WIDE = 100;
+
+    @Override
+    protected Program constructorTest() {
+        return new Program1Parse2();
+    }
+
+    @Override
+    protected Program constructorRef() {
+        return new Program1();
+    }
+
+    /**
+     * Returns the tokens of a program with {@code n} instructions, each
+     * calling the previous one, with the instructions {@code bad} misnamed
+     * at their ends.
+     *
+     * @param n
+     *            the number of instructions
+     * @param bad
+     *            the indices of the misnamed instructions
+     * @return the tokens of the program
+     */
+    private static Queue<String> wideProgram(int n, int... bad) {
+        Queue<String> tokens = new Queue1L<String>();
+        String[] header = { "PROGRAM", "Wide", "IS" };
+        for (String token : header) {
+            tokens.enqueue(token);
+        }
+        for (int i = 0; i < n; i++) {
+            String[] instruction = { "INSTRUCTION", "i" + i, "IS", "IF",
+                "next-is-wall", "THEN", "turnleft", "ELSE", "WHILE", "random",
+                "DO", "i" + Math.max(0, i - 1), "END", "WHILE", "END", "IF",
+                "END", "i" + i };
+            for (int b : bad) {
+                if (i == b) {
+                    instruction[instruction.length - 1] = "misnamed";
+                }
+            }
+            for (String token : instruction) {
+                tokens.enqueue(token);
+            }
+        }
+        String[] main = { "BEGIN", "i0", "move", "END", "Wide",
+            Tokenizer.END_OF_INPUT };
+        for (String token : main) {
+            tokens.enqueue(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Test of parse on a valid program with many instructions.
+     */
+    @Test
+    public void testParseWide() {
+        /*
+         * Setup
+         */
+        Program pRef = new Program1Parse1();
+        pRef.parse(wideProgram(WIDE, -1));
+        Program pTest = this.constructorTest();
+        Queue<String> tokens = wideProgram(WIDE, -1);
+        /*
+         * The call
+         */
+        pTest.parse(tokens);
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+        assertEquals(1, tokens.length());
+    }
+
+    /**
+     * Test of parse on a program with many instructions, one of which has
+     * mismatched names.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testParseWideError() {
+        /*
+         * Setup
+         */
+        Program pTest = this.constructorTest();
+        Queue<String> tokens = wideProgram(WIDE, WIDE / 2);
+        /*
+         * The call--should result in a syntax error being found
+         */
+        pTest.parse(tokens);
+    }
+
+    /**
+     * Test that of several errors, found on several threads, only the first
+     * in source order is reported, and it is the one {@code Program1Parse1}
+     * reports.
+     */
+    @Test
+    public void testParseWideFirstError() {
+        /*
+         * Setup
+         */
+        Queue<String> refTokens = wideProgram(WIDE, WIDE / 4, WIDE / 2);
+        StringBuilder text = new StringBuilder();
+        while (refTokens.length() > 1) {
+            text.append(refTokens.dequeue()).append(' ');
+        }
+        MappedLexer lexer = new MappedLexer(ByteBuffer.wrap(
+                text.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        String expected = null;
+        try {
+            new Program1Parse1().parse(new MappedTokenStream(lexer));
+        } catch (RuntimeException e) {
+            expected = e.getMessage();
+        }
+        Program pTest = this.constructorTest();
+        Queue<String> tokens = wideProgram(WIDE, WIDE / 4, WIDE / 2,
+                WIDE - 1);
+        PrintStream err = System.err;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        String message = null;
+        /*
+         * The call
+         */
+        System.setErr(new PrintStream(printed, true));
+        try {
+            pTest.parse(tokens);
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        } finally {
+            System.setErr(err);
+        }
+        /*
+         * Evaluation
+         */
+        assertEquals(expected, message);
+        assertEquals(expected + System.lineSeparator(), printed.toString());
+    }
+
+}
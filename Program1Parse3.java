@@ -0,0 +1,446 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.set.Set;
+import components.set.Set1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * Layered implementation of secondary method {@code parse} for {@code Program}
+ * driven by the LL(1) parse table generated from the BL grammar.
+ *
+ * <p>
+ * The grammar, {@code bl.grammar}, is compiled by {@code TableGenerator} into
+ * {@code BLParseTable}. The parser is a single loop over an explicit stack of
+ * grammar symbols: a terminal on top is matched against the front token, a
+ * nonterminal is replaced by the right-hand side of the production the table
+ * selects for the front token, and a semantic action assembles statements
+ * from the values parsed so far, which are kept on stacks of their own. There
+ * is no recursion, so IF/WHILE nesting of any depth parses, and changing the
+ * language means editing the grammar and the actions, not the parser. A
+ * syntax error reports the tokens the table allows at that point. Scratch
+ * blocks are taken from the {@code StatementArena} in use, or from one of the
+ * parse's own if there is none.
+ * </p>
+ *
+ * <p>
+ * The programs accepted and the names checked are the same as for
+ * {@code Program1Parse1}. In diagnostics mode (see {@code Diagnostics}) only
+ * the first error is recorded, and the program is left with its initial
+ * value: the table has no recovery points.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Program1Parse3 extends Program1 {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the parse stacks.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Describes a token of kind {@code kind} for an error message.
+     *
+     * @param kind
+     *            the token kind
+     * @return the description
+     */
+    private static String describe(int kind) {
+        if (kind == TokenKind.IDENTIFIER) {
+            return "identifier";
+        } else if (kind == TokenKind.END_OF_INPUT) {
+            return "end of input";
+        } else if (TokenKind.isCondition(kind)) {
+            return "condition";
+        }
+        return "\"" + TokenKind.spelling(kind) + "\"";
+    }
+
+    /**
+     * Returns the error message for a front token that does not match the
+     * terminal {@code kind}.
+     *
+     * @param kind
+     *            the token kind expected
+     * @return the error message
+     */
+    private static String expected(int kind) {
+        if (kind == TokenKind.IDENTIFIER) {
+            return "Error: Expected identifier";
+        } else if (kind == TokenKind.END_OF_INPUT) {
+            return "Error: Invalid ending syntax";
+        }
+        return "Error: Invalid token. Expected: " + describe(kind) + " token";
+    }
+
+    /**
+     * Returns the error message for a front token for which the table has no
+     * production of {@code nonterminal}: the tokens it has productions for,
+     * with the conditions counted as one.
+     *
+     * @param nonterminal
+     *            the nonterminal
+     * @return the error message
+     */
+    private static String expectedBy(int nonterminal) {
+        int row = (nonterminal - TokenKind.COUNT) * TokenKind.COUNT;
+        StringBuilder list = new StringBuilder();
+        int count = 0;
+        int last = -1;
+        boolean condition = false;
+        for (int kind = 0; kind < TokenKind.COUNT; kind++) {
+            if (BLParseTable.TABLE[row + kind] >= 0
+                    && !(condition && TokenKind.isCondition(kind))) {
+                condition |= TokenKind.isCondition(kind);
+                if (count > 0) {
+                    list.append(", ");
+                }
+                list.append(describe(kind));
+                count++;
+                last = kind;
+            }
+        }
+        if (count == 1) {
+            return expected(last);
+        }
+        return "Error: Invalid token. Expected: one of " + list;
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code p} with the parse
+     * table {@code BLParseTable}.
+     *
+     * <p>
+     * Identifiers are interned in the {@code SymbolTable} of the current
+     * thread, or in a new one for this program if there is none.
+     * </p>
+     *
+     * @param tokens
+     *            the input tokens
+     * @param p
+     *            the parsed program
+     * @replaces p
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a program string is a proper prefix of #tokens] then
+     *  p = [Program corresponding to program string at start of #tokens]  and
+     *  #tokens = [program string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    static void parseProgram(TokenStream tokens, Program p) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert p != null : "Violation of: p is not null";
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parseProgram(tokens, p));
+            return;
+        }
+        StatementArena arena = StatementArena.current();
+        if (arena == null) {
+            arena = new StatementArena();
+        }
+        Set<String> names = new Set1L<String>();
+        Map<String, Statement> context = p.newContext();
+        Statement like = p.newBody();
+
+        /*
+         * The symbols still to be parsed, top last, and the values parsed:
+         * blocks and statements, condition kinds, and identifiers with
+         * their token positions and source locations
+         */
+        int[] symbols = new int[INITIAL_CAPACITY];
+        int symbolCount = 0;
+        Statement[] statements = new Statement[INITIAL_CAPACITY];
+        int statementCount = 0;
+        int[] conditions = new int[INITIAL_CAPACITY];
+        int conditionCount = 0;
+        String[] identifiers = new String[INITIAL_CAPACITY];
+        int[] positions = new int[INITIAL_CAPACITY];
+        long[] locations = new long[INITIAL_CAPACITY];
+        int identifierCount = 0;
+
+        symbols[symbolCount] = BLParseTable.START;
+        symbolCount++;
+        try {
+            /*
+             * The kind of the front token, read again only when a token is
+             * consumed
+             */
+            int kind = tokens.frontKind();
+            while (symbolCount > 0) {
+                symbolCount--;
+                int symbol = symbols[symbolCount];
+                if (symbol < TokenKind.COUNT) {
+                    /*
+                     * Terminal: match it, keeping its value if it has one
+                     */
+                    if (kind != symbol) {
+                        Diagnostics.check(false, expected(symbol), tokens);
+                    }
+                    if (kind == TokenKind.IDENTIFIER) {
+                        if (identifierCount == identifiers.length) {
+                            identifiers = Arrays.copyOf(identifiers,
+                                    2 * identifierCount);
+                            positions = Arrays.copyOf(positions,
+                                    2 * identifierCount);
+                            locations = Arrays.copyOf(locations,
+                                    2 * identifierCount);
+                        }
+                        positions[identifierCount] = tokens.position();
+                        locations[identifierCount] = tokens.location();
+                        identifiers[identifierCount] = SymbolTable
+                                .canonical(tokens.dequeue());
+                        identifierCount++;
+                        kind = tokens.frontKind();
+                    } else if (kind != TokenKind.END_OF_INPUT) {
+                        if (TokenKind.isCondition(kind)) {
+                            if (conditionCount == conditions.length) {
+                                conditions = Arrays.copyOf(conditions,
+                                        2 * conditionCount);
+                            }
+                            conditions[conditionCount] = kind;
+                            conditionCount++;
+                        }
+                        tokens.advance();
+                        kind = tokens.frontKind();
+                    }
+                } else if (symbol < BLParseTable.ACTION_BASE) {
+                    /*
+                     * Nonterminal: expand it by the production the table
+                     * selects
+                     */
+                    int production = BLParseTable.TABLE[(symbol
+                            - TokenKind.COUNT) * TokenKind.COUNT + kind];
+                    if (production < 0) {
+                        Diagnostics.check(false, expectedBy(symbol), tokens);
+                    }
+                    int[] right = BLParseTable.PRODUCTIONS[production];
+                    if (symbolCount + right.length > symbols.length) {
+                        symbols = Arrays.copyOf(symbols,
+                                2 * (symbolCount + right.length));
+                    }
+                    System.arraycopy(right, 0, symbols, symbolCount,
+                            right.length);
+                    symbolCount += right.length;
+                } else {
+                    /*
+                     * Action: assemble the values parsed
+                     */
+                    if (statementCount == statements.length) {
+                        statements = Arrays.copyOf(statements,
+                                2 * statementCount);
+                    }
+                    Statement s;
+                    Statement block;
+                    switch (symbol) {
+                        case BLParseTable.ACT_BLOCK:
+                            statements[statementCount] = StatementArena
+                                    .take(arena, like);
+                            statementCount++;
+                            break;
+                        case BLParseTable.ACT_CALL:
+                            identifierCount--;
+                            s = StatementArena.take(arena, like);
+                            s.assembleCall(identifiers[identifierCount]);
+                            statements[statementCount] = s;
+                            statementCount++;
+                            break;
+                        case BLParseTable.ACT_ADD:
+                            statementCount--;
+                            s = statements[statementCount];
+                            block = statements[statementCount - 1];
+                            block.addToBlock(block.lengthOfBlock(), s);
+                            StatementArena.give(arena, s);
+                            break;
+                        case BLParseTable.ACT_IF:
+                            statementCount--;
+                            block = statements[statementCount];
+                            conditionCount--;
+                            s = StatementArena.take(arena, like);
+                            s.assembleIf(TokenKind.condition(
+                                    conditions[conditionCount]), block);
+                            StatementArena.give(arena, block);
+                            statements[statementCount] = s;
+                            statementCount++;
+                            break;
+                        case BLParseTable.ACT_IFELSE:
+                            statementCount -= 2;
+                            block = statements[statementCount];
+                            Statement elseBlock = statements[statementCount
+                                    + 1];
+                            conditionCount--;
+                            s = StatementArena.take(arena, like);
+                            s.assembleIfElse(
+                                    TokenKind.condition(
+                                            conditions[conditionCount]),
+                                    block, elseBlock);
+                            StatementArena.give(arena, block);
+                            StatementArena.give(arena, elseBlock);
+                            statements[statementCount] = s;
+                            statementCount++;
+                            break;
+                        case BLParseTable.ACT_WHILE:
+                            statementCount--;
+                            block = statements[statementCount];
+                            conditionCount--;
+                            s = StatementArena.take(arena, like);
+                            s.assembleWhile(TokenKind.condition(
+                                    conditions[conditionCount]), block);
+                            StatementArena.give(arena, block);
+                            statements[statementCount] = s;
+                            statementCount++;
+                            break;
+                        case BLParseTable.ACT_INSTRUCTION:
+                            identifierCount -= 2;
+                            Diagnostics.check(
+                                    identifiers[identifierCount].equals(
+                                            identifiers[identifierCount + 1]),
+                                    "Error: Expected name to match",
+                                    positions[identifierCount + 1],
+                                    locations[identifierCount + 1]);
+                            statementCount--;
+                            Program1Parse1.addInstruction(
+                                    identifiers[identifierCount],
+                                    statements[statementCount], names,
+                                    context, positions[identifierCount],
+                                    locations[identifierCount]);
+                            statements[statementCount] = null;
+                            break;
+                        case BLParseTable.ACT_PROGRAM:
+                            identifierCount -= 2;
+                            Diagnostics.check(
+                                    identifiers[identifierCount].equals(
+                                            identifiers[identifierCount + 1]),
+                                    "Error: Names do not match",
+                                    positions[identifierCount + 1],
+                                    locations[identifierCount + 1]);
+                            statementCount--;
+                            p.replaceBody(statements[statementCount]);
+                            p.replaceContext(context);
+                            p.replaceName(identifiers[identifierCount]);
+                            statements[statementCount] = null;
+                            break;
+                        default:
+                            assert false : "Violation of: "
+                                    + "[every action of bl.grammar is handled]";
+                            break;
+                    }
+                }
+            }
+        } catch (Diagnostics.Recovery e) {
+            /*
+             * Diagnostics mode: the error is recorded and there is nothing to
+             * resynchronize on
+             */
+            p.clear();
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Program1Parse3() {
+        super();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    @Override
+    public void parse(SimpleReader in) {
+        assert in != null : "Violation of: in is not null";
+        assert in.isOpen() : "Violation of: in.is_open";
+        this.parse(new ReaderTokenStream(in));
+    }
+
+    @Override
+    public void parse(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        this.parse(new QueueTokenStream(tokens));
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}, pulling tokens
+     * from the stream only as they are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a program string is a proper prefix of #tokens] then
+     *  this = [Program corresponding to program string at start of #tokens]  and
+     *  #tokens = [program string at start of #tokens] * tokens
+     * else
+     *  [report an appropriate error message to the console and terminate client]
+     * </pre>
+     */
+    public void parse(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parseProgram(tokens, this);
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        /*
+         * Get input file name
+         */
+        out.print("Enter valid BL program file name: ");
+        String fileName = in.nextLine();
+        /*
+         * Parse input file
+         */
+        out.println("*** Parsing input file ***");
+        Program p = new Program1Parse3();
+        SimpleReader file = new SimpleReader1L(fileName);
+        p.parse(file);
+        file.close();
+        /*
+         * Pretty print the program
+         */
+        out.println("*** Pretty print of parsed program ***");
+        p.prettyPrint(out);
+
+        in.close();
+        out.close();
+    }
+
+}
@@ -0,0 +1,225 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+
+/**
+ * Customized JUnit test fixture for {@code Program1Parse3}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Program1Parse3Test extends ProgramTest {
+
+    /**
+     * IF/WHILE nesting depth of the generated deep program.
+     */
+    private static final int DEPTH = 1000;
+
+    /**
+     * A program with instructions and all kinds of statement.
+     */
+    private static final String PROGRAM = "PROGRAM Test IS "
+            + "INSTRUCTION one IS move IF next-is-wall THEN turnleft "
+            + "ELSE WHILE random DO skip END WHILE END IF END one "
+            + "INSTRUCTION two IS one IF true THEN infect END IF END two "
+            + "BEGIN WHILE next-is-not-enemy DO two one END WHILE "
+            + "IF next-is-friend THEN ELSE turnright END IF END Test";
+
+    @Override
+    protected Program constructorTest() {
+        return new Program1Parse3();
+    }
+
+    @Override
+    protected Program constructorRef() {
+        return new Program1();
+    }
+
+    /**
+     * Parses {@code text} with {@code Program1Parse3} in diagnostics mode,
+     * returning the errors recorded.
+     *
+     * @param text
+     *            the source text
+     * @param p
+     *            the parsed program
+     * @return the errors
+     */
+    private static Diagnostics diagnose(String text, Program p) {
+        Diagnostics diagnostics = new Diagnostics();
+        Queue<String> tokens = TestTokens.tokens(text);
+        diagnostics.collect(() -> p.parse(tokens));
+        return diagnostics;
+    }
+
+    /**
+     * Test that a program with instructions and every kind of statement
+     * parses as with {@code Program1Parse1}.
+     */
+    @Test
+    public void testParseSameAsParse1() {
+        /*
+         * Setup
+         */
+        Program pRef = new Program1Parse1();
+        pRef.parse(TestTokens.tokens(PROGRAM));
+        Program pTest = this.constructorTest();
+        Queue<String> tokens = TestTokens.tokens(PROGRAM);
+        /*
+         * The call
+         */
+        pTest.parse(tokens);
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+        assertEquals(1, tokens.length());
+    }
+
+    /**
+     * Test of parse on a program whose IF/WHILE nesting is deep, which the
+     * table parser handles without recursion.
+     */
+    @Test
+    public void testParseDeep() {
+        /*
+         * Setup
+         */
+        StringBuilder text = new StringBuilder("PROGRAM Deep IS BEGIN ");
+        for (int i = 0; i < DEPTH; i++) {
+            text.append(i % 2 == 0 ? "WHILE true DO move "
+                    : "IF random THEN turnleft ");
+        }
+        for (int i = DEPTH - 1; i >= 0; i--) {
+            text.append(i % 2 == 0 ? "END WHILE " : "ELSE skip END IF ");
+        }
+        text.append("END Deep");
+        Program pRef = new Program1Parse1(ParseMode.ITERATIVE);
+        pRef.parse(TestTokens.tokens(text.toString()));
+        Program pTest = this.constructorTest();
+        /*
+         * The call
+         */
+        pTest.parse(TestTokens.tokens(text.toString()));
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that the scratch blocks of a parse in an arena are given back and
+     * reused by the next one.
+     */
+    @Test
+    public void testParseArena() {
+        /*
+         * Setup
+         */
+        StatementArena arena = new StatementArena();
+        Program pRef = new Program1Parse1();
+        pRef.parse(TestTokens.tokens(PROGRAM));
+        arena.use(() -> this.constructorTest()
+                .parse(TestTokens.tokens(PROGRAM)));
+        int size = arena.size();
+        Program pTest = this.constructorTest();
+        /*
+         * The call
+         */
+        arena.use(() -> pTest.parse(TestTokens.tokens(PROGRAM)));
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+        assertEquals(size, arena.size());
+    }
+
+    /**
+     * Test that a bad condition is reported with the same message as by
+     * {@code Program1Parse1}, once, and leaves the program initial.
+     */
+    @Test
+    public void testDiagnosticsCondition() {
+        /*
+         * Setup
+         */
+        Program pTest = this.constructorTest();
+        Program pRef = this.constructorRef();
+        /*
+         * The call
+         */
+        Diagnostics diagnostics = diagnose("PROGRAM P IS BEGIN "
+                + "IF bogus THEN move END IF move bogus2 END P", pTest);
+        /*
+         * Evaluation
+         */
+        assertEquals(1, diagnostics.size());
+        assertEquals("Error: Invalid token. Expected: condition token",
+                diagnostics.message(0));
+        assertEquals(5, diagnostics.position(0));
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that a token no production allows is reported with the tokens
+     * the table allows there.
+     */
+    @Test
+    public void testDiagnosticsExpected() {
+        /*
+         * Setup
+         */
+        Program pTest = this.constructorTest();
+        /*
+         * The call
+         */
+        Diagnostics diagnostics = diagnose(
+                "PROGRAM P IS BEGIN move THEN END P", pTest);
+        /*
+         * Evaluation
+         */
+        assertEquals(1, diagnostics.size());
+        assertEquals("Error: Invalid token. Expected: one of identifier, "
+                + "\"END\", \"IF\", \"ELSE\", \"WHILE\"",
+                diagnostics.message(0));
+    }
+
+    /**
+     * Test that the semantic checks of the actions report the messages of
+     * {@code Program1Parse1}.
+     */
+    @Test
+    public void testDiagnosticsNames() {
+        String[][] cases = {
+            { "PROGRAM P IS INSTRUCTION I IS move END J BEGIN END P",
+                "Error: Expected name to match" },
+            { "PROGRAM P IS INSTRUCTION move IS skip END move BEGIN END P",
+                "Error: Invalid Instruction" },
+            { "PROGRAM P IS INSTRUCTION I IS move END I "
+                    + "INSTRUCTION I IS skip END I BEGIN END P",
+                "Error: " },
+            { "PROGRAM P IS BEGIN move END Q", "Error: Names do not match" },
+            { "PROGRAM P IS BEGIN move END P move",
+                "Error: Invalid ending syntax" } };
+        for (String[] c : cases) {
+            /*
+             * Setup
+             */
+            Program pTest = this.constructorTest();
+            /*
+             * The call
+             */
+            Diagnostics diagnostics = diagnose(c[0], pTest);
+            /*
+             * Evaluation
+             */
+            assertEquals(c[0], 1, diagnostics.size());
+            assertEquals(c[0], c[1], diagnostics.message(0));
+        }
+    }
+
+}
@@ -0,0 +1,698 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Compact, versioned binary format for parsed BL programs, so that a program
+ * parsed once can be stored and loaded again without tokenizing or parsing.
+ *
+ * <p>
+ * All numbers are unsigned varints: seven bits per byte, least significant
+ * first, with the high bit set on every byte but the last. Identifiers are
+ * interned in a table at the start, and a call refers to its instruction by
+ * its index in the table, so each distinct name is stored once. The format
+ * is:
+ * </p>
+ *
+ * <pre>
+ * program     ::= "BLPF" version name nodeCount childCount names
+ *                 instructionCount instruction* block
+ * names       ::= nameCount name*
+ * name        ::= length [length bytes of UTF-8]
+ * instruction ::= nameIndex block
+ * block       ::= statementCount statement*
+ * statement   ::= CALL nameIndex
+ *               | IF condition block
+ *               | IF_ELSE condition block block
+ *               | WHILE condition block
+ * </pre>
+ *
+ * <p>
+ * where {@code CALL}, {@code IF}, {@code IF_ELSE} and {@code WHILE} are the
+ * node kinds of {@code FlatProgram}, {@code condition} is a condition kind
+ * minus {@code TokenKind.NEXT_IS_EMPTY}, and {@code nodeCount} and
+ * {@code childCount} are the numbers of nodes and of child links, so that a
+ * reader can allocate a {@code FlatProgram}'s arrays once. Reading checks
+ * every number against these counts and reports a damaged input as an
+ * {@code IOException}, never as a bad program.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ProgramCodec {
+
+    /**
+     * Version of the format written.
+     */
+    public static final int VERSION = 1;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * First bytes of the format.
+     */
+    private static final byte[] MAGIC = { 'B', 'L', 'P', 'F' };
+
+    /**
+     * Number of conditions.
+     */
+    private static final int CONDITION_COUNT = TokenKind.TRUE
+            - TokenKind.NEXT_IS_EMPTY + 1;
+
+    /**
+     * Bits of a varint byte holding the value, and the continuation bit.
+     */
+    private static final int PAYLOAD = 0x7F, MORE = 0x80;
+
+    /**
+     * Bits of value per varint byte.
+     */
+    private static final int SHIFT = 7;
+
+    /**
+     * A growable array of bytes, with the varint encoding and the counts of
+     * nodes, child links and names of what has been encoded.
+     */
+    private static final class Encoder {
+
+        /**
+         * The bytes.
+         */
+        private byte[] bytes = new byte[64];
+
+        /**
+         * Length of {@code bytes} in use.
+         */
+        private int length = 0;
+
+        /**
+         * Number of nodes and of child links encoded.
+         */
+        private int nodeCount = 0, childCount = 0;
+
+        /**
+         * The names, in order of first use.
+         */
+        private final ArrayList<String> names = new ArrayList<>();
+
+        /**
+         * Index of each name in {@code names}.
+         */
+        private final HashMap<String, Integer> nameIndex = new HashMap<>();
+
+        /**
+         * Appends {@code x} as a varint.
+         *
+         * @param x
+         *            the value
+         * @requires x >= 0
+         */
+        private void varint(int x) {
+            if (this.length + SHIFT > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes,
+                        2 * this.bytes.length + SHIFT);
+            }
+            int rest = x;
+            while (rest > PAYLOAD) {
+                this.bytes[this.length] = (byte) (rest & PAYLOAD | MORE);
+                this.length++;
+                rest >>>= SHIFT;
+            }
+            this.bytes[this.length] = (byte) rest;
+            this.length++;
+        }
+
+        /**
+         * Appends {@code s} as its length and UTF-8 bytes.
+         *
+         * @param s
+         *            the string
+         */
+        private void string(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            this.varint(utf8.length);
+            if (this.length + utf8.length > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes,
+                        2 * this.bytes.length + utf8.length);
+            }
+            System.arraycopy(utf8, 0, this.bytes, this.length, utf8.length);
+            this.length += utf8.length;
+        }
+
+        /**
+         * Appends the index of {@code name}, interning it.
+         *
+         * @param name
+         *            the name
+         */
+        private void name(String name) {
+            Integer index = this.nameIndex.get(name);
+            if (index == null) {
+                index = this.names.size();
+                this.names.add(name);
+                this.nameIndex.put(name, index);
+            }
+            this.varint(index);
+        }
+
+        /**
+         * Appends the header of a block of {@code n} statements.
+         *
+         * @param n
+         *            the number of statements
+         */
+        private void block(int n) {
+            this.varint(n);
+            this.nodeCount++;
+            this.childCount += n;
+        }
+
+        /**
+         * Appends the header of a statement of kind {@code kind}; for a
+         * compound statement, {@code condition} is its condition kind.
+         *
+         * @param kind
+         *            the node kind
+         * @param condition
+         *            the condition kind, ignored for a call
+         */
+        private void statement(int kind, int condition) {
+            this.varint(kind);
+            this.nodeCount++;
+            if (kind != FlatProgram.CALL) {
+                this.varint(condition - TokenKind.NEXT_IS_EMPTY);
+                if (kind == FlatProgram.IF_ELSE) {
+                    this.childCount += 2;
+                } else {
+                    this.childCount++;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Reader of the bytes of a program, building the arrays of a
+     * {@code FlatProgram}.
+     */
+    private static final class Decoder {
+
+        /**
+         * The bytes.
+         */
+        private final byte[] bytes;
+
+        /**
+         * Position of the next byte to read.
+         */
+        private int position = 0;
+
+        /**
+         * Node arrays, as in {@code FlatProgram}.
+         */
+        private int[] kinds, conditions, firsts, counts, children;
+
+        /**
+         * Number of nodes and of child links read.
+         */
+        private int nodeCount = 0, childCount = 0;
+
+        /**
+         * Number of names.
+         */
+        private int nameCount = 0;
+
+        /**
+         * While a block is read, the nodes on the path from it to the node
+         * being read, and the number of children of each read so far.
+         */
+        private int[] path, next;
+
+        /**
+         * Constructor.
+         *
+         * @param bytes
+         *            the bytes
+         */
+        private Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Reads a varint.
+         *
+         * @return the value
+         * @throws IOException
+         *             if the input ends or the value does not fit an int
+         */
+        private int varint() throws IOException {
+            final int maxShift = 28;
+            int x = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (this.position == this.bytes.length || shift > maxShift) {
+                    throw new IOException("Damaged program");
+                }
+                b = this.bytes[this.position];
+                this.position++;
+                x |= (b & PAYLOAD) << shift;
+                shift += SHIFT;
+            } while ((b & MORE) != 0);
+            if (x < 0) {
+                throw new IOException("Damaged program");
+            }
+            return x;
+        }
+
+        /**
+         * Reads a varint less than {@code bound}.
+         *
+         * @param bound
+         *            the bound
+         * @return the value
+         * @throws IOException
+         *             if the input is damaged or the value is out of bounds
+         */
+        private int varint(int bound) throws IOException {
+            int x = this.varint();
+            if (x >= bound) {
+                throw new IOException("Damaged program");
+            }
+            return x;
+        }
+
+        /**
+         * Reads a string.
+         *
+         * @return the string
+         * @throws IOException
+         *             if the input is damaged
+         */
+        private String string() throws IOException {
+            int length = this.varint();
+            if (length > this.bytes.length - this.position) {
+                throw new IOException("Damaged program");
+            }
+            String s = new String(this.bytes, this.position, length,
+                    StandardCharsets.UTF_8);
+            this.position += length;
+            return s;
+        }
+
+        /**
+         * Adds a node, returning its number.
+         *
+         * @param kind
+         *            the node kind
+         * @param condition
+         *            the condition kind, or 0
+         * @param childCount
+         *            the number of children
+         * @return the node number
+         * @throws IOException
+         *             if there are more nodes or child links than the header
+         *             says
+         */
+        private int node(int kind, int condition, int childCount)
+                throws IOException {
+            if (this.nodeCount == this.kinds.length || childCount
+                    > this.children.length - this.childCount) {
+                throw new IOException("Damaged program");
+            }
+            int n = this.nodeCount;
+            this.kinds[n] = kind;
+            this.conditions[n] = condition;
+            this.firsts[n] = this.childCount;
+            this.counts[n] = childCount;
+            this.childCount += childCount;
+            this.nodeCount++;
+            return n;
+        }
+
+        /**
+         * Reads a block, returning its node number. The nodes are read in
+         * the order they were written, depth first, keeping the path from
+         * the block to the current node in an array rather than on the call
+         * stack, so a deeply nested program cannot overflow it.
+         *
+         * @return the node number
+         * @throws IOException
+         *             if the input is damaged
+         */
+        private int block() throws IOException {
+            if (this.path == null) {
+                this.path = new int[this.kinds.length + 1];
+                this.next = new int[this.kinds.length + 1];
+            }
+            int root = this.node(FlatProgram.BLOCK, 0,
+                    this.varint(this.children.length + 1));
+            int depth = 0;
+            this.path[0] = root;
+            this.next[0] = 0;
+            while (depth >= 0) {
+                int n = this.path[depth];
+                int i = this.next[depth];
+                if (i == this.counts[n]) {
+                    depth--;
+                } else {
+                    this.next[depth]++;
+                    int child;
+                    if (this.kinds[n] == FlatProgram.BLOCK) {
+                        child = this.statement();
+                    } else {
+                        child = this.node(FlatProgram.BLOCK, 0,
+                                this.varint(this.children.length + 1));
+                    }
+                    this.children[this.firsts[n] + i] = child;
+                    if (this.counts[child] > 0) {
+                        depth++;
+                        this.path[depth] = child;
+                        this.next[depth] = 0;
+                    }
+                }
+            }
+            return root;
+        }
+
+        /**
+         * Reads a statement, other than a block, returning its node number;
+         * the blocks it holds are left to the caller to read.
+         *
+         * @return the node number
+         * @throws IOException
+         *             if the input is damaged
+         */
+        private int statement() throws IOException {
+            int kind = this.varint(FlatProgram.CALL + 1);
+            if (kind == FlatProgram.CALL) {
+                int n = this.node(kind, 0, 0);
+                this.firsts[n] = this.varint(this.nameCount);
+                return n;
+            }
+            if (kind == FlatProgram.BLOCK) {
+                throw new IOException("Damaged program");
+            }
+            int condition = this.varint(CONDITION_COUNT)
+                    + TokenKind.NEXT_IS_EMPTY;
+            int childCount = 1;
+            if (kind == FlatProgram.IF_ELSE) {
+                childCount = 2;
+            }
+            return this.node(kind, condition, childCount);
+        }
+
+    }
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private ProgramCodec() {
+    }
+
+    /**
+     * Appends the encoding of {@code s} to {@code encoder}.
+     *
+     * @param s
+     *            the statement
+     * @param encoder
+     *            the encoder
+     * @updates encoder
+     * @restores s
+     */
+    private static void encode(Statement s, Encoder encoder) {
+        switch (s.kind()) {
+            case BLOCK: {
+                encoder.block(s.lengthOfBlock());
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    encode(child, encoder);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                encoder.statement(FlatProgram.IF, TokenKind.kindOf(c));
+                encode(block, encoder);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                encoder.statement(FlatProgram.IF_ELSE, TokenKind.kindOf(c));
+                encode(thenBlock, encoder);
+                encode(elseBlock, encoder);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                encoder.statement(FlatProgram.WHILE, TokenKind.kindOf(c));
+                encode(block, encoder);
+                s.assembleWhile(c, block);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                encoder.statement(FlatProgram.CALL, 0);
+                encoder.name(name);
+                s.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /**
+     * Appends the encoding of node {@code n} of {@code flat} to
+     * {@code encoder}.
+     *
+     * @param flat
+     *            the program
+     * @param n
+     *            the node number
+     * @param encoder
+     *            the encoder
+     * @updates encoder
+     */
+    private static void encode(FlatProgram flat, int n, Encoder encoder) {
+        int kind = flat.kind(n);
+        if (kind == FlatProgram.BLOCK) {
+            encoder.block(flat.childCount(n));
+        } else if (kind == FlatProgram.CALL) {
+            encoder.statement(kind, 0);
+            encoder.name(flat.callName(n));
+        } else {
+            encoder.statement(kind, flat.condition(n));
+        }
+        if (kind != FlatProgram.CALL) {
+            for (int i = 0; i < flat.childCount(n); i++) {
+                encode(flat, flat.child(n, i), encoder);
+            }
+        }
+    }
+
+    /**
+     * Writes the program named {@code name} with the instructions and body
+     * encoded in {@code body} to {@code out}.
+     *
+     * @param name
+     *            the program name
+     * @param instructionCount
+     *            the number of instructions
+     * @param body
+     *            the encoder of the instructions and main body
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private static void write(String name, int instructionCount,
+            Encoder body, OutputStream out) throws IOException {
+        Encoder header = new Encoder();
+        header.varint(VERSION);
+        header.string(name);
+        header.varint(body.nodeCount);
+        header.varint(body.childCount);
+        header.varint(body.names.size());
+        for (String s : body.names) {
+            header.string(s);
+        }
+        header.varint(instructionCount);
+        out.write(MAGIC);
+        out.write(header.bytes, 0, header.length);
+        out.write(body.bytes, 0, body.length);
+        out.flush();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Writes {@code p} to {@code out}.
+     *
+     * @param p
+     *            the program
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if an I/O error occurs
+     * @restores p
+     * @ensures out = #out * [encoding of p]
+     */
+    public static void write(Program p, OutputStream out) throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert out != null : "Violation of: out is not null";
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+
+        Encoder encoder = new Encoder();
+        int instructionCount = context.size();
+        Map<String, Statement> temp = context.newInstance();
+        while (context.size() > 0) {
+            Map.Pair<String, Statement> instruction = context.removeAny();
+            encoder.name(instruction.key());
+            encode(instruction.value(), encoder);
+            temp.add(instruction.key(), instruction.value());
+        }
+        context.transferFrom(temp);
+        encode(body, encoder);
+
+        p.swapContext(context);
+        p.swapBody(body);
+        write(p.name(), instructionCount, encoder, out);
+    }
+
+    /**
+     * Writes {@code flat} to {@code out}.
+     *
+     * @param flat
+     *            the program
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if an I/O error occurs
+     * @ensures out = #out * [encoding of flat]
+     */
+    public static void write(FlatProgram flat, OutputStream out)
+            throws IOException {
+        assert flat != null : "Violation of: flat is not null";
+        assert out != null : "Violation of: out is not null";
+        Encoder encoder = new Encoder();
+        for (int i = 0; i < flat.instructionCount(); i++) {
+            encoder.name(flat.instructionName(i));
+            encode(flat, flat.instructionBody(i), encoder);
+        }
+        encode(flat, flat.body(), encoder);
+        write(flat.name(), flat.instructionCount(), encoder, out);
+    }
+
+    /**
+     * Reads a program written by {@code write} from {@code in}, to the end
+     * of the input.
+     *
+     * @param in
+     *            the input
+     * @return the program
+     * @throws IOException
+     *             if an I/O error occurs, or the input is not a program in a
+     *             known version of the format
+     */
+    public static FlatProgram readFlat(InputStream in) throws IOException {
+        assert in != null : "Violation of: in is not null";
+        byte[] bytes = in.readAllBytes();
+        if (bytes.length < MAGIC.length || !Arrays.equals(bytes, 0,
+                MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a program");
+        }
+        Decoder d = new Decoder(bytes);
+        d.position = MAGIC.length;
+        int version = d.varint();
+        if (version != VERSION) {
+            throw new IOException("Unknown program format version: "
+                    + version);
+        }
+        String name = d.string();
+        /*
+         * Every node and every child link takes at least one byte
+         */
+        int nodeCount = d.varint(bytes.length + 1);
+        int childCount = d.varint(nodeCount + 1);
+        d.kinds = new int[nodeCount];
+        d.conditions = new int[nodeCount];
+        d.firsts = new int[nodeCount];
+        d.counts = new int[nodeCount];
+        d.children = new int[childCount];
+        String[] names = new String[d.varint(bytes.length + 1)];
+        HashSet<String> distinct = new HashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = d.string();
+            if (!distinct.add(names[i])) {
+                throw new IOException("Damaged program");
+            }
+        }
+        d.nameCount = names.length;
+        int[] instructions = new int[d.varint(names.length + 1)];
+        int[] bodies = new int[instructions.length];
+        boolean[] defined = new boolean[names.length];
+        for (int i = 0; i < instructions.length; i++) {
+            instructions[i] = d.varint(names.length);
+            if (defined[instructions[i]]) {
+                throw new IOException("Damaged program");
+            }
+            defined[instructions[i]] = true;
+            bodies[i] = d.block();
+        }
+        int body = d.block();
+        if (d.position != bytes.length || d.nodeCount != nodeCount
+                || d.childCount != childCount) {
+            throw new IOException("Damaged program");
+        }
+        return new FlatProgram(name, d.kinds, d.conditions, d.firsts,
+                d.counts, d.children, names, instructions, bodies, body);
+    }
+
+    /**
+     * Reads a program written by {@code write} from {@code in} into
+     * {@code p}, to the end of the input.
+     *
+     * @param in
+     *            the input
+     * @param p
+     *            the program
+     * @throws IOException
+     *             if an I/O error occurs, or the input is not a program in a
+     *             known version of the format
+     * @replaces p
+     * @ensures p = [program encoded in in]
+     */
+    public static void read(InputStream in, Program p) throws IOException {
+        assert p != null : "Violation of: p is not null";
+        readFlat(in).toProgram(p);
+    }
+
+}
@@ -0,0 +1,231 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code ProgramCodec}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ProgramCodecTest {
+
+    /**
+     * Returns the program parsed from the file {@code fileName}.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the parsed program
+     */
+    private static Program parseFile(String fileName) {
+        Program p = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L(fileName);
+        p.parse(in);
+        in.close();
+        return p;
+    }
+
+    /**
+     * Returns the encoding of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @return the encoding of {@code p}
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private static byte[] encode(Program p) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramCodec.write(p, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that the program in {@code fileName} is read back as it was
+     * written, both from a {@code Program} and from a {@code FlatProgram}.
+     *
+     * @param fileName
+     *            the name of the file
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private static void checkFile(String fileName) throws IOException {
+        Program pRef = parseFile(fileName);
+        Program pCopy = parseFile(fileName);
+        byte[] bytes = encode(pRef);
+        assertEquals(pCopy, pRef);
+
+        Program pTest = new Program1();
+        ProgramCodec.read(new ByteArrayInputStream(bytes), pTest);
+        assertEquals(pRef, pTest);
+
+        SimpleReader in = new SimpleReader1L(fileName);
+        FlatProgram flat = Program1Parse1
+                .parseFlat(new ReaderTokenStream(in));
+        in.close();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProgramCodec.write(flat, out);
+        pTest = new Program1();
+        ProgramCodec.read(new ByteArrayInputStream(out.toByteArray()), pTest);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Checks that reading {@code bytes} fails with an {@code IOException}.
+     *
+     * @param bytes
+     *            the input
+     */
+    private static void checkDamaged(byte[] bytes) {
+        try {
+            ProgramCodec.readFlat(new ByteArrayInputStream(bytes));
+            fail("Read a damaged program");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Writes {@code x} to {@code out} as a varint.
+     *
+     * @param out
+     *            the output
+     * @param x
+     *            the value
+     */
+    private static void varint(ByteArrayOutputStream out, int x) {
+        final int payload = 0x7F;
+        final int more = 0x80;
+        final int shift = 7;
+        int rest = x;
+        while (rest > payload) {
+            out.write((rest & payload) | more);
+            rest >>>= shift;
+        }
+        out.write(rest);
+    }
+
+    /**
+     * Test of a round trip of program1a.bl.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testProgram1a() throws IOException {
+        checkFile("test/program1a.bl");
+    }
+
+    /**
+     * Test of a round trip of program1b.bl.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testProgram1b() throws IOException {
+        checkFile("test/program1b.bl");
+    }
+
+    /**
+     * Test that the encoding takes less than half the size of the source.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testCompact() throws IOException {
+        byte[] bytes = encode(parseFile("test/program1a.bl"));
+        long sourceLength = Files.size(Paths.get("test/program1a.bl"));
+        assertTrue(bytes.length < sourceLength / 2);
+    }
+
+    /**
+     * Test that an unknown version, a wrong magic number and every truncation
+     * of a valid encoding are rejected.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testDamaged() throws IOException {
+        byte[] bytes = encode(parseFile("test/program1a.bl"));
+        byte[] other = bytes.clone();
+        other[4] = (byte) (ProgramCodec.VERSION + 1);
+        checkDamaged(other);
+        other = bytes.clone();
+        other[0] = 'X';
+        checkDamaged(other);
+        for (int length = 0; length < bytes.length; length++) {
+            checkDamaged(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    /**
+     * Test that a name table with the same name twice is damaged.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testDuplicateName() throws IOException {
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens("PROGRAM P IS "
+                + "INSTRUCTION aa IS move END aa "
+                + "INSTRUCTION bb IS aa END bb BEGIN bb END P"));
+        byte[] bytes = encode(p);
+        int i = 0;
+        while (bytes[i] != 2 || bytes[i + 1] != 'b' || bytes[i + 2] != 'b') {
+            i++;
+        }
+        bytes[i + 1] = 'a';
+        bytes[i + 2] = 'a';
+        checkDamaged(bytes);
+    }
+
+    /**
+     * Test of reading a program nested deeper than the call stack could
+     * hold, if blocks were read recursively.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    @Test
+    public void testDeep() throws IOException {
+        final int depth = 100000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 'B', 'L', 'P', 'F' });
+        varint(out, ProgramCodec.VERSION);
+        varint(out, 1);
+        out.write('P');
+        varint(out, 2 * depth + 1);
+        varint(out, 2 * depth);
+        varint(out, 0);
+        varint(out, 0);
+        for (int i = 0; i < depth; i++) {
+            varint(out, 1);
+            varint(out, FlatProgram.IF);
+            varint(out, 0);
+        }
+        varint(out, 0);
+        FlatProgram flat = ProgramCodec
+                .readFlat(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2 * depth + 1, flat.nodeCount());
+        assertEquals(FlatProgram.IF, flat.kind(flat.child(flat.body(), 0)));
+    }
+
+}
@@ -0,0 +1,591 @@
+import components.map.Map;
+import components.map.Map1L;
+import components.program.Program;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.set.Set;
+import components.set.Set1L;
+import components.statement.Statement;
+
+/**
+ * Optimizing pass over a parsed BL {@code Program} or {@code Statement}, which
+ * makes it smaller and faster to interpret without changing what a bug does.
+ *
+ * <p>
+ * The pass works block by block, bottom up, and
+ * <ul>
+ * <li>replaces each call to a user-defined instruction that is not recursive
+ * and whose optimized body has at most {@code threshold} statements by a copy
+ * of that body;</li>
+ * <li>replaces {@code IF true THEN b END IF} and
+ * {@code IF true THEN b ELSE c END IF} by {@code b};</li>
+ * <li>removes IF statements whose blocks are all empty, and turns
+ * {@code IF c THEN ELSE b END IF} into {@code IF not-c THEN b END IF} when
+ * {@code c} has a negation;</li>
+ * <li>removes the instructions that are no longer called, directly or
+ * through other instructions, from the main body.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Conditions have no effect, so removing one is safe. Each primitive
+ * instruction, {@code skip} included, takes one turn of the bug that runs it,
+ * so no {@code skip} can be removed without changing the timing of a
+ * program, and none is. BL has no {@code false} condition, so
+ * {@code WHILE false} cannot occur, and {@code WHILE true} (the usual main
+ * loop) is already minimal.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ProgramOptimizer {
+
+    /**
+     * Default largest number of statements of an instruction that is inlined.
+     */
+    public static final int DEFAULT_THRESHOLD = 8;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * State of the inlining of the instructions of one program.
+     */
+    private static final class Inliner {
+
+        /**
+         * The bodies of the instructions not optimized yet.
+         */
+        private final Map<String, Statement> context;
+
+        /**
+         * The optimized bodies of the instructions.
+         */
+        private final Map<String, Statement> optimized;
+
+        /**
+         * Number of statements of each optimized body.
+         */
+        private final Map<String, Integer> sizes;
+
+        /**
+         * The instructions being optimized.
+         */
+        private final Set<String> active;
+
+        /**
+         * The instructions found to be recursive.
+         */
+        private final Set<String> recursive;
+
+        /**
+         * Largest number of statements of an instruction that is inlined.
+         */
+        private final int threshold;
+
+        /**
+         * Constructor.
+         *
+         * @param context
+         *            the instructions of the program
+         * @param threshold
+         *            the largest number of statements inlined
+         */
+        private Inliner(Map<String, Statement> context, int threshold) {
+            this.context = context;
+            this.optimized = new Map1L<String, Statement>();
+            this.sizes = new Map1L<String, Integer>();
+            this.active = new Set1L<String>();
+            this.recursive = new Set1L<String>();
+            this.threshold = threshold;
+        }
+
+        /**
+         * Returns the optimized body of the instruction {@code name},
+         * optimizing it if it has not been optimized yet, or {@code null} if
+         * {@code name} is not defined or is being optimized (and so is
+         * recursive).
+         *
+         * @param name
+         *            the instruction name
+         * @return the optimized body of {@code name}, or {@code null}
+         * @updates this
+         */
+        private Statement body(String name) {
+            if (this.optimized.hasKey(name)) {
+                return this.optimized.value(name);
+            }
+            if (!this.context.hasKey(name)) {
+                return null;
+            }
+            if (this.active.contains(name)) {
+                if (!this.recursive.contains(name)) {
+                    this.recursive.add(name);
+                }
+                return null;
+            }
+            this.active.add(name);
+            Statement body = this.context.value(name);
+            optimizeBlock(body, this);
+            this.active.remove(name);
+            this.context.remove(name);
+            this.optimized.add(name, body);
+            this.sizes.add(name, size(body) - 1);
+            return body;
+        }
+
+        /**
+         * Returns the optimized body of the instruction {@code name} if a
+         * call to it is to be inlined, or {@code null}.
+         *
+         * @param name
+         *            the instruction name
+         * @return the body to inline, or {@code null}
+         * @updates this
+         */
+        private Statement inline(String name) {
+            Statement body = this.body(name);
+            if (body == null || this.recursive.contains(name)
+                    || this.sizes.value(name) > this.threshold) {
+                return null;
+            }
+            return body;
+        }
+
+    }
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private ProgramOptimizer() {
+    }
+
+    /**
+     * Reports the number of statements in {@code s}, itself included.
+     *
+     * @param s
+     *            the statement
+     * @return the number of statements in {@code s}
+     * @restores s
+     */
+    private static int size(Statement s) {
+        int size = 1;
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    size += size(child);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                size += size(block);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                size += size(thenBlock) + size(elseBlock);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                size += size(block);
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                // CALL: no children
+                break;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies {@code from} into {@code to}.
+     *
+     * @param from
+     *            the statement copied
+     * @param to
+     *            the copy
+     * @replaces to
+     * @restores from
+     * @ensures to = from
+     */
+    private static void copy(Statement from, Statement to) {
+        switch (from.kind()) {
+            case BLOCK: {
+                to.clear();
+                for (int i = 0; i < from.lengthOfBlock(); i++) {
+                    Statement child = from.removeFromBlock(i);
+                    Statement childCopy = to.newInstance();
+                    copy(child, childCopy);
+                    from.addToBlock(i, child);
+                    to.addToBlock(i, childCopy);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = from.newInstance();
+                Statement.Condition c = from.disassembleIf(block);
+                Statement blockCopy = to.newInstance();
+                copy(block, blockCopy);
+                from.assembleIf(c, block);
+                to.assembleIf(c, blockCopy);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = from.newInstance();
+                Statement elseBlock = from.newInstance();
+                Statement.Condition c = from.disassembleIfElse(thenBlock,
+                        elseBlock);
+                Statement thenCopy = to.newInstance();
+                Statement elseCopy = to.newInstance();
+                copy(thenBlock, thenCopy);
+                copy(elseBlock, elseCopy);
+                from.assembleIfElse(c, thenBlock, elseBlock);
+                to.assembleIfElse(c, thenCopy, elseCopy);
+                break;
+            }
+            case WHILE: {
+                Statement block = from.newInstance();
+                Statement.Condition c = from.disassembleWhile(block);
+                Statement blockCopy = to.newInstance();
+                copy(block, blockCopy);
+                from.assembleWhile(c, block);
+                to.assembleWhile(c, blockCopy);
+                break;
+            }
+            case CALL: {
+                String name = from.disassembleCall();
+                from.assembleCall(name);
+                to.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the negation of {@code c}, or {@code null} if {@code c} has
+     * none.
+     *
+     * @param c
+     *            the condition
+     * @return the negation of {@code c}, or {@code null}
+     */
+    private static Statement.Condition negation(Statement.Condition c) {
+        int kind = TokenKind.kindOf(c);
+        if (kind >= TokenKind.RANDOM) {
+            return null;
+        }
+        /*
+         * Each NEXT_IS_X kind is followed by its NEXT_IS_NOT_X
+         */
+        return TokenKind.condition(TokenKind.NEXT_IS_EMPTY
+                + ((kind - TokenKind.NEXT_IS_EMPTY) ^ 1));
+    }
+
+    /**
+     * Moves the statements of the block {@code block} to the end of the
+     * block {@code result}.
+     *
+     * @param block
+     *            the block moved
+     * @param result
+     *            the block moved to
+     * @updates result
+     * @clears block
+     */
+    private static void moveAll(Statement block, Statement result) {
+        while (block.lengthOfBlock() > 0) {
+            result.addToBlock(result.lengthOfBlock(),
+                    block.removeFromBlock(0));
+        }
+    }
+
+    /**
+     * Optimizes {@code s}, a statement other than a BLOCK, and appends the
+     * statements it is replaced by to the block {@code result}.
+     *
+     * @param s
+     *            the statement
+     * @param result
+     *            the block appended to
+     * @param inliner
+     *            the inlining state, or {@code null} not to inline
+     * @updates result, inliner
+     * @clears s
+     */
+    private static void append(Statement s, Statement result,
+            Inliner inliner) {
+        switch (s.kind()) {
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                optimizeBlock(block, inliner);
+                if (c == Statement.Condition.TRUE) {
+                    moveAll(block, result);
+                } else if (block.lengthOfBlock() > 0) {
+                    s.assembleIf(c, block);
+                    result.addToBlock(result.lengthOfBlock(), s);
+                }
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                optimizeBlock(thenBlock, inliner);
+                optimizeBlock(elseBlock, inliner);
+                Statement.Condition notC = negation(c);
+                if (c == Statement.Condition.TRUE) {
+                    moveAll(thenBlock, result);
+                } else if (elseBlock.lengthOfBlock() == 0) {
+                    appendIf(thenBlock, c, s, result);
+                } else if (thenBlock.lengthOfBlock() == 0 && notC != null) {
+                    appendIf(elseBlock, notC, s, result);
+                } else {
+                    s.assembleIfElse(c, thenBlock, elseBlock);
+                    result.addToBlock(result.lengthOfBlock(), s);
+                }
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                optimizeBlock(block, inliner);
+                s.assembleWhile(c, block);
+                result.addToBlock(result.lengthOfBlock(), s);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                Statement body = null;
+                if (inliner != null) {
+                    body = inliner.inline(name);
+                }
+                if (body != null) {
+                    Statement inlined = s.newInstance();
+                    copy(body, inlined);
+                    moveAll(inlined, result);
+                } else {
+                    s.assembleCall(name);
+                    result.addToBlock(result.lengthOfBlock(), s);
+                }
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /**
+     * Appends {@code IF c THEN block END IF} to {@code result}, unless
+     * {@code block} is empty.
+     *
+     * @param block
+     *            the block
+     * @param c
+     *            the condition
+     * @param s
+     *            a statement to assemble the IF in
+     * @param result
+     *            the block appended to
+     * @updates result
+     * @clears block, s
+     */
+    private static void appendIf(Statement block, Statement.Condition c,
+            Statement s, Statement result) {
+        if (block.lengthOfBlock() > 0) {
+            s.assembleIf(c, block);
+            result.addToBlock(result.lengthOfBlock(), s);
+        } else {
+            s.clear();
+        }
+    }
+
+    /**
+     * Optimizes the block {@code block}.
+     *
+     * @param block
+     *            the block
+     * @param inliner
+     *            the inlining state, or {@code null} not to inline
+     * @updates block, inliner
+     */
+    private static void optimizeBlock(Statement block, Inliner inliner) {
+        Statement result = block.newInstance();
+        while (block.lengthOfBlock() > 0) {
+            append(block.removeFromBlock(0), result, inliner);
+        }
+        block.transferFrom(result);
+    }
+
+    /**
+     * Adds to {@code pending} the user-defined instructions called in
+     * {@code s} that are not in {@code reached}, and adds them to
+     * {@code reached}.
+     *
+     * @param s
+     *            the statement
+     * @param defined
+     *            the names of the instructions of the program
+     * @param reached
+     *            the instructions found so far
+     * @param pending
+     *            the instructions found whose bodies have not been searched
+     * @updates reached, pending
+     * @restores s
+     */
+    private static void reach(Statement s, Set<String> defined,
+            Set<String> reached, Queue<String> pending) {
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    reach(child, defined, reached, pending);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                reach(block, defined, reached, pending);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                reach(thenBlock, defined, reached, pending);
+                reach(elseBlock, defined, reached, pending);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                reach(block, defined, reached, pending);
+                s.assembleWhile(c, block);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                if (defined.contains(name) && !reached.contains(name)) {
+                    reached.add(name);
+                    pending.enqueue(name);
+                }
+                s.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Optimizes the block {@code block}, without inlining (a block has no
+     * instructions to inline).
+     *
+     * @param block
+     *            the block
+     * @updates block
+     * @requires [block is a BLOCK statement]
+     * @ensures block = [#block, with IF true folded and empty IFs removed]
+     */
+    public static void optimize(Statement block) {
+        assert block != null : "Violation of: block is not null";
+        assert block.kind() == Statement.Kind.BLOCK : ""
+                + "Violation of: block is a BLOCK statement";
+        optimizeBlock(block, null);
+    }
+
+    /**
+     * Optimizes {@code p}, inlining instructions of at most
+     * {@code DEFAULT_THRESHOLD} statements.
+     *
+     * @param p
+     *            the program
+     * @updates p
+     * @ensures p = [#p, optimized; a bug running p behaves as one running #p]
+     */
+    public static void optimize(Program p) {
+        optimize(p, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Optimizes {@code p}, inlining instructions of at most
+     * {@code threshold} statements.
+     *
+     * @param p
+     *            the program
+     * @param threshold
+     *            the largest number of statements of an instruction that is
+     *            inlined; 0 for none
+     * @updates p
+     * @requires threshold >= 0
+     * @ensures p = [#p, optimized; a bug running p behaves as one running #p]
+     */
+    public static void optimize(Program p, int threshold) {
+        assert p != null : "Violation of: p is not null";
+        assert threshold >= 0 : "Violation of: threshold >= 0";
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+
+        Set<String> defined = new Set1L<String>();
+        for (Map.Pair<String, Statement> instruction : context) {
+            defined.add(instruction.key());
+        }
+        Inliner inliner = new Inliner(context, threshold);
+        optimizeBlock(body, inliner);
+
+        /*
+         * Keep the instructions still called, optimizing those not reached by
+         * inlining yet; nothing is being optimized any more, so body never
+         * returns null here
+         */
+        Set<String> reached = new Set1L<String>();
+        Queue<String> pending = new Queue1L<String>();
+        reach(body, defined, reached, pending);
+        Map<String, Statement> result = p.newContext();
+        while (pending.length() > 0) {
+            String name = pending.dequeue();
+            Statement instructionBody = inliner.body(name);
+            reach(instructionBody, defined, reached, pending);
+            result.add(name, instructionBody);
+        }
+
+        p.swapContext(result);
+        p.swapBody(body);
+    }
+
+}
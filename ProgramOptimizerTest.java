@@ -0,0 +1,111 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code ProgramOptimizer}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ProgramOptimizerTest {
+
+    /**
+     * Returns the program parsed from {@code text}.
+     *
+     * @param text
+     *            the source text
+     * @return the parsed program
+     */
+    private static Program program(String text) {
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(text));
+        return p;
+    }
+
+    /**
+     * Test that program1a.bl compiles to the same code once optimized, with
+     * {@code one} inlined and the unused {@code three} removed.
+     */
+    @Test
+    public void testProgram1a() {
+        Program p = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L("test/program1a.bl");
+        p.parse(in);
+        in.close();
+        int[] code = BLCompiler.compile(p);
+        ProgramOptimizer.optimize(p);
+        assertArrayEquals(code, BLCompiler.compile(p));
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        assertEquals(1, context.size());
+        assertTrue(context.hasKey("two"));
+    }
+
+    /**
+     * Test of folding and removing IF statements in a block.
+     */
+    @Test
+    public void testBlock() {
+        Statement s = new Statement1Parse1();
+        s.parseBlock(TestTokens.tokens("IF next-is-not-enemy THEN END IF "
+                + "IF true THEN move IF random THEN ELSE END IF END IF "
+                + "IF next-is-wall THEN ELSE turnleft END IF "
+                + "IF random THEN ELSE infect END IF "
+                + "IF true THEN skip ELSE move END IF skip"));
+        Statement expected = new Statement1Parse1();
+        expected.parseBlock(TestTokens.tokens("move "
+                + "IF next-is-not-wall THEN turnleft END IF "
+                + "IF random THEN ELSE infect END IF skip skip"));
+        ProgramOptimizer.optimize(s);
+        assertEquals(expected, s);
+    }
+
+    /**
+     * Test of inlining: small instructions are inlined, large and recursive
+     * ones are kept.
+     */
+    @Test
+    public void testInline() {
+        Program p = program("PROGRAM P IS "
+                + "INSTRUCTION small IS move turnleft END small "
+                + "INSTRUCTION large IS small small small small small "
+                + "END large "
+                + "INSTRUCTION loop IS IF random THEN loop END IF small "
+                + "END loop "
+                + "BEGIN small large loop END P");
+        ProgramOptimizer.optimize(p);
+        Program expected = program("PROGRAM P IS "
+                + "INSTRUCTION large IS move turnleft move turnleft "
+                + "move turnleft move turnleft move turnleft END large "
+                + "INSTRUCTION loop IS IF random THEN loop END IF "
+                + "move turnleft END loop "
+                + "BEGIN move turnleft large loop END P");
+        assertEquals(expected, p);
+    }
+
+    /**
+     * Test of mutual recursion, which is kept as calls.
+     */
+    @Test
+    public void testMutualRecursion() {
+        Program p = program("PROGRAM P IS "
+                + "INSTRUCTION a IS IF random THEN b END IF move END a "
+                + "INSTRUCTION b IS a turnleft END b "
+                + "BEGIN a END P");
+        ProgramOptimizer.optimize(p);
+        Program expected = program("PROGRAM P IS "
+                + "INSTRUCTION a IS IF random THEN a turnleft END IF move "
+                + "END a BEGIN a END P");
+        assertEquals(expected, p);
+    }
+
+}
@@ -0,0 +1,74 @@
+import components.queue.Queue;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenStream} view of a {@code Queue<String>} of tokens, such as the
+ * one returned by {@code Tokenizer.tokens}. Dequeuing from the stream dequeues
+ * from the underlying queue, except that {@code Tokenizer.END_OF_INPUT} is
+ * left in place, as every {@code TokenStream} leaves it. The tokens of a
+ * queue have no location in any source text.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class QueueTokenStream implements TokenStream {
+
+    /**
+     * The underlying tokens.
+     */
+    private final Queue<String> tokens;
+
+    /**
+     * The number of tokens removed through {@code this}.
+     */
+    private int removed;
+
+    /**
+     * Constructor from {@code Queue<String>}.
+     *
+     * @param tokens
+     *            the tokens to stream
+     * @aliases reference tokens
+     */
+    public QueueTokenStream(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        this.tokens = tokens;
+        this.removed = 0;
+    }
+
+    @Override
+    public String front() {
+        return this.tokens.front();
+    }
+
+    @Override
+    public int frontKind() {
+        return TokenKind.of(this.tokens.front());
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.tokens.front();
+        if (!token.equals(Tokenizer.END_OF_INPUT)) {
+            this.tokens.dequeue();
+            this.removed++;
+        }
+        return token;
+    }
+
+    @Override
+    public void advance() {
+        this.dequeue();
+    }
+
+    @Override
+    public int position() {
+        return this.removed;
+    }
+
+    @Override
+    public long location() {
+        return SourceLocation.UNKNOWN;
+    }
+
+}
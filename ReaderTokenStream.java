@@ -0,0 +1,182 @@
+import components.simplereader.SimpleReader;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenStream} that tokenizes a {@code SimpleReader} lazily, one line at
+ * a time, so that only the current input line is ever held in memory.
+ *
+ * <p>
+ * Tokens are the maximal runs of non-whitespace characters of the input, as
+ * produced by {@code Tokenizer.tokens}; the stream ends with
+ * {@code Tokenizer.END_OF_INPUT}. Token locations count characters, with
+ * each line separator counted as one character, since {@code SimpleReader}
+ * does not report which separator ended a line.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ReaderTokenStream implements TokenStream {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The input being tokenized.
+     */
+    private final SimpleReader in;
+
+    /**
+     * The input line currently being scanned.
+     */
+    private String line;
+
+    /**
+     * The position in {@code line} of the first character not yet scanned.
+     */
+    private int pos;
+
+    /**
+     * The lookahead token, or {@code null} if it has not been scanned yet.
+     */
+    private String front;
+
+    /**
+     * The {@code TokenKind} of {@code front}, valid only when {@code front}
+     * is not {@code null}.
+     */
+    private int frontKind;
+
+    /**
+     * The location of {@code front}, valid only when {@code front} is not
+     * {@code null}.
+     */
+    private long frontLocation;
+
+    /**
+     * The number of the input line currently being scanned, from 1, or 0
+     * before the first line is read.
+     */
+    private int lineNumber;
+
+    /**
+     * The offset in the input of the line currently being scanned, and of
+     * the next line.
+     */
+    private int lineOffset, nextOffset;
+
+    /**
+     * The number of tokens removed from {@code this}.
+     */
+    private int removed;
+
+    /**
+     * Scans the next token from the input, and sets {@code frontLocation} to
+     * its location.
+     *
+     * @return the next token, or {@code Tokenizer.END_OF_INPUT} if the input
+     *         is exhausted
+     * @updates this.in, this.line, this.pos, this.frontLocation,
+     *          this.lineNumber, this.lineOffset, this.nextOffset
+     */
+    private String scan() {
+        while (true) {
+            while (this.pos < this.line.length()
+                    && Character.isWhitespace(this.line.charAt(this.pos))) {
+                this.pos++;
+            }
+            if (this.pos < this.line.length()) {
+                int start = this.pos;
+                while (this.pos < this.line.length() && !Character
+                        .isWhitespace(this.line.charAt(this.pos))) {
+                    this.pos++;
+                }
+                this.frontLocation = SourceLocation.pack(this.lineNumber,
+                        start + 1, this.lineOffset + start);
+                return this.line.substring(start, this.pos);
+            }
+            if (this.in.atEOS()) {
+                this.frontLocation = SourceLocation.pack(
+                        Math.max(this.lineNumber, 1), this.pos + 1,
+                        this.lineOffset + this.pos);
+                return Tokenizer.END_OF_INPUT;
+            }
+            this.line = this.in.nextLine();
+            this.pos = 0;
+            this.lineNumber++;
+            this.lineOffset = this.nextOffset;
+            this.nextOffset = this.lineOffset + this.line.length() + 1;
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor from {@code SimpleReader}.
+     *
+     * @param in
+     *            the input to tokenize
+     * @requires in.is_open
+     */
+    public ReaderTokenStream(SimpleReader in) {
+        assert in != null : "Violation of: in is not null";
+        assert in.isOpen() : "Violation of: in.is_open";
+        this.in = in;
+        this.line = "";
+        this.pos = 0;
+        this.front = null;
+        this.lineNumber = 0;
+        this.lineOffset = 0;
+        this.nextOffset = 0;
+        this.removed = 0;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    @Override
+    public String front() {
+        if (this.front == null) {
+            this.front = this.scan();
+            this.frontKind = TokenKind.of(this.front);
+        }
+        return this.front;
+    }
+
+    @Override
+    public int frontKind() {
+        this.front();
+        return this.frontKind;
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.front();
+        if (this.frontKind != TokenKind.END_OF_INPUT) {
+            this.front = null;
+            this.removed++;
+        }
+        return token;
+    }
+
+    @Override
+    public void advance() {
+        this.dequeue();
+    }
+
+    @Override
+    public int position() {
+        return this.removed;
+    }
+
+    @Override
+    public long location() {
+        this.front();
+        return this.frontLocation;
+    }
+
+}
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code ReaderTokenStream}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class ReaderTokenStreamTest {
+
+    /**
+     * Returns a reader of a temporary file holding {@code text}.
+     *
+     * @param text
+     *            the contents of the file
+     * @return the reader
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    private static SimpleReader reader(String text) throws IOException {
+        File file = File.createTempFile("tokens", ".bl");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        return new SimpleReader1L(file.getPath());
+    }
+
+    /**
+     * Checks that the tokens of the file {@code fileName} are those of
+     * {@code Tokenizer.tokens}, with their kinds and positions, and that the
+     * stream stays at {@code Tokenizer.END_OF_INPUT} once it gets there.
+     *
+     * @param fileName
+     *            the name of the file
+     */
+    private static void checkFile(String fileName) {
+        SimpleReader in = new SimpleReader1L(fileName);
+        Queue<String> expected = Tokenizer.tokens(in);
+        in.close();
+
+        in = new SimpleReader1L(fileName);
+        ReaderTokenStream tokens = new ReaderTokenStream(in);
+        int position = 0;
+        while (expected.length() > 1) {
+            String token = expected.dequeue();
+            assertEquals(token, tokens.front());
+            assertEquals(TokenKind.of(token), tokens.frontKind());
+            assertEquals(position, tokens.position());
+            assertEquals(token, tokens.dequeue());
+            position++;
+        }
+        assertEquals(Tokenizer.END_OF_INPUT, expected.dequeue());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(Tokenizer.END_OF_INPUT, tokens.front());
+            assertEquals(TokenKind.END_OF_INPUT, tokens.frontKind());
+            assertEquals(Tokenizer.END_OF_INPUT, tokens.dequeue());
+            assertEquals(position, tokens.position());
+        }
+        in.close();
+    }
+
+    /**
+     * Test of program1a.bl.
+     */
+    @Test
+    public void testProgram1a() {
+        checkFile("test/program1a.bl");
+    }
+
+    /**
+     * Test of program1b.bl.
+     */
+    @Test
+    public void testProgram1b() {
+        checkFile("test/program1b.bl");
+    }
+
+    /**
+     * Test of program2a.bl.
+     */
+    @Test
+    public void testProgram2a() {
+        checkFile("test/program2a.bl");
+    }
+
+    /**
+     * Test of program2b.bl.
+     */
+    @Test
+    public void testProgram2b() {
+        checkFile("test/program2b.bl");
+    }
+
+    /**
+     * Test of statement1a.bl.
+     */
+    @Test
+    public void testStatement1a() {
+        checkFile("test/statement1a.bl");
+    }
+
+    /**
+     * Test of statement1b.bl.
+     */
+    @Test
+    public void testStatement1b() {
+        checkFile("test/statement1b.bl");
+    }
+
+    /**
+     * Test of statement2a.bl.
+     */
+    @Test
+    public void testStatement2a() {
+        checkFile("test/statement2a.bl");
+    }
+
+    /**
+     * Test of statement2b.bl.
+     */
+    @Test
+    public void testStatement2b() {
+        checkFile("test/statement2b.bl");
+    }
+
+    /**
+     * Test of the locations of tokens after leading whitespace and a blank
+     * line, and of {@code Tokenizer.END_OF_INPUT} after the last line.
+     *
+     * @throws IOException
+     *             if the input cannot be written
+     */
+    @Test
+    public void testLocations() throws IOException {
+        SimpleReader in = reader("  move\n\nIF\tx\n");
+        ReaderTokenStream tokens = new ReaderTokenStream(in);
+        assertEquals(SourceLocation.pack(1, 3, 2), tokens.location());
+        tokens.advance();
+        assertEquals(SourceLocation.pack(3, 1, 8), tokens.location());
+        assertEquals(TokenKind.IF, tokens.frontKind());
+        tokens.advance();
+        assertEquals(SourceLocation.pack(3, 4, 11), tokens.location());
+        assertEquals(TokenKind.IDENTIFIER, tokens.frontKind());
+        tokens.advance();
+        assertEquals(TokenKind.END_OF_INPUT, tokens.frontKind());
+        assertEquals(SourceLocation.pack(3, 5, 12), tokens.location());
+        in.close();
+    }
+
+    /**
+     * Test of an empty input: it is {@code Tokenizer.END_OF_INPUT} alone, at
+     * the first column of the first line.
+     *
+     * @throws IOException
+     *             if the input cannot be written
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        SimpleReader in = reader("");
+        ReaderTokenStream tokens = new ReaderTokenStream(in);
+        assertEquals(Tokenizer.END_OF_INPUT, tokens.dequeue());
+        assertEquals(TokenKind.END_OF_INPUT, tokens.frontKind());
+        assertEquals(0, tokens.position());
+        assertEquals(SourceLocation.pack(1, 1, 0), tokens.location());
+        in.close();
+    }
+
+}
@@ -0,0 +1,593 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import components.map.Map;
+import components.program.Program;
+import components.set.Set;
+import components.set.Set1L;
+import components.simplewriter.SimpleWriter;
+import components.statement.Statement;
+
+/**
+ * Semantic checks of a parsed BL program, on its call graph: calls to
+ * undefined instructions, recursive instructions, and instructions that are
+ * never used.
+ *
+ * <p>
+ * The parsers accept any identifier as a call, so a program that calls an
+ * undefined instruction, or whose instructions call each other in a cycle,
+ * parses but cannot be run: {@code BLCompiler} inlines calls, and rejects
+ * both. This pass finds every such problem at once, together with the
+ * instructions that are not reachable from the main body (directly or through
+ * other instructions), which are harmless but usually a mistake.
+ * </p>
+ *
+ * <p>
+ * The call graph has a vertex per instruction and an edge per call between
+ * instructions, in compressed adjacency arrays. Recursion is found with
+ * Tarjan's strongly connected components algorithm, run with an explicit
+ * stack so that long call chains cannot overflow the Java stack: every
+ * component of more than one instruction, and every instruction that calls
+ * itself, is a cycle. Unused instructions are those not reached by a search
+ * from the calls in the main body. Each step is linear in the number of
+ * statements and instructions of the program.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SemanticAnalyzer {
+
+    /**
+     * Kind of a finding: a call to an instruction that is neither primitive
+     * nor defined.
+     */
+    public static final int UNDEFINED = 0;
+
+    /**
+     * Kind of a finding: a cycle of instructions that call each other.
+     */
+    public static final int RECURSIVE = 1;
+
+    /**
+     * Kind of a finding: an instruction not reachable from the main body.
+     */
+    public static final int UNUSED = 2;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * A finding.
+     */
+    private static final class Finding {
+
+        /**
+         * The kind of finding.
+         */
+        private final int kind;
+
+        /**
+         * The message.
+         */
+        private final String message;
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            the kind of finding
+         * @param message
+         *            the message
+         */
+        private Finding(int kind, String message) {
+            this.kind = kind;
+            this.message = message;
+        }
+
+    }
+
+    /**
+     * The call graph of a program, built one call at a time.
+     */
+    private static final class CallGraph {
+
+        /**
+         * The instruction names, indexed by instruction number.
+         */
+        private final String[] names;
+
+        /**
+         * Caller and callee of each edge.
+         */
+        private int[] from, to;
+
+        /**
+         * Number of edges.
+         */
+        private int edgeCount;
+
+        /**
+         * Instructions called from the main body.
+         */
+        private int[] roots;
+
+        /**
+         * Number of entries of {@code roots}.
+         */
+        private int rootCount;
+
+        /**
+         * Whether each instruction calls itself.
+         */
+        private final boolean[] selfCalls;
+
+        /**
+         * Undefined names already reported.
+         */
+        private final Set<String> undefined;
+
+        /**
+         * Constructor.
+         *
+         * @param names
+         *            the instruction names
+         */
+        private CallGraph(String[] names) {
+            final int initialCapacity = 16;
+            this.names = names;
+            this.from = new int[initialCapacity];
+            this.to = new int[initialCapacity];
+            this.edgeCount = 0;
+            this.roots = new int[initialCapacity];
+            this.rootCount = 0;
+            this.selfCalls = new boolean[names.length];
+            this.undefined = new Set1L<String>();
+        }
+
+        /**
+         * Records a call from {@code caller} (-1 for the main body) to the
+         * instruction {@code callee}.
+         *
+         * @param caller
+         *            the calling instruction, or -1
+         * @param callee
+         *            the called instruction
+         */
+        private void call(int caller, int callee) {
+            if (caller < 0) {
+                if (this.rootCount == this.roots.length) {
+                    this.roots = Arrays.copyOf(this.roots, 2 * this.rootCount);
+                }
+                this.roots[this.rootCount] = callee;
+                this.rootCount++;
+            } else {
+                if (this.edgeCount == this.from.length) {
+                    this.from = Arrays.copyOf(this.from, 2 * this.edgeCount);
+                    this.to = Arrays.copyOf(this.to, 2 * this.edgeCount);
+                }
+                this.from[this.edgeCount] = caller;
+                this.to[this.edgeCount] = callee;
+                this.edgeCount++;
+                if (caller == callee) {
+                    this.selfCalls[caller] = true;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The findings, in order: undefined calls, cycles, unused instructions.
+     */
+    private final List<Finding> findings;
+
+    /**
+     * Records, in {@code graph}, the calls made by {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @param caller
+     *            the instruction {@code s} is in, or -1 for the main body
+     * @param index
+     *            the number of each instruction name
+     * @param graph
+     *            the call graph
+     * @updates graph, this
+     * @restores s
+     */
+    private void calls(Statement s, int caller, SymbolTable index,
+            CallGraph graph) {
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    this.calls(child, caller, index, graph);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleIf(block);
+                this.calls(block, caller, index, graph);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(thenBlock,
+                        elseBlock);
+                this.calls(thenBlock, caller, index, graph);
+                this.calls(elseBlock, caller, index, graph);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(block);
+                this.calls(block, caller, index, graph);
+                s.assembleWhile(c, block);
+                break;
+            }
+            case CALL: {
+                String name = s.disassembleCall();
+                this.call(caller, index.id(name), name, graph);
+                s.assembleCall(name);
+                break;
+            }
+            default: {
+                // this should never happen
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records, in {@code graph}, the calls made by node {@code n} of
+     * {@code flat}.
+     *
+     * @param flat
+     *            the program
+     * @param n
+     *            the node number
+     * @param caller
+     *            the instruction node {@code n} is in, or -1 for the main
+     *            body
+     * @param graph
+     *            the call graph
+     * @updates graph, this
+     */
+    private void calls(FlatProgram flat, int n, int caller,
+            CallGraph graph) {
+        if (flat.kind(n) == FlatProgram.CALL) {
+            this.call(caller, flat.instructionOf(flat.callIndex(n)),
+                    flat.callName(n), graph);
+        } else {
+            for (int i = 0; i < flat.childCount(n); i++) {
+                this.calls(flat, flat.child(n, i), caller, graph);
+            }
+        }
+    }
+
+    /**
+     * Records a call from {@code caller} to {@code name}, whose instruction
+     * number is {@code callee}, or reports it if {@code name} is undefined.
+     *
+     * @param caller
+     *            the calling instruction, or -1 for the main body
+     * @param callee
+     *            the instruction number of {@code name}, or -1
+     * @param name
+     *            the name called
+     * @param graph
+     *            the call graph
+     * @updates graph, this
+     */
+    private void call(int caller, int callee, String name, CallGraph graph) {
+        if (callee >= 0) {
+            graph.call(caller, callee);
+        } else if (!Program1Parse1.isPrimitive(name)
+                && !graph.undefined.contains(name)) {
+            graph.undefined.add(name);
+            String where = "the main body";
+            if (caller >= 0) {
+                where = graph.names[caller];
+            }
+            this.findings.add(new Finding(UNDEFINED,
+                    "Error: Undefined instruction: " + name + " (called in "
+                            + where + ")"));
+        }
+    }
+
+    /**
+     * Reports the cycles and unused instructions of {@code graph}.
+     *
+     * @param graph
+     *            the call graph
+     * @updates this
+     */
+    private void check(CallGraph graph) {
+        int n = graph.names.length;
+
+        /*
+         * Compressed adjacency: the callees of v are
+         * adjacent[start[v]..start[v + 1])
+         */
+        int[] start = new int[n + 1];
+        for (int e = 0; e < graph.edgeCount; e++) {
+            start[graph.from[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] adjacent = new int[graph.edgeCount];
+        int[] next = Arrays.copyOf(start, n);
+        for (int e = 0; e < graph.edgeCount; e++) {
+            adjacent[next[graph.from[e]]] = graph.to[e];
+            next[graph.from[e]]++;
+        }
+
+        /*
+         * Tarjan's algorithm; next[v] is the next edge of v to explore
+         */
+        System.arraycopy(start, 0, next, 0, n);
+        int[] order = new int[n];
+        Arrays.fill(order, -1);
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] components = new int[n];
+        int componentsLength = 0;
+        int[] frames = new int[n];
+        int counter = 0;
+        for (int root = 0; root < n; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            frames[depth] = root;
+            depth++;
+            order[root] = counter;
+            low[root] = counter;
+            counter++;
+            components[componentsLength] = root;
+            componentsLength++;
+            onStack[root] = true;
+            while (depth > 0) {
+                int v = frames[depth - 1];
+                if (next[v] < start[v + 1]) {
+                    int w = adjacent[next[v]];
+                    next[v]++;
+                    if (order[w] < 0) {
+                        order[w] = counter;
+                        low[w] = counter;
+                        counter++;
+                        components[componentsLength] = w;
+                        componentsLength++;
+                        onStack[w] = true;
+                        frames[depth] = w;
+                        depth++;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], order[w]);
+                    }
+                } else {
+                    depth--;
+                    if (depth > 0) {
+                        int u = frames[depth - 1];
+                        low[u] = Math.min(low[u], low[v]);
+                    }
+                    if (low[v] == order[v]) {
+                        int first = componentsLength - 1;
+                        while (components[first] != v) {
+                            first--;
+                        }
+                        if (first < componentsLength - 1
+                                || graph.selfCalls[v]) {
+                            StringBuilder cycle = new StringBuilder();
+                            for (int i = first; i < componentsLength; i++) {
+                                if (i > first) {
+                                    cycle.append(", ");
+                                }
+                                cycle.append(graph.names[components[i]]);
+                            }
+                            this.findings.add(new Finding(RECURSIVE,
+                                    "Error: Recursive instructions: "
+                                            + cycle));
+                        }
+                        for (int i = first; i < componentsLength; i++) {
+                            onStack[components[i]] = false;
+                        }
+                        componentsLength = first;
+                    }
+                }
+            }
+        }
+
+        /*
+         * Search from the calls in the main body
+         */
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int i = 0; i < graph.rootCount; i++) {
+            int v = graph.roots[i];
+            if (!reached[v]) {
+                reached[v] = true;
+                queue[tail] = v;
+                tail++;
+            }
+        }
+        int head = 0;
+        while (head < tail) {
+            int v = queue[head];
+            head++;
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                int w = adjacent[e];
+                if (!reached[w]) {
+                    reached[w] = true;
+                    queue[tail] = w;
+                    tail++;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (!reached[v]) {
+                this.findings.add(new Finding(UNUSED,
+                        "Warning: Unused instruction: " + graph.names[v]));
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: no findings.
+     */
+    public SemanticAnalyzer() {
+        this.findings = new ArrayList<>();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Analyzes {@code p}, replacing the findings of {@code this} with those
+     * of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @replaces this
+     * @restores p
+     * @ensures this = [the undefined calls, cycles and unused instructions of
+     *          p]
+     */
+    public void analyze(Program p) {
+        assert p != null : "Violation of: p is not null";
+        this.findings.clear();
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        p.swapContext(context);
+        p.swapBody(body);
+
+        int count = context.size();
+        String[] names = new String[count];
+        Statement[] bodies = new Statement[count];
+        SymbolTable index = new SymbolTable();
+        for (int i = 0; i < count; i++) {
+            Map.Pair<String, Statement> instruction = context.removeAny();
+            names[i] = instruction.key();
+            bodies[i] = instruction.value();
+            index.intern(names[i]);
+        }
+        CallGraph graph = new CallGraph(names);
+        for (int i = 0; i < count; i++) {
+            this.calls(bodies[i], i, index, graph);
+            context.add(names[i], bodies[i]);
+        }
+        this.calls(body, -1, index, graph);
+
+        p.swapContext(context);
+        p.swapBody(body);
+        this.check(graph);
+    }
+
+    /**
+     * Analyzes {@code flat}, replacing the findings of {@code this} with
+     * those of {@code flat}.
+     *
+     * @param flat
+     *            the program
+     * @replaces this
+     * @ensures this = [the undefined calls, cycles and unused instructions of
+     *          flat]
+     */
+    public void analyze(FlatProgram flat) {
+        assert flat != null : "Violation of: flat is not null";
+        this.findings.clear();
+        String[] names = new String[flat.instructionCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = flat.instructionName(i);
+        }
+        CallGraph graph = new CallGraph(names);
+        for (int i = 0; i < names.length; i++) {
+            this.calls(flat, flat.instructionBody(i), i, graph);
+        }
+        this.calls(flat, flat.body(), -1, graph);
+        this.check(graph);
+    }
+
+    /**
+     * Reports the number of findings.
+     *
+     * @return the number of findings
+     */
+    public int size() {
+        return this.findings.size();
+    }
+
+    /**
+     * Reports the kind of finding {@code i}.
+     *
+     * @param i
+     *            the finding index
+     * @return the kind of finding {@code i}
+     * @requires 0 <= i < size()
+     */
+    public int kind(int i) {
+        assert 0 <= i && i < this.findings.size() : ""
+                + "Violation of: 0 <= i < size()";
+        return this.findings.get(i).kind;
+    }
+
+    /**
+     * Reports the message of finding {@code i}.
+     *
+     * @param i
+     *            the finding index
+     * @return the message of finding {@code i}
+     * @requires 0 <= i < size()
+     */
+    public String message(int i) {
+        assert 0 <= i && i < this.findings.size() : ""
+                + "Violation of: 0 <= i < size()";
+        return this.findings.get(i).message;
+    }
+
+    /**
+     * Reports whether a program was found that cannot be run: one with an
+     * undefined call or a recursive instruction.
+     *
+     * @return true iff some finding is not UNUSED
+     */
+    public boolean hasErrors() {
+        for (Finding f : this.findings) {
+            if (f.kind != UNUSED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prints the findings to {@code out}, one per line.
+     *
+     * @param out
+     *            the output stream
+     * @updates out.content
+     * @requires out.is_open
+     */
+    public void print(SimpleWriter out) {
+        assert out != null : "Violation of: out is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+        for (Finding f : this.findings) {
+            out.println(f.message);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code SemanticAnalyzer}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SemanticAnalyzerTest {
+
+    /**
+     * Analyzes the program {@code text} both as a {@code Program} and as a
+     * {@code FlatProgram}, checks that both give the same number of findings
+     * of each kind, and returns the first.
+     *
+     * @param text
+     *            the source text
+     * @return the analyzer
+     */
+    private static SemanticAnalyzer analyze(String text) {
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(text));
+        Program copy = p.newInstance();
+        copy.parse(TestTokens.tokens(text));
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(p);
+        assertEquals(copy, p);
+
+        SemanticAnalyzer flat = new SemanticAnalyzer();
+        flat.analyze(Program1Parse1
+                .parseFlat(TestTokens.stream(text)));
+        assertEquals(analyzer.size(), flat.size());
+        for (int kind = SemanticAnalyzer.UNDEFINED;
+                kind <= SemanticAnalyzer.UNUSED; kind++) {
+            assertEquals(count(analyzer, kind), count(flat, kind));
+        }
+        return analyzer;
+    }
+
+    /**
+     * Reports the number of findings of {@code kind}.
+     *
+     * @param analyzer
+     *            the analyzer
+     * @param kind
+     *            the kind of finding
+     * @return the number of findings of {@code kind}
+     */
+    private static int count(SemanticAnalyzer analyzer, int kind) {
+        int n = 0;
+        for (int i = 0; i < analyzer.size(); i++) {
+            if (analyzer.kind(i) == kind) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Test of the fixture, whose only finding is that {@code three} is not
+     * used.
+     */
+    @Test
+    public void testProgram1a() {
+        Program p = new Program1Parse1();
+        SimpleReader in = new SimpleReader1L("test/program1a.bl");
+        p.parse(in);
+        in.close();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(p);
+        assertEquals(1, analyzer.size());
+        assertEquals("Warning: Unused instruction: three",
+                analyzer.message(0));
+        assertFalse(analyzer.hasErrors());
+    }
+
+    /**
+     * Test of calls to undefined instructions, each reported once.
+     */
+    @Test
+    public void testUndefined() {
+        SemanticAnalyzer analyzer = analyze("PROGRAM P IS "
+                + "INSTRUCTION a IS jump move END a "
+                + "BEGIN a jump fly END P");
+        assertEquals(2, analyzer.size());
+        assertEquals(2, count(analyzer, SemanticAnalyzer.UNDEFINED));
+        assertEquals("Error: Undefined instruction: jump (called in a)",
+                analyzer.message(0));
+        assertTrue(analyzer.hasErrors());
+    }
+
+    /**
+     * Test of direct and mutual recursion.
+     */
+    @Test
+    public void testRecursive() {
+        SemanticAnalyzer analyzer = analyze("PROGRAM P IS "
+                + "INSTRUCTION a IS b END a "
+                + "INSTRUCTION b IS IF random THEN c END IF END b "
+                + "INSTRUCTION c IS WHILE true DO a END WHILE END c "
+                + "INSTRUCTION d IS IF random THEN d ELSE move END IF END d "
+                + "INSTRUCTION e IS a END e "
+                + "BEGIN e d END P");
+        assertEquals(2, analyzer.size());
+        assertEquals(2, count(analyzer, SemanticAnalyzer.RECURSIVE));
+        assertTrue(analyzer.hasErrors());
+    }
+
+    /**
+     * Test of unused instructions, including one called only by another
+     * unused one.
+     */
+    @Test
+    public void testUnused() {
+        SemanticAnalyzer analyzer = analyze("PROGRAM P IS "
+                + "INSTRUCTION a IS move END a "
+                + "INSTRUCTION b IS a END b "
+                + "INSTRUCTION c IS turnleft END c "
+                + "BEGIN c END P");
+        assertEquals(2, analyzer.size());
+        assertEquals(2, count(analyzer, SemanticAnalyzer.UNUSED));
+        assertFalse(analyzer.hasErrors());
+    }
+
+    /**
+     * Test of a long chain of calls, which must not overflow the stack.
+     */
+    @Test
+    public void testChain() {
+        final int n = 20000;
+        StringBuilder text = new StringBuilder("PROGRAM P IS ");
+        for (int i = 0; i < n; i++) {
+            text.append("INSTRUCTION i").append(i).append(" IS ");
+            if (i + 1 < n) {
+                text.append('i').append(i + 1);
+            } else {
+                text.append("i0");
+            }
+            text.append(" END i").append(i).append(' ');
+        }
+        text.append("BEGIN i0 END P");
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(text.toString()));
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(p);
+        assertEquals(1, analyzer.size());
+        assertEquals(SemanticAnalyzer.RECURSIVE, analyzer.kind(0));
+    }
+
+}
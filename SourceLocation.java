@@ -0,0 +1,140 @@
+/**
+ * Locations in BL source text, each packed into one {@code long}: the line
+ * and column (both from 1) and the offset (from 0) of a character.
+ *
+ * <p>
+ * Packing lets a lexer keep the location of every token in one
+ * {@code long[]} beside its other token arrays, instead of in an object per
+ * token. The offset takes the low {@value #OFFSET_BITS} bits, the line the
+ * next {@value #LINE_BITS} and the column the {@value #COLUMN_BITS} after
+ * that, so every location is non-negative and {@link #UNKNOWN}, which is
+ * negative, is no location. Lines and columns too large for their bits are
+ * saturated at the largest value that fits; a line of 0 means that only the
+ * offset is known.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SourceLocation {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private SourceLocation() {
+    }
+
+    /**
+     * The location of a token that does not come from source text, such as
+     * a token of a {@code Queue<String>}.
+     */
+    public static final long UNKNOWN = -1L;
+
+    /**
+     * Number of bits of the offset, the line and the column.
+     */
+    public static final int OFFSET_BITS = 31, LINE_BITS = 21,
+            COLUMN_BITS = 11;
+
+    /**
+     * Largest line and column stored; larger ones are saturated.
+     */
+    public static final int MAX_LINE = (1 << LINE_BITS) - 1,
+            MAX_COLUMN = (1 << COLUMN_BITS) - 1;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Mask of the offset bits.
+     */
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Packs a location.
+     *
+     * @param line
+     *            the line, from 1, or 0 if unknown
+     * @param column
+     *            the column, from 1, or 0 if the line is unknown
+     * @param offset
+     *            the offset
+     * @return the location
+     * @requires 0 <= line  and  0 <= column  and  0 <= offset
+     * @ensures <pre>
+     * line(pack) = min(line, MAX_LINE)  and
+     *  column(pack) = min(column, MAX_COLUMN)  and  offset(pack) = offset
+     * </pre>
+     */
+    public static long pack(int line, int column, int offset) {
+        assert 0 <= line : "Violation of: 0 <= line";
+        assert 0 <= column : "Violation of: 0 <= column";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        long l = Math.min(line, MAX_LINE);
+        long c = Math.min(column, MAX_COLUMN);
+        return c << (OFFSET_BITS + LINE_BITS) | l << OFFSET_BITS | offset;
+    }
+
+    /**
+     * Reports the line of {@code location}.
+     *
+     * @param location
+     *            the location
+     * @return the line, or 0 if unknown
+     * @requires location /= UNKNOWN
+     */
+    public static int line(long location) {
+        assert location != UNKNOWN : "Violation of: location /= UNKNOWN";
+        return (int) (location >>> OFFSET_BITS) & MAX_LINE;
+    }
+
+    /**
+     * Reports the column of {@code location}.
+     *
+     * @param location
+     *            the location
+     * @return the column, or 0 if the line is unknown
+     * @requires location /= UNKNOWN
+     */
+    public static int column(long location) {
+        assert location != UNKNOWN : "Violation of: location /= UNKNOWN";
+        return (int) (location >>> (OFFSET_BITS + LINE_BITS));
+    }
+
+    /**
+     * Reports the offset of {@code location}.
+     *
+     * @param location
+     *            the location
+     * @return the offset
+     * @requires location /= UNKNOWN
+     */
+    public static int offset(long location) {
+        assert location != UNKNOWN : "Violation of: location /= UNKNOWN";
+        return (int) (location & OFFSET_MASK);
+    }
+
+    /**
+     * Returns {@code location} as text: {@code "line l, column c"},
+     * {@code "offset o"} if the line is not known, or {@code "unknown"}.
+     *
+     * @param location
+     *            the location
+     * @return the text of {@code location}
+     */
+    public static String toString(long location) {
+        if (location == UNKNOWN) {
+            return "unknown";
+        }
+        if (line(location) == 0) {
+            return "offset " + offset(location);
+        }
+        return "line " + line(location) + ", column " + column(location);
+    }
+
+}
@@ -0,0 +1,59 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code SourceLocation}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SourceLocationTest {
+
+    /**
+     * Test of packing and unpacking, including the largest values.
+     */
+    @Test
+    public void testPack() {
+        long location = SourceLocation.pack(12, 34, 567);
+        assertEquals(12, SourceLocation.line(location));
+        assertEquals(34, SourceLocation.column(location));
+        assertEquals(567, SourceLocation.offset(location));
+
+        location = SourceLocation.pack(SourceLocation.MAX_LINE,
+                SourceLocation.MAX_COLUMN, Integer.MAX_VALUE);
+        assertEquals(SourceLocation.MAX_LINE, SourceLocation.line(location));
+        assertEquals(SourceLocation.MAX_COLUMN,
+                SourceLocation.column(location));
+        assertEquals(Integer.MAX_VALUE, SourceLocation.offset(location));
+        assertTrue(location >= 0);
+    }
+
+    /**
+     * Test that lines and columns too large to store are saturated.
+     */
+    @Test
+    public void testSaturation() {
+        long location = SourceLocation.pack(SourceLocation.MAX_LINE + 5,
+                SourceLocation.MAX_COLUMN + 5, 9);
+        assertEquals(SourceLocation.MAX_LINE, SourceLocation.line(location));
+        assertEquals(SourceLocation.MAX_COLUMN,
+                SourceLocation.column(location));
+        assertEquals(9, SourceLocation.offset(location));
+    }
+
+    /**
+     * Test of the text of locations.
+     */
+    @Test
+    public void testToString() {
+        assertEquals("line 3, column 7",
+                SourceLocation.toString(SourceLocation.pack(3, 7, 40)));
+        assertEquals("offset 40",
+                SourceLocation.toString(SourceLocation.pack(0, 0, 40)));
+        assertEquals("unknown",
+                SourceLocation.toString(SourceLocation.UNKNOWN));
+    }
+
+}
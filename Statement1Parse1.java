@@ -5,13 +5,17 @@ import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 import components.statement.Statement;
 import components.statement.Statement1;
-import components.utilities.Reporter;
-import components.utilities.Tokenizer;
 
 /**
  * Layered implementation of secondary methods {@code parse} and
  * {@code parseBlock} for {@code Statement}.
  *
+ * <p>
+ * Syntax errors are reported through {@code Diagnostics}; in diagnostics mode
+ * a statement with an error is left out of its block and parsing resumes at
+ * the next synchronization point.
+ * </p>
+ *
  * @author Nik Anand and Hudson Arledge
  *
  */
@@ -22,19 +26,19 @@ public final class Statement1Parse1 extends Statement1 {
      */
 
     /**
-     * Converts {@code c} into the corresponding {@code Condition}.
+     * Converts the condition kind {@code kind} into the corresponding
+     * {@code Condition}.
      *
-     * @param c
-     *            the condition to convert
-     * @return the {@code Condition} corresponding to {@code c}
-     * @requires [c is a condition string]
-     * @ensures parseCondition = [Condition corresponding to c]
+     * @param kind
+     *            the condition kind to convert
+     * @return the {@code Condition} corresponding to {@code kind}
+     * @requires TokenKind.isCondition(kind)
+     * @ensures parseCondition = [Condition corresponding to kind]
      */
-    private static Condition parseCondition(String c) {
-        assert c != null : "Violation of: c is not null";
-        assert Tokenizer
-                .isCondition(c) : "Violation of: c is a condition string";
-        return Condition.valueOf(c.replace('-', '_').toUpperCase());
+    private static Condition parseCondition(int kind) {
+        assert TokenKind.isCondition(
+                kind) : "Violation of: kind is a condition kind";
+        return TokenKind.condition(kind);
     }
 
     /**
@@ -44,8 +48,10 @@ public final class Statement1Parse1 extends Statement1 {
      *            the input tokens
      * @param s
      *            the parsed statement
+     * @param arena
+     *            the arena scratch blocks come from, or {@code null}
      * @replaces s
-     * @updates tokens
+     * @updates tokens, arena
      * @requires <pre>
      * [<"IF"> is a prefix of tokens]  and
      *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
@@ -58,59 +64,36 @@ public final class Statement1Parse1 extends Statement1 {
      *  [reports an appropriate error message to the console and terminates client]
      * </pre>
      */
-    private static void parseIf(Queue<String> tokens, Statement s) {
+    private static void parseIf(TokenStream tokens, Statement s,
+            StatementArena arena) {
         assert tokens != null : "Violation of: tokens is not null";
         assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0 && tokens.front().equals("IF") : ""
+        assert tokens.frontKind() == TokenKind.IF : ""
                 + "Violation of: <\"IF\"> is proper prefix of tokens";
 
-        Statement ifBlock = s.newInstance();
-        Statement elseBlock = s.newInstance();
-        //check IF token
-        String token = tokens.dequeue();
-        boolean is = token.equals("IF");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"IF\" token");
-        //check condition token
-        token = tokens.dequeue();
-        is = Tokenizer.isCondition(token);
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: condition token");
-        Condition c = parseCondition(token);
-        //check THEN token
-        token = tokens.dequeue();
-        is = token.equals("THEN");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"THEN\" token");
+        Condition c = parseCondition(parseIfHead(tokens));
         //parse if block
-        ifBlock.parseBlock(tokens);
+        Statement ifBlock = StatementArena.take(arena, s);
+        parseBlock(tokens, ifBlock, arena);
 
-        //check for if the next token is ELSE
-        token = tokens.dequeue();
-        boolean isElse = false;
-        is = token.equals("ELSE");
-        if (is) {
-            //parse else block and get next token
-            isElse = true;
-            elseBlock.parseBlock(tokens);
-            token = tokens.dequeue();
+        //check for if the next token is ELSE; only then is a block needed
+        Statement elseBlock = null;
+        boolean isElse = tokens.frontKind() == TokenKind.ELSE;
+        if (isElse) {
+            //parse else block
+            tokens.advance();
+            elseBlock = StatementArena.take(arena, s);
+            parseBlock(tokens, elseBlock, arena);
         }
-        //check END token
-        is = token.equals("END");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid instruction. Expected: " + "\"END\" token");
-        //check IF token
-        token = tokens.dequeue();
-        is = token.equals("IF");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid instruction. Expected: " + "\"IF\" token");
+        parseIfTail(tokens);
         //assemble either an if-else or an if based on boolean isElse
         if (isElse) {
             s.assembleIfElse(c, ifBlock, elseBlock);
+            StatementArena.give(arena, elseBlock);
         } else {
             s.assembleIf(c, ifBlock);
         }
-
+        StatementArena.give(arena, ifBlock);
     }
 
     /**
@@ -120,8 +103,10 @@ public final class Statement1Parse1 extends Statement1 {
      *            the input tokens
      * @param s
      *            the parsed statement
+     * @param arena
+     *            the arena scratch blocks come from, or {@code null}
      * @replaces s
-     * @updates tokens
+     * @updates tokens, arena
      * @requires <pre>
      * [<"WHILE"> is a prefix of tokens]  and
      *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
@@ -134,41 +119,19 @@ public final class Statement1Parse1 extends Statement1 {
      *  [reports an appropriate error message to the console and terminates client]
      * </pre>
      */
-    private static void parseWhile(Queue<String> tokens, Statement s) {
+    private static void parseWhile(TokenStream tokens, Statement s,
+            StatementArena arena) {
         assert tokens != null : "Violation of: tokens is not null";
         assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0 && tokens.front().equals("WHILE") : ""
+        assert tokens.frontKind() == TokenKind.WHILE : ""
                 + "Violation of: <\"WHILE\"> is proper prefix of tokens";
-        Statement whileBlock = s.newInstance();
-        //check IF token
-        String token = tokens.dequeue();
-        boolean is = token.equals("WHILE");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"WHILE\" token");
-        //check condition token
-        token = tokens.dequeue();
-        is = Tokenizer.isCondition(token);
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: condition token");
-        Condition c = parseCondition(token);
-        //check DO token
-        token = tokens.dequeue();
-        is = token.equals("DO");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"DO\" token");
+        Condition c = parseCondition(parseWhileHead(tokens));
         //parse while block
-        whileBlock.parseBlock(tokens);
-        //check END token
-        token = tokens.dequeue();
-        is = token.equals("END");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"END\" token");
-        //check WHILE token
-        token = tokens.dequeue();
-        is = token.equals("WHILE");
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: " + "\"WHILE\" token");
-        s.assembleWhile(c, s);
+        Statement whileBlock = StatementArena.take(arena, s);
+        parseBlock(tokens, whileBlock, arena);
+        parseWhileTail(tokens);
+        s.assembleWhile(c, whileBlock);
+        StatementArena.give(arena, whileBlock);
     }
 
     /**
@@ -187,18 +150,323 @@ public final class Statement1Parse1 extends Statement1 {
      *  #tokens = [identifier string at start of #tokens] * tokens
      * </pre>
      */
-    private static void parseCall(Queue<String> tokens, Statement s) {
+    private static void parseCall(TokenStream tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+        assert tokens.frontKind() == TokenKind.IDENTIFIER : ""
+                + "Violation of: identifier string is proper prefix of tokens";
+        boolean is = tokens.frontKind() == TokenKind.IDENTIFIER;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: identifier token", tokens);
+        s.assembleCall(SymbolTable.canonical(tokens.dequeue()));
+
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code s}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed statement
+     * @param arena
+     *            the arena scratch blocks come from, or {@code null}
+     * @replaces s
+     * @updates tokens, arena
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  s = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private static void parse(TokenStream tokens, Statement s,
+            StatementArena arena) {
+        switch (tokens.frontKind()) {
+            case TokenKind.IF:
+                parseIf(tokens, s, arena);
+                break;
+            case TokenKind.WHILE:
+                parseWhile(tokens, s, arena);
+                break;
+            case TokenKind.IDENTIFIER:
+                parseCall(tokens, s);
+                break;
+            default:
+                Diagnostics.check(false,
+                        "Error: Invalid token. Expected: statement", tokens);
+                break;
+        }
+    }
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code s}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed block
+     * @param arena
+     *            the arena scratch blocks come from, or {@code null}
+     * @replaces s
+     * @updates tokens, arena
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  s = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private static void parseBlock(TokenStream tokens, Statement s,
+            StatementArena arena) {
+        s.clear();
+        Statement child = StatementArena.take(arena, s);
+        int pos = 0;
+        int kind = tokens.frontKind();
+        while (isStatementStart(kind)) {
+            try {
+                parse(tokens, child, arena);
+                s.addToBlock(pos, child);
+                pos++;
+            } catch (Diagnostics.Recovery e) {
+                /*
+                 * Diagnostics mode: drop the statement and resynchronize;
+                 * an IF or WHILE is assembled last, so child is still empty
+                 */
+                Diagnostics.recoverStatement(tokens, kind);
+            }
+            kind = tokens.frontKind();
+        }
+        StatementArena.give(arena, child);
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Reports whether a token of kind {@code kind} can start a BL statement.
+     *
+     * @param kind
+     *            the token kind to check
+     * @return true iff {@code kind} is IF, WHILE, or IDENTIFIER
+     * @ensures <pre>
+     * isStatementStart = (kind = IF  or  kind = WHILE  or  kind = IDENTIFIER)
+     * </pre>
+     */
+    static boolean isStatementStart(int kind) {
+        return kind == TokenKind.IF || kind == TokenKind.WHILE
+                || kind == TokenKind.IDENTIFIER;
+    }
+
+    /**
+     * Parses the head of an IF or IF_ELSE statement ({@code IF condition THEN})
+     * from {@code tokens}, returning the condition kind. The recursive
+     * parsers here and in {@code FlatProgram} share this method and the other
+     * heads and tails below, so that they check the same grammar with the
+     * same messages.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the condition kind
+     * @updates tokens
+     * @requires <pre>
+     * [<"IF"> is a prefix of tokens]  and
+     *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * </pre>
+     * @ensures <pre>
+     * if [<"IF", condition, "THEN"> is a prefix of #tokens] then
+     *  parseIfHead = [the TokenKind of condition]  and
+     *  #tokens = <"IF", condition, "THEN"> * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static int parseIfHead(TokenStream tokens) {
+        //check IF token
+        boolean is = tokens.frontKind() == TokenKind.IF;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"IF\" token", tokens);
+        tokens.advance();
+        //check condition token
+        int kind = tokens.frontKind();
+        is = TokenKind.isCondition(kind);
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: condition token", tokens);
+        tokens.advance();
+        //check THEN token
+        is = tokens.frontKind() == TokenKind.THEN;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"THEN\" token", tokens);
+        tokens.advance();
+        return kind;
+    }
+
+    /**
+     * Parses the tail of an IF or IF_ELSE statement ({@code END IF}) from
+     * {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"END", "IF"> is a prefix of #tokens] then
+     *  #tokens = <"END", "IF"> * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parseIfTail(TokenStream tokens) {
+        //check END token
+        boolean is = tokens.frontKind() == TokenKind.END;
+        Diagnostics.check(is,
+                "Error: Invalid instruction. Expected: " + "\"END\" token",
+                tokens);
+        tokens.advance();
+        //check IF token
+        is = tokens.frontKind() == TokenKind.IF;
+        Diagnostics.check(is,
+                "Error: Invalid instruction. Expected: " + "\"IF\" token",
+                tokens);
+        tokens.advance();
+    }
+
+    /**
+     * Parses the head of a WHILE statement ({@code WHILE condition DO}) from
+     * {@code tokens}, returning the condition kind.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return the condition kind
+     * @updates tokens
+     * @requires <pre>
+     * [<"WHILE"> is a prefix of tokens]  and
+     *  [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * </pre>
+     * @ensures <pre>
+     * if [<"WHILE", condition, "DO"> is a prefix of #tokens] then
+     *  parseWhileHead = [the TokenKind of condition]  and
+     *  #tokens = <"WHILE", condition, "DO"> * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static int parseWhileHead(TokenStream tokens) {
+        //check WHILE token
+        boolean is = tokens.frontKind() == TokenKind.WHILE;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"WHILE\" token", tokens);
+        tokens.advance();
+        //check condition token
+        int kind = tokens.frontKind();
+        is = TokenKind.isCondition(kind);
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: condition token", tokens);
+        tokens.advance();
+        //check DO token
+        is = tokens.frontKind() == TokenKind.DO;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"DO\" token", tokens);
+        tokens.advance();
+        return kind;
+    }
+
+    /**
+     * Parses the tail of a WHILE statement ({@code END WHILE}) from
+     * {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [<"END", "WHILE"> is a prefix of #tokens] then
+     *  #tokens = <"END", "WHILE"> * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parseWhileTail(TokenStream tokens) {
+        //check END token
+        boolean is = tokens.frontKind() == TokenKind.END;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"END\" token", tokens);
+        tokens.advance();
+        //check WHILE token
+        is = tokens.frontKind() == TokenKind.WHILE;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: " + "\"WHILE\" token", tokens);
+        tokens.advance();
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code s}, with
+     * the scratch blocks of the {@code StatementArena} in use, if any, and
+     * its identifiers interned in the {@code SymbolTable} in use, or in a new
+     * one if there is none.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed statement
+     * @replaces s
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  s = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parse(TokenStream tokens, Statement s) {
         assert tokens != null : "Violation of: tokens is not null";
         assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0
-                && Tokenizer.isIdentifier(tokens.front()) : ""
-                        + "Violation of: identifier string is proper prefix of tokens";
-        String token = tokens.dequeue();
-        boolean is = Tokenizer.isIdentifier(token);
-        Reporter.assertElseFatalError(is,
-                "Error: Invalid token. Expected: identifier token");
-        s.assembleCall(token);
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parse(tokens, s));
+            return;
+        }
+        parse(tokens, s, StatementArena.current());
+    }
 
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code s}, with the scratch blocks of the
+     * {@code StatementArena} in use, if any, and its identifiers interned in
+     * the {@code SymbolTable} in use, or in a new one if there is none.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed block
+     * @replaces s
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  s = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parseBlock(TokenStream tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parseBlock(tokens, s));
+            return;
+        }
+        parseBlock(tokens, s, StatementArena.current());
     }
 
     /*
@@ -221,15 +489,7 @@ public final class Statement1Parse1 extends Statement1 {
         assert tokens != null : "Violation of: tokens is not null";
         assert tokens.length() > 0 : ""
                 + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
-
-        String token = tokens.front();
-        if (token.equals("IF")) {
-            parseIf(tokens, this);
-        } else if (token.equals("WHILE")) {
-            parseWhile(tokens, this);
-        } else {
-            parseCall(tokens, this);
-        }
+        parse(new QueueTokenStream(tokens), this);
     }
 
     @Override
@@ -237,14 +497,53 @@ public final class Statement1Parse1 extends Statement1 {
         assert tokens != null : "Violation of: tokens is not null";
         assert tokens.length() > 0 : ""
                 + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        parseBlock(new QueueTokenStream(tokens), this);
+    }
 
-        Statement s = this.newInstance();
-        int pos = 0;
-        while (tokens.front() != Tokenizer.END_OF_INPUT) {
-            s.parse(tokens);
-            this.addToBlock(pos, s);
-            pos++;
-        }
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code this},
+     * pulling tokens from the stream only as they are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  this = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public void parse(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parse(tokens, this);
+    }
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code this}, pulling tokens from the stream only as they
+     * are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  this = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public void parseBlock(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parseBlock(tokens, this);
     }
 
     /*
@@ -269,11 +568,11 @@ public final class Statement1Parse1 extends Statement1 {
          * Parse input file
          */
         out.println("*** Parsing input file ***");
-        Statement s = new Statement1Parse1();
+        Statement1Parse1 s = new Statement1Parse1();
         SimpleReader file = new SimpleReader1L(fileName);
-        Queue<String> tokens = Tokenizer.tokens(file);
+        // replace with parseBlock to test other method
+        s.parse(new ReaderTokenStream(file));
         file.close();
-        s.parse(tokens); // replace with parseBlock to test other method
         /*
          * Pretty print the statement(s)
          */
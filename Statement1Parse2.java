@@ -0,0 +1,441 @@
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.stack.Stack;
+import components.stack.Stack1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * Layered implementation of secondary methods {@code parse} and
+ * {@code parseBlock} for {@code Statement} that does not recurse on the
+ * nesting depth of the input.
+ *
+ * <p>
+ * Each IF or WHILE whose body is still being parsed is kept as a frame on an
+ * explicit, heap-allocated stack instead of as a Java stack frame, so inputs
+ * with any depth of nested IF/WHILE statements can be parsed without a
+ * {@code StackOverflowError}. Each token is examined a constant number of
+ * times, so parsing takes time linear in the number of tokens. The language
+ * accepted and the error messages reported are the same as those of
+ * {@code Statement1Parse1}, and so is the recovery from them in diagnostics
+ * mode.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Statement1Parse2 extends Statement1 {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * An IF or WHILE statement whose body is being parsed.
+     */
+    private static final class Frame {
+
+        /**
+         * The kind of the opening keyword, {@code TokenKind.IF} or
+         * {@code TokenKind.WHILE}.
+         */
+        private final int keyword;
+
+        /**
+         * The condition of the statement.
+         */
+        private final Condition condition;
+
+        /**
+         * The block the statement is to be added to once it is complete.
+         */
+        private final Statement parent;
+
+        /**
+         * The completed THEN block of an IF whose ELSE block is being parsed,
+         * or {@code null}.
+         */
+        private Statement thenBlock;
+
+        /**
+         * Constructor.
+         *
+         * @param keyword
+         *            the kind of the opening keyword
+         * @param condition
+         *            the condition of the statement
+         * @param parent
+         *            the enclosing block
+         */
+        private Frame(int keyword, Condition condition, Statement parent) {
+            this.keyword = keyword;
+            this.condition = condition;
+            this.parent = parent;
+            this.thenBlock = null;
+        }
+
+    }
+
+    /**
+     * Parses the header of an IF or WHILE statement (the keyword, the
+     * condition and the THEN or DO keyword) from {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param parent
+     *            the block the statement belongs to
+     * @return the frame for the statement
+     * @updates tokens
+     * @requires [<"IF"> or <"WHILE"> is a prefix of tokens]
+     * @ensures <pre>
+     * if [an if or while header is a prefix of #tokens] then
+     *  openFrame = [frame for that header]  and
+     *  #tokens = [that header] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private static Frame openFrame(TokenStream tokens, Statement parent) {
+        int keyword = tokens.frontKind();
+        assert keyword == TokenKind.IF || keyword == TokenKind.WHILE : ""
+                + "Violation of: <\"IF\"> or <\"WHILE\"> is prefix of tokens";
+        tokens.advance();
+        //check condition token
+        int kind = tokens.frontKind();
+        boolean is = TokenKind.isCondition(kind);
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: condition token", tokens);
+        tokens.advance();
+        //check THEN or DO token
+        if (keyword == TokenKind.IF) {
+            is = tokens.frontKind() == TokenKind.THEN;
+            Diagnostics.check(is,
+                    "Error: Invalid token. Expected: " + "\"THEN\" token",
+                    tokens);
+        } else {
+            is = tokens.frontKind() == TokenKind.DO;
+            Diagnostics.check(is,
+                    "Error: Invalid token. Expected: " + "\"DO\" token",
+                    tokens);
+        }
+        tokens.advance();
+        return new Frame(keyword, TokenKind.condition(kind), parent);
+    }
+
+    /**
+     * Parses the end of the statement of {@code frame} (END followed by IF or
+     * WHILE) from {@code tokens} and assembles the statement into {@code s}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param frame
+     *            the statement being closed
+     * @param body
+     *            the last block parsed for the statement
+     * @param s
+     *            the assembled statement
+     * @param arena
+     *            the arena the emptied blocks go back to, or {@code null}
+     * @replaces s
+     * @updates tokens, arena
+     * @ensures <pre>
+     * if [<"END", frame.keyword> is a prefix of #tokens] then
+     *  s = [IF, IF_ELSE or WHILE Statement for frame and body]  and
+     *  #tokens = <"END", frame.keyword> * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private static void closeFrame(TokenStream tokens, Frame frame,
+            Statement body, Statement s, StatementArena arena) {
+        //check END token
+        boolean is = tokens.frontKind() == TokenKind.END;
+        Diagnostics.check(is,
+                "Error: Invalid instruction. Expected: " + "\"END\" token",
+                tokens);
+        tokens.advance();
+        //check IF or WHILE token; the message is built only on failure
+        if (tokens.frontKind() != frame.keyword) {
+            Diagnostics.check(false,
+                    "Error: Invalid instruction. Expected: " + "\""
+                            + TokenKind.spelling(frame.keyword) + "\" token",
+                    tokens);
+        }
+        tokens.advance();
+        if (frame.keyword == TokenKind.WHILE) {
+            s.assembleWhile(frame.condition, body);
+        } else if (frame.thenBlock != null) {
+            s.assembleIfElse(frame.condition, frame.thenBlock, body);
+            StatementArena.give(arena, frame.thenBlock);
+        } else {
+            s.assembleIf(frame.condition, body);
+        }
+        StatementArena.give(arena, body);
+    }
+
+    /**
+     * Parses statements from {@code tokens} into the block {@code block}: a
+     * maximally long sequence of statements, or only the first statement if
+     * {@code single}. Scratch blocks come from the {@code StatementArena} in
+     * use, if any.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param block
+     *            the parsed block
+     * @param single
+     *            whether to stop after the first statement
+     * @replaces block
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens and
+     *     either is a single statement string, if single, or is not followed
+     *     by the start of another statement, if not single] then
+     *  block = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    private static void parseStatements(TokenStream tokens, Statement block,
+            boolean single) {
+        block.clear();
+        StatementArena arena = StatementArena.current();
+        Stack<Frame> open = new Stack1L<Frame>();
+        Statement current = block;
+        Statement s = StatementArena.take(arena, block);
+        boolean done = false;
+        while (!done) {
+            int kind = tokens.frontKind();
+            int start = kind;
+            try {
+                if (kind == TokenKind.IF || kind == TokenKind.WHILE) {
+                    open.push(openFrame(tokens, current));
+                    current = StatementArena.take(arena, block);
+                } else if (kind == TokenKind.IDENTIFIER) {
+                    s.assembleCall(SymbolTable.canonical(tokens.dequeue()));
+                    current.addToBlock(current.lengthOfBlock(), s);
+                    done = single && open.length() == 0;
+                } else if (open.length() == 0) {
+                    done = true;
+                } else if (kind == TokenKind.ELSE
+                        && open.top().keyword == TokenKind.IF
+                        && open.top().thenBlock == null) {
+                    tokens.advance();
+                    open.top().thenBlock = current;
+                    current = StatementArena.take(arena, block);
+                } else {
+                    Frame frame = open.pop();
+                    Statement body = current;
+                    current = frame.parent;
+                    start = frame.keyword;
+                    closeFrame(tokens, frame, body, s, arena);
+                    current.addToBlock(current.lengthOfBlock(), s);
+                    done = single && open.length() == 0;
+                }
+            } catch (Diagnostics.Recovery e) {
+                /*
+                 * Diagnostics mode: drop the statement and resynchronize; a
+                 * single statement that failed as a whole cannot be recovered
+                 */
+                if (single && open.length() == 0) {
+                    throw e;
+                }
+                Diagnostics.recoverStatement(tokens, start);
+            }
+        }
+        StatementArena.give(arena, s);
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code s}, with
+     * its identifiers interned in the {@code SymbolTable} in use, or in a new
+     * one if there is none.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed statement
+     * @replaces s
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  s = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parse(TokenStream tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parse(tokens, s));
+            return;
+        }
+
+        int kind = tokens.frontKind();
+        boolean is = kind == TokenKind.IF || kind == TokenKind.WHILE
+                || kind == TokenKind.IDENTIFIER;
+        Diagnostics.check(is,
+                "Error: Invalid token. Expected: statement", tokens);
+        Statement block = s.newInstance();
+        parseStatements(tokens, block, true);
+        s.transferFrom(block.removeFromBlock(0));
+    }
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code s}, with its identifiers interned in the
+     * {@code SymbolTable} in use, or in a new one if there is none.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param s
+     *            the parsed block
+     * @replaces s
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  s = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    static void parseBlock(TokenStream tokens, Statement s) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert s != null : "Violation of: s is not null";
+        if (!SymbolTable.isInterning()) {
+            new SymbolTable().use(() -> parseBlock(tokens, s));
+            return;
+        }
+        parseStatements(tokens, s, false);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Statement1Parse2() {
+        super();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    @Override
+    public void parse(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        parse(new QueueTokenStream(tokens), this);
+    }
+
+    @Override
+    public void parseBlock(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        parseBlock(new QueueTokenStream(tokens), this);
+    }
+
+    /**
+     * Parses a single BL statement from {@code tokens} into {@code this},
+     * pulling tokens from the stream only as they are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [a statement string is a proper prefix of #tokens] then
+     *  this = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public void parse(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parse(tokens, this);
+    }
+
+    /**
+     * Parses a maximally long sequence of BL statements from {@code tokens}
+     * into the block {@code this}, pulling tokens from the stream only as they
+     * are needed.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @requires [<Tokenizer.END_OF_INPUT> is a suffix of tokens]
+     * @ensures <pre>
+     * if [there is a block string b that is a proper prefix of #tokens
+     *     and is not followed by the start of another statement] then
+     *  this = [BLOCK Statement corresponding to b]  and
+     *  #tokens = b * tokens
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public void parseBlock(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        parseBlock(tokens, this);
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+        /*
+         * Get input file name
+         */
+        out.print("Enter valid BL statement(s) file name: ");
+        String fileName = in.nextLine();
+        /*
+         * Parse input file
+         */
+        out.println("*** Parsing input file ***");
+        Statement1Parse2 s = new Statement1Parse2();
+        SimpleReader file = new SimpleReader1L(fileName);
+        // replace with parseBlock to test other method
+        s.parse(new ReaderTokenStream(file));
+        file.close();
+        /*
+         * Pretty print the statement(s)
+         */
+        out.println("*** Pretty print of parsed statement(s) ***");
+        s.prettyPrint(out, 0);
+
+        in.close();
+        out.close();
+    }
+
+}
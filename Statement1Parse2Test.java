@@ -0,0 +1,110 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.utilities.Tokenizer;
+
+/**
+ * Customized JUnit test fixture for {@code Statement1Parse2}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Statement1Parse2Test extends StatementTest {
+
+    /**
+     * Nesting depth well beyond what the recursive parser can handle with a
+     * default-sized thread stack.
+     */
+    private static final int DEEP = 100000;
+
+    @Override
+    protected Statement constructorTest() {
+        return new Statement1Parse2();
+    }
+
+    @Override
+    protected Statement constructorRef() {
+        return new Statement1();
+    }
+
+    /**
+     * Test of parseBlock on very deeply nested WHILE statements.
+     */
+    @Test
+    public void testParseBlockDeeplyNested() {
+        /*
+         * Setup
+         */
+        Queue<String> tokens = new Queue1L<String>();
+        for (int i = 0; i < DEEP; i++) {
+            tokens.enqueue("WHILE");
+            tokens.enqueue("true");
+            tokens.enqueue("DO");
+        }
+        tokens.enqueue("move");
+        for (int i = 0; i < DEEP; i++) {
+            tokens.enqueue("END");
+            tokens.enqueue("WHILE");
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        Statement sTest = this.constructorTest();
+        /*
+         * The call
+         */
+        sTest.parseBlock(tokens);
+        /*
+         * Evaluation
+         */
+        assertEquals(1, tokens.length());
+        assertEquals(Statement.Kind.BLOCK, sTest.kind());
+        assertEquals(1, sTest.lengthOfBlock());
+        Statement s = sTest.removeFromBlock(0);
+        assertEquals(Statement.Kind.WHILE, s.kind());
+    }
+
+    /**
+     * Test of parse on an IF_ELSE statement nested inside a WHILE.
+     */
+    @Test
+    public void testParseNestedIfElse() {
+        /*
+         * Setup
+         */
+        Queue<String> tokens = new Queue1L<String>();
+        String[] input = { "WHILE", "true", "DO", "IF", "random", "THEN",
+            "move", "ELSE", "turnleft", "END", "IF", "END", "WHILE",
+            Tokenizer.END_OF_INPUT };
+        for (String token : input) {
+            tokens.enqueue(token);
+        }
+        Statement sTest = this.constructorTest();
+        Statement sRef = this.constructorRef();
+        Statement ifElse = sRef.newInstance();
+        Statement thenBlock = sRef.newInstance();
+        Statement elseBlock = sRef.newInstance();
+        Statement call = sRef.newInstance();
+        call.assembleCall("move");
+        thenBlock.addToBlock(0, call);
+        call.assembleCall("turnleft");
+        elseBlock.addToBlock(0, call);
+        ifElse.assembleIfElse(Statement.Condition.RANDOM, thenBlock, elseBlock);
+        Statement body = sRef.newInstance();
+        body.addToBlock(0, ifElse);
+        sRef.assembleWhile(Statement.Condition.TRUE, body);
+        /*
+         * The call
+         */
+        sTest.parse(tokens);
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+        assertEquals(1, tokens.length());
+    }
+
+}
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+import components.statement.Statement;
+
+/**
+ * Pool of empty {@code Statement} blocks, reused by the statement parsers
+ * for the scratch blocks they assemble statements from.
+ *
+ * <p>
+ * Parsing an IF or a WHILE takes a fresh block for each of its bodies, and
+ * parsing a block takes one for the statement being parsed; assembling the
+ * statement, or adding it to its block, moves the contents out and leaves
+ * the scratch block empty again, after which it is garbage. While a parse
+ * runs inside {@link #use(Runnable)}, such blocks are instead given back to
+ * the arena as soon as they are empty, and taken from it in place of
+ * {@code newInstance} (which constructs by reflection), so across the
+ * parses of a batch the scratch blocks are allocated once. At most a few
+ * blocks per level of IF/WHILE nesting are out at a time, so the arena
+ * stays about as large as the deepest program parsed with it. The nodes
+ * that become part of the parsed statements are still new.
+ * </p>
+ *
+ * <p>
+ * An arena is not safe for concurrent use; give each thread its own.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class StatementArena {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the block array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The arena of the current thread, or {@code null}.
+     */
+    private static final ThreadLocal<StatementArena> CURRENT =
+            new ThreadLocal<>();
+
+    /**
+     * The empty blocks available; entries at and after {@code size} are
+     * {@code null}.
+     */
+    private Statement[] blocks;
+
+    /**
+     * Number of blocks available.
+     */
+    private int size;
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Returns the arena of the current thread.
+     *
+     * @return the arena in use, or {@code null} if there is none
+     */
+    static StatementArena current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns an empty block that statements like {@code like} can be
+     * assembled from: one from {@code arena} if it has any, and
+     * {@code like.newInstance()} otherwise. The parsers only give back
+     * blocks made by {@code newInstance} from the statements they parse, so
+     * all the blocks in an arena are of one kernel implementation.
+     *
+     * @param arena
+     *            the arena, or {@code null}
+     * @param like
+     *            a statement of the type wanted
+     * @return an empty block
+     * @updates arena
+     * @ensures take = [an empty BLOCK]
+     */
+    static Statement take(StatementArena arena, Statement like) {
+        if (arena == null || arena.size == 0) {
+            return like.newInstance();
+        }
+        arena.size--;
+        Statement s = arena.blocks[arena.size];
+        arena.blocks[arena.size] = null;
+        return s;
+    }
+
+    /**
+     * Gives the empty block {@code s} back to {@code arena}, if there is one.
+     *
+     * @param arena
+     *            the arena, or {@code null}
+     * @param s
+     *            the block
+     * @updates arena
+     * @requires s = [an empty BLOCK]  and  [s is not referenced elsewhere]
+     */
+    static void give(StatementArena arena, Statement s) {
+        assert s.kind() == Statement.Kind.BLOCK
+                && s.lengthOfBlock() == 0 : "Violation of: s is empty";
+        if (arena != null) {
+            if (arena.size == arena.blocks.length) {
+                arena.blocks = Arrays.copyOf(arena.blocks, 2 * arena.size);
+            }
+            arena.blocks[arena.size] = s;
+            arena.size++;
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: the empty arena.
+     */
+    public StatementArena() {
+        this.blocks = new Statement[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of blocks available for reuse.
+     *
+     * @return the number of blocks
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Runs {@code parse} with {@code this} as the arena of the current
+     * thread, so that the statement parsers it calls take their scratch
+     * blocks from {@code this} and give them back.
+     *
+     * @param parse
+     *            the parse to run
+     * @updates this
+     */
+    public void use(Runnable parse) {
+        assert parse != null : "Violation of: parse is not null";
+        StatementArena previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            parse.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code StatementArena}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class StatementArenaTest {
+
+    /**
+     * A block with nested IF, IF_ELSE and WHILE statements.
+     */
+    private static final String BLOCK = "move WHILE true DO "
+            + "IF next-is-wall THEN turnleft ELSE move END IF "
+            + "IF random THEN WHILE next-is-empty DO move END WHILE END IF "
+            + "END WHILE infect";
+
+    /**
+     * Parses {@code text} as a block with {@code mode}, in {@code arena} if
+     * it is not {@code null}.
+     *
+     * @param text
+     *            the source text
+     * @param mode
+     *            the parser
+     * @param arena
+     *            the arena, or {@code null}
+     * @return the parsed block
+     */
+    private static Statement parse(String text, ParseMode mode,
+            StatementArena arena) {
+        Statement s = new Statement1Parse1();
+        TokenStream tokens = TestTokens.stream(text);
+        if (arena == null) {
+            mode.parseBlock(tokens, s);
+        } else {
+            arena.use(() -> mode.parseBlock(tokens, s));
+        }
+        return s;
+    }
+
+    /**
+     * Test that both parsers build the same statements with an arena as
+     * without, parse after parse.
+     */
+    @Test
+    public void testSameStatements() {
+        for (ParseMode mode : ParseMode.values()) {
+            /*
+             * Setup
+             */
+            Statement expected = parse(BLOCK, mode, null);
+            StatementArena arena = new StatementArena();
+            for (int i = 0; i < 3; i++) {
+                /*
+                 * The call
+                 */
+                Statement s = parse(BLOCK, mode, arena);
+                /*
+                 * Evaluation
+                 */
+                assertEquals(expected, s);
+            }
+        }
+    }
+
+    /**
+     * Test that the scratch blocks of a parse are given back and reused by
+     * the next one, so the arena does not grow.
+     */
+    @Test
+    public void testReuse() {
+        for (ParseMode mode : ParseMode.values()) {
+            /*
+             * Setup
+             */
+            StatementArena arena = new StatementArena();
+            parse(BLOCK, mode, arena);
+            int size = arena.size();
+            /*
+             * The call
+             */
+            parse(BLOCK, mode, arena);
+            parse("move", mode, arena);
+            /*
+             * Evaluation
+             */
+            assertTrue(size > 0);
+            assertEquals(size, arena.size());
+        }
+    }
+
+    /**
+     * Test that no arena is used outside {@code use}.
+     */
+    @Test
+    public void testScope() {
+        /*
+         * Setup
+         */
+        StatementArena arena = new StatementArena();
+        arena.use(() -> {
+        });
+        /*
+         * The call
+         */
+        parse(BLOCK, ParseMode.RECURSIVE, null);
+        /*
+         * Evaluation
+         */
+        assertEquals(0, arena.size());
+        assertEquals(null, StatementArena.current());
+    }
+
+    /**
+     * Test of recovery in diagnostics mode: the statements kept are the same
+     * with an arena as without, and the arena stays usable.
+     */
+    @Test
+    public void testRecovery() {
+        String text = "move IF bogus THEN move END IF "
+                + "WHILE true DO IF random THEN move ELSE skip END WHILE "
+                + "turnright";
+        for (ParseMode mode : ParseMode.values()) {
+            /*
+             * Setup
+             */
+            Statement[] expected = new Statement[1];
+            new Diagnostics().collect(
+                    () -> expected[0] = parse(text, mode, null));
+            StatementArena arena = new StatementArena();
+            Statement[] s = new Statement[1];
+            /*
+             * The call
+             */
+            new Diagnostics().collect(() -> s[0] = parse(text, mode, arena));
+            /*
+             * Evaluation
+             */
+            assertEquals(expected[0], s[0]);
+            assertEquals(parse(BLOCK, mode, null),
+                    parse(BLOCK, mode, arena));
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Table of distinct BL identifiers, each interned to a dense {@code int} id
+ * numbered from 0 in order of first appearance.
+ *
+ * <p>
+ * While a program is parsed by {@code Program1Parse1}, {@code Program1Parse2}
+ * or {@code Program1Parse3}, or a statement by {@code Statement1Parse1} or
+ * {@code Statement1Parse2}, every identifier the parsers read (instruction
+ * names and calls alike) is looked up in the table of the current thread,
+ * and the {@code String} kept in the parsed program is the table's own
+ * instance. A program that calls {@code one} ten thousand
+ * times thus holds one {@code "one"}, shared by every CALL statement and the
+ * key of the instruction in the context, instead of ten thousand equal copies.
+ * {@code FlatProgram} goes further and holds ids in place of names, so that
+ * resolving a call to its instruction is an array index.
+ * </p>
+ *
+ * <p>
+ * The parsers use a new table for each program or statement, unless the
+ * parse runs inside {@link #use(Runnable)}, in which case the identifiers of
+ * everything it parses share that table. A table may be shared by threads,
+ * as by the instruction tasks of {@code Program1Parse2}; interning is
+ * synchronized.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SymbolTable {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the name array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The table identifiers on the current thread are interned in, or
+     * {@code null}.
+     */
+    private static final ThreadLocal<SymbolTable> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The names, indexed by id.
+     */
+    private String[] names;
+
+    /**
+     * Number of names.
+     */
+    private int size;
+
+    /**
+     * Id of each name.
+     */
+    private final Map<String, Integer> ids;
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Returns the instance of {@code name} interned in the table of the
+     * current thread, interning it if it is new; with no table, returns
+     * {@code name}.
+     *
+     * @param name
+     *            the identifier
+     * @return an identifier equal to {@code name}
+     * @ensures canonical = name
+     */
+    static String canonical(String name) {
+        SymbolTable table = CURRENT.get();
+        if (table == null) {
+            return name;
+        }
+        synchronized (table) {
+            int id = table.intern(name);
+            return table.names[id];
+        }
+    }
+
+    /**
+     * Returns the table of the current thread.
+     *
+     * @return the table in use, or {@code null} if there is none
+     */
+    static SymbolTable current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Reports whether the current thread has a table.
+     *
+     * @return true iff identifiers are being interned
+     */
+    static boolean isInterning() {
+        return CURRENT.get() != null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor: the empty table.
+     */
+    public SymbolTable() {
+        this.names = new String[INITIAL_CAPACITY];
+        this.size = 0;
+        this.ids = new Map1L<String, Integer>();
+    }
+
+    /**
+     * Constructor from an array of distinct names; name {@code i} has id
+     * {@code i}.
+     *
+     * @param names
+     *            the names
+     * @aliases reference names
+     * @requires [the entries of names are distinct]
+     */
+    SymbolTable(String[] names) {
+        this.names = names;
+        this.size = names.length;
+        this.ids = new Map1L<String, Integer>();
+        for (int i = 0; i < names.length; i++) {
+            this.ids.add(names[i], i);
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the id of {@code name}, adding it to this if it is new.
+     *
+     * @param name
+     *            the identifier
+     * @return the id of {@code name}
+     * @updates this
+     * @ensures name(intern) = name
+     */
+    public synchronized int intern(String name) {
+        assert name != null : "Violation of: name is not null";
+        if (this.ids.hasKey(name)) {
+            return this.ids.value(name);
+        }
+        if (this.size == this.names.length) {
+            this.names = Arrays.copyOf(this.names,
+                    2 * this.size + INITIAL_CAPACITY);
+        }
+        this.names[this.size] = name;
+        this.ids.add(name, this.size);
+        this.size++;
+        return this.size - 1;
+    }
+
+    /**
+     * Reports the id of {@code name}, or -1 if it is not in this.
+     *
+     * @param name
+     *            the identifier
+     * @return the id of {@code name}, or -1
+     */
+    public synchronized int id(String name) {
+        assert name != null : "Violation of: name is not null";
+        if (this.ids.hasKey(name)) {
+            return this.ids.value(name);
+        }
+        return -1;
+    }
+
+    /**
+     * Reports the name with id {@code id}.
+     *
+     * @param id
+     *            the id
+     * @return the name with id {@code id}
+     * @requires 0 <= id < size()
+     */
+    public synchronized String name(int id) {
+        assert 0 <= id && id < this.size : "Violation of: 0 <= id < size()";
+        return this.names[id];
+    }
+
+    /**
+     * Reports the number of names in this.
+     *
+     * @return the number of names
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Runs {@code parse} with {@code this} as the table of the current
+     * thread, so that the identifiers of every program and statement it
+     * parses are interned in {@code this}.
+     *
+     * @param parse
+     *            the parse to run
+     * @updates this
+     * @ensures this = #this union [the identifiers read by parse]
+     */
+    public void use(Runnable parse) {
+        assert parse != null : "Violation of: parse is not null";
+        SymbolTable previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            parse.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+}
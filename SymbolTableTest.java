@@ -0,0 +1,161 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code SymbolTable} and its use by the parsers.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class SymbolTableTest {
+
+    /**
+     * A program that calls {@code one} from the body of {@code two} and twice
+     * from the main body.
+     */
+    private static final String SOURCE = "PROGRAM P IS "
+            + "INSTRUCTION one IS move END one "
+            + "INSTRUCTION two IS one turnleft END two "
+            + "BEGIN one two one END P";
+
+    /**
+     * Returns the name called by statement {@code i} of {@code block}.
+     *
+     * @param block
+     *            the block
+     * @param i
+     *            the position of the call
+     * @return the name called
+     */
+    private static String call(Statement block, int i) {
+        Statement s = block.removeFromBlock(i);
+        String name = s.disassembleCall();
+        s.assembleCall(name);
+        block.addToBlock(i, s);
+        return name;
+    }
+
+    /**
+     * Test of intern, id and name.
+     */
+    @Test
+    public void testIntern() {
+        SymbolTable table = new SymbolTable();
+        assertEquals(0, table.intern("one"));
+        assertEquals(1, table.intern("two"));
+        assertEquals(0, table.intern(new String("one")));
+        assertEquals(2, table.size());
+        assertEquals(1, table.id("two"));
+        assertEquals(-1, table.id("three"));
+        assertEquals("two", table.name(1));
+    }
+
+    /**
+     * Test that equal names in a parsed program are the same instance.
+     */
+    @Test
+    public void testShared() {
+        Program p = new Program1Parse1();
+        p.parse(TestTokens.tokens(SOURCE));
+        Statement body = p.newBody();
+        p.swapBody(body);
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        String one = null;
+        String two = null;
+        for (Map.Pair<String, Statement> instruction : context) {
+            if (instruction.key().equals("one")) {
+                one = instruction.key();
+            } else {
+                two = instruction.key();
+            }
+        }
+        assertSame(call(body, 0), call(body, 2));
+        assertSame(one, call(body, 0));
+        assertSame(one, call(context.value("two"), 0));
+        assertSame(two, call(body, 1));
+    }
+
+    /**
+     * Test that the programs parsed inside use share the table.
+     */
+    @Test
+    public void testUse() {
+        SymbolTable table = new SymbolTable();
+        Program p = new Program1Parse1();
+        Program q = new Program1Parse1();
+        table.use(() -> {
+            p.parse(TestTokens.tokens(SOURCE));
+            q.parse(TestTokens.tokens(SOURCE));
+        });
+        assertEquals(4, table.size());
+        Statement body = p.newBody();
+        p.swapBody(body);
+        Statement other = q.newBody();
+        q.swapBody(other);
+        assertSame(call(body, 0), call(other, 0));
+        assertFalse(SymbolTable.isInterning());
+    }
+
+    /**
+     * Test that equal names in a program parsed in parallel are the same
+     * instance.
+     */
+    @Test
+    public void testSharedParallel() {
+        final int width = 10;
+        StringBuilder source = new StringBuilder("PROGRAM P IS ");
+        source.append("INSTRUCTION one IS move END one ");
+        for (int i = 0; i < width; i++) {
+            source.append("INSTRUCTION i" + i + " IS one END i" + i + " ");
+        }
+        source.append("BEGIN one i0 END P");
+        Program p = new Program1Parse2();
+        p.parse(TestTokens.tokens(source.toString()));
+        Statement body = p.newBody();
+        p.swapBody(body);
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        String one = call(body, 0);
+        for (int i = 0; i < width; i++) {
+            assertSame(one, call(context.value("i" + i), 0));
+        }
+    }
+
+    /**
+     * Test that equal names in a block parsed on its own are the same
+     * instance, with either statement parser.
+     */
+    @Test
+    public void testSharedStatement() {
+        Statement s = new Statement1Parse1();
+        s.parseBlock(TestTokens.tokens("one two one"));
+        assertSame(call(s, 0), call(s, 2));
+        Statement t = new Statement1Parse2();
+        t.parseBlock(TestTokens.tokens("one two one"));
+        assertSame(call(t, 0), call(t, 2));
+        assertFalse(SymbolTable.isInterning());
+    }
+
+    /**
+     * Test of FlatProgram.instructionOf.
+     */
+    @Test
+    public void testInstructionOf() {
+        FlatProgram flat = Program1Parse1
+                .parseFlat(TestTokens.stream(SOURCE));
+        int call = flat.child(flat.body(), 1);
+        int i = flat.instructionOf(flat.callIndex(call));
+        assertEquals("two", flat.instructionName(i));
+        int move = flat.child(flat.instructionBody(0), 0);
+        assertEquals(-1, flat.instructionOf(flat.callIndex(move)));
+    }
+
+}
@@ -0,0 +1,623 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generator of the LL(1) parse table of {@code Program1Parse3} from a BL
+ * grammar definition, {@code bl.grammar}.
+ *
+ * <p>
+ * The grammar is read as rules {@code name : alternative | ... ;}, whose
+ * alternatives are sequences of nonterminals (lower-case names), terminals
+ * (upper-case names, the token kinds of {@code TokenKind}) and semantic
+ * actions (names starting with {@code #}, which derive the empty string).
+ * The generator computes the FIRST and FOLLOW sets of the nonterminals,
+ * checks that the grammar is LL(1), and writes {@code BLParseTable.java}:
+ * the productions, numbered in order, with their right-hand sides reversed
+ * for pushing onto the parse stack, and the table of the production to
+ * expand each nonterminal by for each token kind. Terminals are written as
+ * the names of {@code TokenKind} constants, so the generator needs nothing
+ * but the JDK and can run as a single source file while building, as
+ * {@code java TableGenerator.java bl.grammar BLParseTable.java}; a grammar
+ * naming a token kind that does not exist yields a table that does not
+ * compile.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class TableGenerator {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Longest line written.
+     */
+    private static final int LINE_LENGTH = 80;
+
+    /**
+     * A production: a nonterminal and the symbols of one of its
+     * alternatives.
+     */
+    private static final class Production {
+
+        /**
+         * Index of the nonterminal.
+         */
+        private final int left;
+
+        /**
+         * The symbols, in order.
+         */
+        private final List<String> right;
+
+        /**
+         * Constructor.
+         *
+         * @param left
+         *            index of the nonterminal
+         * @param right
+         *            the symbols
+         */
+        private Production(int left, List<String> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+    }
+
+    /**
+     * The nonterminals, in order of definition, with their indices.
+     */
+    private final Map<String, Integer> nonterminals;
+
+    /**
+     * The terminals, in order of first use, with their indices.
+     */
+    private final Map<String, Integer> terminals;
+
+    /**
+     * The actions, in order of first use, with their indices.
+     */
+    private final Map<String, Integer> actions;
+
+    /**
+     * The productions, in order.
+     */
+    private final List<Production> productions;
+
+    /**
+     * Whether each nonterminal derives the empty string.
+     */
+    private boolean[] nullable;
+
+    /**
+     * The FIRST and FOLLOW sets of each nonterminal, over terminal indices.
+     */
+    private BitSet[] first, follow;
+
+    /**
+     * The production for each nonterminal and terminal, or -1.
+     */
+    private int[][] table;
+
+    /**
+     * Reports whether {@code symbol} names a nonterminal.
+     *
+     * @param symbol
+     *            the symbol
+     * @return true iff {@code symbol} starts with a lower-case letter
+     */
+    private static boolean isNonterminal(String symbol) {
+        return Character.isLowerCase(symbol.charAt(0));
+    }
+
+    /**
+     * Reports whether {@code symbol} names an action.
+     *
+     * @param symbol
+     *            the symbol
+     * @return true iff {@code symbol} starts with {@code #}
+     */
+    private static boolean isAction(String symbol) {
+        return symbol.charAt(0) == '#';
+    }
+
+    /**
+     * Returns the name of the constant for {@code symbol} in the table.
+     *
+     * @param symbol
+     *            the symbol
+     * @return the name of the constant
+     */
+    private static String constant(String symbol) {
+        if (isAction(symbol)) {
+            return "ACT_" + symbol.substring(1).toUpperCase();
+        } else if (isNonterminal(symbol)) {
+            return "NT_" + symbol.toUpperCase();
+        }
+        return "TokenKind." + symbol;
+    }
+
+    /**
+     * Splits {@code text} into the words of the grammar, without comments.
+     *
+     * @param text
+     *            the grammar
+     * @return the words
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            int comment = line.indexOf("//");
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            String spaced = line.replace(":", " : ").replace("|", " | ")
+                    .replace(";", " ; ");
+            for (String word : spaced.trim().split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Reads the rules of the grammar {@code text}.
+     *
+     * @param text
+     *            the grammar
+     * @throws IllegalArgumentException
+     *             if the grammar is malformed
+     */
+    private void read(String text) {
+        List<String> words = words(text);
+        for (int j = 0; j + 1 < words.size(); j++) {
+            if (words.get(j + 1).equals(":")
+                    && isNonterminal(words.get(j))) {
+                this.nonterminals.putIfAbsent(words.get(j),
+                        this.nonterminals.size());
+            }
+        }
+        int i = 0;
+        while (i < words.size()) {
+            String name = words.get(i);
+            if (!isNonterminal(name) || i + 1 == words.size()
+                    || !words.get(i + 1).equals(":")) {
+                throw new IllegalArgumentException(
+                        "expected \"name :\" at " + name);
+            }
+            int left = this.nonterminals.get(name);
+            if (this.productions.stream().anyMatch(p -> p.left == left)) {
+                throw new IllegalArgumentException(
+                        "rule defined twice: " + name);
+            }
+            i += 2;
+            List<String> right = new ArrayList<>();
+            while (i < words.size() && !words.get(i).equals(";")) {
+                String word = words.get(i);
+                if (word.equals("|")) {
+                    this.productions.add(new Production(left, right));
+                    right = new ArrayList<>();
+                } else if (word.equals(":")) {
+                    throw new IllegalArgumentException(
+                            "missing \";\" before " + words.get(i - 1));
+                } else {
+                    if (isAction(word)) {
+                        this.actions.putIfAbsent(word, this.actions.size());
+                    } else if (isNonterminal(word)) {
+                        this.nonterminals.putIfAbsent(word,
+                                this.nonterminals.size());
+                    } else if (word.matches("[A-Z][A-Z_]*")) {
+                        this.terminals.putIfAbsent(word,
+                                this.terminals.size());
+                    } else {
+                        throw new IllegalArgumentException(
+                                "not a symbol: " + word);
+                    }
+                    right.add(word);
+                }
+                i++;
+            }
+            if (i == words.size()) {
+                throw new IllegalArgumentException(
+                        "missing \";\" after rule " + name);
+            }
+            this.productions.add(new Production(left, right));
+            i++;
+        }
+        if (this.productions.isEmpty()) {
+            throw new IllegalArgumentException("no rules");
+        }
+        for (Map.Entry<String, Integer> n : this.nonterminals.entrySet()) {
+            if (this.productions.stream()
+                    .noneMatch(p -> p.left == n.getValue())) {
+                throw new IllegalArgumentException(
+                        "no rule for " + n.getKey());
+            }
+        }
+    }
+
+    /**
+     * Adds the FIRST set of {@code symbols}, from index {@code from} on, to
+     * {@code set}.
+     *
+     * @param symbols
+     *            the symbols
+     * @param from
+     *            the index of the first symbol
+     * @param set
+     *            the set added to
+     * @return true iff the symbols from {@code from} on derive the empty
+     *         string
+     * @updates set
+     */
+    private boolean addFirst(List<String> symbols, int from, BitSet set) {
+        for (int i = from; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            if (isNonterminal(symbol)) {
+                int n = this.nonterminals.get(symbol);
+                set.or(this.first[n]);
+                if (!this.nullable[n]) {
+                    return false;
+                }
+            } else if (!isAction(symbol)) {
+                set.set(this.terminals.get(symbol));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the nullable nonterminals and the FIRST and FOLLOW sets.
+     */
+    private void analyze() {
+        int count = this.nonterminals.size();
+        this.nullable = new boolean[count];
+        this.first = new BitSet[count];
+        this.follow = new BitSet[count];
+        for (int n = 0; n < count; n++) {
+            this.first[n] = new BitSet();
+            this.follow[n] = new BitSet();
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Production p : this.productions) {
+                BitSet set = (BitSet) this.first[p.left].clone();
+                boolean empty = this.addFirst(p.right, 0, set);
+                if (!set.equals(this.first[p.left])
+                        || (empty && !this.nullable[p.left])) {
+                    this.first[p.left] = set;
+                    this.nullable[p.left] |= empty;
+                    changed = true;
+                }
+            }
+        }
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (Production p : this.productions) {
+                for (int i = 0; i < p.right.size(); i++) {
+                    String symbol = p.right.get(i);
+                    if (isNonterminal(symbol)) {
+                        int n = this.nonterminals.get(symbol);
+                        BitSet set = (BitSet) this.follow[n].clone();
+                        if (this.addFirst(p.right, i + 1, set)) {
+                            set.or(this.follow[p.left]);
+                        }
+                        if (!set.equals(this.follow[n])) {
+                            this.follow[n] = set;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the parse table.
+     *
+     * @throws IllegalArgumentException
+     *             if the grammar is not LL(1)
+     */
+    private void fill() {
+        this.table = new int[this.nonterminals.size()][this.terminals
+                .size()];
+        for (int[] row : this.table) {
+            Arrays.fill(row, -1);
+        }
+        List<String> names = new ArrayList<>(this.terminals.keySet());
+        List<String> rules = new ArrayList<>(this.nonterminals.keySet());
+        for (int k = 0; k < this.productions.size(); k++) {
+            Production p = this.productions.get(k);
+            BitSet lookahead = new BitSet();
+            if (this.addFirst(p.right, 0, lookahead)) {
+                lookahead.or(this.follow[p.left]);
+            }
+            for (int t = lookahead.nextSetBit(0); t >= 0; t = lookahead
+                    .nextSetBit(t + 1)) {
+                if (this.table[p.left][t] >= 0) {
+                    throw new IllegalArgumentException("not LL(1): "
+                            + rules.get(p.left) + " has two productions for "
+                            + names.get(t));
+                }
+                this.table[p.left][t] = k;
+            }
+        }
+    }
+
+    /**
+     * Appends {@code items} to {@code out}, separated by commas and wrapped
+     * at {@code LINE_LENGTH}, each line indented by {@code indent} spaces.
+     *
+     * @param out
+     *            the output
+     * @param items
+     *            the items
+     * @param indent
+     *            the indentation
+     * @updates out
+     */
+    private static void wrap(StringBuilder out, List<String> items,
+            int indent) {
+        String spaces = " ".repeat(indent);
+        StringBuilder line = new StringBuilder(spaces);
+        for (int i = 0; i < items.size(); i++) {
+            String item = items.get(i);
+            if (i + 1 < items.size()) {
+                item += ",";
+            }
+            if (line.length() > indent
+                    && line.length() + 1 + item.length() > LINE_LENGTH) {
+                out.append(line).append('\n');
+                line = new StringBuilder(spaces);
+            }
+            if (line.length() > indent) {
+                line.append(' ');
+            }
+            line.append(item);
+        }
+        out.append(line).append('\n');
+    }
+
+    /**
+     * Appends the declarations of the constants for {@code symbols},
+     * numbered from {@code base}, to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @param kind
+     *            what the symbols are, for the doc comments
+     * @param symbols
+     *            the symbols
+     * @param base
+     *            the expression for the first value
+     * @updates out
+     */
+    private static void constants(StringBuilder out, String kind,
+            List<String> symbols, String base) {
+        for (int i = 0; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            out.append("    /**\n     * ").append(kind).append(" {@code ")
+                    .append(symbol).append("}.\n     */\n");
+            out.append("    public static final int ")
+                    .append(constant(symbol)).append(" = ").append(base)
+                    .append(" + ").append(i).append(";\n\n");
+        }
+    }
+
+    /**
+     * Writes the table as Java source.
+     *
+     * @return the source of {@code BLParseTable}
+     */
+    private String write() {
+        List<String> rules = new ArrayList<>(this.nonterminals.keySet());
+        List<String> acts = new ArrayList<>(this.actions.keySet());
+        List<String> names = new ArrayList<>(this.terminals.keySet());
+        StringBuilder out = new StringBuilder();
+        out.append("import java.util.Arrays;\n\n");
+        out.append("/**\n");
+        out.append(" * LL(1) parse table of BL for {@code Program1Parse3}, "
+                + "generated by\n");
+        out.append(" * {@code TableGenerator} from {@code bl.grammar}; "
+                + "do not edit.\n");
+        out.append(" *\n * <p>\n");
+        out.append(" * Terminals are token kinds, nonterminals follow them "
+                + "from\n");
+        out.append(" * {@code TokenKind.COUNT} on, and actions follow the "
+                + "nonterminals.\n");
+        out.append(" * </p>\n *\n");
+        out.append(" * @author Nik Anand and Hudson Arledge\n *\n */\n");
+        out.append("public final class BLParseTable {\n\n");
+        out.append("    /**\n     * No-argument constructor--private to "
+                + "prevent instantiation.\n     */\n");
+        out.append("    private BLParseTable() {\n    }\n\n");
+        out.append("    /**\n     * The number of nonterminals.\n     */\n");
+        out.append("    public static final int NONTERMINAL_COUNT = ")
+                .append(rules.size()).append(";\n\n");
+        constants(out, "Nonterminal", rules, "TokenKind.COUNT");
+        out.append("    /**\n     * The first action.\n     */\n");
+        out.append("    public static final int ACTION_BASE = "
+                + "TokenKind.COUNT + NONTERMINAL_COUNT;\n\n");
+        out.append("    /**\n     * The number of actions.\n     */\n");
+        out.append("    public static final int ACTION_COUNT = ")
+                .append(acts.size()).append(";\n\n");
+        constants(out, "Action", acts, "ACTION_BASE");
+        out.append("    /**\n     * The start symbol.\n     */\n");
+        out.append("    public static final int START = ")
+                .append(constant(rules.get(0))).append(";\n\n");
+        out.append("    /**\n     * Names of the nonterminals, indexed by\n"
+                + "     * {@code nonterminal - TokenKind.COUNT}.\n     */\n");
+        out.append("    static final String[] NONTERMINAL_NAMES = {\n");
+        List<String> quoted = new ArrayList<>();
+        for (String rule : rules) {
+            quoted.add("\"" + rule + "\"");
+        }
+        wrap(out, quoted, 2 * 4);
+        out.append("    };\n\n");
+        out.append("    /**\n     * Right-hand sides of the productions, "
+                + "reversed.\n     */\n");
+        out.append("    static final int[][] PRODUCTIONS = {\n");
+        for (int k = 0; k < this.productions.size(); k++) {
+            Production p = this.productions.get(k);
+            StringBuilder comment = new StringBuilder("        // " + k
+                    + ": " + rules.get(p.left) + " :");
+            for (String symbol : p.right) {
+                if (comment.length() + 1 + symbol.length() > LINE_LENGTH) {
+                    out.append(comment).append('\n');
+                    comment = new StringBuilder("        //    ");
+                }
+                comment.append(' ').append(symbol);
+            }
+            out.append(comment).append('\n');
+            List<String> items = new ArrayList<>();
+            for (int i = p.right.size() - 1; i >= 0; i--) {
+                items.add(constant(p.right.get(i)));
+            }
+            if (items.isEmpty()) {
+                out.append("        {}");
+            } else {
+                StringBuilder body = new StringBuilder();
+                wrap(body, items, 3 * 4);
+                out.append("        {\n").append(body).append("        }");
+            }
+            out.append(k + 1 < this.productions.size() ? ",\n" : "\n");
+        }
+        out.append("    };\n\n");
+        out.append("    /**\n     * The production to expand each "
+                + "nonterminal by for each token kind,\n");
+        out.append("     * at {@code (nonterminal - TokenKind.COUNT) * "
+                + "TokenKind.COUNT + kind},\n");
+        out.append("     * or -1 for a syntax error.\n     */\n");
+        out.append("    static final int[] TABLE = new int[NONTERMINAL_COUNT"
+                + " * TokenKind.COUNT];\n\n");
+        out.append("    static {\n");
+        out.append("        Arrays.fill(TABLE, -1);\n");
+        for (int n = 0; n < rules.size(); n++) {
+            for (int t = 0; t < names.size(); t++) {
+                if (this.table[n][t] >= 0) {
+                    String entry = "        entry(" + constant(rules.get(n))
+                            + ", " + constant(names.get(t)) + ", "
+                            + this.table[n][t] + ");";
+                    if (entry.length() > LINE_LENGTH) {
+                        entry = "        entry(" + constant(rules.get(n))
+                                + ",\n                "
+                                + constant(names.get(t)) + ", "
+                                + this.table[n][t] + ");";
+                    }
+                    out.append(entry).append('\n');
+                }
+            }
+        }
+        out.append("    }\n\n");
+        out.append("    /**\n     * Sets the entry of the table for "
+                + "{@code nonterminal} and {@code kind}.\n");
+        out.append("     *\n     * @param nonterminal\n");
+        out.append("     *            the nonterminal\n");
+        out.append("     * @param kind\n     *            the token kind\n");
+        out.append("     * @param production\n");
+        out.append("     *            the production\n     */\n");
+        out.append("    private static void entry(int nonterminal, int kind,"
+                + " int production) {\n");
+        out.append("        TABLE[(nonterminal - TokenKind.COUNT) * "
+                + "TokenKind.COUNT\n                + kind] = production;\n");
+        out.append("    }\n\n}\n");
+        return out.toString();
+    }
+
+    /**
+     * Constructor.
+     */
+    private TableGenerator() {
+        this.nonterminals = new LinkedHashMap<>();
+        this.terminals = new LinkedHashMap<>();
+        this.actions = new LinkedHashMap<>();
+        this.productions = new ArrayList<>();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Generates the source of {@code BLParseTable} from the grammar
+     * {@code grammar}.
+     *
+     * @param grammar
+     *            the text of the grammar
+     * @return the Java source of the table
+     * @throws IllegalArgumentException
+     *             if the grammar is malformed or not LL(1)
+     */
+    public static String generate(String grammar) {
+        assert grammar != null : "Violation of: grammar is not null";
+        TableGenerator generator = new TableGenerator();
+        generator.read(grammar);
+        generator.analyze();
+        generator.fill();
+        return generator.write();
+    }
+
+    /**
+     * Main method.
+     *
+     * <p>
+     * Usage: {@code TableGenerator [-check] [grammar [output]]}; the defaults
+     * are {@code bl.grammar} and {@code BLParseTable.java}. The output is
+     * only written if it changes. With {@code -check}, nothing is written:
+     * if the output is not the table of the grammar, the program reports it
+     * and exits with status 1, so a build can refuse a stale table.
+     * </p>
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int first = 0;
+        boolean check = args.length > 0 && args[0].equals("-check");
+        if (check) {
+            first = 1;
+        }
+        String grammar = "bl.grammar";
+        String output = "BLParseTable.java";
+        if (args.length > first) {
+            grammar = args[first];
+        }
+        if (args.length > first + 1) {
+            output = args[first + 1];
+        }
+        String source = generate(new String(
+                Files.readAllBytes(Paths.get(grammar)),
+                StandardCharsets.UTF_8));
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        boolean current = Files.exists(Paths.get(output)) && Arrays
+                .equals(Files.readAllBytes(Paths.get(output)), bytes);
+        if (check) {
+            if (!current) {
+                System.err.println(output + " is not the table of " + grammar
+                        + "; run java TableGenerator.java to regenerate it");
+                System.exit(1);
+            }
+        } else if (!current) {
+            Files.write(Paths.get(output), bytes);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code TableGenerator}.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class TableGeneratorTest {
+
+    /**
+     * Returns the contents of the file {@code name}.
+     *
+     * @param name
+     *            the file name
+     * @return the contents
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static String read(String name) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(name)),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the message of the {@code IllegalArgumentException} thrown by
+     * generating a table from {@code grammar}.
+     *
+     * @param grammar
+     *            the grammar
+     * @return the message, or {@code null} if none is thrown
+     */
+    private static String error(String grammar) {
+        try {
+            TableGenerator.generate(grammar);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Test that the checked-in table is the one generated from the grammar.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public void testTableIsCurrent() throws IOException {
+        /*
+         * Setup
+         */
+        String grammar = read("bl.grammar");
+        /*
+         * The call
+         */
+        String table = TableGenerator.generate(grammar);
+        /*
+         * Evaluation
+         */
+        assertEquals(read("BLParseTable.java"), table);
+    }
+
+    /**
+     * Test that generating is deterministic.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        /*
+         * Setup
+         */
+        String grammar = read("bl.grammar");
+        /*
+         * The call
+         */
+        String t1 = TableGenerator.generate(grammar);
+        String t2 = TableGenerator.generate(grammar);
+        /*
+         * Evaluation
+         */
+        assertEquals(t1, t2);
+    }
+
+    /**
+     * Test that a grammar that is not LL(1) is rejected.
+     */
+    @Test
+    public void testConflict() {
+        /*
+         * Setup
+         */
+        String grammar = "statement : IF condition THEN statement "
+                + "| IF condition THEN statement ELSE statement "
+                + "| IDENTIFIER ; condition : TRUE ;";
+        /*
+         * The call
+         */
+        String message = error(grammar);
+        /*
+         * Evaluation
+         */
+        assertEquals("not LL(1): statement has two productions for IF",
+                message);
+    }
+
+    /**
+     * Test that malformed grammars are rejected.
+     */
+    @Test
+    public void testMalformed() {
+        String[] grammars = { "", "a : b ;", "a : IDENTIFIER", "a : 1 ;",
+            "a : IS ; a : BEGIN ;", "A : IS ;" };
+        for (String grammar : grammars) {
+            /*
+             * The call
+             */
+            String message = error(grammar);
+            /*
+             * Evaluation
+             */
+            assertTrue(grammar, message != null);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+import components.program.Program;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.utilities.Tokenizer;
+
+/**
+ * Token and program builders shared by the JUnit test fixtures, which write
+ * their BL sources as strings of whitespace-separated tokens.
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+final class TestTokens {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private TestTokens() {
+    }
+
+    /**
+     * Returns the whitespace-separated tokens of {@code text}, followed by
+     * {@code Tokenizer.END_OF_INPUT}.
+     *
+     * @param text
+     *            the source text
+     * @return the tokens of {@code text}
+     */
+    static Queue<String> tokens(String text) {
+        Queue<String> tokens = new Queue1L<String>();
+        for (String token : text.trim().split("\\s+")) {
+            tokens.enqueue(token);
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        return tokens;
+    }
+
+    /**
+     * Returns the whitespace-separated tokens of {@code text}, followed by
+     * {@code Tokenizer.END_OF_INPUT}, as a {@code TokenStream}.
+     *
+     * @param text
+     *            the source text
+     * @return the tokens of {@code text}
+     */
+    static TokenStream stream(String text) {
+        return new QueueTokenStream(tokens(text));
+    }
+
+    /**
+     * Returns the program parsed by {@code Program1Parse1} from the
+     * whitespace-separated tokens of {@code text}.
+     *
+     * @param text
+     *            the source text
+     * @return the program
+     */
+    static Program parse(String text) {
+        Program p = new Program1Parse1();
+        p.parse(tokens(text));
+        return p;
+    }
+
+}
@@ -0,0 +1,166 @@
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * Integer codes for the kinds of BL tokens, so that parsers can dispatch on
+ * an {@code int} instead of comparing token strings.
+ *
+ * <p>
+ * Every keyword and every condition has its own kind; all other identifiers
+ * share {@code IDENTIFIER}, and anything that is not a legal BL token is
+ * {@code ERROR}.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class TokenKind {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private TokenKind() {
+    }
+
+    /**
+     * Kind of {@code Tokenizer.END_OF_INPUT}.
+     */
+    public static final int END_OF_INPUT = 0;
+
+    /**
+     * Kind of a token that is not a legal BL token.
+     */
+    public static final int ERROR = 1;
+
+    /**
+     * Kind of an identifier (including the names of primitive instructions).
+     */
+    public static final int IDENTIFIER = 2;
+
+    /**
+     * Kinds of the BL keywords.
+     */
+    public static final int PROGRAM = 3, IS = 4, BEGIN = 5, END = 6,
+            INSTRUCTION = 7, IF = 8, THEN = 9, ELSE = 10, WHILE = 11, DO = 12;
+
+    /**
+     * Kinds of the BL conditions.
+     */
+    public static final int NEXT_IS_EMPTY = 13, NEXT_IS_NOT_EMPTY = 14,
+            NEXT_IS_WALL = 15, NEXT_IS_NOT_WALL = 16, NEXT_IS_FRIEND = 17,
+            NEXT_IS_NOT_FRIEND = 18, NEXT_IS_ENEMY = 19, NEXT_IS_NOT_ENEMY = 20,
+            RANDOM = 21, TRUE = 22;
+
+    /**
+     * The number of token kinds.
+     */
+    public static final int COUNT = 23;
+
+    /**
+     * Spellings of the keyword and condition kinds, indexed by kind; the
+     * other kinds have no fixed spelling and map to {@code null}.
+     */
+    private static final String[] SPELLINGS = { null, null, null, "PROGRAM",
+        "IS", "BEGIN", "END", "INSTRUCTION", "IF", "THEN", "ELSE", "WHILE",
+        "DO", "next-is-empty", "next-is-not-empty", "next-is-wall",
+        "next-is-not-wall", "next-is-friend", "next-is-not-friend",
+        "next-is-enemy", "next-is-not-enemy", "random", "true" };
+
+    /**
+     * The {@code Condition} for each condition kind, indexed by
+     * {@code kind - NEXT_IS_EMPTY}.
+     */
+    private static final Statement.Condition[] CONDITIONS = {
+        Statement.Condition.NEXT_IS_EMPTY,
+        Statement.Condition.NEXT_IS_NOT_EMPTY,
+        Statement.Condition.NEXT_IS_WALL, Statement.Condition.NEXT_IS_NOT_WALL,
+        Statement.Condition.NEXT_IS_FRIEND,
+        Statement.Condition.NEXT_IS_NOT_FRIEND,
+        Statement.Condition.NEXT_IS_ENEMY,
+        Statement.Condition.NEXT_IS_NOT_ENEMY, Statement.Condition.RANDOM,
+        Statement.Condition.TRUE };
+
+    /**
+     * Reports the fixed spelling of a keyword or condition kind.
+     *
+     * @param kind
+     *            the token kind
+     * @return the spelling of {@code kind}
+     * @requires PROGRAM <= kind <= TRUE
+     * @ensures spelling = [the text of a token of kind kind]
+     */
+    public static String spelling(int kind) {
+        assert PROGRAM <= kind
+                && kind <= TRUE : "Violation of: PROGRAM <= kind <= TRUE";
+        return SPELLINGS[kind];
+    }
+
+    /**
+     * Reports whether {@code kind} is the kind of a condition.
+     *
+     * @param kind
+     *            the token kind
+     * @return true iff {@code kind} is a condition kind
+     * @ensures isCondition = (NEXT_IS_EMPTY <= kind <= TRUE)
+     */
+    public static boolean isCondition(int kind) {
+        return NEXT_IS_EMPTY <= kind && kind <= TRUE;
+    }
+
+    /**
+     * Converts the condition kind {@code kind} into the corresponding
+     * {@code Condition}.
+     *
+     * @param kind
+     *            the condition kind
+     * @return the {@code Condition} corresponding to {@code kind}
+     * @requires isCondition(kind)
+     * @ensures condition = [Condition corresponding to kind]
+     */
+    public static Statement.Condition condition(int kind) {
+        assert isCondition(kind) : "Violation of: kind is a condition kind";
+        return CONDITIONS[kind - NEXT_IS_EMPTY];
+    }
+
+    /**
+     * Converts the {@code Condition} {@code c} into the corresponding
+     * condition kind.
+     *
+     * @param c
+     *            the condition
+     * @return the condition kind corresponding to {@code c}
+     * @ensures condition(kindOf) = c
+     */
+    public static int kindOf(Statement.Condition c) {
+        assert c != null : "Violation of: c is not null";
+        int kind = NEXT_IS_EMPTY;
+        while (CONDITIONS[kind - NEXT_IS_EMPTY] != c) {
+            kind++;
+        }
+        return kind;
+    }
+
+    /**
+     * Classifies the token {@code token}.
+     *
+     * @param token
+     *            the token to classify
+     * @return the kind of {@code token}
+     * @ensures of = [the kind of token]
+     */
+    public static int of(String token) {
+        assert token != null : "Violation of: token is not null";
+        if (token.equals(Tokenizer.END_OF_INPUT)) {
+            return END_OF_INPUT;
+        }
+        int kind = KeywordTable.lookup(token);
+        if (kind != KeywordTable.NOT_FOUND) {
+            return kind;
+        }
+        if (Tokenizer.isIdentifier(token)) {
+            return IDENTIFIER;
+        }
+        return ERROR;
+    }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Pull-based stream of BL tokens with one-token lookahead.
+ *
+ * <p>
+ * Unlike the {@code Queue<String>} returned by {@code Tokenizer.tokens}, a
+ * {@code TokenStream} is free to produce its tokens lazily, so a parser can
+ * start consuming input before the whole file has been read and does not have
+ * to hold every token in memory at once.
+ * </p>
+ *
+ * @mathmodel type TokenStream is modeled by string of string of character
+ * @initially <pre>
+ * [this is the sequence of tokens of the input, followed by
+ *  <Tokenizer.END_OF_INPUT>]
+ * </pre>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public interface TokenStream {
+
+    /**
+     * Reports the front of {@code this} without removing it.
+     *
+     * @return the front token of {@code this}
+     * @requires this /= <>
+     * @ensures <front> is prefix of this
+     */
+    String front();
+
+    /**
+     * Reports the {@code TokenKind} of the front of {@code this} without
+     * removing it. Unlike {@code front}, an implementation need not build a
+     * {@code String} for the token.
+     *
+     * @return the kind of the front token of {@code this}
+     * @requires this /= <>
+     * @ensures frontKind = [the TokenKind of the front token of this]
+     */
+    int frontKind();
+
+    /**
+     * Removes and returns the front of {@code this}. Once the front is
+     * {@code Tokenizer.END_OF_INPUT}, it is returned and left in place.
+     *
+     * @return the front token of {@code this}
+     * @updates this
+     * @requires this /= <>
+     * @ensures <pre>
+     * if #this = <Tokenizer.END_OF_INPUT> then
+     *  this = #this  and  dequeue = Tokenizer.END_OF_INPUT
+     * else
+     *  #this = <dequeue> * this
+     * </pre>
+     */
+    String dequeue();
+
+    /**
+     * Removes the front of {@code this} without returning it. Unlike
+     * {@code dequeue}, an implementation need not build a {@code String} for
+     * the token. Once the front is {@code Tokenizer.END_OF_INPUT}, it is left
+     * in place.
+     *
+     * @updates this
+     * @requires this /= <>
+     * @ensures <pre>
+     * if #this = <Tokenizer.END_OF_INPUT> then
+     *  this = #this
+     * else
+     *  #this = <[the front token of #this]> * this
+     * </pre>
+     */
+    void advance();
+
+    /**
+     * Reports the position of the front of {@code this} in the input: the
+     * number of tokens of the input that precede it.
+     *
+     * @return the token position of the front of {@code this}
+     * @ensures position = [the number of input tokens before the front of
+     *          this]
+     */
+    int position();
+
+    /**
+     * Reports the location in the source text of the front of {@code this},
+     * packed as by {@code SourceLocation}.
+     *
+     * @return the location of the front of {@code this}, or
+     *         {@code SourceLocation.UNKNOWN} if the tokens do not come from
+     *         source text
+     * @ensures <pre>
+     * location = [the location of the first character of the front of this]
+     * </pre>
+     */
+    long location();
+
+}
@@ -0,0 +1,54 @@
+/**
+ * The world that {@code BugVM} runs bugs in: it answers the conditions a bug
+ * tests and carries out the primitive instructions a bug executes.
+ *
+ * <p>
+ * Bugs are numbered from 0 in the order they are added to the {@code BugVM}.
+ * In each tick, {@code test} is called first for any number of bugs, from
+ * several threads at once but never for the same bug from two threads, and
+ * never while {@code act} is running; then {@code act} is called once for
+ * every bug, from one thread, in increasing bug order. An implementation of
+ * {@code test} must therefore be safe to call concurrently as long as the
+ * world is not being changed.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public interface World {
+
+    /**
+     * Reports whether the condition of kind {@code condition} holds for
+     * {@code bug}.
+     *
+     * @param bug
+     *            the bug number
+     * @param condition
+     *            the condition kind, one of the {@code TokenKind} conditions
+     *            other than {@code TokenKind.TRUE}
+     * @return true iff the condition holds for {@code bug}
+     * @requires TokenKind.isCondition(condition)
+     */
+    boolean test(int bug, int condition);
+
+    /**
+     * Carries out the primitive instruction {@code action} for {@code bug},
+     * reporting the bug it infected, if any: an infected bug joins the
+     * species of {@code bug} and from then on runs its program.
+     *
+     * @param bug
+     *            the bug number
+     * @param action
+     *            the opcode of the primitive instruction, from
+     *            {@code BLCompiler.MOVE} to {@code BLCompiler.SKIP}
+     * @return the number of the bug infected, or -1 if none was
+     * @requires BLCompiler.MOVE <= action <= BLCompiler.SKIP
+     * @ensures <pre>
+     * act = -1  or
+     *  (action = BLCompiler.INFECT  and  [bug act was an enemy of bug ahead
+     *   of it, and is now of the species of bug])
+     * </pre>
+     */
+    int act(int bug, int action);
+
+}
@@ -0,0 +1,173 @@
+package bench;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+import components.queue.Queue;
+
+/**
+ * Throughput and allocation of parsing a program with
+ * {@code Program1Parse1}, each parse in a fresh program as in a batch run,
+ * with the scratch blocks of the statement parsers taken from a
+ * {@code StatementArena} kept across parses, and without.
+ *
+ * <p>
+ * Run with {@code -prof gc}: the difference in {@code gc.alloc.rate.norm}
+ * between {@code arena} and {@code noArena} is the allocation saved per
+ * parse. As in {@code PhaseBenchmark}, each invocation first copies the
+ * tokens into a new queue; {@code copyTokens} measures that copy alone. The
+ * parser and the arena are in the default package and are reached
+ * reflectively, through members looked up once per trial.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xss64m" })
+public class ArenaBenchmark {
+
+    /**
+     * The input and the parser, one per thread.
+     */
+    @State(Scope.Thread)
+    public static class Input {
+
+        /**
+         * The shape of the input; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-100", "deep-100", "long-1000" })
+        public String shape;
+
+        /**
+         * The {@code ParseMode} used for statement blocks.
+         */
+        @Param({ "RECURSIVE", "ITERATIVE" })
+        public String mode;
+
+        /**
+         * The tokens of the program.
+         */
+        public String[] tokens;
+
+        /**
+         * The {@code ParseMode}.
+         */
+        public Object parseMode;
+
+        /**
+         * {@code Program1Parse1(ParseMode)}.
+         */
+        public Constructor<?> parser;
+
+        /**
+         * The arena, kept across parses.
+         */
+        public Object arena;
+
+        /**
+         * {@code StatementArena.use(Runnable)}.
+         */
+        public Method use;
+
+        /**
+         * Generates the input and looks up the parser and the arena.
+         *
+         * @throws ReflectiveOperationException
+         *             if they cannot be reached
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.tokens = Fixtures.tokens(Fixtures.programFile(this.shape));
+            Class<?> modeClass = Class.forName("ParseMode");
+            this.parseMode = modeClass.getMethod("valueOf", String.class)
+                    .invoke(null, this.mode);
+            this.parser = Class.forName("Program1Parse1")
+                    .getConstructor(modeClass);
+            Class<?> arenaClass = Class.forName("StatementArena");
+            this.arena = arenaClass.getConstructor().newInstance();
+            this.use = arenaClass.getMethod("use", Runnable.class);
+        }
+
+        /**
+         * Returns a fresh program to parse into.
+         *
+         * @return the program
+         * @throws ReflectiveOperationException
+         *             if the parser cannot be instantiated
+         */
+        public Program newProgram() throws ReflectiveOperationException {
+            return (Program) this.parser.newInstance(this.parseMode);
+        }
+
+    }
+
+    /**
+     * Copies the tokens into a new queue, as each parse benchmark does.
+     *
+     * @param input
+     *            the input
+     * @return the queue
+     */
+    @Benchmark
+    public Queue<String> copyTokens(Input input) {
+        return Fixtures.queue(input.tokens);
+    }
+
+    /**
+     * Parses the program without an arena.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     * @throws ReflectiveOperationException
+     *             if the parser cannot be instantiated
+     */
+    @Benchmark
+    public Program noArena(Input input) throws ReflectiveOperationException {
+        Program p = input.newProgram();
+        p.parse(Fixtures.queue(input.tokens));
+        return p;
+    }
+
+    /**
+     * Parses the program with the arena.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     * @throws ReflectiveOperationException
+     *             if the parser cannot be instantiated
+     */
+    @Benchmark
+    public Program arena(Input input) throws ReflectiveOperationException {
+        Program p = input.newProgram();
+        Queue<String> tokens = Fixtures.queue(input.tokens);
+        try {
+            input.use.invoke(input.arena, (Runnable) () -> p.parse(tokens));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return p;
+    }
+
+}
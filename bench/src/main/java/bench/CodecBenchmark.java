@@ -0,0 +1,171 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.utilities.Tokenizer;
+
+/**
+ * Throughput of loading a program: from its source, with
+ * {@code Tokenizer.tokens} and {@code Program1Parse1.parse}, against from its
+ * {@code ProgramCodec} encoding, read into the same kind of {@code Program}.
+ *
+ * <p>
+ * The source is read from a file, as a client would; the encoding is read
+ * from memory, so the difference is an upper bound on what the format saves
+ * once both are in the page cache. {@code ProgramCodec} is in the default
+ * package and is called reflectively, through a {@code Method} looked up once
+ * per trial.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xss64m" })
+public class CodecBenchmark {
+
+    /**
+     * The input, shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        /**
+         * The shape of the input; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-100", "deep-100", "long-1000" })
+        public String shape;
+
+        /**
+         * Name of a temporary file holding the program text.
+         */
+        public String programFile;
+
+        /**
+         * The encoding of the program.
+         */
+        public byte[] encoding;
+
+        /**
+         * {@code ProgramCodec.read(InputStream, Program)}.
+         */
+        public Method read;
+
+        /**
+         * Generates the input and encodes it.
+         *
+         * @throws ReflectiveOperationException
+         *             if the parser or codec cannot be reached
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.programFile = Fixtures.programFile(this.shape);
+            Program p = (Program) Class.forName("Program1Parse1")
+                    .getConstructor().newInstance();
+            SimpleReader in = new SimpleReader1L(this.programFile);
+            p.parse(in);
+            in.close();
+            Class<?> codec = Class.forName("ProgramCodec");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.getMethod("write", Program.class, OutputStream.class)
+                    .invoke(null, p, out);
+            this.encoding = out.toByteArray();
+            this.read = codec.getMethod("read", InputStream.class,
+                    Program.class);
+        }
+
+    }
+
+    /**
+     * The program loaded into, one instance per thread.
+     */
+    @State(Scope.Thread)
+    public static class Target {
+
+        /**
+         * The parser, loaded from source.
+         */
+        public Program parsed;
+
+        /**
+         * A plain {@code Program}, loaded from the encoding.
+         */
+        public Program decoded;
+
+        /**
+         * Instantiates the programs.
+         *
+         * @throws ReflectiveOperationException
+         *             if the parser cannot be instantiated
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.parsed = (Program) Class.forName("Program1Parse1")
+                    .getConstructor().newInstance();
+            this.decoded = new Program1();
+        }
+
+    }
+
+    /**
+     * Tokenizes and parses the program file.
+     *
+     * @param input
+     *            the input
+     * @param target
+     *            the program loaded into
+     * @return the program
+     */
+    @Benchmark
+    public Program parse(Input input, Target target) {
+        SimpleReader in = new SimpleReader1L(input.programFile);
+        target.parsed.parse(Tokenizer.tokens(in));
+        in.close();
+        return target.parsed;
+    }
+
+    /**
+     * Reads the program from its encoding.
+     *
+     * @param input
+     *            the input
+     * @param target
+     *            the program loaded into
+     * @return the program
+     * @throws ReflectiveOperationException
+     *             if the codec fails
+     */
+    @Benchmark
+    public Program decode(Input input, Target target)
+            throws ReflectiveOperationException {
+        input.read.invoke(null, new ByteArrayInputStream(input.encoding),
+                target.decoded);
+        return target.decoded;
+    }
+
+}
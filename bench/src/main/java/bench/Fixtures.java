@@ -0,0 +1,206 @@
+package bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.utilities.Tokenizer;
+
+/**
+ * BL inputs for the benchmarks: the fixtures shipped with the parser, and
+ * synthetic programs of a given shape and size made by {@code BLGenerator}.
+ *
+ * <p>
+ * A shape is named {@code fixture}, or {@code wide-n} ({@code n}
+ * instructions of four statements each), {@code deep-n} (a main body of
+ * {@code n} nested IF/WHILE statements) or {@code long-n} (a main body of
+ * {@code n} calls). Each shape has a program and a block: for {@code fixture}
+ * they are {@code program1a.bl} and {@code statement1a.bl}; for the others the
+ * block is generated with the same settings as a program body (for
+ * {@code wide-n}, with as many statements as all the instruction bodies).
+ * </p>
+ *
+ * <p>
+ * {@code BLGenerator} is in the default package, so it is run through its
+ * {@code main} method, reflectively, writing straight to a temporary file.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+public final class Fixtures {
+
+    /**
+     * No-argument constructor--private to prevent instantiation.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Reads the class path resource {@code name}.
+     *
+     * @param name
+     *            the resource name
+     * @return the text of the resource
+     */
+    private static String resource(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No resource: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the {@code BLGenerator} options for {@code shape}.
+     *
+     * @param shape
+     *            the shape, other than {@code fixture}
+     * @param block
+     *            whether the options are for a block
+     * @return the options
+     */
+    private static String[] options(String shape, boolean block) {
+        int dash = shape.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        String kind = shape.substring(0, dash);
+        int n = Integer.parseInt(shape.substring(dash + 1));
+        final int wideStatements = 4;
+        switch (kind) {
+            case "wide":
+                int statements = wideStatements;
+                if (block) {
+                    statements *= n;
+                }
+                return new String[] { "-instructions", "" + n, "-statements",
+                    "" + statements, "-depth", "2" };
+            case "deep":
+                return new String[] { "-instructions", "0", "-statements",
+                    "" + n, "-depth", "" + n, "-weights", "0,1,1,0" };
+            case "long":
+                return new String[] { "-instructions", "0", "-statements",
+                    "" + n, "-weights", "1,0,0,0" };
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    /**
+     * Runs {@code BLGenerator} with {@code options}, writing to a new
+     * temporary file.
+     *
+     * @param options
+     *            the generator options
+     * @return the name of the file
+     */
+    private static String generate(String... options) {
+        String file = writeTemp("");
+        String[] args = Arrays.copyOf(options, options.length + 2);
+        args[options.length] = "-o";
+        args[options.length + 1] = file;
+        try {
+            Class.forName("BLGenerator").getMethod("main", String[].class)
+                    .invoke(null, (Object) args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the name of a file holding the program of {@code shape}.
+     *
+     * @param shape
+     *            the shape
+     * @return the name of the file
+     */
+    public static String programFile(String shape) {
+        if (shape.equals("fixture")) {
+            return writeTemp(resource("program1a.bl"));
+        }
+        return generate(options(shape, false));
+    }
+
+    /**
+     * Returns the name of a file holding the block of {@code shape}.
+     *
+     * @param shape
+     *            the shape
+     * @return the name of the file
+     */
+    public static String blockFile(String shape) {
+        if (shape.equals("fixture")) {
+            return writeTemp(resource("statement1a.bl"));
+        }
+        String[] options = options(shape, true);
+        options = Arrays.copyOf(options, options.length + 1);
+        options[options.length - 1] = "-block";
+        return generate(options);
+    }
+
+    /**
+     * Writes {@code text} to a new temporary file, deleted on exit.
+     *
+     * @param text
+     *            the text to write
+     * @return the name of the file
+     */
+    public static String writeTemp(String text) {
+        try {
+            Path file = Files.createTempFile("bench", ".bl");
+            file.toFile().deleteOnExit();
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            return file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the tokens of the file named {@code fileName}, as produced by
+     * {@code Tokenizer.tokens} (ending with {@code Tokenizer.END_OF_INPUT}).
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the tokens of the file
+     */
+    public static String[] tokens(String fileName) {
+        SimpleReader in = new SimpleReader1L(fileName);
+        Queue<String> tokens = Tokenizer.tokens(in);
+        in.close();
+        String[] result = new String[tokens.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.dequeue();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new queue holding {@code tokens}.
+     *
+     * @param tokens
+     *            the tokens
+     * @return the queue of {@code tokens}
+     */
+    public static Queue<String> queue(String[] tokens) {
+        Queue<String> q = new Queue1L<String>();
+        for (String token : tokens) {
+            q.enqueue(token);
+        }
+        return q;
+    }
+
+}
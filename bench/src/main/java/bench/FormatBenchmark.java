@@ -0,0 +1,197 @@
+package bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Time to write a parsed program to a file: with {@code prettyPrint} on a
+ * {@code SimpleWriter1L}, against {@code BLFormatter} in its pretty and
+ * compact layouts on an {@code OutputStreamWriter}.
+ *
+ * <p>
+ * The {@code long-n} shapes are large enough (megabytes of text for the
+ * largest) for the cost per line to dominate. Each iteration writes to its
+ * own temporary file, opened before and closed after the iteration, so that
+ * the measurements include writing out the buffered text but not opening the
+ * file. {@code BLFormatter} is in the default package and is called
+ * reflectively, through a formatter made once per iteration. Run with
+ * {@code -prof gc} to compare the allocation rates.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class FormatBenchmark {
+
+    /**
+     * A parsed program and the outputs it is written to, one of each per
+     * thread.
+     */
+    @State(Scope.Thread)
+    public static class Printing {
+
+        /**
+         * The shape of the program; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-1000", "long-10000", "long-100000" })
+        public String shape;
+
+        /**
+         * The parsed program.
+         */
+        public Program program;
+
+        /**
+         * The output of {@code prettyPrint}.
+         */
+        public SimpleWriter out;
+
+        /**
+         * The output of the formatters.
+         */
+        public Writer writer;
+
+        /**
+         * Formatters in the pretty and compact layouts, writing to
+         * {@code writer}.
+         */
+        public Object pretty, compact;
+
+        /**
+         * {@code BLFormatter.format(Program)} and {@code BLFormatter.flush()}.
+         */
+        public Method format, flush;
+
+        /**
+         * Generates and parses the program.
+         *
+         * @throws ReflectiveOperationException
+         *             if the parser or formatter cannot be reached
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.program = (Program) Class.forName("Program1Parse1")
+                    .getConstructor().newInstance();
+            this.program.parse(Fixtures
+                    .queue(Fixtures.tokens(Fixtures.programFile(this.shape))));
+            Class<?> formatter = Class.forName("BLFormatter");
+            this.format = formatter.getMethod("format", Program.class);
+            this.flush = formatter.getMethod("flush");
+        }
+
+        /**
+         * Opens the outputs and makes the formatters.
+         *
+         * @throws ReflectiveOperationException
+         *             if the formatters cannot be made
+         */
+        @Setup(Level.Iteration)
+        public void open() throws ReflectiveOperationException {
+            this.out = new SimpleWriter1L(Fixtures.writeTemp(""));
+            try {
+                this.writer = new OutputStreamWriter(
+                        new FileOutputStream(Fixtures.writeTemp("")),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Class<?> formatter = this.format.getDeclaringClass();
+            this.pretty = formatter
+                    .getConstructor(Writer.class, boolean.class)
+                    .newInstance(this.writer, false);
+            this.compact = formatter
+                    .getConstructor(Writer.class, boolean.class)
+                    .newInstance(this.writer, true);
+        }
+
+        /**
+         * Closes the outputs.
+         *
+         * @throws IOException
+         *             if closing fails
+         */
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            this.out.close();
+            this.writer.close();
+        }
+
+    }
+
+    /**
+     * Writes the program with {@code prettyPrint}.
+     *
+     * @param printing
+     *            the program and output
+     * @return the program
+     */
+    @Benchmark
+    public Program prettyPrint(Printing printing) {
+        printing.program.prettyPrint(printing.out);
+        return printing.program;
+    }
+
+    /**
+     * Writes the program with {@code BLFormatter}, in the pretty layout.
+     *
+     * @param printing
+     *            the program and output
+     * @return the program
+     * @throws ReflectiveOperationException
+     *             if the formatter fails
+     */
+    @Benchmark
+    public Program formatPretty(Printing printing)
+            throws ReflectiveOperationException {
+        printing.format.invoke(printing.pretty, printing.program);
+        printing.flush.invoke(printing.pretty);
+        return printing.program;
+    }
+
+    /**
+     * Writes the program with {@code BLFormatter}, in the compact layout.
+     *
+     * @param printing
+     *            the program and output
+     * @return the program
+     * @throws ReflectiveOperationException
+     *             if the formatter fails
+     */
+    @Benchmark
+    public Program formatCompact(Printing printing)
+            throws ReflectiveOperationException {
+        printing.format.invoke(printing.compact, printing.program);
+        printing.flush.invoke(printing.compact);
+        return printing.program;
+    }
+
+}
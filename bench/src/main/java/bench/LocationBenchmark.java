@@ -0,0 +1,152 @@
+package bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of tracking source locations: throughput of lexing a program from its
+ * bytes with {@code MappedLexer} and parsing it with
+ * {@code Program1Parse1.parseFlat}, with the lexer tracking the line and
+ * column of every token and without.
+ *
+ * <p>
+ * Both variants store a location per token and per node (the offset alone,
+ * without tracking), so the difference is the cost of counting lines and
+ * packing columns; the ratio of the two throughputs is the overhead of
+ * locations on the whole front end. The lexer, the token stream and the
+ * parser are in the default package and are reached reflectively, through
+ * members looked up once per trial.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class LocationBenchmark {
+
+    /**
+     * The input, shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        /**
+         * The shape of the input; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-1000", "long-10000" })
+        public String shape;
+
+        /**
+         * The bytes of the program.
+         */
+        public byte[] source;
+
+        /**
+         * {@code MappedLexer(ByteBuffer, boolean)}.
+         */
+        public Constructor<?> lexer;
+
+        /**
+         * {@code MappedTokenStream(MappedLexer)}.
+         */
+        public Constructor<?> stream;
+
+        /**
+         * {@code Program1Parse1.parseFlat(TokenStream)}.
+         */
+        public Method parseFlat;
+
+        /**
+         * Generates the input and looks up the front end.
+         *
+         * @throws ReflectiveOperationException
+         *             if the front end cannot be reached
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            try {
+                this.source = Files.readAllBytes(
+                        Paths.get(Fixtures.programFile(this.shape)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Class<?> lexerClass = Class.forName("MappedLexer");
+            this.lexer = lexerClass.getConstructor(ByteBuffer.class,
+                    boolean.class);
+            this.stream = Class.forName("MappedTokenStream")
+                    .getConstructor(lexerClass);
+            this.parseFlat = Class.forName("Program1Parse1").getMethod(
+                    "parseFlat", Class.forName("TokenStream"));
+        }
+
+        /**
+         * Lexes and parses the program.
+         *
+         * @param locate
+         *            whether the lexer tracks lines and columns
+         * @return the parsed program
+         * @throws ReflectiveOperationException
+         *             if the front end fails
+         */
+        public Object parse(boolean locate)
+                throws ReflectiveOperationException {
+            Object lexed = this.lexer.newInstance(ByteBuffer.wrap(this.source),
+                    locate);
+            return this.parseFlat.invoke(null, this.stream.newInstance(lexed));
+        }
+
+    }
+
+    /**
+     * Lexes and parses the program, tracking lines and columns.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     * @throws ReflectiveOperationException
+     *             if the front end fails
+     */
+    @Benchmark
+    public Object located(Input input) throws ReflectiveOperationException {
+        return input.parse(true);
+    }
+
+    /**
+     * Lexes and parses the program, with offsets only.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     * @throws ReflectiveOperationException
+     *             if the front end fails
+     */
+    @Benchmark
+    public Object offsetsOnly(Input input)
+            throws ReflectiveOperationException {
+        return input.parse(false);
+    }
+
+}
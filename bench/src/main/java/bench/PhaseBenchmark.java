@@ -0,0 +1,280 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * Throughput of each phase of processing a BL program, measured separately:
+ * tokenizing, parsing a program from tokens, parsing a statement block from
+ * tokens, and pretty-printing.
+ *
+ * <p>
+ * The parse benchmarks consume their token queue, so each invocation first
+ * copies the tokens into a new queue; {@code copyTokens} measures that copy
+ * alone, to be subtracted. Run with {@code -prof gc} to get the allocation
+ * rate of each phase.
+ * </p>
+ *
+ * <p>
+ * The parser classes live in the default package, which JMH benchmarks
+ * cannot be in and Java code in a named package cannot import; they are
+ * instantiated reflectively, once per trial, and used through the
+ * {@code Program} and {@code Statement} interfaces.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xss64m" })
+public class PhaseBenchmark {
+
+    /**
+     * The input, shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        /**
+         * The shape of the input; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-100", "deep-100", "long-1000" })
+        public String shape;
+
+        /**
+         * Name of a temporary file holding the program text.
+         */
+        public String programFile;
+
+        /**
+         * The tokens of the program.
+         */
+        public String[] programTokens;
+
+        /**
+         * The tokens of the block.
+         */
+        public String[] blockTokens;
+
+        /**
+         * Generates the input.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.programFile = Fixtures.programFile(this.shape);
+            this.programTokens = Fixtures.tokens(this.programFile);
+            this.blockTokens = Fixtures
+                    .tokens(Fixtures.blockFile(this.shape));
+        }
+
+    }
+
+    /**
+     * The {@code Program} implementation, one instance per thread.
+     */
+    @State(Scope.Thread)
+    public static class ProgramParser {
+
+        /**
+         * Name of the implementation.
+         */
+        @Param({ "Program1Parse1", "Program1Parse2" })
+        public String className;
+
+        /**
+         * The program parsed into.
+         */
+        public Program program;
+
+        /**
+         * Instantiates the implementation.
+         *
+         * @throws ReflectiveOperationException
+         *             if the class cannot be instantiated
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.program = (Program) Class.forName(this.className)
+                    .getConstructor().newInstance();
+        }
+
+    }
+
+    /**
+     * The {@code Statement} implementation, one instance per thread.
+     */
+    @State(Scope.Thread)
+    public static class StatementParser {
+
+        /**
+         * Name of the implementation.
+         */
+        @Param({ "Statement1Parse1", "Statement1Parse2" })
+        public String className;
+
+        /**
+         * The statement parsed into.
+         */
+        public Statement statement;
+
+        /**
+         * Instantiates the implementation.
+         *
+         * @throws ReflectiveOperationException
+         *             if the class cannot be instantiated
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.statement = (Statement) Class.forName(this.className)
+                    .getConstructor().newInstance();
+        }
+
+    }
+
+    /**
+     * A parsed program and the writer it is printed to.
+     */
+    @State(Scope.Thread)
+    public static class Printing {
+
+        /**
+         * The parsed program.
+         */
+        public Program program;
+
+        /**
+         * The output, a temporary file.
+         */
+        public SimpleWriter out;
+
+        /**
+         * Parses the program with the reference implementation.
+         *
+         * @param input
+         *            the input
+         * @throws ReflectiveOperationException
+         *             if the parser cannot be instantiated
+         */
+        @Setup(Level.Trial)
+        public void setUp(Input input) throws ReflectiveOperationException {
+            this.program = (Program) Class.forName("Program1Parse1")
+                    .getConstructor().newInstance();
+            this.program.parse(Fixtures.queue(input.programTokens));
+        }
+
+        /**
+         * Opens the output.
+         */
+        @Setup(Level.Iteration)
+        public void open() {
+            this.out = new SimpleWriter1L(Fixtures.writeTemp(""));
+        }
+
+        /**
+         * Closes the output.
+         */
+        @TearDown(Level.Iteration)
+        public void close() {
+            this.out.close();
+        }
+
+    }
+
+    /**
+     * Tokenizes the program file with {@code Tokenizer.tokens}.
+     *
+     * @param input
+     *            the input
+     * @return the tokens
+     */
+    @Benchmark
+    public Queue<String> tokenize(Input input) {
+        SimpleReader in = new SimpleReader1L(input.programFile);
+        Queue<String> tokens = Tokenizer.tokens(in);
+        in.close();
+        return tokens;
+    }
+
+    /**
+     * Copies the program tokens into a new queue: the overhead included in
+     * {@code parseProgram}.
+     *
+     * @param input
+     *            the input
+     * @return the queue
+     */
+    @Benchmark
+    public Queue<String> copyTokens(Input input) {
+        return Fixtures.queue(input.programTokens);
+    }
+
+    /**
+     * Parses the program from its tokens with {@code Program.parse(Queue)}.
+     *
+     * @param input
+     *            the input
+     * @param parser
+     *            the parser implementation
+     * @return the parsed program
+     */
+    @Benchmark
+    public Program parseProgram(Input input, ProgramParser parser) {
+        parser.program.parse(Fixtures.queue(input.programTokens));
+        return parser.program;
+    }
+
+    /**
+     * Parses the block from its tokens with
+     * {@code Statement.parseBlock(Queue)}.
+     *
+     * @param input
+     *            the input
+     * @param parser
+     *            the parser implementation
+     * @return the parsed block
+     */
+    @Benchmark
+    public Statement parseBlock(Input input, StatementParser parser) {
+        parser.statement.parseBlock(Fixtures.queue(input.blockTokens));
+        return parser.statement;
+    }
+
+    /**
+     * Pretty-prints the parsed program.
+     *
+     * @param printing
+     *            the program and output
+     * @return the program
+     */
+    @Benchmark
+    public Program prettyPrint(Printing printing) {
+        printing.program.prettyPrint(printing.out);
+        return printing.program;
+    }
+
+}
@@ -0,0 +1,94 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+
+/**
+ * Time to parse a program as its number of instructions grows, from a
+ * thousand to tens of thousands, to check that checking the instruction
+ * definitions (primitive names and duplicates) scales linearly.
+ *
+ * <p>
+ * The programs have the {@code wide-n} shape of {@code Fixtures}: {@code n}
+ * instructions of four statements each, and a short main body. With linear
+ * scaling, the average time per operation divided by {@code instructions}
+ * stays flat across the parameter values; a quadratic check shows up as a
+ * time per instruction that grows with {@code instructions}.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class ScalingBenchmark {
+
+    /**
+     * The input and the parser, one of each per thread.
+     */
+    @State(Scope.Thread)
+    public static class Input {
+
+        /**
+         * The number of instructions of the program.
+         */
+        @Param({ "1000", "3000", "10000", "30000" })
+        public int instructions;
+
+        /**
+         * The tokens of the program.
+         */
+        public String[] tokens;
+
+        /**
+         * The program parsed into.
+         */
+        public Program program;
+
+        /**
+         * Generates the program and instantiates the parser.
+         *
+         * @throws ReflectiveOperationException
+         *             if the parser cannot be instantiated
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.tokens = Fixtures.tokens(
+                    Fixtures.programFile("wide-" + this.instructions));
+            this.program = (Program) Class.forName("Program1Parse1")
+                    .getConstructor().newInstance();
+        }
+
+    }
+
+    /**
+     * Parses the program from its tokens.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     */
+    @Benchmark
+    public Program parse(Input input) {
+        input.program.parse(Fixtures.queue(input.tokens));
+        return input.program;
+    }
+
+}
@@ -0,0 +1,134 @@
+package bench;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import components.program.Program;
+import components.queue.Queue;
+
+/**
+ * Throughput of parsing a program with the table-driven
+ * {@code Program1Parse3} against the hand-written recursive and iterative
+ * parsers of {@code Program1Parse1}, each parse in a fresh program.
+ *
+ * <p>
+ * As in {@code PhaseBenchmark}, each invocation first copies the tokens into
+ * a new queue; {@code copyTokens} measures that copy alone. The parsers are
+ * in the default package and are constructed reflectively, through a
+ * constructor looked up once per trial. The build checks that the parse
+ * table is the one generated from {@code bl.grammar} before compiling, and
+ * fails if it is stale, so a change to the grammar is never measured against
+ * an old table.
+ * </p>
+ *
+ * @author Nik Anand and Hudson Arledge
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xss64m" })
+public class TableParserBenchmark {
+
+    /**
+     * The input and the parser, one per thread.
+     */
+    @State(Scope.Thread)
+    public static class Input {
+
+        /**
+         * The shape of the input; see {@code Fixtures}.
+         */
+        @Param({ "fixture", "wide-100", "deep-100", "long-1000" })
+        public String shape;
+
+        /**
+         * The parser: {@code TABLE} for {@code Program1Parse3}, or the
+         * {@code ParseMode} of {@code Program1Parse1}.
+         */
+        @Param({ "TABLE", "RECURSIVE", "ITERATIVE" })
+        public String parser;
+
+        /**
+         * The tokens of the program.
+         */
+        public String[] tokens;
+
+        /**
+         * The constructor of the parser.
+         */
+        public Constructor<?> constructor;
+
+        /**
+         * The arguments of the constructor.
+         */
+        public Object[] arguments;
+
+        /**
+         * Generates the input and looks up the parser.
+         *
+         * @throws ReflectiveOperationException
+         *             if it cannot be reached
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws ReflectiveOperationException {
+            this.tokens = Fixtures.tokens(Fixtures.programFile(this.shape));
+            if (this.parser.equals("TABLE")) {
+                this.constructor = Class.forName("Program1Parse3")
+                        .getConstructor();
+                this.arguments = new Object[0];
+            } else {
+                Class<?> modeClass = Class.forName("ParseMode");
+                this.constructor = Class.forName("Program1Parse1")
+                        .getConstructor(modeClass);
+                this.arguments = new Object[] { modeClass
+                        .getMethod("valueOf", String.class)
+                        .invoke(null, this.parser) };
+            }
+        }
+
+    }
+
+    /**
+     * Copies the tokens into a new queue, as the parse benchmark does.
+     *
+     * @param input
+     *            the input
+     * @return the queue
+     */
+    @Benchmark
+    public Queue<String> copyTokens(Input input) {
+        return Fixtures.queue(input.tokens);
+    }
+
+    /**
+     * Parses the program.
+     *
+     * @param input
+     *            the input
+     * @return the parsed program
+     * @throws ReflectiveOperationException
+     *             if the parser cannot be instantiated
+     */
+    @Benchmark
+    public Program parse(Input input) throws ReflectiveOperationException {
+        Program p = (Program) input.constructor.newInstance(input.arguments);
+        p.parse(Fixtures.queue(input.tokens));
+        return p;
+    }
+
+}